@@ -20,6 +20,7 @@ public class AsyncConfig {
         executor.setThreadNamePrefix("Async-");
         executor.setKeepAliveSeconds(60);
         executor.setAllowCoreThreadTimeOut(true);
+        executor.setTaskDecorator(new MdcTaskDecorator());
         executor.initialize();
         return executor;
     }
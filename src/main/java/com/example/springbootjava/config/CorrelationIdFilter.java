@@ -0,0 +1,51 @@
+package com.example.springbootjava.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Tags every request with a correlation id that is put in the MDC and echoed back in the response.
+ * Runs ahead of the security chain so authentication logs carry the id too.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelationIdFilter extends OncePerRequestFilter {
+    
+    public static final String HEADER_NAME = "X-Request-ID";
+    public static final String MDC_KEY = "requestId";
+    
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String requestId = request.getHeader(HEADER_NAME);
+        if (requestId == null || !VALID_ID.matcher(requestId).matches()) {
+            requestId = newRequestId();
+        }
+        
+        MDC.put(MDC_KEY, requestId);
+        response.setHeader(HEADER_NAME, requestId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(MDC_KEY);
+        }
+    }
+    
+    // ThreadLocalRandom avoids the SecureRandom contention of UUID.randomUUID() on the request path
+    private static String newRequestId() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+    }
+}
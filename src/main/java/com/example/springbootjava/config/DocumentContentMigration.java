@@ -0,0 +1,73 @@
+package com.example.springbootjava.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+
+/**
+ * Moves extracted text from the legacy {@code documents.content} column into
+ * {@code document_contents}. Checked on every startup, but once the column is absent or holds
+ * no content the check is a single lookup and nothing is written; the column itself is left in
+ * place but cleared.
+ */
+@Component
+public class DocumentContentMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentContentMigration.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!hasLegacyContentColumn() || !hasLegacyContent()) {
+            return;
+        }
+        Integer moved = transactionTemplate.execute(status -> {
+            int inserted = jdbcTemplate.update(
+                    "INSERT INTO document_contents (document_id, content) "
+                            + "SELECT d.id, d.content FROM documents d "
+                            + "WHERE d.content IS NOT NULL "
+                            + "AND NOT EXISTS (SELECT 1 FROM document_contents c WHERE c.document_id = d.id)");
+            jdbcTemplate.update("UPDATE documents SET content = NULL WHERE content IS NOT NULL");
+            return inserted;
+        });
+        if (moved != null && moved > 0) {
+            logger.info("Moved content of {} documents into document_contents", moved);
+        }
+    }
+
+    // Stops at the first document still holding content, so a finished migration is not redone
+    private boolean hasLegacyContent() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM documents WHERE content IS NOT NULL)", Boolean.class));
+    }
+
+    private boolean hasLegacyContentColumn() {
+        Boolean present = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // Unquoted identifiers are lower case in PostgreSQL and upper case in H2
+            for (String[] names : new String[][]{{"documents", "content"}, {"DOCUMENTS", "CONTENT"}}) {
+                try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, names[0], names[1])) {
+                    if (columns.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        });
+        return Boolean.TRUE.equals(present);
+    }
+}
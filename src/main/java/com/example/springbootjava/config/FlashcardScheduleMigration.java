@@ -0,0 +1,34 @@
+package com.example.springbootjava.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives flashcards created before review scheduling a schedule that makes them due from their
+ * creation time, so they show up in the due queue. Does nothing once every card has one.
+ */
+@Component
+public class FlashcardScheduleMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlashcardScheduleMigration.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int updated = jdbcTemplate.update(
+                "UPDATE flashcards SET next_review_at = COALESCE(created_at, CURRENT_TIMESTAMP), "
+                        + "interval_days = COALESCE(interval_days, 0), ease_factor = COALESCE(ease_factor, 2.5), "
+                        + "repetitions = COALESCE(repetitions, 0) "
+                        + "WHERE next_review_at IS NULL");
+        if (updated > 0) {
+            logger.info("Scheduled {} flashcards for review", updated);
+        }
+    }
+}
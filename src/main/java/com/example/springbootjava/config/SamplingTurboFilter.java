@@ -0,0 +1,86 @@
+package com.example.springbootjava.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logback turbo filter that keeps only one in N events below WARN for configured logger categories.
+ * Rules are declared in logback-spring.xml as {@code <sample>category=N</sample>}; the longest matching
+ * category prefix wins. WARN and ERROR are never sampled.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+    
+    private static final Rule NO_RULE = new Rule(1);
+    
+    private final Map<String, Integer> rates = new ConcurrentHashMap<>();
+    private final Map<String, Rule> rulesByLogger = new ConcurrentHashMap<>();
+    
+    /**
+     * Adds a rule in the form {@code category=N}
+     */
+    public void addSample(String sample) {
+        int separator = sample.lastIndexOf('=');
+        if (separator <= 0) {
+            addWarn("Ignoring malformed sample rule: " + sample);
+            return;
+        }
+        String category = sample.substring(0, separator).trim();
+        try {
+            int everyN = Integer.parseInt(sample.substring(separator + 1).trim());
+            if (everyN > 1) {
+                rates.put(category, everyN);
+                rulesByLogger.clear();
+            }
+        } catch (NumberFormatException e) {
+            addWarn("Ignoring sample rule with non-numeric rate: " + sample);
+        }
+    }
+    
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // isXxxEnabled() checks arrive with a null format; only real events are counted
+        if (level == null || format == null || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        
+        Rule rule = rulesByLogger.computeIfAbsent(logger.getName(), this::findRule);
+        if (rule == NO_RULE) {
+            return FilterReply.NEUTRAL;
+        }
+        return rule.counter.getAndIncrement() % rule.everyN == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+    
+    private Rule findRule(String loggerName) {
+        String name = loggerName;
+        while (true) {
+            Integer everyN = rates.get(name);
+            if (everyN != null) {
+                return new Rule(everyN);
+            }
+            int dot = name.lastIndexOf('.');
+            if (dot < 0) {
+                return NO_RULE;
+            }
+            name = name.substring(0, dot);
+        }
+    }
+    
+    private static class Rule {
+        private final int everyN;
+        private final AtomicLong counter = new AtomicLong();
+        
+        Rule(int everyN) {
+            this.everyN = everyN;
+        }
+    }
+}
@@ -25,9 +25,12 @@ public class WebConfig implements WebMvcConfigurer {
         String[] methods = allowedMethods.split(",");
         
         // Get allowed headers from properties - use explicit headers when credentials are allowed
-        String allowedHeaders = environment.getProperty("cors.allowed-headers", "Content-Type,Authorization,X-Requested-With,Accept,Origin,Access-Control-Request-Method,Access-Control-Request-Headers");
+        String allowedHeaders = environment.getProperty("cors.allowed-headers", "Content-Type,Authorization,X-Requested-With,Accept,Origin,Access-Control-Request-Method,Access-Control-Request-Headers,If-None-Match");
         String[] headers = allowedHeaders.split(",");
         
+        // Response headers the browser may read, e.g. the pagination cursor, total and list ETag
+        String exposedHeaders = environment.getProperty("cors.exposed-headers", "X-Next-Cursor,X-Total-Count,X-Request-ID,ETag,Deprecation");
+        
         // Get credentials setting from properties
         boolean allowCredentials = environment.getProperty("cors.allow-credentials", Boolean.class, true);
         
@@ -35,6 +38,7 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOriginPatterns(origins)
                 .allowedMethods(methods)
                 .allowedHeaders(headers)
+                .exposedHeaders(exposedHeaders.split(","))
                 .allowCredentials(allowCredentials);
     }
 }
@@ -0,0 +1,103 @@
+package com.example.springbootjava.controller;
+
+import com.example.springbootjava.dto.ScoreRollupDTO;
+import com.example.springbootjava.entity.Quiz;
+import com.example.springbootjava.entity.QuizScoreRollup;
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.service.QuizRollupService;
+import com.example.springbootjava.service.QuizService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Quiz score analytics, served only from the rollup tables
+ */
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController extends BaseController {
+    
+    private static final int DEFAULT_TIMELINE_DAYS = 30;
+    
+    @Autowired
+    private QuizRollupService quizRollups;
+    
+    @Autowired
+    private QuizService quizService;
+    
+    @GetMapping("/me")
+    public ResponseEntity<?> getMyAnalytics(@RequestParam(defaultValue = "day") String bucket,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return analytics(quizRollups.getUserSummary(user.getId()), user.getId(), QuizScoreRollup.ANY, bucket, from, to);
+    }
+    
+    @GetMapping("/quizzes/{id}")
+    public ResponseEntity<?> getQuizAnalytics(@PathVariable Long id,
+                                              @RequestParam(defaultValue = "day") String bucket,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                              Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        Optional<Quiz> quiz = quizService.getQuizById(id);
+        if (quiz.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        // Everyone's results are the owner's to see
+        if (!quiz.get().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.status(403).build();
+        }
+        return analytics(quizRollups.getQuizSummary(id), QuizScoreRollup.ANY, id, bucket, from, to);
+    }
+    
+    @GetMapping("/me/quizzes/{id}")
+    public ResponseEntity<?> getMyQuizAnalytics(@PathVariable Long id, Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        QuizScoreRollup summary = quizRollups.getUserQuizSummary(user.getId(), id);
+        Map<String, Object> response = new HashMap<>();
+        response.put("summary", summary != null ? new ScoreRollupDTO(summary) : null);
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuild() {
+        quizRollups.rebuildAll();
+        return ResponseEntity.ok(Map.of("message", "Quiz analytics rebuilt"));
+    }
+    
+    private ResponseEntity<?> analytics(QuizScoreRollup summary, Long userId, Long quizId, String bucket, LocalDate from, LocalDate to) {
+        QuizScoreRollup.Bucket timelineBucket;
+        switch (bucket.toLowerCase()) {
+            case "day" -> timelineBucket = QuizScoreRollup.Bucket.DAY;
+            case "week" -> timelineBucket = QuizScoreRollup.Bucket.WEEK;
+            default -> {
+                return ResponseEntity.badRequest().body(Map.of("message", "bucket must be day or week"));
+            }
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_TIMELINE_DAYS - 1);
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "from must not be after to"));
+        }
+        List<ScoreRollupDTO> timeline = quizRollups.getTimeline(userId, quizId, timelineBucket, start, end).stream()
+                .map(ScoreRollupDTO::new)
+                .toList();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("summary", summary != null ? new ScoreRollupDTO(summary) : null);
+        response.put("timeline", timeline);
+        return ResponseEntity.ok(response);
+    }
+}
@@ -2,6 +2,8 @@ package com.example.springbootjava.controller;
 
 import com.example.springbootjava.service.DatabaseBackupService;
 import com.example.springbootjava.service.DatabaseRecoveryService;
+import com.example.springbootjava.service.FileSnapshotService;
+import com.example.springbootjava.service.RestoreProgress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,6 +38,9 @@ public class BackupController {
     @Autowired
     private DatabaseRecoveryService recoveryService;
 
+    @Autowired
+    private FileSnapshotService fileSnapshotService;
+
     /**
      * Create a complete database backup
      */
@@ -126,7 +131,7 @@ public class BackupController {
         try {
             logger.info("Downloading backup file: {}", fileName);
             
-            String backupPath = "backups/" + fileName;
+            String backupPath = backupService.getBackupDirectory().resolve(fileName).toString();
             File backupFile = new File(backupPath);
             
             if (!backupFile.exists()) {
@@ -156,7 +161,7 @@ public class BackupController {
         try {
             logger.info("Deleting backup file: {}", fileName);
             
-            String backupPath = "backups/" + fileName;
+            String backupPath = backupService.getBackupDirectory().resolve(fileName).toString();
             Path path = Paths.get(backupPath);
             
             if (!Files.exists(path)) {
@@ -277,6 +282,65 @@ public class BackupController {
         }
     }
 
+    /**
+     * Per-table progress of the running or most recent full recovery
+     */
+    @GetMapping("/recover/progress")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRecoveryProgress() {
+        try {
+            RestoreProgress progress = recoveryService.getRestoreProgress();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            if (progress == null) {
+                response.put("message", "No recovery has run since startup");
+            } else {
+                response.put("backupFile", progress.getBackupFile());
+                response.put("phase", progress.getPhase());
+                response.put("cancelRequested", progress.isCancelRequested());
+                response.put("startedAt", progress.getStartedAt());
+                response.put("finishedAt", progress.getFinishedAt());
+                response.put("error", progress.getError());
+                response.put("tables", progress.getTables());
+            }
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Failed to get recovery progress", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to get recovery progress: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Cancel the running full recovery; the live data is left as it was
+     */
+    @PostMapping("/recover/cancel")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> cancelRecovery() {
+        try {
+            boolean cancelled = recoveryService.cancelRestore();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", cancelled);
+            response.put("message", cancelled ? "Recovery cancellation requested"
+                    : "No recovery is running, or it is already swapping in the restored tables");
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Failed to cancel recovery", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to cancel recovery: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Recover user data from backup file
      */
@@ -318,6 +382,36 @@ public class BackupController {
         }
     }
 
+    /**
+     * Extract one user's data from an indexed full backup into a JSON user backup
+     */
+    @PostMapping("/extract/user/{userId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> extractUserBackup(
+            @PathVariable Long userId,
+            @RequestParam String backupPath) {
+        try {
+            logger.info("Extracting user {} from backup: {}", userId, backupPath);
+            String userBackupPath = backupService.extractUserBackup(backupPath, userId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "User backup extracted successfully");
+            response.put("backupPath", userBackupPath);
+            response.put("userId", userId);
+            response.put("timestamp", java.time.LocalDateTime.now());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Failed to extract user {} from backup: {}", userId, backupPath, e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to extract user backup: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Upload and recover from backup file
      */
@@ -381,6 +475,89 @@ public class BackupController {
         }
     }
 
+    /**
+     * Snapshot the uploaded files
+     */
+    @PostMapping("/files/snapshot")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> createFileSnapshot() {
+        try {
+            logger.info("Creating file snapshot");
+            FileSnapshotService.SnapshotResult result = fileSnapshotService.createSnapshot();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "File snapshot created successfully");
+            response.put("snapshot", result.getSnapshot());
+            response.put("filesCopied", result.getCopied());
+            response.put("filesLinked", result.getLinked());
+            response.put("bytesCopied", result.getBytesCopied());
+            response.put("missingFiles", result.getMissing());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Failed to create file snapshot", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to create file snapshot: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * List file snapshots, newest first
+     */
+    @GetMapping("/files/snapshots")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> listFileSnapshots() {
+        try {
+            List<String> snapshots = fileSnapshotService.listSnapshots();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("snapshots", snapshots);
+            response.put("count", snapshots.size());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Failed to list file snapshots", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to list file snapshots: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Restore uploaded files from a snapshot (the latest one by default)
+     */
+    @PostMapping("/files/restore")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> restoreFileSnapshot(@RequestParam(required = false) String snapshot) {
+        try {
+            logger.info("Restoring files from snapshot: {}", snapshot != null ? snapshot : "latest");
+            FileSnapshotService.RestoreResult result = fileSnapshotService.restoreSnapshot(snapshot);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", result.getFailed().isEmpty());
+            response.put("message", result.getFailed().isEmpty() ? "Files restored successfully" : "Some files could not be restored");
+            response.put("snapshot", result.getSnapshot());
+            response.put("filesRestored", result.getRestored());
+            response.put("errors", result.getFailed());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Failed to restore file snapshot: {}", snapshot, e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Failed to restore files: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Get backup statistics
      */
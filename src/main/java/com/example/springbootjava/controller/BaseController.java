@@ -1,13 +1,39 @@
 package com.example.springbootjava.controller;
 
+import com.example.springbootjava.dto.CursorPage;
 import com.example.springbootjava.entity.User;
+import com.example.springbootjava.service.CollectionVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 public abstract class BaseController {
     
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    
+    // Browsers may keep list responses but must revalidate them; this also stops Spring Security
+    // adding no-store, which would keep them from ever sending If-None-Match
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    
+    @Value("${pagination.default-limit:50}")
+    private int defaultPageLimit;
+    
+    @Value("${pagination.max-limit:200}")
+    private int maxPageLimit;
+    
+    @Autowired
+    private CollectionVersions collectionVersions;
+    
     protected ResponseEntity<?> checkAuthentication(Authentication authentication) {
         if (authentication == null || authentication.getPrincipal() == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
@@ -21,4 +47,77 @@ public abstract class BaseController {
         }
         return (User) authentication.getPrincipal();
     }
+    
+    protected int pageLimit(Integer limit) {
+        if (limit == null) {
+            return defaultPageLimit;
+        }
+        return Math.max(1, Math.min(limit, maxPageLimit));
+    }
+    
+    /**
+     * Returns a page as a plain JSON array, keeping list endpoints' response shape; the cursor
+     * for the next page and the optional total travel in headers.
+     */
+    protected <T> ResponseEntity<List<T>> pagedList(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        if (page.getTotalCount() != null) {
+            response.header(TOTAL_COUNT_HEADER, String.valueOf(page.getTotalCount()));
+        }
+        return response.body(page.getItems());
+    }
+    
+    /**
+     * Marks a response served from the deprecated page/size parameters, telling clients that still
+     * page by offset that the parameters are going away (RFC 9745)
+     */
+    protected static ResponseEntity<?> deprecatedPaging(ResponseEntity<?> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header("Deprecation", "true")
+                .body(response.getBody());
+    }
+    
+    /**
+     * Serves a collection endpoint conditionally. While the client's If-None-Match still names the
+     * user's current version of the collection the answer is a bare 304, decided by a single key
+     * lookup; otherwise the response is built and tagged. The version is read before the query runs,
+     * so a change committing meanwhile only costs the client one more full fetch.
+     */
+    protected ResponseEntity<?> versioned(User user, CollectionVersions.Type type, WebRequest request,
+                                          Supplier<ResponseEntity<?>> response) {
+        String etag = collectionVersions.etag(user.getId(), type);
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+        }
+        ResponseEntity<?> built = response.get();
+        if (etag == null || !built.getStatusCode().is2xxSuccessful()) {
+            return built;
+        }
+        return ResponseEntity.status(built.getStatusCode())
+                .headers(built.getHeaders())
+                .eTag(etag)
+                .cacheControl(REVALIDATE)
+                .body(built.getBody());
+    }
+    
+    // If-None-Match uses weak comparison, so W/"x" matches "x"
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -1,25 +1,34 @@
 package com.example.springbootjava.controller;
 
+import com.example.springbootjava.dto.CursorPage;
 import com.example.springbootjava.dto.DocumentResponseDTO;
+import com.example.springbootjava.dto.DocumentSummaryDTO;
+import com.example.springbootjava.dto.FlashcardResponseDTO;
+import com.example.springbootjava.dto.PageCursor;
 import com.example.springbootjava.dto.QuizResponseDTO;
 import com.example.springbootjava.entity.Document;
 import com.example.springbootjava.entity.User;
 import com.example.springbootjava.entity.Flashcard;
 import com.example.springbootjava.entity.Quiz;
 import com.example.springbootjava.service.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -28,6 +37,8 @@ import java.util.Optional;
 @RequestMapping("/api/documents")
 public class DocumentController extends BaseController {
     
+    private static final Logger logger = LoggerFactory.getLogger(DocumentController.class);
+    
     @Autowired
     private DocumentService documentService;
     
@@ -37,27 +48,38 @@ public class DocumentController extends BaseController {
     @Autowired
     private FileCleanupService fileCleanupService;
     
+    @Autowired
+    private StorageUsageService storageUsageService;
+    
     @Autowired
     private FlashcardService flashcardService;
     
     @Autowired
     private QuizService quizService;
     
+    @Autowired
+    private TikaExtractionService extractionService;
+    
+    @Autowired
+    private DocumentSegmentService segmentService;
+    
+    @Autowired
+    private PassageIndexService passageIndex;
+    
+    @Autowired
+    private AIService aiService;
+    
     @GetMapping("/test")
     public ResponseEntity<?> testEndpoint(Authentication authentication) {
         try {
-            System.out.println("=== TEST ENDPOINT DEBUG ===");
-            System.out.println("Authentication: " + (authentication != null ? "Present" : "Null"));
-            
             ResponseEntity<?> authCheck = checkAuthentication(authentication);
             if (authCheck != null) {
-                System.out.println("Authentication check failed");
+                logger.debug("Test endpoint called without authentication");
                 return authCheck;
             }
             
             User user = getCurrentUser(authentication);
-            System.out.println("User: " + user.getEmail());
-            System.out.println("User ID: " + user.getId());
+            logger.debug("Test endpoint called by user {}", user.getId());
             
             return ResponseEntity.ok(Map.of(
                 "message", "Test endpoint working",
@@ -65,9 +87,7 @@ public class DocumentController extends BaseController {
                 "userId", user.getId()
             ));
         } catch (Exception e) {
-            System.out.println("=== TEST ENDPOINT ERROR ===");
-            System.out.println("Error: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Test endpoint failed", e);
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
@@ -76,34 +96,26 @@ public class DocumentController extends BaseController {
     public ResponseEntity<?> uploadDocument(@RequestParam("file") MultipartFile file,
                                           Authentication authentication) {
         try {
-            System.out.println("=== UPLOAD DEBUG START ===");
-            System.out.println("File name: " + file.getOriginalFilename());
-            System.out.println("File size: " + file.getSize());
-            System.out.println("File content type: " + file.getContentType());
-            System.out.println("Authentication: " + (authentication != null ? "Present" : "Null"));
-            
             ResponseEntity<?> authCheck = checkAuthentication(authentication);
             if (authCheck != null) {
-                System.out.println("Authentication check failed");
                 return authCheck;
             }
             
             User user = getCurrentUser(authentication);
-            System.out.println("User: " + user.getEmail());
+            logger.debug("Upload of '{}' ({} bytes, {}) by user {}",
+                    file.getOriginalFilename(), file.getSize(), file.getContentType(), user.getId());
             
             Document document = documentService.uploadDocument(file, user);
-            System.out.println("Document created with ID: " + document.getId());
-            System.out.println("=== UPLOAD DEBUG END ===");
+            logger.info("Document {} uploaded by user {}", document.getId(), user.getId());
             
             // Convert to DTO to avoid lazy loading issues
             DocumentResponseDTO responseDTO = new DocumentResponseDTO(document);
             return ResponseEntity.ok(responseDTO);
+        } catch (StorageUsageService.QuotaExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body("Error uploading file: " + e.getMessage());
         } catch (Exception e) {
-            System.out.println("=== UPLOAD ERROR ===");
-            System.out.println("Error type: " + e.getClass().getSimpleName());
-            System.out.println("Error message: " + e.getMessage());
-            e.printStackTrace();
-            System.out.println("=== UPLOAD ERROR END ===");
+            logger.error("Error uploading file '{}'", file.getOriginalFilename(), e);
             
             return ResponseEntity.badRequest()
                     .body("Error uploading file: " + e.getMessage());
@@ -111,57 +123,86 @@ public class DocumentController extends BaseController {
     }
     
     @GetMapping
-    public ResponseEntity<List<DocumentResponseDTO>> getUserDocuments(Authentication authentication) {
+    public ResponseEntity<?> getUserDocuments(@RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(defaultValue = "false") boolean total,
+                                              WebRequest request,
+                                              Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        List<Document> documents = documentService.getUserDocuments(user);
-        List<DocumentResponseDTO> responseDTOs = documents.stream()
-                .map(DocumentResponseDTO::new)
-                .toList();
-        return ResponseEntity.ok(responseDTOs);
+        return versioned(user, CollectionVersions.Type.DOCUMENTS, request, () -> {
+            try {
+                return pagedList(documentService.getUserDocuments(user, PageCursor.decode(cursor), pageLimit(limit), total));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
     
+    // page and size are deprecated: they are served by offset until clients have moved to cursor and limit
     @GetMapping("/page")
-    public ResponseEntity<Page<Document>> getUserDocumentsPage(Pageable pageable,
-                                                             Authentication authentication) {
+    public ResponseEntity<?> getUserDocumentsPage(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestParam(defaultValue = "true") boolean total,
+                                                  @RequestParam(required = false) Integer page,
+                                                  @RequestParam(required = false) Integer size,
+                                                  WebRequest request,
+                                                  Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        Page<Document> documents = documentService.getUserDocuments(user, pageable);
-        return ResponseEntity.ok(documents);
+        return versioned(user, CollectionVersions.Type.DOCUMENTS, request, () -> {
+            try {
+                if (page != null && cursor == null) {
+                    return deprecatedPaging(ResponseEntity.ok(documentService.getUserDocumentsByOffset(
+                            user, Math.max(0, page), pageLimit(size != null ? size : limit), total)));
+                }
+                CursorPage<DocumentSummaryDTO> documents = documentService.getUserDocuments(user, PageCursor.decode(cursor), pageLimit(limit), total);
+                return ResponseEntity.ok(documents);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<DocumentResponseDTO> getDocument(@PathVariable Long id,
                                               Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        Optional<Document> document = documentService.getDocumentById(id);
-        
-        if (document.isPresent() && document.get().getUser().getId().equals(user.getId())) {
-            DocumentResponseDTO responseDTO = new DocumentResponseDTO(document.get());
-            return ResponseEntity.ok(responseDTO);
-        } else {
-            return ResponseEntity.notFound().build();
-        }
+        return documentService.getDocumentResponse(id, user)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<DocumentResponseDTO>> searchDocuments(@RequestParam String q,
-                                                        Authentication authentication) {
+    public ResponseEntity<?> searchDocuments(@RequestParam String q,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(defaultValue = "false") boolean total,
+                                             WebRequest request,
+                                             Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        List<Document> documents = documentService.searchDocuments(user, q);
-        List<DocumentResponseDTO> responseDTOs = documents.stream()
-                .map(DocumentResponseDTO::new)
-                .toList();
-        return ResponseEntity.ok(responseDTOs);
+        return versioned(user, CollectionVersions.Type.DOCUMENTS, request, () -> {
+            try {
+                return pagedList(documentService.searchDocuments(user, q, PageCursor.decode(cursor), pageLimit(limit), total));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
     
     @GetMapping("/type/{fileType}")
-    public ResponseEntity<List<DocumentResponseDTO>> getDocumentsByType(@PathVariable String fileType,
-                                                           Authentication authentication) {
+    public ResponseEntity<?> getDocumentsByType(@PathVariable String fileType,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer limit,
+                                                @RequestParam(defaultValue = "false") boolean total,
+                                                WebRequest request,
+                                                Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        List<Document> documents = documentService.getDocumentsByFileType(user, fileType);
-        List<DocumentResponseDTO> responseDTOs = documents.stream()
-                .map(DocumentResponseDTO::new)
-                .toList();
-        return ResponseEntity.ok(responseDTOs);
+        return versioned(user, CollectionVersions.Type.DOCUMENTS, request, () -> {
+            try {
+                return pagedList(documentService.getDocumentsByFileType(user, fileType, PageCursor.decode(cursor), pageLimit(limit), total));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
     
     @GetMapping("/stats")
@@ -204,29 +245,33 @@ public class DocumentController extends BaseController {
                 return ResponseEntity.notFound().build();
             }
             
-            // Retrieve file content
-            byte[] fileContent = fileStorageService.retrieveFile(filePath);
-            String contentType = fileStorageService.getContentType(filePath);
-            
-            // Create resource
-            ByteArrayResource resource = new ByteArrayResource(fileContent);
-            
-            // Set headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + document.getTitle() + "\"");
-            headers.add(HttpHeaders.CONTENT_TYPE, contentType);
-            headers.add(HttpHeaders.CONTENT_LENGTH, String.valueOf(fileContent.length));
-            
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
+            return fileResponse(document, "attachment");
                     
         } catch (IOException e) {
-            System.err.println("Error downloading file: " + e.getMessage());
+            logger.error("Error downloading document {}: {}", id, e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    // Redirects to the backend when it can serve the file itself, otherwise streams it
+    private ResponseEntity<Resource> fileResponse(Document document, String dispositionType) throws IOException {
+        String filePath = document.getFilePath();
+        String disposition = dispositionType + "; filename=\"" + document.getTitle() + "\"";
+        Optional<URI> downloadUrl = fileStorageService.getDownloadUrl(filePath, disposition);
+        if (downloadUrl.isPresent()) {
+            return ResponseEntity.status(HttpStatus.FOUND).location(downloadUrl.get()).build();
+        }
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, disposition);
+        headers.add(HttpHeaders.CONTENT_TYPE, fileStorageService.getContentType(filePath));
+        headers.add(HttpHeaders.CONTENT_LENGTH, String.valueOf(fileStorageService.getFileSize(filePath)));
+        
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(new InputStreamResource(fileStorageService.openFile(filePath)));
+    }
+    
     @GetMapping("/{id}/view")
     public ResponseEntity<Resource> viewDocument(@PathVariable Long id,
                                                Authentication authentication) {
@@ -246,25 +291,10 @@ public class DocumentController extends BaseController {
                 return ResponseEntity.notFound().build();
             }
             
-            // Retrieve file content
-            byte[] fileContent = fileStorageService.retrieveFile(filePath);
-            String contentType = fileStorageService.getContentType(filePath);
-            
-            // Create resource
-            ByteArrayResource resource = new ByteArrayResource(fileContent);
-            
-            // Set headers for inline viewing
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + document.getTitle() + "\"");
-            headers.add(HttpHeaders.CONTENT_TYPE, contentType);
-            headers.add(HttpHeaders.CONTENT_LENGTH, String.valueOf(fileContent.length));
-            
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
+            return fileResponse(document, "inline");
                     
         } catch (IOException e) {
-            System.err.println("Error viewing file: " + e.getMessage());
+            logger.error("Error viewing document {}: {}", id, e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
@@ -278,8 +308,15 @@ public class DocumentController extends BaseController {
             long totalDocuments = documentService.getDocumentCount(user);
             long processedDocuments = documentService.getProcessedDocumentCount(user);
             
-            // Get file storage stats
-            FileCleanupService.StorageStats storageStats = fileCleanupService.getStorageStats();
+            // The user's own file storage, read from their counters
+            StorageUsageService.Usage usage = storageUsageService.getUsage(user.getId());
+            Map<String, Object> storage = new HashMap<>();
+            storage.put("fileCount", usage.getFileCount());
+            storage.put("totalSizeBytes", usage.getBytesUsed());
+            storage.put("formattedSize", usage.getFormattedSize());
+            storage.put("quotaBytes", usage.getMaxBytes());
+            storage.put("quotaFiles", usage.getMaxFiles());
+            storage.put("reconciledAt", usage.getReconciledAt());
             
             return ResponseEntity.ok(Map.of(
                 "documents", Map.of(
@@ -287,64 +324,202 @@ public class DocumentController extends BaseController {
                     "processed", processedDocuments,
                     "pending", totalDocuments - processedDocuments
                 ),
-                "storage", Map.of(
-                    "fileCount", storageStats.getFileCount(),
-                    "directoryCount", storageStats.getDirectoryCount(),
-                    "totalSizeBytes", storageStats.getTotalSizeBytes(),
-                    "formattedSize", storageStats.getFormattedSize()
-                )
+                "storage", storage
             ));
             
         } catch (Exception e) {
-            System.err.println("Error getting storage stats: " + e.getMessage());
+            logger.error("Error getting storage stats: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @PostMapping("/storage/gc")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<FileCleanupService.GcReport> collectGarbage(@RequestParam(defaultValue = "true") boolean dryRun) {
+        try {
+            return ResponseEntity.ok(fileCleanupService.collectGarbage(dryRun));
+        } catch (IllegalStateException e) {
+            logger.warn("Unreferenced file cleanup unavailable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IOException e) {
+            logger.error("Error collecting unreferenced files: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping("/storage/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StorageUsageService.ReconcileReport> reconcileStorage() {
+        return ResponseEntity.ok(storageUsageService.reconcileAll());
+    }
+
+    @GetMapping("/extraction/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, TikaExtractionService.FormatStats>> getExtractionStats() {
+        return ResponseEntity.ok(extractionService.getStatsByFormat());
+    }
+    
+    @GetMapping("/{id}/content")
+    public ResponseEntity<Map<String, Object>> getDocumentContent(@PathVariable Long id,
+                                                                  Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        Optional<Document> documentOpt = documentService.getDocumentById(id);
+        if (documentOpt.isEmpty() || !documentOpt.get().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        String content = segmentService.getContent(documentOpt.get());
+        Map<String, Object> body = new HashMap<>();
+        body.put("documentId", id);
+        body.put("processingStatus", documentOpt.get().getProcessingStatus());
+        body.put("content", content);
+        return ResponseEntity.ok(body);
+    }
+    
+    @GetMapping("/{id}/pages")
+    public ResponseEntity<Map<String, Object>> getDocumentPages(@PathVariable Long id,
+                                                                Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        Optional<Document> documentOpt = documentService.getDocumentById(id);
+        if (documentOpt.isEmpty() || !documentOpt.get().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        try {
+            List<Map<String, Object>> pages = segmentService.getSegments(documentOpt.get()).stream()
+                    .map(segment -> Map.<String, Object>of(
+                            "page", segment.getPageNumber(),
+                            "characters", segment.getLength()))
+                    .toList();
+            if (pages.isEmpty() && segmentService.isBackfilling(documentOpt.get())) {
+                // Pages of an older document are being extracted in the background
+                return ResponseEntity.accepted().body(Map.of(
+                        "documentId", id,
+                        "status", "PROCESSING",
+                        "totalPages", 0,
+                        "pages", pages));
+            }
+            return ResponseEntity.ok(Map.of(
+                    "documentId", id,
+                    "totalPages", pages.size(),
+                    "pages", pages));
+        } catch (IOException e) {
+            logger.error("Error loading pages of document {}", id, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @GetMapping("/{id}/pages/{page}")
+    public ResponseEntity<Map<String, Object>> getDocumentPage(@PathVariable Long id,
+                                                               @PathVariable int page,
+                                                               Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        Optional<Document> documentOpt = documentService.getDocumentById(id);
+        if (documentOpt.isEmpty() || !documentOpt.get().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        try {
+            Document document = documentOpt.get();
+            String text = segmentService.getPageText(document, page);
+            return ResponseEntity.ok(Map.of(
+                    "documentId", id,
+                    "page", page,
+                    "totalPages", segmentService.getPageCount(document),
+                    "text", text));
+        } catch (IllegalArgumentException e) {
+            if (segmentService.isBackfilling(documentOpt.get())) {
+                return ResponseEntity.accepted().body(Map.of("documentId", id, "status", "PROCESSING", "message", e.getMessage()));
+            }
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Error loading page {} of document {}", page, id, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @PostMapping("/{id}/ask")
+    public ResponseEntity<Map<String, Object>> askDocument(@PathVariable Long id,
+                                                           @RequestBody Map<String, String> request,
+                                                           Authentication authentication) {
+        String question = request.get("question");
+        if (question == null || question.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "question is required"));
+        }
+        
+        User user = (User) authentication.getPrincipal();
+        Optional<Document> documentOpt = documentService.getDocumentById(id);
+        if (documentOpt.isEmpty() || !documentOpt.get().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+        Document document = documentOpt.get();
+        if (document.getProcessingStatus() != Document.ProcessingStatus.COMPLETED) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Document is not processed yet"));
+        }
+        
+        try {
+            // Only the best-matching passages are sent to the model
+            List<PassageIndexService.Passage> passages = passageIndex.search(document, question);
+            if (passages.isEmpty() && segmentService.isBackfilling(document)) {
+                return ResponseEntity.accepted().body(Map.of("status", "PROCESSING",
+                        "message", "The document's pages are still being prepared, try again shortly"));
+            }
+            String answer = passages.isEmpty()
+                    ? "The document does not appear to cover that question."
+                    : aiService.answerQuestion(question, passages.stream().map(PassageIndexService.Passage::getText).toList());
+            
+            List<Map<String, Object>> sources = passages.stream()
+                    .map(passage -> Map.<String, Object>of(
+                            "page", passage.getPageNumber(),
+                            "startOffset", passage.getStartOffset(),
+                            "endOffset", passage.getEndOffset(),
+                            "score", passage.getScore()))
+                    .toList();
+            return ResponseEntity.ok(Map.of(
+                    "question", question,
+                    "answer", answer,
+                    "sources", sources));
+        } catch (IOException e) {
+            logger.error("Error answering question for document {}", id, e);
             return ResponseEntity.internalServerError().build();
         }
     }
     
     @PostMapping("/{id}/generate-flashcards")
-    public ResponseEntity<List<Flashcard>> generateFlashcardsFromDocument(@PathVariable Long id,
-                                                                        Authentication authentication) {
+    public ResponseEntity<List<FlashcardResponseDTO>> generateFlashcardsFromDocument(@PathVariable Long id,
+                                                                                   @RequestParam(required = false) Integer fromPage,
+                                                                                   @RequestParam(required = false) Integer toPage,
+                                                                                   Authentication authentication) {
         try {
-            System.out.println("=== GENERATE FLASHCARDS REQUEST ===");
-            System.out.println("Document ID: " + id);
-            
             User user = (User) authentication.getPrincipal();
-            System.out.println("User ID: " + user.getId());
-            
             Optional<Document> documentOpt = documentService.getDocumentById(id);
             
-            if (documentOpt.isEmpty()) {
-                System.out.println("Document not found for ID: " + id);
+            if (documentOpt.isEmpty() || !documentOpt.get().getUser().getId().equals(user.getId())) {
+                logger.debug("Document {} not found for user {}", id, user.getId());
                 return ResponseEntity.notFound().build();
             }
             
             Document document = documentOpt.get();
-            System.out.println("Document found: " + document.getTitle());
-            System.out.println("Document owner ID: " + document.getUser().getId());
-            System.out.println("Document processing status: " + document.getProcessingStatus());
-            
-            if (!document.getUser().getId().equals(user.getId())) {
-                System.out.println("User does not own this document");
-                return ResponseEntity.notFound().build();
-            }
             
             // Check if document is processed
             if (document.getProcessingStatus() != Document.ProcessingStatus.COMPLETED) {
-                System.out.println("Document not completed, status: " + document.getProcessingStatus());
+                logger.debug("Document {} not completed, status: {}", id, document.getProcessingStatus());
                 return ResponseEntity.badRequest()
                     .body(List.of()); // Return empty list with error status
             }
             
-            System.out.println("Generating flashcards from document...");
             // Generate flashcards from document
-            List<Flashcard> flashcards = flashcardService.generateFlashcardsFromDocument(document, user);
-            System.out.println("Generated " + flashcards.size() + " flashcards");
+            List<Flashcard> flashcards = flashcardService.generateFlashcardsFromDocument(document, user, fromPage, toPage);
+            logger.info("Generated {} flashcards from document {}", flashcards.size(), id);
             
-            return ResponseEntity.ok(flashcards);
+            // The saved cards reference the already-loaded document, so mapping needs no further queries
+            return ResponseEntity.ok(flashcards.stream().map(FlashcardResponseDTO::new).toList());
             
+        } catch (IllegalArgumentException e) {
+            logger.debug("Rejected page range for document {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
-            System.err.println("Error generating flashcards: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating flashcards from document {}", id, e);
             return ResponseEntity.internalServerError().build();
         }
     }
@@ -352,51 +527,39 @@ public class DocumentController extends BaseController {
     @PostMapping("/{id}/generate-quiz")
     public ResponseEntity<QuizResponseDTO> generateQuizFromDocument(@PathVariable Long id,
                                                        @RequestParam(defaultValue = "5") int numberOfQuestions,
+                                                       @RequestParam(required = false) Integer fromPage,
+                                                       @RequestParam(required = false) Integer toPage,
                                                        Authentication authentication) {
         try {
-            System.out.println("=== GENERATE QUIZ REQUEST ===");
-            System.out.println("Document ID: " + id);
-            System.out.println("Number of Questions: " + numberOfQuestions);
-            
             User user = (User) authentication.getPrincipal();
-            System.out.println("User ID: " + user.getId());
-            
             Optional<Document> documentOpt = documentService.getDocumentById(id);
             
-            if (documentOpt.isEmpty()) {
-                System.out.println("Document not found for ID: " + id);
+            if (documentOpt.isEmpty() || !documentOpt.get().getUser().getId().equals(user.getId())) {
+                logger.debug("Document {} not found for user {}", id, user.getId());
                 return ResponseEntity.notFound().build();
             }
             
             Document document = documentOpt.get();
-            System.out.println("Document found: " + document.getTitle());
-            System.out.println("Document owner ID: " + document.getUser().getId());
-            System.out.println("Document processing status: " + document.getProcessingStatus());
-            
-            if (!document.getUser().getId().equals(user.getId())) {
-                System.out.println("User does not own this document");
-                return ResponseEntity.notFound().build();
-            }
             
             // Check if document is processed
             if (document.getProcessingStatus() != Document.ProcessingStatus.COMPLETED) {
-                System.out.println("Document not completed, status: " + document.getProcessingStatus());
+                logger.debug("Document {} not completed, status: {}", id, document.getProcessingStatus());
                 return ResponseEntity.badRequest().build();
             }
             
-            System.out.println("Generating quiz from document...");
             // Generate quiz from document using QuizService
-            Quiz quiz = quizService.generateQuizFromDocument(document, user, numberOfQuestions);
-            System.out.println("Generated quiz with ID: " + quiz.getId());
-            System.out.println("Quiz has " + (quiz.getQuestions() != null ? quiz.getQuestions().size() : 0) + " questions");
+            Quiz quiz = quizService.generateQuizFromDocument(document, user, numberOfQuestions, fromPage, toPage);
+            logger.info("Generated quiz {} with {} requested questions from document {}", quiz.getId(), numberOfQuestions, id);
             
             // Convert Quiz entity to DTO for proper JSON serialization
             QuizResponseDTO quizDTO = new QuizResponseDTO(quiz);
             return ResponseEntity.ok(quizDTO);
             
+        } catch (IllegalArgumentException e) {
+            logger.debug("Rejected page range for document {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
-            System.err.println("Error generating quiz: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating quiz from document {}", id, e);
             return ResponseEntity.internalServerError().build();
         }
     }
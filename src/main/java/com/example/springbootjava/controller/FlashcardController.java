@@ -1,18 +1,26 @@
 package com.example.springbootjava.controller;
 
+import com.example.springbootjava.dto.CursorPage;
+import com.example.springbootjava.dto.FlashcardResponseDTO;
+import com.example.springbootjava.dto.PageCursor;
+import com.example.springbootjava.dto.StudyEventDTO;
 import com.example.springbootjava.entity.Flashcard;
 import com.example.springbootjava.entity.User;
+import com.example.springbootjava.service.CollectionVersions;
 import com.example.springbootjava.service.FlashcardService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/flashcards")
@@ -22,63 +30,153 @@ public class FlashcardController extends BaseController {
     private FlashcardService flashcardService;
     
     @GetMapping
-    public ResponseEntity<?> getUserFlashcards(Authentication authentication) {
+    public ResponseEntity<?> getUserFlashcards(@RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer limit,
+                                               @RequestParam(defaultValue = "false") boolean total,
+                                               WebRequest request,
+                                               Authentication authentication) {
         ResponseEntity<?> authCheck = checkAuthentication(authentication);
         if (authCheck != null) return authCheck;
         
         User user = getCurrentUser(authentication);
-        List<Flashcard> flashcards = flashcardService.getUserFlashcards(user);
-        return ResponseEntity.ok(flashcards);
+        return versioned(user, CollectionVersions.Type.FLASHCARDS, request, () -> {
+            try {
+                return pagedList(flashcardService.getUserFlashcards(user, PageCursor.decode(cursor), pageLimit(limit), total));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
     
+    // page and size are deprecated: they are served by offset until clients have moved to cursor and limit
     @GetMapping("/page")
-    public ResponseEntity<Page<Flashcard>> getUserFlashcardsPage(Pageable pageable,
-                                                               Authentication authentication) {
+    public ResponseEntity<?> getUserFlashcardsPage(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(defaultValue = "true") boolean total,
+                                                   @RequestParam(required = false) Integer page,
+                                                   @RequestParam(required = false) Integer size,
+                                                   WebRequest request,
+                                                   Authentication authentication) {
         if (authentication == null || authentication.getPrincipal() == null) {
             return ResponseEntity.status(401).build();
         }
         User user = (User) authentication.getPrincipal();
-        Page<Flashcard> flashcards = flashcardService.getUserFlashcards(user, pageable);
-        return ResponseEntity.ok(flashcards);
+        return versioned(user, CollectionVersions.Type.FLASHCARDS, request, () -> {
+            try {
+                if (page != null && cursor == null) {
+                    return deprecatedPaging(ResponseEntity.ok(flashcardService.getUserFlashcardsByOffset(
+                            user, Math.max(0, page), pageLimit(size != null ? size : limit), total)));
+                }
+                CursorPage<FlashcardResponseDTO> flashcards = flashcardService.getUserFlashcards(user, PageCursor.decode(cursor), pageLimit(limit), total);
+                return ResponseEntity.ok(flashcards);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
     
     @GetMapping("/difficulty/{difficulty}")
-    public ResponseEntity<List<Flashcard>> getFlashcardsByDifficulty(@PathVariable String difficulty,
-                                                                    Authentication authentication) {
+    public ResponseEntity<?> getFlashcardsByDifficulty(@PathVariable String difficulty,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       @RequestParam(defaultValue = "false") boolean total,
+                                                       WebRequest request,
+                                                       Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        try {
-            Flashcard.Difficulty diff = Flashcard.Difficulty.valueOf(difficulty.toUpperCase());
-            List<Flashcard> flashcards = flashcardService.getFlashcardsByDifficulty(user, diff);
-            return ResponseEntity.ok(flashcards);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(null);
-        }
+        return versioned(user, CollectionVersions.Type.FLASHCARDS, request, () -> {
+            try {
+                Flashcard.Difficulty diff = Flashcard.Difficulty.valueOf(difficulty.toUpperCase());
+                return pagedList(flashcardService.getFlashcardsByDifficulty(user, diff, PageCursor.decode(cursor), pageLimit(limit), total));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(null);
+            }
+        });
     }
     
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<Flashcard>> getFlashcardsByCategory(@PathVariable String category,
-                                                                  Authentication authentication) {
+    public ResponseEntity<?> getFlashcardsByCategory(@PathVariable String category,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer limit,
+                                                     @RequestParam(defaultValue = "false") boolean total,
+                                                     WebRequest request,
+                                                     Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        List<Flashcard> flashcards = flashcardService.getFlashcardsByCategory(user, category);
-        return ResponseEntity.ok(flashcards);
+        return versioned(user, CollectionVersions.Type.FLASHCARDS, request, () -> {
+            try {
+                return pagedList(flashcardService.getFlashcardsByCategory(user, category, PageCursor.decode(cursor), pageLimit(limit), total));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<Flashcard>> searchFlashcards(@RequestParam String q,
-                                                          Authentication authentication) {
+    public ResponseEntity<?> searchFlashcards(@RequestParam String q,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(defaultValue = "false") boolean total,
+                                              WebRequest request,
+                                              Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        List<Flashcard> flashcards = flashcardService.searchFlashcards(user, q);
-        return ResponseEntity.ok(flashcards);
+        return versioned(user, CollectionVersions.Type.FLASHCARDS, request, () -> {
+            try {
+                return pagedList(flashcardService.searchFlashcards(user, q, PageCursor.decode(cursor), pageLimit(limit), total));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
     
     @GetMapping("/random")
-    public ResponseEntity<List<Flashcard>> getRandomFlashcards(@RequestParam(defaultValue = "10") int limit,
-                                                             Authentication authentication) {
+    public ResponseEntity<List<FlashcardResponseDTO>> getRandomFlashcards(@RequestParam(defaultValue = "10") int limit,
+                                                                        Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        List<Flashcard> flashcards = flashcardService.getRandomFlashcards(user, limit);
+        List<FlashcardResponseDTO> flashcards = flashcardService.getRandomFlashcards(user, limit);
         return ResponseEntity.ok(flashcards);
     }
     
+    @GetMapping("/due")
+    public ResponseEntity<List<FlashcardResponseDTO>> getDueFlashcards(@RequestParam(defaultValue = "20") int limit,
+                                                                     Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(flashcardService.getDueFlashcards(user, pageLimit(limit)));
+    }
+    
+    @PostMapping("/{id}/review")
+    public ResponseEntity<?> reviewFlashcard(@PathVariable Long id,
+                                             @RequestBody Map<String, Object> review,
+                                             Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        if (!(review.get("quality") instanceof Number quality)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "quality is required"));
+        }
+        Integer timeSpentSeconds = review.get("timeSpentSeconds") instanceof Number seconds ? seconds.intValue() : null;
+        try {
+            return flashcardService.reviewFlashcard(id, user, quality.intValue(), timeSpentSeconds)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/study-events")
+    public ResponseEntity<?> recordStudyEvents(@RequestBody List<StudyEventDTO> events,
+                                               Authentication authentication) throws IOException {
+        User user = (User) authentication.getPrincipal();
+        try {
+            int accepted = flashcardService.recordStudyEvents(user, events);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(Map.of("accepted", accepted, "rejected", events.size() - accepted));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+    
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getFlashcardStats(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
@@ -96,39 +194,42 @@ public class FlashcardController extends BaseController {
     }
     
     @PostMapping
-    public ResponseEntity<Flashcard> createFlashcard(@RequestBody Flashcard flashcard,
-                                                   Authentication authentication) {
+    public ResponseEntity<FlashcardResponseDTO> createFlashcard(@RequestBody Flashcard flashcard,
+                                                              Authentication authentication) {
         User user = (User) authentication.getPrincipal();
         flashcard.setUser(user);
         Flashcard createdFlashcard = flashcardService.createFlashcard(flashcard);
-        return ResponseEntity.ok(createdFlashcard);
+        return ResponseEntity.ok(new FlashcardResponseDTO(createdFlashcard));
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Flashcard> getFlashcard(@PathVariable Long id,
-                                                Authentication authentication) {
+    public ResponseEntity<FlashcardResponseDTO> getFlashcard(@PathVariable Long id,
+                                                           Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        Optional<Flashcard> flashcard = flashcardService.getFlashcardById(id);
-        
-        if (flashcard.isPresent() && flashcard.get().getUser().getId().equals(user.getId())) {
-            return ResponseEntity.ok(flashcard.get());
-        } else {
-            return ResponseEntity.notFound().build();
-        }
+        return flashcardService.getFlashcardResponse(id, user)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Flashcard> updateFlashcard(@PathVariable Long id,
-                                                   @RequestBody Flashcard flashcard,
-                                                   Authentication authentication) {
+    public ResponseEntity<FlashcardResponseDTO> updateFlashcard(@PathVariable Long id,
+                                                              @RequestBody Flashcard flashcard,
+                                                              Authentication authentication) {
         User user = (User) authentication.getPrincipal();
         Optional<Flashcard> existingFlashcard = flashcardService.getFlashcardById(id);
         
         if (existingFlashcard.isPresent() && existingFlashcard.get().getUser().getId().equals(user.getId())) {
             flashcard.setId(id);
             flashcard.setUser(user);
+            // Edits keep the card's place in the review schedule
+            Flashcard existing = existingFlashcard.get();
+            flashcard.setNextReviewAt(existing.getNextReviewAt());
+            flashcard.setIntervalDays(existing.getIntervalDays());
+            flashcard.setEaseFactor(existing.getEaseFactor());
+            flashcard.setRepetitions(existing.getRepetitions());
+            flashcard.setLastReviewedAt(existing.getLastReviewedAt());
             Flashcard updatedFlashcard = flashcardService.updateFlashcard(flashcard);
-            return ResponseEntity.ok(updatedFlashcard);
+            return ResponseEntity.ok(new FlashcardResponseDTO(updatedFlashcard));
         } else {
             return ResponseEntity.notFound().build();
         }
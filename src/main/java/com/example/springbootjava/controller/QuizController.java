@@ -1,17 +1,18 @@
 package com.example.springbootjava.controller;
 
+import com.example.springbootjava.dto.PageCursor;
 import com.example.springbootjava.dto.QuizResponseDTO;
 import com.example.springbootjava.dto.QuizUpdateDTO;
 import com.example.springbootjava.entity.Quiz;
 import com.example.springbootjava.entity.User;
+import com.example.springbootjava.service.CollectionVersions;
 import com.example.springbootjava.service.QuizService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -20,80 +21,96 @@ import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/quizzes")
-public class QuizController {
+public class QuizController extends BaseController {
 
     @Autowired
     private QuizService quizService;
 
+    // page and size are deprecated: they are served by offset until clients have moved to cursor and limit
     @GetMapping
-    public ResponseEntity<List<QuizResponseDTO>> getAllQuizzes(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size,
+    public ResponseEntity<?> getAllQuizzes(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean total,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            WebRequest request,
             Authentication authentication) {
         
         User user = (User) authentication.getPrincipal();
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Quiz> quizPage = quizService.getUserQuizzes(user, pageable);
-        
-        List<QuizResponseDTO> quizDTOs = quizPage.getContent().stream()
-            .map(quiz -> {
-                Double bestScore = quizService.getBestScoreForUserAndQuiz(user, quiz);
-                Integer bestScoreInt = bestScore != null ? bestScore.intValue() : null;
-                return new QuizResponseDTO(quiz, bestScoreInt);
-            })
-            .collect(java.util.stream.Collectors.toList());
-        
-        return ResponseEntity.ok(quizDTOs);
+        return versioned(user, CollectionVersions.Type.QUIZZES, request, () -> {
+            try {
+                if (page != null && cursor == null) {
+                    return deprecatedPaging(pagedList(quizService.getUserQuizzesByOffset(
+                            user, Math.max(0, page), pageLimit(size != null ? size : limit), total)));
+                }
+                return pagedList(quizService.getUserQuizzes(user, PageCursor.decode(cursor), pageLimit(limit), total));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
 
     @GetMapping("/published")
-    public ResponseEntity<List<QuizResponseDTO>> getPublishedQuizzes(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size,
+    public ResponseEntity<?> getPublishedQuizzes(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean total,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            WebRequest request,
             Authentication authentication) {
         
         User user = (User) authentication.getPrincipal();
-        List<Quiz> quizzes = quizService.getPublishedQuizzes(user);
-        
-        List<QuizResponseDTO> quizDTOs = quizzes.stream()
-            .map(quiz -> {
-                Double bestScore = quizService.getBestScoreForUserAndQuiz(user, quiz);
-                Integer bestScoreInt = bestScore != null ? bestScore.intValue() : null;
-                return new QuizResponseDTO(quiz, bestScoreInt);
-            })
-            .collect(java.util.stream.Collectors.toList());
-        
-        return ResponseEntity.ok(quizDTOs);
+        return versioned(user, CollectionVersions.Type.QUIZZES, request, () -> {
+            try {
+                if (page != null && cursor == null) {
+                    return deprecatedPaging(pagedList(quizService.getPublishedQuizzesByOffset(
+                            user, Math.max(0, page), pageLimit(size != null ? size : limit), total)));
+                }
+                return pagedList(quizService.getPublishedQuizzes(user, PageCursor.decode(cursor), pageLimit(limit), total));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
 
     @GetMapping("/difficulty/{difficulty}")
-    public ResponseEntity<List<QuizResponseDTO>> getQuizzesByDifficulty(
+    public ResponseEntity<?> getQuizzesByDifficulty(
             @PathVariable Quiz.Difficulty difficulty,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean total,
+            WebRequest request,
             Authentication authentication) {
         
         User user = (User) authentication.getPrincipal();
-        List<Quiz> quizzes = quizService.getQuizzesByDifficulty(user, difficulty);
-        
-        List<QuizResponseDTO> quizDTOs = quizzes.stream()
-            .map(QuizResponseDTO::new)
-            .collect(java.util.stream.Collectors.toList());
-        
-        return ResponseEntity.ok(quizDTOs);
+        return versioned(user, CollectionVersions.Type.QUIZZES, request, () -> {
+            try {
+                return pagedList(quizService.getQuizzesByDifficulty(user, difficulty, PageCursor.decode(cursor), pageLimit(limit), total));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<QuizResponseDTO>> searchQuizzes(
+    public ResponseEntity<?> searchQuizzes(
             @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean total,
+            WebRequest request,
             Authentication authentication) {
         
         User user = (User) authentication.getPrincipal();
-        List<Quiz> quizzes = quizService.searchQuizzes(user, q);
-        
-        List<QuizResponseDTO> quizDTOs = quizzes.stream()
-            .map(QuizResponseDTO::new)
-            .collect(java.util.stream.Collectors.toList());
-        
-        return ResponseEntity.ok(quizDTOs);
+        return versioned(user, CollectionVersions.Type.QUIZZES, request, () -> {
+            try {
+                return pagedList(quizService.searchQuizzes(user, q, PageCursor.decode(cursor), pageLimit(limit), total));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        });
     }
 
     @GetMapping("/stats")
@@ -124,17 +141,22 @@ public class QuizController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<QuizResponseDTO> getQuizById(@PathVariable Long id, Authentication authentication) {
+    public ResponseEntity<?> getQuizById(@PathVariable Long id, Authentication authentication) {
         User user = (User) authentication.getPrincipal();
         
         Optional<Quiz> quizOpt = quizService.getQuizById(id);
         if (quizOpt.isPresent()) {
             Quiz quiz = quizOpt.get();
             if (quiz.getUser().getId().equals(user.getId())) {
-                Double bestScore = quizService.getBestScoreForUserAndQuiz(user, quiz);
-                Integer bestScoreInt = bestScore != null ? bestScore.intValue() : null;
-                QuizResponseDTO quizDTO = new QuizResponseDTO(quiz, bestScoreInt);
-                return ResponseEntity.ok(quizDTO);
+                if (Boolean.TRUE.equals(quiz.getIsPublished())) {
+                    // Published quizzes are served as cached JSON bytes, bypassing Jackson
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(quizService.getPublishedQuizJson(quiz, user));
+                }
+                return quizService.getQuizResponse(id, user)
+                        .map(ResponseEntity::ok)
+                        .orElseGet(() -> ResponseEntity.notFound().build());
             } else {
                 return ResponseEntity.status(403).build();
             }
@@ -174,11 +196,11 @@ public class QuizController {
                 }
                 quiz.setUpdatedAt(java.time.LocalDateTime.now());
                 
-                Quiz updatedQuiz = quizService.updateQuiz(quiz);
-                Double bestScore = quizService.getBestScoreForUserAndQuiz(user, updatedQuiz);
-                Integer bestScoreInt = bestScore != null ? bestScore.intValue() : null;
-                QuizResponseDTO quizDTO = new QuizResponseDTO(updatedQuiz, bestScoreInt);
-                return ResponseEntity.ok(quizDTO);
+                quizService.updateQuiz(quiz);
+                // Re-read so questions and document are loaded inside a transaction
+                return quizService.getQuizResponse(id, user)
+                        .map(ResponseEntity::ok)
+                        .orElseGet(() -> ResponseEntity.notFound().build());
             } else {
                 return ResponseEntity.status(403).build();
             }
@@ -0,0 +1,126 @@
+package com.example.springbootjava.controller;
+
+import com.example.springbootjava.entity.Document;
+import com.example.springbootjava.entity.Flashcard;
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.repository.DocumentContentRepository;
+import com.example.springbootjava.repository.DocumentRepository;
+import com.example.springbootjava.repository.FlashcardRepository;
+import com.example.springbootjava.service.SemanticSearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController extends BaseController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchController.class);
+
+    @Autowired
+    private SemanticSearchService semanticSearch;
+
+    @Autowired
+    private FlashcardRepository flashcardRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentContentRepository contentRepository;
+
+    @GetMapping("/semantic")
+    public ResponseEntity<?> semanticSearch(@RequestParam String q,
+                                            @RequestParam(defaultValue = "10") int k,
+                                            @RequestParam(defaultValue = "all") String type,
+                                            Authentication authentication) {
+        User user = getCurrentUser(authentication);
+        Set<SemanticSearchService.EntryType> types;
+        switch (type.toLowerCase()) {
+            case "all" -> types = EnumSet.allOf(SemanticSearchService.EntryType.class);
+            case "flashcard", "flashcards" -> types = EnumSet.of(SemanticSearchService.EntryType.FLASHCARD);
+            case "document", "documents" -> types = EnumSet.of(SemanticSearchService.EntryType.DOCUMENT);
+            default -> {
+                return ResponseEntity.badRequest().body(Map.of("message", "type must be all, flashcard or document"));
+            }
+        }
+
+        try {
+            List<SemanticSearchService.SemanticHit> hits = semanticSearch.search(user.getId(), q, Math.min(Math.max(k, 1), 100), types);
+
+            // Resolve all hits with one query per type; entries deleted since indexing drop out here
+            Set<Long> flashcardIds = new HashSet<>();
+            Set<Long> documentIds = new HashSet<>();
+            for (SemanticSearchService.SemanticHit hit : hits) {
+                (hit.getType() == SemanticSearchService.EntryType.FLASHCARD ? flashcardIds : documentIds).add(hit.getId());
+            }
+            Map<Long, Flashcard> flashcards = flashcardRepository.findAllById(flashcardIds).stream()
+                    .filter(flashcard -> flashcard.getUser().getId().equals(user.getId()))
+                    .collect(Collectors.toMap(Flashcard::getId, Function.identity()));
+            Map<Long, Document> documents = documentRepository.findAllById(documentIds).stream()
+                    .filter(document -> document.getUser().getId().equals(user.getId()))
+                    .collect(Collectors.toMap(Document::getId, Function.identity()));
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (SemanticSearchService.SemanticHit hit : hits) {
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("type", hit.getType().name().toLowerCase());
+                result.put("score", hit.getScore());
+                if (hit.getType() == SemanticSearchService.EntryType.FLASHCARD) {
+                    Flashcard flashcard = flashcards.get(hit.getId());
+                    if (flashcard == null) {
+                        continue;
+                    }
+                    result.put("id", flashcard.getId());
+                    result.put("question", flashcard.getQuestion());
+                    result.put("answer", flashcard.getAnswer());
+                } else {
+                    Document document = documents.get(hit.getId());
+                    if (document == null) {
+                        continue;
+                    }
+                    // Only the matched chunk is read, not the whole document text
+                    String snippet = contentRepository.findContentSlice(document.getId(),
+                            hit.getStartOffset() + 1, hit.getEndOffset() - hit.getStartOffset());
+                    if (snippet == null || snippet.isEmpty()) {
+                        continue;
+                    }
+                    result.put("id", document.getId());
+                    result.put("title", document.getTitle());
+                    result.put("snippet", snippet);
+                }
+                results.add(result);
+            }
+            return ResponseEntity.ok(results);
+        } catch (IOException e) {
+            logger.error("Semantic search failed for user {}", user.getId(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping("/semantic/reindex")
+    public ResponseEntity<?> reindex(Authentication authentication) {
+        User user = getCurrentUser(authentication);
+        try {
+            semanticSearch.rebuild(user.getId());
+            return ResponseEntity.ok(Map.of("message", "Search index rebuilt"));
+        } catch (IOException e) {
+            logger.error("Rebuilding search index failed for user {}", user.getId(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.springbootjava.dto;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated list. {@code nextCursor} is null on the last page and
+ * {@code totalCount} is only filled in when the caller asked for it.
+ */
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private Long totalCount;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /** Fetches one row past the page so {@link #of} can tell whether another page follows. */
+    public static Pageable lookahead(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    /**
+     * Builds a page from a query that fetched {@code limit + 1} rows; the extra row only
+     * signals that another page exists and is dropped.
+     */
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, PageCursor> keyOf) {
+        if (fetched.size() <= limit) {
+            return new CursorPage<>(fetched, null);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new CursorPage<>(items, keyOf.apply(items.get(limit - 1)).encode());
+    }
+
+    /**
+     * Builds a page read by offset, for the deprecated page/size parameters. A full page carries
+     * the cursor of its last row, so the page after it may turn out empty.
+     */
+    public static <T> CursorPage<T> ofOffset(List<T> items, int size, Function<T, PageCursor> keyOf) {
+        if (items.isEmpty() || items.size() < size) {
+            return new CursorPage<>(items, null);
+        }
+        return new CursorPage<>(items, keyOf.apply(items.get(items.size() - 1)).encode());
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        CursorPage<R> mapped = new CursorPage<>(items.stream().map(mapper).toList(), nextCursor);
+        mapped.setTotalCount(totalCount);
+        return mapped;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return nextCursor != null; }
+    public Long getTotalCount() { return totalCount; }
+
+    public void setTotalCount(Long totalCount) {
+        this.totalCount = totalCount;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.springbootjava.dto;
 import com.example.springbootjava.entity.Document;
 import java.time.LocalDateTime;
 
+// Metadata and summary only; the extracted text is served by GET /api/documents/{id}/content
 public class DocumentResponseDTO {
     private Long id;
     private String title;
@@ -10,7 +11,6 @@ public class DocumentResponseDTO {
     private String originalFilename;
     private String filePath;
     private Long fileSize;
-    private String content;
     private String summary;
     private Document.ProcessingStatus processingStatus;
     private LocalDateTime createdAt;
@@ -26,7 +26,6 @@ public class DocumentResponseDTO {
         this.originalFilename = document.getFileName();
         this.filePath = document.getFilePath();
         this.fileSize = document.getFileSize();
-        this.content = document.getContent();
         this.summary = document.getSummary();
         this.processingStatus = document.getProcessingStatus();
         this.createdAt = document.getCreatedAt();
@@ -83,14 +82,6 @@ public class DocumentResponseDTO {
         this.fileSize = fileSize;
     }
 
-    public String getContent() {
-        return content;
-    }
-
-    public void setContent(String content) {
-        this.content = content;
-    }
-
     public String getSummary() {
         return summary;
     }
@@ -0,0 +1,45 @@
+package com.example.springbootjava.dto;
+
+import com.example.springbootjava.entity.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Document metadata for list endpoints, selected directly by JPQL constructor expressions so
+ * neither the extracted text nor the summary is read.
+ */
+public class DocumentSummaryDTO {
+    private final Long id;
+    private final String title;
+    private final String description;
+    private final String fileType;
+    private final String originalFilename;
+    private final Long fileSize;
+    private final Document.ProcessingStatus processingStatus;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    public DocumentSummaryDTO(Long id, String title, String description, String fileType, String originalFilename,
+                              Long fileSize, Document.ProcessingStatus processingStatus,
+                              LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.fileType = fileType;
+        this.originalFilename = originalFilename;
+        this.fileSize = fileSize;
+        this.processingStatus = processingStatus;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() { return id; }
+    public String getTitle() { return title; }
+    public String getDescription() { return description; }
+    public String getFileType() { return fileType; }
+    public String getOriginalFilename() { return originalFilename; }
+    public Long getFileSize() { return fileSize; }
+    public Document.ProcessingStatus getProcessingStatus() { return processingStatus; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,67 @@
+package com.example.springbootjava.dto;
+
+import com.example.springbootjava.entity.Flashcard;
+
+import java.time.LocalDateTime;
+
+/**
+ * JSON shape of a flashcard. Built inside the service transaction from a flashcard whose document
+ * was fetched with it, so rendering never touches a lazy association.
+ */
+public class FlashcardResponseDTO {
+    private final Long id;
+    private final String question;
+    private final String answer;
+    private final String category;
+    private final Flashcard.Difficulty difficulty;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final LocalDateTime nextReviewAt;
+    private final Integer intervalDays;
+    private final Long documentId;
+    private final DocumentInfo document;
+
+    public FlashcardResponseDTO(Flashcard flashcard) {
+        this.id = flashcard.getId();
+        this.question = flashcard.getQuestion();
+        this.answer = flashcard.getAnswer();
+        this.category = flashcard.getCategory();
+        this.difficulty = flashcard.getDifficulty();
+        this.createdAt = flashcard.getCreatedAt();
+        this.updatedAt = flashcard.getUpdatedAt();
+        this.nextReviewAt = flashcard.getNextReviewAt();
+        this.intervalDays = flashcard.getIntervalDays();
+        if (flashcard.getDocument() != null) {
+            this.documentId = flashcard.getDocument().getId();
+            this.document = new DocumentInfo(documentId, flashcard.getDocument().getTitle());
+        } else {
+            this.documentId = null;
+            this.document = null;
+        }
+    }
+
+    public Long getId() { return id; }
+    public String getQuestion() { return question; }
+    public String getAnswer() { return answer; }
+    public String getCategory() { return category; }
+    public Flashcard.Difficulty getDifficulty() { return difficulty; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public LocalDateTime getNextReviewAt() { return nextReviewAt; }
+    public Integer getIntervalDays() { return intervalDays; }
+    public Long getDocumentId() { return documentId; }
+    public DocumentInfo getDocument() { return document; }
+
+    public static class DocumentInfo {
+        private final Long id;
+        private final String title;
+
+        public DocumentInfo(Long id, String title) {
+            this.id = id;
+            this.title = title;
+        }
+
+        public Long getId() { return id; }
+        public String getTitle() { return title; }
+    }
+}
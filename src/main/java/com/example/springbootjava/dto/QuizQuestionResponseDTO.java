@@ -16,20 +16,19 @@ public class QuizQuestionResponseDTO {
     public QuizQuestionResponseDTO() {}
 
     public QuizQuestionResponseDTO(QuizQuestion quizQuestion) {
+        this(quizQuestion, sortedAnswers(quizQuestion));
+    }
+
+    /**
+     * Builds the question from answers that are already in display order, as QuizGraphLoader
+     * returns them; null answers fall back to placeholder options
+     */
+    public QuizQuestionResponseDTO(QuizQuestion quizQuestion, List<QuizAnswer> sortedAnswers) {
         this.id = quizQuestion.getId();
         this.question = quizQuestion.getQuestionText();
         
         // Convert QuizAnswer entities to options array and find correct answer
-        if (quizQuestion.getAnswers() != null) {
-            List<QuizAnswer> sortedAnswers = quizQuestion.getAnswers().stream()
-                .sorted((a, b) -> {
-                    if (a.getOrder() == null && b.getOrder() == null) return 0;
-                    if (a.getOrder() == null) return 1;
-                    if (b.getOrder() == null) return -1;
-                    return a.getOrder().compareTo(b.getOrder());
-                })
-                .collect(Collectors.toList());
-            
+        if (sortedAnswers != null) {
             this.options = sortedAnswers.stream()
                 .map(QuizAnswer::getAnswerText)
                 .collect(Collectors.toList());
@@ -54,6 +53,20 @@ public class QuizQuestionResponseDTO {
         this.explanation = "This is a sample explanation. In production, AI would generate a proper explanation.";
     }
 
+    private static List<QuizAnswer> sortedAnswers(QuizQuestion quizQuestion) {
+        if (quizQuestion.getAnswers() == null) {
+            return null;
+        }
+        return quizQuestion.getAnswers().stream()
+            .sorted((a, b) -> {
+                if (a.getOrder() == null && b.getOrder() == null) return 0;
+                if (a.getOrder() == null) return 1;
+                if (b.getOrder() == null) return -1;
+                return a.getOrder().compareTo(b.getOrder());
+            })
+            .collect(Collectors.toList());
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
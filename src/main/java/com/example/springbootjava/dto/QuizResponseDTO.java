@@ -28,6 +28,16 @@ public class QuizResponseDTO {
     }
     
     public QuizResponseDTO(Quiz quiz, Integer bestScore) {
+        this(quiz, quiz.getQuestions() != null
+                ? quiz.getQuestions().stream().map(QuizQuestionResponseDTO::new).collect(Collectors.toList())
+                : null, bestScore);
+    }
+
+    /**
+     * Builds the response from questions loaded separately, e.g. by QuizGraphLoader, so the
+     * quiz's lazy question collection is never touched
+     */
+    public QuizResponseDTO(Quiz quiz, List<QuizQuestionResponseDTO> questions, Integer bestScore) {
         this.id = quiz.getId();
         this.title = quiz.getTitle();
         this.description = quiz.getDescription();
@@ -37,12 +47,7 @@ public class QuizResponseDTO {
         this.createdAt = quiz.getCreatedAt() != null ? quiz.getCreatedAt().toString() : LocalDateTime.now().toString();
         this.updatedAt = quiz.getUpdatedAt() != null ? quiz.getUpdatedAt().toString() : LocalDateTime.now().toString();
         
-        // Convert QuizQuestion entities to DTOs
-        if (quiz.getQuestions() != null) {
-            this.questions = quiz.getQuestions().stream()
-                .map(QuizQuestionResponseDTO::new)
-                .collect(Collectors.toList());
-        }
+        this.questions = questions;
         
         this.completed = false; // Default value
         this.score = bestScore; // Set best score if provided
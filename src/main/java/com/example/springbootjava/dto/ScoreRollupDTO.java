@@ -0,0 +1,33 @@
+package com.example.springbootjava.dto;
+
+import com.example.springbootjava.entity.QuizScoreRollup;
+
+import java.time.LocalDate;
+
+/**
+ * JSON shape of one rollup row; bucketStart is omitted for all-time summaries
+ */
+public class ScoreRollupDTO {
+    private final LocalDate bucketStart;
+    private final long attempts;
+    private final double averageScore;
+    private final double minScore;
+    private final double maxScore;
+    private final long timeSpentMinutes;
+
+    public ScoreRollupDTO(QuizScoreRollup rollup) {
+        this.bucketStart = rollup.getBucket() == QuizScoreRollup.Bucket.ALL ? null : rollup.getBucketStart();
+        this.attempts = rollup.getAttemptCount();
+        this.averageScore = rollup.getAttemptCount() > 0 ? rollup.getScoreSum() / rollup.getAttemptCount() : 0.0;
+        this.minScore = rollup.getMinScore();
+        this.maxScore = rollup.getMaxScore();
+        this.timeSpentMinutes = rollup.getTimeSpentMinutes();
+    }
+
+    public LocalDate getBucketStart() { return bucketStart; }
+    public long getAttempts() { return attempts; }
+    public double getAverageScore() { return averageScore; }
+    public double getMinScore() { return minScore; }
+    public double getMaxScore() { return maxScore; }
+    public long getTimeSpentMinutes() { return timeSpentMinutes; }
+}
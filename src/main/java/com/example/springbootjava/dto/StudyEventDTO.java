@@ -0,0 +1,55 @@
+package com.example.springbootjava.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * One card flip in a batch posted to /api/flashcards/study-events; occurredAt defaults to the time
+ * the batch is received
+ */
+public class StudyEventDTO {
+    private Long flashcardId;
+    private Double score;
+    private Integer timeSpentSeconds;
+    private LocalDateTime occurredAt;
+
+    public StudyEventDTO() {}
+
+    public StudyEventDTO(Long flashcardId, Double score, Integer timeSpentSeconds, LocalDateTime occurredAt) {
+        this.flashcardId = flashcardId;
+        this.score = score;
+        this.timeSpentSeconds = timeSpentSeconds;
+        this.occurredAt = occurredAt;
+    }
+
+    public Long getFlashcardId() {
+        return flashcardId;
+    }
+
+    public void setFlashcardId(Long flashcardId) {
+        this.flashcardId = flashcardId;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public void setScore(Double score) {
+        this.score = score;
+    }
+
+    public Integer getTimeSpentSeconds() {
+        return timeSpentSeconds;
+    }
+
+    public void setTimeSpentSeconds(Integer timeSpentSeconds) {
+        this.timeSpentSeconds = timeSpentSeconds;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
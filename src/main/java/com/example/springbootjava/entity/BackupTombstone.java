@@ -0,0 +1,59 @@
+package com.example.springbootjava.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Deletion of a backed-up row, kept so the next delta backup can carry it. section is the backup
+ * section the row lives in (users, flashcards, quizAttempts, ...). A {@link #CHAIN_RESET} row means
+ * ids were rewritten wholesale, e.g. by a restore, so the next backup has to be a full one.
+ */
+@Entity
+@Table(name = "backup_tombstones", indexes = @Index(name = "idx_backup_tombstones_deleted", columnList = "deleted_at"))
+public class BackupTombstone {
+
+    public static final String CHAIN_RESET = "*";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "section", nullable = false, length = 32)
+    private String section;
+
+    @Column(name = "row_id", nullable = false)
+    private Long rowId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public BackupTombstone() {
+    }
+
+    public BackupTombstone(String section, Long rowId, LocalDateTime deletedAt) {
+        this.section = section;
+        this.rowId = rowId;
+        this.deletedAt = deletedAt;
+    }
+
+    public static BackupTombstone chainReset() {
+        return new BackupTombstone(CHAIN_RESET, 0L, LocalDateTime.now());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public Long getRowId() {
+        return rowId;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.springbootjava.entity;
+
+import jakarta.persistence.PostRemove;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Records a {@link BackupTombstone} for every backed-up entity removed through JPA, including
+ * cascaded removes. Hibernate creates it through Spring, so the insert runs on the connection of
+ * the deleting transaction and rolls back with it. Bulk JPQL deletes bypass it; the only ones
+ * (the user restore) reset the backup chain instead.
+ */
+public class BackupTombstoneListener {
+
+    private static final String INSERT_SQL = "INSERT INTO backup_tombstones (section, row_id, deleted_at) VALUES (?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostRemove
+    public void recordDeletion(Object entity) {
+        String section;
+        Long id;
+        if (entity instanceof User user) {
+            section = "users";
+            id = user.getId();
+        } else if (entity instanceof Document document) {
+            section = "documents";
+            id = document.getId();
+        } else if (entity instanceof Flashcard flashcard) {
+            section = "flashcards";
+            id = flashcard.getId();
+        } else if (entity instanceof Quiz quiz) {
+            section = "quizzes";
+            id = quiz.getId();
+        } else if (entity instanceof QuizQuestion question) {
+            section = "quizQuestions";
+            id = question.getId();
+        } else if (entity instanceof QuizAnswer answer) {
+            section = "quizAnswers";
+            id = answer.getId();
+        } else if (entity instanceof QuizAttempt attempt) {
+            section = "quizAttempts";
+            id = attempt.getId();
+        } else if (entity instanceof QuizAttemptAnswer attemptAnswer) {
+            section = "quizAttemptAnswers";
+            id = attemptAnswer.getId();
+        } else if (entity instanceof FlashcardStudySession session) {
+            section = "flashcardStudySessions";
+            id = session.getId();
+        } else {
+            return;
+        }
+        jdbcTemplate.update(INSERT_SQL, section, id, Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.springbootjava.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Versions of a user's collections, one counter per collection the frontend polls. Bumped in the
+ * transaction that changes the collection, so every instance reads the same versions; rows are
+ * never deleted, so a version is never handed out twice for the same user.
+ */
+@Entity
+@Table(name = "collection_versions")
+public class CollectionVersion {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "documents_version", nullable = false)
+    private long documentsVersion;
+
+    @Column(name = "flashcards_version", nullable = false)
+    private long flashcardsVersion;
+
+    @Column(name = "quizzes_version", nullable = false)
+    private long quizzesVersion;
+
+    public CollectionVersion() {
+    }
+
+    public CollectionVersion(Long userId) {
+        this.userId = userId;
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public long getDocumentsVersion() {
+        return documentsVersion;
+    }
+
+    public void setDocumentsVersion(long documentsVersion) {
+        this.documentsVersion = documentsVersion;
+    }
+
+    public long getFlashcardsVersion() {
+        return flashcardsVersion;
+    }
+
+    public void setFlashcardsVersion(long flashcardsVersion) {
+        this.flashcardsVersion = flashcardsVersion;
+    }
+
+    public long getQuizzesVersion() {
+        return quizzesVersion;
+    }
+
+    public void setQuizzesVersion(long quizzesVersion) {
+        this.quizzesVersion = quizzesVersion;
+    }
+}
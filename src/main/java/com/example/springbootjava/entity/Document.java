@@ -1,5 +1,6 @@
 package com.example.springbootjava.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -11,7 +12,13 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
-@Table(name = "documents")
+@EntityListeners(BackupTombstoneListener.class)
+// Composite indexes back the keyset-paginated list queries
+@Table(name = "documents", indexes = {
+        @Index(name = "idx_documents_user_created", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_documents_user_type_created", columnList = "user_id, file_type, created_at, id"),
+        @Index(name = "idx_documents_updated", columnList = "updated_at")
+})
 public class Document {
     
     @Id
@@ -42,9 +49,7 @@ public class Document {
     @Column(name = "file_size")
     private Long fileSize;
     
-    @Column(name = "content", columnDefinition = "TEXT")
-    private String content;
-    
+    // Extracted text is stored separately in DocumentContent
     @Column(name = "summary", columnDefinition = "TEXT")
     private String summary;
     
@@ -71,6 +76,10 @@ public class Document {
     @JsonManagedReference
     private Set<Quiz> quizzes;
     
+    @OneToMany(mappedBy = "document", cascade = CascadeType.REMOVE, fetch = FetchType.LAZY)
+    @JsonIgnore
+    private Set<DocumentSegment> segments;
+    
     public enum ProcessingStatus {
         PENDING, PROCESSING, COMPLETED, FAILED
     }
@@ -152,14 +161,6 @@ public class Document {
         this.fileSize = fileSize;
     }
     
-    public String getContent() {
-        return content;
-    }
-    
-    public void setContent(String content) {
-        this.content = content;
-    }
-    
     public String getSummary() {
         return summary;
     }
@@ -215,4 +216,12 @@ public class Document {
     public void setQuizzes(Set<Quiz> quizzes) {
         this.quizzes = quizzes;
     }
+    
+    public Set<DocumentSegment> getSegments() {
+        return segments;
+    }
+    
+    public void setSegments(Set<DocumentSegment> segments) {
+        this.segments = segments;
+    }
 }
@@ -0,0 +1,52 @@
+package com.example.springbootjava.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Extracted text of a document, kept out of the {@code documents} row so listing and loading
+ * documents never reads it. Shares its primary key with the document.
+ */
+@Entity
+@Table(name = "document_contents")
+public class DocumentContent {
+    
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+    
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "document_id", insertable = false, updatable = false)
+    private Document document;
+    
+    @Column(name = "content", columnDefinition = "TEXT")
+    private String content;
+    
+    public DocumentContent() {
+    }
+    
+    public DocumentContent(Long documentId, String content) {
+        this.documentId = documentId;
+        this.content = content;
+    }
+    
+    // Getters and Setters
+    public Long getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+    
+    public Document getDocument() {
+        return document;
+    }
+    
+    public String getContent() {
+        return content;
+    }
+    
+    public void setContent(String content) {
+        this.content = content;
+    }
+}
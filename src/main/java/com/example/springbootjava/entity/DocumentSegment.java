@@ -0,0 +1,85 @@
+package com.example.springbootjava.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * One page (PDF) or slide (PPTX) of a document, stored as a character range of the document's {@link DocumentContent}.
+ * Formats without pages are stored as a single segment covering the whole text.
+ */
+@Entity
+@Table(name = "document_segments",
+        uniqueConstraints = @UniqueConstraint(name = "uk_document_segments_page", columnNames = {"document_id", "page_number"}))
+public class DocumentSegment {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "document_id", nullable = false)
+    private Document document;
+    
+    @Column(name = "page_number", nullable = false)
+    private int pageNumber;
+    
+    @Column(name = "start_offset", nullable = false)
+    private int startOffset;
+    
+    @Column(name = "end_offset", nullable = false)
+    private int endOffset;
+    
+    public DocumentSegment() {
+    }
+    
+    public DocumentSegment(Document document, int pageNumber, int startOffset, int endOffset) {
+        this.document = document;
+        this.pageNumber = pageNumber;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Document getDocument() {
+        return document;
+    }
+    
+    public void setDocument(Document document) {
+        this.document = document;
+    }
+    
+    public int getPageNumber() {
+        return pageNumber;
+    }
+    
+    public void setPageNumber(int pageNumber) {
+        this.pageNumber = pageNumber;
+    }
+    
+    public int getStartOffset() {
+        return startOffset;
+    }
+    
+    public void setStartOffset(int startOffset) {
+        this.startOffset = startOffset;
+    }
+    
+    public int getEndOffset() {
+        return endOffset;
+    }
+    
+    public void setEndOffset(int endOffset) {
+        this.endOffset = endOffset;
+    }
+    
+    public int getLength() {
+        return endOffset - startOffset;
+    }
+}
@@ -3,12 +3,20 @@ package com.example.springbootjava.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import com.fasterxml.jackson.annotation.JsonBackReference;
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "flashcards")
+@EntityListeners(BackupTombstoneListener.class)
+// Composite indexes back the keyset-paginated list queries
+@Table(name = "flashcards", indexes = {
+        @Index(name = "idx_flashcards_user_created", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_flashcards_user_difficulty_created", columnList = "user_id, difficulty, created_at, id"),
+        @Index(name = "idx_flashcards_user_category_created", columnList = "user_id, category, created_at, id"),
+        @Index(name = "idx_flashcards_user_next_review", columnList = "user_id, next_review_at, id"),
+        @Index(name = "idx_flashcards_updated", columnList = "updated_at")
+})
 public class Flashcard {
     
     @Id
@@ -36,6 +44,27 @@ public class Flashcard {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // SM-2 review schedule, only changed by ReviewScheduler; new cards are due straight away
+    @JsonIgnore
+    @Column(name = "next_review_at")
+    private LocalDateTime nextReviewAt;
+    
+    @JsonIgnore
+    @Column(name = "interval_days")
+    private Integer intervalDays = 0;
+    
+    @JsonIgnore
+    @Column(name = "ease_factor")
+    private Double easeFactor = 2.5;
+    
+    @JsonIgnore
+    @Column(name = "repetitions")
+    private Integer repetitions = 0;
+    
+    @JsonIgnore
+    @Column(name = "last_reviewed_at")
+    private LocalDateTime lastReviewedAt;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonBackReference
@@ -56,6 +85,7 @@ public class Flashcard {
     public Flashcard() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
+        this.nextReviewAt = this.createdAt;
     }
     
     public Flashcard(String question, String answer, User user) {
@@ -134,6 +164,46 @@ public class Flashcard {
         this.updatedAt = updatedAt;
     }
     
+    public LocalDateTime getNextReviewAt() {
+        return nextReviewAt;
+    }
+    
+    public void setNextReviewAt(LocalDateTime nextReviewAt) {
+        this.nextReviewAt = nextReviewAt;
+    }
+    
+    public Integer getIntervalDays() {
+        return intervalDays;
+    }
+    
+    public void setIntervalDays(Integer intervalDays) {
+        this.intervalDays = intervalDays;
+    }
+    
+    public Double getEaseFactor() {
+        return easeFactor;
+    }
+    
+    public void setEaseFactor(Double easeFactor) {
+        this.easeFactor = easeFactor;
+    }
+    
+    public Integer getRepetitions() {
+        return repetitions;
+    }
+    
+    public void setRepetitions(Integer repetitions) {
+        this.repetitions = repetitions;
+    }
+    
+    public LocalDateTime getLastReviewedAt() {
+        return lastReviewedAt;
+    }
+    
+    public void setLastReviewedAt(LocalDateTime lastReviewedAt) {
+        this.lastReviewedAt = lastReviewedAt;
+    }
+    
     public User getUser() {
         return user;
     }
@@ -157,36 +227,4 @@ public class Flashcard {
     public void setStudySessions(java.util.Set<FlashcardStudySession> studySessions) {
         this.studySessions = studySessions;
     }
-
-    @JsonProperty("documentId")
-    public Long getDocumentId() {
-        return document != null ? document.getId() : null;
-    }
-
-    @JsonProperty("document")
-    public DocumentInfo getDocumentInfo() {
-        if (document == null) {
-            return null;
-        }
-        return new DocumentInfo(document.getId(), document.getTitle());
-    }
-
-    // Inner class for document info
-    public static class DocumentInfo {
-        private Long id;
-        private String title;
-
-        public DocumentInfo(Long id, String title) {
-            this.id = id;
-            this.title = title;
-        }
-
-        public Long getId() {
-            return id;
-        }
-
-        public String getTitle() {
-            return title;
-        }
-    }
 }
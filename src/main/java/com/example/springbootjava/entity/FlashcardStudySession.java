@@ -6,7 +6,8 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "flashcard_study_sessions")
+@EntityListeners(BackupTombstoneListener.class)
+@Table(name = "flashcard_study_sessions", indexes = @Index(name = "idx_flashcard_study_sessions_updated", columnList = "updated_at"))
 public class FlashcardStudySession {
     
     @Id
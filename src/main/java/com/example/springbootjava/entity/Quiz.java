@@ -11,7 +11,14 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
-@Table(name = "quizzes")
+@EntityListeners(BackupTombstoneListener.class)
+// Composite indexes back the keyset-paginated list queries
+@Table(name = "quizzes", indexes = {
+        @Index(name = "idx_quizzes_user_created", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_quizzes_user_published_created", columnList = "user_id, is_published, created_at, id"),
+        @Index(name = "idx_quizzes_user_difficulty_created", columnList = "user_id, difficulty, created_at, id"),
+        @Index(name = "idx_quizzes_updated", columnList = "updated_at")
+})
 public class Quiz {
     
     @Id
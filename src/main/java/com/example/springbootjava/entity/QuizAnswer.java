@@ -8,7 +8,8 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "quiz_answers")
+@EntityListeners(BackupTombstoneListener.class)
+@Table(name = "quiz_answers", indexes = @Index(name = "idx_quiz_answers_updated", columnList = "updated_at"))
 public class QuizAnswer {
     
     @Id
@@ -7,7 +7,8 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
-@Table(name = "quiz_attempts")
+@EntityListeners(BackupTombstoneListener.class)
+@Table(name = "quiz_attempts", indexes = @Index(name = "idx_quiz_attempts_updated", columnList = "updated_at"))
 public class QuizAttempt {
     
     @Id
@@ -6,7 +6,8 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "quiz_attempt_answers")
+@EntityListeners(BackupTombstoneListener.class)
+@Table(name = "quiz_attempt_answers", indexes = @Index(name = "idx_quiz_attempt_answers_updated", columnList = "updated_at"))
 public class QuizAttemptAnswer {
     
     @Id
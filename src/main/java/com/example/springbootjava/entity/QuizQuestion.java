@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
-@Table(name = "quiz_questions")
+@EntityListeners(BackupTombstoneListener.class)
+@Table(name = "quiz_questions", indexes = @Index(name = "idx_quiz_questions_updated", columnList = "updated_at"))
 public class QuizQuestion {
     
     @Id
@@ -0,0 +1,149 @@
+package com.example.springbootjava.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Running aggregate of quiz attempt scores for one key: a user across all quizzes (quizId 0), a
+ * quiz across all users (userId 0), or one user on one quiz. Each key has an all-time row and,
+ * for the first two, a row per day and per week (bucketStart is the day, or the Monday of the week).
+ */
+@Entity
+@Table(name = "quiz_score_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_quiz_score_rollups_key", columnNames = {"user_id", "quiz_id", "bucket", "bucket_start"}))
+public class QuizScoreRollup {
+    
+    // userId/quizId of a row that covers every user or every quiz
+    public static final long ANY = 0L;
+    
+    // bucketStart of the all-time rows
+    public static final LocalDate ALL_TIME = LocalDate.of(1970, 1, 1);
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "quiz_id", nullable = false)
+    private Long quizId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "bucket", nullable = false, length = 8)
+    private Bucket bucket;
+    
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDate bucketStart;
+    
+    @Column(name = "attempt_count", nullable = false)
+    private long attemptCount;
+    
+    @Column(name = "score_sum", nullable = false)
+    private double scoreSum;
+    
+    @Column(name = "min_score", nullable = false)
+    private double minScore;
+    
+    @Column(name = "max_score", nullable = false)
+    private double maxScore;
+    
+    @Column(name = "time_spent_minutes", nullable = false)
+    private long timeSpentMinutes;
+    
+    public enum Bucket {
+        ALL, DAY, WEEK
+    }
+    
+    public QuizScoreRollup() {
+    }
+    
+    public QuizScoreRollup(Long userId, Long quizId, Bucket bucket, LocalDate bucketStart) {
+        this.userId = userId;
+        this.quizId = quizId;
+        this.bucket = bucket;
+        this.bucketStart = bucketStart;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public Long getQuizId() {
+        return quizId;
+    }
+    
+    public void setQuizId(Long quizId) {
+        this.quizId = quizId;
+    }
+    
+    public Bucket getBucket() {
+        return bucket;
+    }
+    
+    public void setBucket(Bucket bucket) {
+        this.bucket = bucket;
+    }
+    
+    public LocalDate getBucketStart() {
+        return bucketStart;
+    }
+    
+    public void setBucketStart(LocalDate bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+    
+    public long getAttemptCount() {
+        return attemptCount;
+    }
+    
+    public void setAttemptCount(long attemptCount) {
+        this.attemptCount = attemptCount;
+    }
+    
+    public double getScoreSum() {
+        return scoreSum;
+    }
+    
+    public void setScoreSum(double scoreSum) {
+        this.scoreSum = scoreSum;
+    }
+    
+    public double getMinScore() {
+        return minScore;
+    }
+    
+    public void setMinScore(double minScore) {
+        this.minScore = minScore;
+    }
+    
+    public double getMaxScore() {
+        return maxScore;
+    }
+    
+    public void setMaxScore(double maxScore) {
+        this.maxScore = maxScore;
+    }
+    
+    public long getTimeSpentMinutes() {
+        return timeSpentMinutes;
+    }
+    
+    public void setTimeSpentMinutes(long timeSpentMinutes) {
+        this.timeSpentMinutes = timeSpentMinutes;
+    }
+}
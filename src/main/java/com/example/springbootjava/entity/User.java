@@ -15,7 +15,8 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "users")
+@EntityListeners(BackupTombstoneListener.class)
+@Table(name = "users", indexes = @Index(name = "idx_users_updated", columnList = "updated_at"))
 public class User implements UserDetails {
     
     @Id
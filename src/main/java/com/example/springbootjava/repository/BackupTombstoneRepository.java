@@ -0,0 +1,23 @@
+package com.example.springbootjava.repository;
+
+import com.example.springbootjava.entity.BackupTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BackupTombstoneRepository extends JpaRepository<BackupTombstone, Long> {
+
+    List<BackupTombstone> findByDeletedAtGreaterThanEqual(LocalDateTime since);
+
+    boolean existsBySectionAndDeletedAtGreaterThanEqual(String section, LocalDateTime since);
+
+    @Modifying
+    @Query("DELETE FROM BackupTombstone t WHERE t.deletedAt < :before")
+    int deleteByDeletedAtBefore(@Param("before") LocalDateTime before);
+}
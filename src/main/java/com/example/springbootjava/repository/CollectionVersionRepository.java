@@ -0,0 +1,25 @@
+package com.example.springbootjava.repository;
+
+import com.example.springbootjava.entity.CollectionVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CollectionVersionRepository extends JpaRepository<CollectionVersion, Long> {
+
+    // Adds the given steps to the user's versions; returns 0 when the user has no row yet
+    @Modifying
+    @Query("UPDATE CollectionVersion v SET v.documentsVersion = v.documentsVersion + :documents, " +
+           "v.flashcardsVersion = v.flashcardsVersion + :flashcards, v.quizzesVersion = v.quizzesVersion + :quizzes " +
+           "WHERE v.userId = :userId")
+    int increment(@Param("userId") Long userId, @Param("documents") long documents,
+                  @Param("flashcards") long flashcards, @Param("quizzes") long quizzes);
+
+    @Modifying
+    @Query("UPDATE CollectionVersion v SET v.documentsVersion = v.documentsVersion + 1, " +
+           "v.flashcardsVersion = v.flashcardsVersion + 1, v.quizzesVersion = v.quizzesVersion + 1")
+    int incrementAll();
+}
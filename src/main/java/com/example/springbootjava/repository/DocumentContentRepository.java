@@ -0,0 +1,30 @@
+package com.example.springbootjava.repository;
+
+import com.example.springbootjava.entity.DocumentContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DocumentContentRepository extends JpaRepository<DocumentContent, Long> {
+    
+    @Query("SELECT c.content FROM DocumentContent c WHERE c.documentId = :documentId")
+    Optional<String> findContentByDocumentId(@Param("documentId") Long documentId);
+    
+    // 1-based start, as in SQL SUBSTRING; only the requested slice leaves the database
+    @Query("SELECT SUBSTRING(c.content, :start, :length) FROM DocumentContent c WHERE c.documentId = :documentId")
+    String findContentSlice(@Param("documentId") Long documentId, @Param("start") int start, @Param("length") int length);
+    
+    @Modifying
+    @Query("DELETE FROM DocumentContent c WHERE c.documentId = :documentId")
+    void deleteByDocumentId(@Param("documentId") Long documentId);
+    
+    // Backup-related methods
+    @Modifying
+    @Query("DELETE FROM DocumentContent c WHERE c.document.user.id = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
@@ -1,17 +1,24 @@
 package com.example.springbootjava.repository;
 
+import com.example.springbootjava.dto.DocumentSummaryDTO;
 import com.example.springbootjava.entity.Document;
 import com.example.springbootjava.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DocumentRepository extends JpaRepository<Document, Long> {
@@ -23,7 +30,7 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     @Query("SELECT d FROM Document d WHERE d.user = :user AND d.processingStatus = :status ORDER BY d.createdAt DESC")
     List<Document> findByUserAndProcessingStatus(@Param("user") User user, @Param("status") Document.ProcessingStatus status);
     
-    @Query("SELECT d FROM Document d WHERE d.user = :user AND (LOWER(d.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(d.content) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) ORDER BY d.createdAt DESC")
+    @Query("SELECT d FROM Document d LEFT JOIN DocumentContent c ON c.documentId = d.id WHERE d.user = :user AND (LOWER(d.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(c.content) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) ORDER BY d.createdAt DESC")
     List<Document> findByUserAndSearchTerm(@Param("user") User user, @Param("searchTerm") String searchTerm);
     
     @Query("SELECT d FROM Document d WHERE d.user = :user AND d.fileType = :fileType ORDER BY d.createdAt DESC")
@@ -38,6 +45,26 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     @Query("SELECT d FROM Document d WHERE d.processingStatus = :status ORDER BY d.createdAt ASC")
     List<Document> findByProcessingStatusOrderByCreatedAt(@Param("status") Document.ProcessingStatus status);
     
+    @Query("SELECT COUNT(d) FROM Document d WHERE d.user = :user AND d.fileType = :fileType")
+    long countByUserAndFileType(@Param("user") User user, @Param("fileType") String fileType);
+    
+    @Query("SELECT COUNT(d) FROM Document d LEFT JOIN DocumentContent c ON c.documentId = d.id WHERE d.user = :user AND (LOWER(d.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(c.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
+    long countByUserAndSearchTerm(@Param("user") User user, @Param("searchTerm") String searchTerm);
+    
+    // Keyset pages ordered by (createdAt, id) DESC; the first page starts from PageCursor.START.
+    // Metadata only: these never read the extracted text
+    @Query("SELECT new com.example.springbootjava.dto.DocumentSummaryDTO(d.id, d.title, d.description, d.fileType, d.fileName, d.fileSize, d.processingStatus, d.createdAt, d.updatedAt) FROM Document d WHERE d.user = :user AND d.createdAt <= :createdAt AND (d.createdAt < :createdAt OR d.id < :id) ORDER BY d.createdAt DESC, d.id DESC")
+    List<DocumentSummaryDTO> findPageByUser(@Param("user") User user, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT new com.example.springbootjava.dto.DocumentSummaryDTO(d.id, d.title, d.description, d.fileType, d.fileName, d.fileSize, d.processingStatus, d.createdAt, d.updatedAt) FROM Document d WHERE d.user = :user AND d.fileType = :fileType AND d.createdAt <= :createdAt AND (d.createdAt < :createdAt OR d.id < :id) ORDER BY d.createdAt DESC, d.id DESC")
+    List<DocumentSummaryDTO> findPageByUserAndFileType(@Param("user") User user, @Param("fileType") String fileType, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT new com.example.springbootjava.dto.DocumentSummaryDTO(d.id, d.title, d.description, d.fileType, d.fileName, d.fileSize, d.processingStatus, d.createdAt, d.updatedAt) FROM Document d LEFT JOIN DocumentContent c ON c.documentId = d.id WHERE d.user = :user AND (LOWER(d.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(c.content) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND d.createdAt <= :createdAt AND (d.createdAt < :createdAt OR d.id < :id) ORDER BY d.createdAt DESC, d.id DESC")
+    List<DocumentSummaryDTO> findPageByUserAndSearchTerm(@Param("user") User user, @Param("searchTerm") String searchTerm, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @EntityGraph(attributePaths = "user")
+    Optional<Document> findWithUserById(Long id);
+    
     // Backup-related methods
     @Query("SELECT d FROM Document d WHERE d.user.id = :userId")
     List<Document> findByUserId(@Param("userId") Long userId);
@@ -45,4 +72,19 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     @Modifying
     @Query("DELETE FROM Document d WHERE d.user.id = :userId")
     void deleteByUserId(@Param("userId") Long userId);
+
+    List<Document> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
+
+    // For changes kept in other tables, such as the extracted content, that delta backups select through the document
+    @Modifying
+    @Query("UPDATE Document d SET d.updatedAt = :now WHERE d.id = :id")
+    int touch(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Query("SELECT DISTINCT d.filePath FROM Document d WHERE d.filePath IS NOT NULL")
+    List<String> findAllFilePaths();
+
+    // Streamed in fetch-size chunks; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT d.filePath FROM Document d WHERE d.filePath IS NOT NULL")
+    Stream<String> streamAllFilePaths();
 }
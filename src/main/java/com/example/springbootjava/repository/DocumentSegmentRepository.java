@@ -0,0 +1,33 @@
+package com.example.springbootjava.repository;
+
+import com.example.springbootjava.entity.DocumentSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentSegmentRepository extends JpaRepository<DocumentSegment, Long> {
+    
+    @Query("SELECT s FROM DocumentSegment s WHERE s.document.id = :documentId ORDER BY s.pageNumber ASC")
+    List<DocumentSegment> findByDocumentId(@Param("documentId") Long documentId);
+    
+    @Query("SELECT s FROM DocumentSegment s WHERE s.document.id = :documentId AND s.pageNumber = :pageNumber")
+    Optional<DocumentSegment> findByDocumentIdAndPageNumber(@Param("documentId") Long documentId, @Param("pageNumber") int pageNumber);
+    
+    @Query("SELECT COUNT(s) FROM DocumentSegment s WHERE s.document.id = :documentId")
+    long countByDocumentId(@Param("documentId") Long documentId);
+    
+    @Modifying
+    @Query("DELETE FROM DocumentSegment s WHERE s.document.id = :documentId")
+    void deleteByDocumentId(@Param("documentId") Long documentId);
+    
+    // Backup-related methods
+    @Modifying
+    @Query("DELETE FROM DocumentSegment s WHERE s.document.user.id = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+}
@@ -4,13 +4,17 @@ import com.example.springbootjava.entity.Flashcard;
 import com.example.springbootjava.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface FlashcardRepository extends JpaRepository<Flashcard, Long> {
@@ -34,9 +38,39 @@ public interface FlashcardRepository extends JpaRepository<Flashcard, Long> {
     @Query("SELECT COUNT(f) FROM Flashcard f WHERE f.user = :user AND f.difficulty = :difficulty")
     long countByUserAndDifficulty(@Param("user") User user, @Param("difficulty") Flashcard.Difficulty difficulty);
     
-    @Query("SELECT f FROM Flashcard f WHERE f.user = :user ORDER BY RANDOM() LIMIT :limit")
+    @Query("SELECT f FROM Flashcard f LEFT JOIN FETCH f.document WHERE f.user = :user ORDER BY RANDOM() LIMIT :limit")
     List<Flashcard> findRandomByUser(@Param("user") User user, @Param("limit") int limit);
     
+    @Query("SELECT COUNT(f) FROM Flashcard f WHERE f.user = :user AND f.category = :category")
+    long countByUserAndCategory(@Param("user") User user, @Param("category") String category);
+    
+    @Query("SELECT COUNT(f) FROM Flashcard f WHERE f.user = :user AND (LOWER(f.question) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(f.answer) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
+    long countByUserAndSearchTerm(@Param("user") User user, @Param("searchTerm") String searchTerm);
+    
+    // Keyset pages ordered by (createdAt, id) DESC; the first page starts from PageCursor.START.
+    // The document is fetch-joined because every response carries its title.
+    @Query("SELECT f FROM Flashcard f LEFT JOIN FETCH f.document WHERE f.user = :user AND f.createdAt <= :createdAt AND (f.createdAt < :createdAt OR f.id < :id) ORDER BY f.createdAt DESC, f.id DESC")
+    List<Flashcard> findPageByUser(@Param("user") User user, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT f FROM Flashcard f LEFT JOIN FETCH f.document WHERE f.user = :user AND f.difficulty = :difficulty AND f.createdAt <= :createdAt AND (f.createdAt < :createdAt OR f.id < :id) ORDER BY f.createdAt DESC, f.id DESC")
+    List<Flashcard> findPageByUserAndDifficulty(@Param("user") User user, @Param("difficulty") Flashcard.Difficulty difficulty, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT f FROM Flashcard f LEFT JOIN FETCH f.document WHERE f.user = :user AND f.category = :category AND f.createdAt <= :createdAt AND (f.createdAt < :createdAt OR f.id < :id) ORDER BY f.createdAt DESC, f.id DESC")
+    List<Flashcard> findPageByUserAndCategory(@Param("user") User user, @Param("category") String category, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT f FROM Flashcard f LEFT JOIN FETCH f.document WHERE f.user = :user AND (LOWER(f.question) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(f.answer) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND f.createdAt <= :createdAt AND (f.createdAt < :createdAt OR f.id < :id) ORDER BY f.createdAt DESC, f.id DESC")
+    List<Flashcard> findPageByUserAndSearchTerm(@Param("user") User user, @Param("searchTerm") String searchTerm, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @EntityGraph(attributePaths = "document")
+    Optional<Flashcard> findWithDocumentById(Long id);
+    
+    // Cards due for review, soonest first; a range scan on idx_flashcards_user_next_review
+    @Query("SELECT f FROM Flashcard f LEFT JOIN FETCH f.document WHERE f.user = :user AND f.nextReviewAt <= :now ORDER BY f.nextReviewAt, f.id")
+    List<Flashcard> findDueByUser(@Param("user") User user, @Param("now") LocalDateTime now, Pageable pageable);
+    
+    @Query("SELECT f.id FROM Flashcard f WHERE f.user = :user AND f.id IN :ids")
+    List<Long> findIdsByUserAndIdIn(@Param("user") User user, @Param("ids") Collection<Long> ids);
+    
     // Backup-related methods
     @Query("SELECT f FROM Flashcard f WHERE f.user.id = :userId")
     List<Flashcard> findByUserId(@Param("userId") Long userId);
@@ -44,4 +78,6 @@ public interface FlashcardRepository extends JpaRepository<Flashcard, Long> {
     @Modifying
     @Query("DELETE FROM Flashcard f WHERE f.user.id = :userId")
     void deleteByUserId(@Param("userId") Long userId);
+
+    List<Flashcard> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
 }
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -27,4 +28,6 @@ public interface FlashcardStudySessionRepository extends JpaRepository<Flashcard
     @Modifying
     @Query("DELETE FROM FlashcardStudySession s WHERE s.flashcard.user.id = :userId")
     void deleteByFlashcardUserId(@Param("userId") Long userId);
+
+    List<FlashcardStudySession> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
 }
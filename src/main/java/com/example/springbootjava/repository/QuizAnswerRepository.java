@@ -7,6 +7,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,6 +19,10 @@ public interface QuizAnswerRepository extends JpaRepository<QuizAnswer, Long> {
     @Query("SELECT a FROM QuizAnswer a WHERE a.question.id = :questionId ORDER BY a.order ASC")
     List<QuizAnswer> findByQuestionIdOrderByOrder(@Param("questionId") Long questionId);
     
+    // Grouped by question and in display order, for QuizGraphLoader
+    @Query("SELECT a FROM QuizAnswer a WHERE a.question.id IN :questionIds ORDER BY a.question.id, a.order, a.id")
+    List<QuizAnswer> findByQuestionIdIn(@Param("questionIds") Collection<Long> questionIds);
+    
     @Query("SELECT COUNT(a) FROM QuizAnswer a WHERE a.question.id = :questionId")
     long countByQuestionId(@Param("questionId") Long questionId);
     
@@ -27,4 +33,6 @@ public interface QuizAnswerRepository extends JpaRepository<QuizAnswer, Long> {
     @Modifying
     @Query("DELETE FROM QuizAnswer a WHERE a.question.quiz.user.id = :userId")
     void deleteByQuestionQuizUserId(@Param("userId") Long userId);
+
+    List<QuizAnswer> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
 }
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -29,4 +30,6 @@ public interface QuizAttemptAnswerRepository extends JpaRepository<QuizAttemptAn
     @Modifying
     @Query("DELETE FROM QuizAttemptAnswer a WHERE a.attempt.user.id = :userId")
     void deleteByAttemptUserId(@Param("userId") Long userId);
+
+    List<QuizAttemptAnswer> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
 }
@@ -9,6 +9,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +32,10 @@ public interface QuizAttemptRepository extends JpaRepository<QuizAttempt, Long>
         return attempts.isEmpty() ? Optional.empty() : Optional.of(attempts.get(0));
     }
     
+    // One row of (quizId, best score) per attempted quiz, so a page of quizzes needs a single query
+    @Query("SELECT qa.quiz.id, MAX(qa.score) FROM QuizAttempt qa WHERE qa.user = :user AND qa.quiz.id IN :quizIds GROUP BY qa.quiz.id")
+    List<Object[]> findBestScoresByUserAndQuizIds(@Param("user") User user, @Param("quizIds") Collection<Long> quizIds);
+    
     @Query("SELECT AVG(qa.score) FROM QuizAttempt qa WHERE qa.user = :user")
     Double findAverageScoreByUser(@Param("user") User user);
     
@@ -49,4 +55,6 @@ public interface QuizAttemptRepository extends JpaRepository<QuizAttempt, Long>
     @Modifying
     @Query("DELETE FROM QuizAttempt qa WHERE qa.user.id = :userId")
     void deleteByUserId(@Param("userId") Long userId);
+
+    List<QuizAttempt> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
 }
@@ -7,6 +7,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,6 +19,10 @@ public interface QuizQuestionRepository extends JpaRepository<QuizQuestion, Long
     @Query("SELECT q FROM QuizQuestion q WHERE q.quiz.id = :quizId ORDER BY q.order ASC")
     List<QuizQuestion> findByQuizIdOrderByOrder(@Param("quizId") Long quizId);
     
+    // Grouped by quiz and in display order, for QuizGraphLoader
+    @Query("SELECT q FROM QuizQuestion q WHERE q.quiz.id IN :quizIds ORDER BY q.quiz.id, q.order, q.id")
+    List<QuizQuestion> findByQuizIdIn(@Param("quizIds") Collection<Long> quizIds);
+    
     @Query("SELECT COUNT(q) FROM QuizQuestion q WHERE q.quiz.id = :quizId")
     long countByQuizId(@Param("quizId") Long quizId);
     
@@ -27,4 +33,6 @@ public interface QuizQuestionRepository extends JpaRepository<QuizQuestion, Long
     @Modifying
     @Query("DELETE FROM QuizQuestion q WHERE q.quiz.user.id = :userId")
     void deleteByQuizUserId(@Param("userId") Long userId);
+
+    List<QuizQuestion> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
 }
@@ -4,13 +4,16 @@ import com.example.springbootjava.entity.Quiz;
 import com.example.springbootjava.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface QuizRepository extends JpaRepository<Quiz, Long> {
@@ -37,6 +40,29 @@ public interface QuizRepository extends JpaRepository<Quiz, Long> {
     @Query("SELECT q FROM Quiz q WHERE q.isPublished = true ORDER BY q.createdAt DESC")
     List<Quiz> findAllPublished();
     
+    @Query("SELECT COUNT(q) FROM Quiz q WHERE q.user = :user AND q.difficulty = :difficulty")
+    long countByUserAndDifficulty(@Param("user") User user, @Param("difficulty") Quiz.Difficulty difficulty);
+    
+    @Query("SELECT COUNT(q) FROM Quiz q WHERE q.user = :user AND (LOWER(q.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(q.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
+    long countByUserAndSearchTerm(@Param("user") User user, @Param("searchTerm") String searchTerm);
+    
+    // Keyset pages ordered by (createdAt, id) DESC; the first page starts from PageCursor.START.
+    // The document is fetch-joined because every response carries its title.
+    @Query("SELECT q FROM Quiz q LEFT JOIN FETCH q.document WHERE q.user = :user AND q.createdAt <= :createdAt AND (q.createdAt < :createdAt OR q.id < :id) ORDER BY q.createdAt DESC, q.id DESC")
+    List<Quiz> findPageByUser(@Param("user") User user, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT q FROM Quiz q LEFT JOIN FETCH q.document WHERE q.user = :user AND q.isPublished = true AND q.createdAt <= :createdAt AND (q.createdAt < :createdAt OR q.id < :id) ORDER BY q.createdAt DESC, q.id DESC")
+    List<Quiz> findPublishedPageByUser(@Param("user") User user, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT q FROM Quiz q LEFT JOIN FETCH q.document WHERE q.user = :user AND q.difficulty = :difficulty AND q.createdAt <= :createdAt AND (q.createdAt < :createdAt OR q.id < :id) ORDER BY q.createdAt DESC, q.id DESC")
+    List<Quiz> findPageByUserAndDifficulty(@Param("user") User user, @Param("difficulty") Quiz.Difficulty difficulty, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT q FROM Quiz q LEFT JOIN FETCH q.document WHERE q.user = :user AND (LOWER(q.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(q.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND q.createdAt <= :createdAt AND (q.createdAt < :createdAt OR q.id < :id) ORDER BY q.createdAt DESC, q.id DESC")
+    List<Quiz> findPageByUserAndSearchTerm(@Param("user") User user, @Param("searchTerm") String searchTerm, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @EntityGraph(attributePaths = "document")
+    Optional<Quiz> findWithDocumentById(Long id);
+    
     // Backup-related methods
     @Query("SELECT q FROM Quiz q WHERE q.user.id = :userId")
     List<Quiz> findByUserId(@Param("userId") Long userId);
@@ -44,4 +70,6 @@ public interface QuizRepository extends JpaRepository<Quiz, Long> {
     @Modifying
     @Query("DELETE FROM Quiz q WHERE q.user.id = :userId")
     void deleteByUserId(@Param("userId") Long userId);
+
+    List<Quiz> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
 }
@@ -0,0 +1,24 @@
+package com.example.springbootjava.repository;
+
+import com.example.springbootjava.entity.QuizScoreRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface QuizScoreRollupRepository extends JpaRepository<QuizScoreRollup, Long> {
+    
+    Optional<QuizScoreRollup> findByUserIdAndQuizIdAndBucketAndBucketStart(Long userId, Long quizId, QuizScoreRollup.Bucket bucket, LocalDate bucketStart);
+    
+    List<QuizScoreRollup> findByUserIdAndQuizIdAndBucketAndBucketStartBetweenOrderByBucketStart(Long userId, Long quizId, QuizScoreRollup.Bucket bucket, LocalDate from, LocalDate to);
+    
+    // Every row an attempt by userId on quizId touches, in one query; may return a few unrelated rows the caller ignores
+    @Query("SELECT r FROM QuizScoreRollup r WHERE ((r.userId = :userId AND r.quizId IN (0, :quizId)) OR (r.userId = 0 AND r.quizId = :quizId)) AND r.bucketStart IN :bucketStarts")
+    List<QuizScoreRollup> findForAttempt(@Param("userId") Long userId, @Param("quizId") Long quizId, @Param("bucketStarts") Collection<LocalDate> bucketStarts);
+}
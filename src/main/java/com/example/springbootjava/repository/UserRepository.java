@@ -7,6 +7,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -44,4 +46,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query(value = "SELECT setval(pg_get_serial_sequence('users','id'), 1, false)", nativeQuery = true)
     Long resetUserIdSequenceToStart();
+
+    List<User> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
 }
@@ -0,0 +1,9 @@
+package com.example.springbootjava.repository;
+
+import com.example.springbootjava.entity.UserStorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserStorageUsageRepository extends JpaRepository<UserStorageUsage, Long> {
+}
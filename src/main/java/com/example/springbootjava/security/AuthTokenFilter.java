@@ -5,6 +5,8 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,6 +21,8 @@ import java.io.IOException;
 @Component
 public class AuthTokenFilter extends OncePerRequestFilter {
     
+    private static final Logger log = LoggerFactory.getLogger(AuthTokenFilter.class);
+    
     @Autowired
     private JwtUtils jwtUtils;
     
@@ -30,29 +34,23 @@ public class AuthTokenFilter extends OncePerRequestFilter {
                                   FilterChain filterChain) throws ServletException, IOException {
         try {
             String requestPath = request.getRequestURI();
-            String threadName = Thread.currentThread().getName();
-            logger.info("Processing request to path: " + requestPath + " on thread: " + threadName);
             
             // Skip JWT processing for auth endpoints and health check
             if (requestPath.startsWith("/api/auth/") || requestPath.equals("/actuator/health")) {
-                logger.info("Skipping JWT processing for endpoint: " + requestPath);
                 filterChain.doFilter(request, response);
                 return;
             }
             
             // Check if authentication is already set to avoid duplicate processing
             if (SecurityContextHolder.getContext().getAuthentication() != null) {
-                logger.info("Authentication already set, skipping JWT processing for: " + requestPath);
                 filterChain.doFilter(request, response);
                 return;
             }
             
             String jwt = parseJwt(request);
-            logger.info("JWT token found: " + (jwt != null ? "Yes" : "No"));
             
             if (jwt != null && jwtUtils.validateToken(jwt)) {
                 String username = jwtUtils.extractUsername(jwt);
-                logger.info("Valid JWT for user: " + username);
                 
                 UserDetails userDetails = userDetailsService.loadUserByUsername(username);
                 UsernamePasswordAuthenticationToken authentication = 
@@ -60,19 +58,18 @@ public class AuthTokenFilter extends OncePerRequestFilter {
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-                logger.info("Authentication set for user: " + username);
+                log.debug("Authenticated {} for {}", username, requestPath);
             } else {
-                logger.warn("Invalid or missing JWT token for path: " + requestPath);
+                log.debug("Invalid or missing JWT token for path: {}", requestPath);
             }
         } catch (Exception e) {
-            logger.error("Cannot set user authentication: {}");
+            log.error("Cannot set user authentication: {}", e.getMessage(), e);
         }
         
         try {
             filterChain.doFilter(request, response);
         } catch (Exception e) {
-            logger.error("Error in filter chain: {}");
-            e.printStackTrace();
+            log.error("Error in filter chain for {}: {}", request.getRequestURI(), e.getMessage(), e);
             throw e;
         }
     }
@@ -8,6 +8,8 @@ import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.completion.chat.ChatMessageRole;
 import com.theokanning.openai.service.OpenAiService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -17,6 +19,8 @@ import java.util.List;
 @Service
 public class AIService {
     
+    private static final Logger logger = LoggerFactory.getLogger(AIService.class);
+    
     @Autowired
     private OpenAiService openAiService;
     
@@ -164,8 +168,7 @@ public class AIService {
             return flashcards;
             
         } catch (Exception e) {
-            System.err.println("AI Service failed to generate flashcards: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("AI service failed to generate flashcards: {}", e.getMessage(), e);
             
             // Fallback to simple flashcard generation based on actual content
             List<Flashcard> flashcards = new ArrayList<>();
@@ -197,7 +200,7 @@ public class AIService {
                 flashcards.add(flashcard);
             }
             
-            System.out.println("Generated " + flashcards.size() + " fallback flashcards due to AI service error");
+            logger.warn("Generated {} fallback flashcards due to AI service error", flashcards.size());
             return flashcards;
         }
     }
@@ -255,8 +258,7 @@ public class AIService {
             return questions;
             
         } catch (Exception e) {
-            System.err.println("Error generating quiz questions: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating quiz questions: {}", e.getMessage(), e);
             // Fallback to simple question generation
             List<QuizQuestion> questions = new ArrayList<>();
             String limitedContent = content.length() > 2000 ? content.substring(0, 2000) : content;
@@ -322,9 +324,7 @@ public class AIService {
                 .getMessage()
                 .getContent();
             
-            System.out.println("=== QUIZ GENERATION RESPONSE ===");
-            System.out.println(response);
-            System.out.println("=== END RESPONSE ===");
+            logger.debug("Quiz generation response: {}", response);
             
             // Parse the response into questions with answers
             List<QuestionWithAnswers> questions = new ArrayList<>();
@@ -354,7 +354,7 @@ public class AIService {
                         
                         // Validate correct answer is A, B, C, or D
                         if (!qwa.correctAnswer.matches("[ABCD]")) {
-                            System.err.println("Invalid correct answer: " + qwa.correctAnswer + ", defaulting to A");
+                            logger.warn("Invalid correct answer '{}', defaulting to A", qwa.correctAnswer);
                             qwa.correctAnswer = "A";
                         }
                         
@@ -374,14 +374,14 @@ public class AIService {
             }
             
             if (questions.isEmpty()) {
-                System.err.println("No questions parsed from response. Response was: " + response);
+                logger.warn("No questions parsed from quiz generation response ({} chars)", response.length());
+                logger.debug("Unparseable quiz generation response: {}", response);
             }
             
             return questions;
             
         } catch (Exception e) {
-            System.err.println("Error generating quiz questions with answers: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating quiz questions with answers: {}", e.getMessage(), e);
             return new ArrayList<>();
         }
     }
@@ -420,10 +420,7 @@ public class AIService {
                 .getMessage()
                 .getContent();
             
-            System.out.println("=== ANSWER GENERATION RESPONSE ===");
-            System.out.println("Question: " + cleanQuestionText);
-            System.out.println("Response: " + response);
-            System.out.println("=== END RESPONSE ===");
+            logger.debug("Answer generation for question '{}' returned: {}", cleanQuestionText, response);
             
             // Parse the response into quiz answers
             List<QuizAnswer> answers = new ArrayList<>();
@@ -465,25 +462,38 @@ public class AIService {
             
             // If parsing failed, throw exception instead of using placeholder
             if (answers.isEmpty()) {
-                System.err.println("Failed to parse answers from response: " + response);
+                logger.warn("Failed to parse answers from response ({} chars)", response.length());
                 throw new IllegalStateException("Failed to generate valid answers for question. AI response was: " + response);
             }
             
             return answers;
             
         } catch (Exception e) {
-            System.err.println("Error generating quiz answers: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating quiz answers: {}", e.getMessage(), e);
             // Re-throw instead of returning placeholder answers
             throw new RuntimeException("Failed to generate quiz answers: " + e.getMessage(), e);
         }
     }
     
     public String answerQuestion(String question, String context) {
+        // Limit context to avoid token limits
+        String limitedContext = context.length() > 2000 ? context.substring(0, 2000) : context;
+        return answerFromContext(question, limitedContext);
+    }
+    
+    /**
+     * Answers from retrieved passages; the caller has already sized them to the token budget
+     */
+    public String answerQuestion(String question, List<String> passages) {
+        StringBuilder context = new StringBuilder();
+        for (int i = 0; i < passages.size(); i++) {
+            context.append("[Passage ").append(i + 1).append("]\n").append(passages.get(i)).append("\n\n");
+        }
+        return answerFromContext(question, context.toString().trim());
+    }
+    
+    private String answerFromContext(String question, String context) {
         try {
-            // Limit context to avoid token limits
-            String limitedContext = context.length() > 2000 ? context.substring(0, 2000) : context;
-            
             List<ChatMessage> messages = new ArrayList<>();
             messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), 
                 "You are an AI assistant that answers questions based on provided context. " +
@@ -491,7 +501,7 @@ public class AIService {
                 "If the context doesn't contain enough information, say so. " +
                 "Keep your answer concise and accurate."));
             messages.add(new ChatMessage(ChatMessageRole.USER.value(), 
-                "Context: " + limitedContext + "\n\nQuestion: " + question));
+                "Context: " + context + "\n\nQuestion: " + question));
             
             ChatCompletionRequest request = ChatCompletionRequest.builder()
                 .model(openAIConfig.getModel())
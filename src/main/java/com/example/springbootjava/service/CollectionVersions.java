@@ -0,0 +1,104 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.CollectionVersion;
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.repository.CollectionVersionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-user version of each collection the frontend polls, used as the ETag of its list endpoints.
+ * Services bump a version whenever they change something the lists show. The versions live in the
+ * user's {@link CollectionVersion} row and are bumped in the writing transaction, so every instance
+ * serves the same tags and a poll can never see the new version before the new rows.
+ *
+ * A user's row is created the first time they are polled or bump a version. Creating it locks the
+ * user row, so two instances racing to create it do not fail on the key.
+ */
+@Component
+public class CollectionVersions {
+
+    public enum Type {
+        DOCUMENTS, FLASHCARDS, QUIZZES
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private CollectionVersionRepository versionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Strong ETag for the user's collection, quoted as it goes on the wire; null if the user is gone
+     */
+    public String etag(Long userId, Type type) {
+        CollectionVersion row = versionRepository.findById(userId)
+                .orElseGet(() -> transactionTemplate.execute(status -> create(userId)));
+        if (row == null) {
+            return null;
+        }
+        return "\"" + Long.toString(version(row, type), 36) + "\"";
+    }
+
+    /**
+     * Bumps the given collections in the current transaction, or in one of its own outside one
+     */
+    public void bump(Long userId, Type... types) {
+        if (userId == null) {
+            return;
+        }
+        List<Type> bumped = Arrays.asList(types);
+        long documents = bumped.contains(Type.DOCUMENTS) ? 1 : 0;
+        long flashcards = bumped.contains(Type.FLASHCARDS) ? 1 : 0;
+        long quizzes = bumped.contains(Type.QUIZZES) ? 1 : 0;
+        transactionTemplate.executeWithoutResult(status -> {
+            if (versionRepository.increment(userId, documents, flashcards, quizzes) > 0) {
+                return;
+            }
+            CollectionVersion row = create(userId);
+            if (row != null) {
+                row.setDocumentsVersion(row.getDocumentsVersion() + documents);
+                row.setFlashcardsVersion(row.getFlashcardsVersion() + flashcards);
+                row.setQuizzesVersion(row.getQuizzesVersion() + quizzes);
+            }
+        });
+    }
+
+    /**
+     * Invalidates every tag handed out so far, e.g. after a restore rewrote the tables underneath.
+     * Users without a row were never handed a tag.
+     */
+    public void reset() {
+        transactionTemplate.executeWithoutResult(status -> versionRepository.incrementAll());
+    }
+
+    // Under the user lock, so a row another instance created meanwhile is found instead of inserted twice
+    private CollectionVersion create(Long userId) {
+        if (entityManager.find(User.class, userId, LockModeType.PESSIMISTIC_WRITE) == null) {
+            return null;
+        }
+        return versionRepository.findById(userId).orElseGet(() -> {
+            CollectionVersion row = new CollectionVersion(userId);
+            entityManager.persist(row);
+            return row;
+        });
+    }
+
+    private static long version(CollectionVersion row, Type type) {
+        return switch (type) {
+            case DOCUMENTS -> row.getDocumentsVersion();
+            case FLASHCARDS -> row.getFlashcardsVersion();
+            case QUIZZES -> row.getQuizzesVersion();
+        };
+    }
+}
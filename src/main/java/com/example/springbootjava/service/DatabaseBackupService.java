@@ -7,6 +7,7 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,15 +20,35 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class DatabaseBackupService {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseBackupService.class);
-    private static final String BACKUP_DIR = "backups";
     private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
 
+    // A full backup is backup_<time>.json, or .bkp when indexed; its deltas are
+    // backup_<time>_delta_<time>.json, so a delta names its base and the deltas of one base sort
+    // in the order they were taken
+    private static final Pattern BASE_NAME = Pattern.compile("backup_(\\d{4}-\\d{2}-\\d{2}_\\d{2}-\\d{2}-\\d{2})\\.(json|bkp)");
+    private static final Pattern DELTA_NAME = Pattern.compile("(backup_\\d{4}-\\d{2}-\\d{2}_\\d{2}-\\d{2}-\\d{2})_delta_(\\d{4}-\\d{2}-\\d{2}_\\d{2}-\\d{2}-\\d{2})\\.json");
+
+    @Value("${backup.dir:backups}")
+    private String backupDir;
+
+    // indexed writes full backups as IndexedBackupArchive files; json keeps the plain JSON file
+    @Value("${backup.format:indexed}")
+    private String backupFormat;
+
+    // How far a delta reaches back before the previous backup, to catch rows stamped before that
+    // backup started but committed after it read their table
+    @Value("${backup.incremental.overlap-seconds:300}")
+    private long overlapSeconds;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -55,6 +76,18 @@ public class DatabaseBackupService {
     @Autowired
     private FlashcardStudySessionRepository flashcardStudySessionRepository;
 
+    @Autowired
+    private DocumentContentRepository documentContentRepository;
+
+    @Autowired
+    private BackupTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private ParallelBackupExporter parallelExporter;
+
+    @Autowired
+    private IndexedBackupArchive indexedArchive;
+
     private final ObjectMapper objectMapper;
 
     public DatabaseBackupService() {
@@ -64,9 +97,9 @@ public class DatabaseBackupService {
     }
 
     /**
-     * Creates a complete backup of the database
+     * Creates a complete backup of the database, with the tables read concurrently from one
+     * consistent snapshot where the database supports it
      */
-    @Transactional(readOnly = true)
     public String createBackup() throws IOException {
         logger.info("Starting database backup process");
         
@@ -75,28 +108,22 @@ public class DatabaseBackupService {
         
         String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
         String backupFileName = String.format("backup_%s.json", timestamp);
-        String backupFilePath = Paths.get(BACKUP_DIR, backupFileName).toString();
+        String backupFilePath = Paths.get(backupDir, backupFileName).toString();
         
         try {
             // Create backup data structure
             DatabaseBackupData backupData = new DatabaseBackupData();
             backupData.setBackupTimestamp(LocalDateTime.now());
             backupData.setVersion("1.0");
+            backupData.setType(DatabaseBackupData.FULL);
             
-            // Export all entities
-            backupData.setUsers(exportUsers());
-            backupData.setDocuments(exportDocuments());
-            backupData.setFlashcards(exportFlashcards());
-            backupData.setQuizzes(exportQuizzes());
-            backupData.setQuizQuestions(exportQuizQuestions());
-            backupData.setQuizAnswers(exportQuizAnswers());
-            backupData.setQuizAttempts(exportQuizAttempts());
-            backupData.setQuizAttemptAnswers(exportQuizAttemptAnswers());
-            backupData.setFlashcardStudySessions(exportFlashcardStudySessions());
-            
-            // Write to file
-            try (FileWriter writer = new FileWriter(backupFilePath)) {
-                objectMapper.writerWithDefaultPrettyPrinter().writeValue(writer, backupData);
+            // Export all tables straight to the file
+            parallelExporter.export(backupData, Paths.get(backupFilePath));
+            if ("indexed".equals(backupFormat)) {
+                Path jsonPath = Paths.get(backupFilePath);
+                backupFilePath = Paths.get(backupDir, String.format("backup_%s%s", timestamp, IndexedBackupArchive.EXTENSION)).toString();
+                indexedArchive.write(jsonPath, Paths.get(backupFilePath));
+                Files.delete(jsonPath);
             }
             
             logger.info("Database backup completed successfully: {}", backupFilePath);
@@ -108,6 +135,86 @@ public class DatabaseBackupService {
         }
     }
 
+    /**
+     * Creates a delta on top of the latest full backup holding the rows changed and the ids deleted
+     * since the newest backup of that chain. Falls back to a full backup when there is no base yet
+     * or a restore has rewritten the ids since it was taken.
+     */
+    @Transactional(readOnly = true)
+    public String createIncrementalBackup() throws IOException {
+        createBackupDirectory();
+
+        Path base = findLatestBase();
+        if (base == null) {
+            logger.info("No full backup to build a delta on, creating one");
+            return createBackup();
+        }
+        String baseName = base.getFileName().toString();
+        LocalDateTime baseTime = timestampOf(baseName);
+        if (tombstoneRepository.existsBySectionAndDeletedAtGreaterThanEqual(BackupTombstone.CHAIN_RESET, baseTime.minusSeconds(overlapSeconds))) {
+            logger.info("Database was restored after {}, creating a new full backup", baseName);
+            return createBackup();
+        }
+        List<Path> deltas = listDeltas(Paths.get(backupDir), baseName);
+        LocalDateTime headTime = deltas.isEmpty() ? baseTime : timestampOf(deltas.get(deltas.size() - 1).getFileName().toString());
+        LocalDateTime since = headTime.minusSeconds(overlapSeconds);
+
+        String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+        String backupFileName = String.format("%s_delta_%s.json", stripExtension(baseName), timestamp);
+        String backupFilePath = Paths.get(backupDir, backupFileName).toString();
+
+        try {
+            DatabaseBackupData backupData = new DatabaseBackupData();
+            backupData.setBackupTimestamp(LocalDateTime.now());
+            backupData.setVersion("1.0");
+            backupData.setType(DatabaseBackupData.DELTA);
+            backupData.setBaseBackup(baseName);
+            backupData.setSince(since);
+
+            backupData.setUsers(userRepository.findByUpdatedAtGreaterThanEqual(since).stream().map(this::convertUserToMap).collect(Collectors.toList()));
+            backupData.setDocuments(documentRepository.findByUpdatedAtGreaterThanEqual(since).stream().map(this::convertDocumentToMap).collect(Collectors.toList()));
+            backupData.setFlashcards(flashcardRepository.findByUpdatedAtGreaterThanEqual(since).stream().map(this::convertFlashcardToMap).collect(Collectors.toList()));
+            backupData.setQuizzes(quizRepository.findByUpdatedAtGreaterThanEqual(since).stream().map(this::convertQuizToMap).collect(Collectors.toList()));
+            backupData.setQuizQuestions(quizQuestionRepository.findByUpdatedAtGreaterThanEqual(since).stream().map(this::convertQuizQuestionToMap).collect(Collectors.toList()));
+            backupData.setQuizAnswers(quizAnswerRepository.findByUpdatedAtGreaterThanEqual(since).stream().map(this::convertQuizAnswerToMap).collect(Collectors.toList()));
+            backupData.setQuizAttempts(quizAttemptRepository.findByUpdatedAtGreaterThanEqual(since).stream().map(this::convertQuizAttemptToMap).collect(Collectors.toList()));
+            backupData.setQuizAttemptAnswers(quizAttemptAnswerRepository.findByUpdatedAtGreaterThanEqual(since).stream().map(this::convertQuizAttemptAnswerToMap).collect(Collectors.toList()));
+            backupData.setFlashcardStudySessions(flashcardStudySessionRepository.findByUpdatedAtGreaterThanEqual(since).stream().map(this::convertFlashcardStudySessionToMap).collect(Collectors.toList()));
+
+            Map<String, List<Long>> tombstones = new TreeMap<>();
+            for (BackupTombstone tombstone : tombstoneRepository.findByDeletedAtGreaterThanEqual(since)) {
+                if (!BackupTombstone.CHAIN_RESET.equals(tombstone.getSection())) {
+                    tombstones.computeIfAbsent(tombstone.getSection(), section -> new ArrayList<>()).add(tombstone.getRowId());
+                }
+            }
+            backupData.setTombstones(tombstones);
+
+            try (FileWriter writer = new FileWriter(backupFilePath)) {
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(writer, backupData);
+            }
+
+            logger.info("Delta backup completed successfully: {} (changes since {})", backupFilePath, since);
+            return backupFilePath;
+
+        } catch (Exception e) {
+            logger.error("Failed to create delta backup", e);
+            throw new IOException("Delta backup creation failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Drops tombstones the latest full backup has made redundant; only deltas on top of it still
+     * need deletions, and the ones before it are already written out
+     */
+    @Transactional
+    public int pruneTombstones() throws IOException {
+        Path base = findLatestBase();
+        if (base == null) {
+            return 0;
+        }
+        return tombstoneRepository.deleteByDeletedAtBefore(timestampOf(base.getFileName().toString()).minusSeconds(overlapSeconds));
+    }
+
     /**
      * Creates a backup for a specific user
      */
@@ -119,7 +226,7 @@ public class DatabaseBackupService {
         
         String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
         String backupFileName = String.format("user_backup_%d_%s.json", userId, timestamp);
-        String backupFilePath = Paths.get(BACKUP_DIR, backupFileName).toString();
+        String backupFilePath = Paths.get(backupDir, backupFileName).toString();
         
         try {
             UserBackupData backupData = new UserBackupData();
@@ -151,17 +258,41 @@ public class DatabaseBackupService {
         }
     }
 
+    /**
+     * Writes one user's data from an indexed full backup as a user backup file, reading only
+     * that user's blocks of the archive
+     */
+    public String extractUserBackup(String archivePath, Long userId) throws IOException {
+        Path archive = Paths.get(archivePath);
+        if (!IndexedBackupArchive.isArchive(archive)) {
+            throw new IOException("Not an indexed backup: " + archive.getFileName());
+        }
+        createBackupDirectory();
+
+        UserBackupData backupData = indexedArchive.readUser(archive, userId);
+        if (backupData.getUser() == null) {
+            throw new IOException("User " + userId + " is not in " + archive.getFileName());
+        }
+        String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+        String backupFilePath = Paths.get(backupDir, String.format("user_backup_%d_%s.json", userId, timestamp)).toString();
+        try (FileWriter writer = new FileWriter(backupFilePath)) {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(writer, backupData);
+        }
+        logger.info("Extracted user {} from {} into {}", userId, archive.getFileName(), backupFilePath);
+        return backupFilePath;
+    }
+
     /**
      * Lists all available backup files
      */
     public List<BackupFileInfo> listBackups() throws IOException {
-        Path backupDir = Paths.get(BACKUP_DIR);
+        Path backupDir = Paths.get(this.backupDir);
         if (!Files.exists(backupDir)) {
             return new ArrayList<>();
         }
         
         return Files.list(backupDir)
-                .filter(path -> path.toString().endsWith(".json"))
+                .filter(path -> path.toString().endsWith(".json") || path.toString().endsWith(IndexedBackupArchive.EXTENSION))
                 .map(path -> {
                     try {
                         return new BackupFileInfo(
@@ -181,7 +312,8 @@ public class DatabaseBackupService {
     }
 
     /**
-     * Deletes old backup files (keeps only the last N backups)
+     * Deletes old backup files (keeps only the last N backups, plus the base and earlier deltas
+     * that a kept delta needs to be restored)
      */
     public int cleanupOldBackups(int keepCount) throws IOException {
         List<BackupFileInfo> backups = listBackups();
@@ -189,10 +321,28 @@ public class DatabaseBackupService {
             return 0;
         }
         
+        Set<String> chained = new HashSet<>();
+        for (BackupFileInfo kept : backups.subList(0, keepCount)) {
+            Matcher delta = DELTA_NAME.matcher(kept.getFileName());
+            if (delta.matches()) {
+                chained.add(delta.group(1) + ".json");
+                chained.add(delta.group(1) + IndexedBackupArchive.EXTENSION);
+                for (BackupFileInfo backup : backups) {
+                    if (backup.getFileName().startsWith(delta.group(1) + "_delta_") && backup.getFileName().compareTo(kept.getFileName()) < 0) {
+                        chained.add(backup.getFileName());
+                    }
+                }
+            }
+        }
+        
         List<BackupFileInfo> toDelete = backups.subList(keepCount, backups.size());
         int deletedCount = 0;
         
         for (BackupFileInfo backup : toDelete) {
+            if (chained.contains(backup.getFileName())) {
+                logger.debug("Keeping {} for a retained delta", backup.getFileName());
+                continue;
+            }
             try {
                 Files.deleteIfExists(Paths.get(backup.getFilePath()));
                 deletedCount++;
@@ -205,117 +355,110 @@ public class DatabaseBackupService {
         return deletedCount;
     }
 
+    public Path getBackupDirectory() {
+        return Paths.get(backupDir);
+    }
+
     private void createBackupDirectory() throws IOException {
-        Path backupDir = Paths.get(BACKUP_DIR);
+        Path backupDir = Paths.get(this.backupDir);
         if (!Files.exists(backupDir)) {
             Files.createDirectories(backupDir);
             logger.info("Created backup directory: {}", backupDir);
         }
     }
 
-    // Export methods for all entities
-    private List<Map<String, Object>> exportUsers() {
-        return userRepository.findAll().stream()
-                .map(this::convertUserToMap)
-                .collect(Collectors.toList());
+    private Path findLatestBase() throws IOException {
+        Path dir = Paths.get(backupDir);
+        if (!Files.exists(dir)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> BASE_NAME.matcher(path.getFileName().toString()).matches())
+                    .max(Comparator.comparing(path -> path.getFileName().toString()))
+                    .orElse(null);
+        }
+    }
+
+    /**
+     * Deltas taken on top of the given full backup, oldest first
+     */
+    static List<Path> listDeltas(Path dir, String baseFileName) throws IOException {
+        String prefix = stripExtension(baseFileName) + "_delta_";
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)
+                            && DELTA_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String stripExtension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+    // The time in a backup file name, taken just before the backup started reading
+    private static LocalDateTime timestampOf(String fileName) {
+        Matcher delta = DELTA_NAME.matcher(fileName);
+        if (delta.matches()) {
+            return LocalDateTime.parse(delta.group(2), TIMESTAMP_FORMAT);
+        }
+        Matcher base = BASE_NAME.matcher(fileName);
+        if (base.matches()) {
+            return LocalDateTime.parse(base.group(1), TIMESTAMP_FORMAT);
+        }
+        throw new IllegalArgumentException("Not a database backup file name: " + fileName);
     }
 
+    // Export methods for user backups
     private Map<String, Object> exportUser(Long userId) {
         return userRepository.findById(userId)
                 .map(this::convertUserToMap)
                 .orElse(null);
     }
 
-    private List<Map<String, Object>> exportDocuments() {
-        return documentRepository.findAll().stream()
-                .map(this::convertDocumentToMap)
-                .collect(Collectors.toList());
-    }
-
     private List<Map<String, Object>> exportUserDocuments(Long userId) {
         return documentRepository.findByUserId(userId).stream()
                 .map(this::convertDocumentToMap)
                 .collect(Collectors.toList());
     }
 
-    private List<Map<String, Object>> exportFlashcards() {
-        return flashcardRepository.findAll().stream()
-                .map(this::convertFlashcardToMap)
-                .collect(Collectors.toList());
-    }
-
     private List<Map<String, Object>> exportUserFlashcards(Long userId) {
         return flashcardRepository.findByUserId(userId).stream()
                 .map(this::convertFlashcardToMap)
                 .collect(Collectors.toList());
     }
 
-    private List<Map<String, Object>> exportQuizzes() {
-        return quizRepository.findAll().stream()
-                .map(this::convertQuizToMap)
-                .collect(Collectors.toList());
-    }
-
     private List<Map<String, Object>> exportUserQuizzes(Long userId) {
         return quizRepository.findByUserId(userId).stream()
                 .map(this::convertQuizToMap)
                 .collect(Collectors.toList());
     }
 
-    private List<Map<String, Object>> exportQuizQuestions() {
-        return quizQuestionRepository.findAll().stream()
-                .map(this::convertQuizQuestionToMap)
-                .collect(Collectors.toList());
-    }
-
     private List<Map<String, Object>> exportUserQuizQuestions(Long userId) {
         return quizQuestionRepository.findByQuizUserId(userId).stream()
                 .map(this::convertQuizQuestionToMap)
                 .collect(Collectors.toList());
     }
 
-    private List<Map<String, Object>> exportQuizAnswers() {
-        return quizAnswerRepository.findAll().stream()
-                .map(this::convertQuizAnswerToMap)
-                .collect(Collectors.toList());
-    }
-
     private List<Map<String, Object>> exportUserQuizAnswers(Long userId) {
         return quizAnswerRepository.findByQuestionQuizUserId(userId).stream()
                 .map(this::convertQuizAnswerToMap)
                 .collect(Collectors.toList());
     }
 
-    private List<Map<String, Object>> exportQuizAttempts() {
-        return quizAttemptRepository.findAll().stream()
-                .map(this::convertQuizAttemptToMap)
-                .collect(Collectors.toList());
-    }
-
     private List<Map<String, Object>> exportUserQuizAttempts(Long userId) {
         return quizAttemptRepository.findByUserId(userId).stream()
                 .map(this::convertQuizAttemptToMap)
                 .collect(Collectors.toList());
     }
 
-    private List<Map<String, Object>> exportQuizAttemptAnswers() {
-        return quizAttemptAnswerRepository.findAll().stream()
-                .map(this::convertQuizAttemptAnswerToMap)
-                .collect(Collectors.toList());
-    }
-
     private List<Map<String, Object>> exportUserQuizAttemptAnswers(Long userId) {
         return quizAttemptAnswerRepository.findByAttemptUserId(userId).stream()
                 .map(this::convertQuizAttemptAnswerToMap)
                 .collect(Collectors.toList());
     }
 
-    private List<Map<String, Object>> exportFlashcardStudySessions() {
-        return flashcardStudySessionRepository.findAll().stream()
-                .map(this::convertFlashcardStudySessionToMap)
-                .collect(Collectors.toList());
-    }
-
     private List<Map<String, Object>> exportUserFlashcardStudySessions(Long userId) {
         return flashcardStudySessionRepository.findByFlashcardUserId(userId).stream()
                 .map(this::convertFlashcardStudySessionToMap)
@@ -346,7 +489,7 @@ public class DatabaseBackupService {
         docMap.put("fileName", document.getFileName());
         docMap.put("filePath", document.getFilePath());
         docMap.put("fileSize", document.getFileSize());
-        docMap.put("content", document.getContent());
+        docMap.put("content", documentContentRepository.findContentByDocumentId(document.getId()).orElse(null));
         docMap.put("summary", document.getSummary());
         docMap.put("processingStatus", document.getProcessingStatus().name());
         docMap.put("createdAt", document.getCreatedAt());
@@ -364,6 +507,11 @@ public class DatabaseBackupService {
         cardMap.put("difficulty", flashcard.getDifficulty().name());
         cardMap.put("createdAt", flashcard.getCreatedAt());
         cardMap.put("updatedAt", flashcard.getUpdatedAt());
+        cardMap.put("nextReviewAt", flashcard.getNextReviewAt());
+        cardMap.put("intervalDays", flashcard.getIntervalDays());
+        cardMap.put("easeFactor", flashcard.getEaseFactor());
+        cardMap.put("repetitions", flashcard.getRepetitions());
+        cardMap.put("lastReviewedAt", flashcard.getLastReviewedAt());
         cardMap.put("userId", flashcard.getUser().getId());
         if (flashcard.getDocument() != null) {
             cardMap.put("documentId", flashcard.getDocument().getId());
@@ -452,8 +600,17 @@ public class DatabaseBackupService {
 
     // Data classes for backup structure
     public static class DatabaseBackupData {
+        public static final String FULL = "FULL";
+        public static final String DELTA = "DELTA";
+
         private LocalDateTime backupTimestamp;
         private String version;
+        // FULL, or DELTA for changes on top of baseBackup; backups from before deltas have none
+        private String type;
+        private String baseBackup;
+        private LocalDateTime since;
+        // Deleted ids per section, deltas only
+        private Map<String, List<Long>> tombstones;
         private List<Map<String, Object>> users;
         private List<Map<String, Object>> documents;
         private List<Map<String, Object>> flashcards;
@@ -469,6 +626,14 @@ public class DatabaseBackupService {
         public void setBackupTimestamp(LocalDateTime backupTimestamp) { this.backupTimestamp = backupTimestamp; }
         public String getVersion() { return version; }
         public void setVersion(String version) { this.version = version; }
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+        public String getBaseBackup() { return baseBackup; }
+        public void setBaseBackup(String baseBackup) { this.baseBackup = baseBackup; }
+        public LocalDateTime getSince() { return since; }
+        public void setSince(LocalDateTime since) { this.since = since; }
+        public Map<String, List<Long>> getTombstones() { return tombstones; }
+        public void setTombstones(Map<String, List<Long>> tombstones) { this.tombstones = tombstones; }
         public List<Map<String, Object>> getUsers() { return users; }
         public void setUsers(List<Map<String, Object>> users) { this.users = users; }
         public List<Map<String, Object>> getDocuments() { return documents; }
@@ -20,6 +20,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -54,11 +57,47 @@ public class DatabaseRecoveryService {
     @Autowired
     private FlashcardStudySessionRepository flashcardStudySessionRepository;
 
+    @Autowired
+    private DocumentSegmentRepository documentSegmentRepository;
+
+    @Autowired
+    private DocumentContentRepository documentContentRepository;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private TotalCountCache countCache;
+
+    @Autowired
+    private PublishedQuizCache publishedQuizCache;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private QuizRollupService quizRollups;
+
+    @Autowired
+    private BackupTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private IndexedBackupArchive indexedArchive;
+
+    @Autowired
+    private ShadowSchemaRestorer shadowSchemaRestorer;
+
+    @Autowired
+    private PassageIndexService passageIndex;
+
+    @Autowired
+    private SemanticSearchService semanticSearch;
+
     private final ObjectMapper objectMapper;
 
+    // The running or most recent full restore
+    private final AtomicReference<RestoreProgress> currentRestore = new AtomicReference<>();
+
     public DatabaseRecoveryService() {
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
@@ -66,47 +105,119 @@ public class DatabaseRecoveryService {
     }
 
     /**
-     * Recovers the entire database from a backup file
+     * Recovers the entire database from a backup file. Only one full restore runs at a time; its
+     * progress can be followed and it can be cancelled while loading.
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public RecoveryResult recoverFromBackup(String backupFilePath) throws IOException {
         logger.info("Starting database recovery from: {}", backupFilePath);
+        RestoreProgress progress = new RestoreProgress(Paths.get(backupFilePath).getFileName().toString());
+        RestoreProgress previous = currentRestore.get();
+        if ((previous != null && previous.isRunning()) || !currentRestore.compareAndSet(previous, progress)) {
+            throw new IOException("Another restore is still running");
+        }
         
         try {
-            // Read and parse backup file
-            String backupContent = Files.readString(Paths.get(backupFilePath));
-            DatabaseBackupData backupData = objectMapper.readValue(backupContent, DatabaseBackupData.class);
+            // Read and parse backup file, replaying the chain when it is a delta
+            DatabaseBackupData backupData = readBackup(Paths.get(backupFilePath));
             
             RecoveryResult result = new RecoveryResult();
             result.setBackupTimestamp(backupData.getBackupTimestamp());
             result.setBackupVersion(backupData.getVersion());
             result.setRecoveryTimestamp(LocalDateTime.now());
             
-            // Clear existing data (optional - can be configured)
-            clearExistingData();
-            // Reset user id sequence to a known baseline (PostgreSQL). Safe if table is empty after clear.
-            try { userRepository.resetUserIdSequenceToStart(); } catch (Exception ignored) {}
-            
-            // Restore data in dependency order
-            Map<Long, Long> userIdMapping = restoreUsers(backupData.getUsers(), result);
-            Map<Long, Long> documentIdMapping = restoreDocuments(backupData.getDocuments(), userIdMapping, result);
-            Map<Long, Long> flashcardIdMapping = restoreFlashcards(backupData.getFlashcards(), userIdMapping, documentIdMapping, result);
-            Map<Long, Long> quizIdMapping = restoreQuizzes(backupData.getQuizzes(), userIdMapping, documentIdMapping, result);
-            Map<Long, Long> questionIdMapping = restoreQuizQuestions(backupData.getQuizQuestions(), quizIdMapping, result);
-            Map<Long, Long> answerIdMapping = restoreQuizAnswers(backupData.getQuizAnswers(), questionIdMapping, result);
-            Map<Long, Long> attemptIdMapping = restoreQuizAttempts(backupData.getQuizAttempts(), userIdMapping, quizIdMapping, result);
-            restoreQuizAttemptAnswers(backupData.getQuizAttemptAnswers(), attemptIdMapping, answerIdMapping, questionIdMapping, result);
-            restoreFlashcardStudySessions(backupData.getFlashcardStudySessions(), flashcardIdMapping, result);
+            if (shadowSchemaRestorer.isSupported()) {
+                // Load beside the live tables and swap them in; the app keeps serving the old data until then
+                Map<String, Integer> restored = shadowSchemaRestorer.restore(backupData, progress);
+                result.setRestored(restored);
+                clearCaches();
+            } else {
+                restoreInPlace(backupData, result, progress);
+            }
+            quizRollups.rebuildAll();
+            resetBackupChain();
             
+            progress.finish(RestoreProgress.Phase.COMPLETED, null);
             logger.info("Database recovery completed successfully");
             return result;
             
+        } catch (CancellationException e) {
+            progress.finish(RestoreProgress.Phase.CANCELLED, e.getMessage());
+            logger.info("Database recovery from {} was cancelled", backupFilePath);
+            throw new IOException("Recovery cancelled", e);
         } catch (Exception e) {
+            progress.finish(RestoreProgress.Phase.FAILED, e.getMessage());
             logger.error("Failed to recover database from backup", e);
             throw new IOException("Recovery failed: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * The running or most recent full restore, or null when none ran since startup
+     */
+    public RestoreProgress getRestoreProgress() {
+        return currentRestore.get();
+    }
+
+    /**
+     * Cancels the running full restore; false when none is running or it is already swapping in
+     */
+    public boolean cancelRestore() {
+        RestoreProgress progress = currentRestore.get();
+        return progress != null && progress.isRunning() && progress.cancel();
+    }
+
+    // Clears the live tables and reinserts the backup through the entities, in one transaction
+    // that a cancel rolls back; each table waits for the id mappings of the tables it references
+    private void restoreInPlace(DatabaseBackupData backupData, RecoveryResult result, RestoreProgress progress) {
+        Map<String, List<Map<String, Object>>> tables = new LinkedHashMap<>();
+        tables.put("users", backupData.getUsers());
+        tables.put("documents", backupData.getDocuments());
+        tables.put("flashcards", backupData.getFlashcards());
+        tables.put("quizzes", backupData.getQuizzes());
+        tables.put("quiz_questions", backupData.getQuizQuestions());
+        tables.put("quiz_answers", backupData.getQuizAnswers());
+        tables.put("quiz_attempts", backupData.getQuizAttempts());
+        tables.put("quiz_attempt_answers", backupData.getQuizAttemptAnswers());
+        tables.put("flashcard_study_sessions", backupData.getFlashcardStudySessions());
+        tables.forEach((table, rows) -> progress.track(table, rows != null ? rows.size() : 0));
+
+        // Clear existing data (optional - can be configured)
+        clearExistingData();
+        // Reset user id sequence to a known baseline (PostgreSQL). Safe if table is empty after clear.
+        try { userRepository.resetUserIdSequenceToStart(); } catch (Exception ignored) {}
+
+        // Restore data in dependency order
+        Map<Long, Long> userIdMapping = step(progress, "users", () -> restoreUsers(backupData.getUsers(), result));
+        Map<Long, Long> documentIdMapping = step(progress, "documents", () -> restoreDocuments(backupData.getDocuments(), userIdMapping, result));
+        Map<Long, Long> flashcardIdMapping = step(progress, "flashcards", () -> restoreFlashcards(backupData.getFlashcards(), userIdMapping, documentIdMapping, result));
+        Map<Long, Long> quizIdMapping = step(progress, "quizzes", () -> restoreQuizzes(backupData.getQuizzes(), userIdMapping, documentIdMapping, result));
+        Map<Long, Long> questionIdMapping = step(progress, "quiz_questions", () -> restoreQuizQuestions(backupData.getQuizQuestions(), quizIdMapping, result));
+        Map<Long, Long> answerIdMapping = step(progress, "quiz_answers", () -> restoreQuizAnswers(backupData.getQuizAnswers(), questionIdMapping, result));
+        Map<Long, Long> attemptIdMapping = step(progress, "quiz_attempts", () -> restoreQuizAttempts(backupData.getQuizAttempts(), userIdMapping, quizIdMapping, result));
+        step(progress, "quiz_attempt_answers", () -> {
+            restoreQuizAttemptAnswers(backupData.getQuizAttemptAnswers(), attemptIdMapping, answerIdMapping, questionIdMapping, result);
+            return null;
+        });
+        step(progress, "flashcard_study_sessions", () -> {
+            restoreFlashcardStudySessions(backupData.getFlashcardStudySessions(), flashcardIdMapping, result);
+            return null;
+        });
+        // The rollup rebuild and the commit that follow can no longer be cancelled
+        progress.startSwap();
+    }
+
+    private static <T> T step(RestoreProgress progress, String table, Supplier<T> restore) {
+        progress.checkCancelled();
+        RestoreProgress.TableProgress tableProgress = progress.table(table);
+        tableProgress.setState(RestoreProgress.TableState.LOADING);
+        T mapping = restore.get();
+        tableProgress.addRowsLoaded(tableProgress.getRowsTotal());
+        tableProgress.setState(RestoreProgress.TableState.DONE);
+        return mapping;
+    }
+
+
     /**
      * Recovers user data from a user-specific backup file
      */
@@ -115,8 +226,11 @@ public class DatabaseRecoveryService {
         logger.info("Starting user recovery from: {} for user ID: {}", backupFilePath, targetUserId);
         
         try {
-            String backupContent = Files.readString(Paths.get(backupFilePath));
-            UserBackupData backupData = objectMapper.readValue(backupContent, UserBackupData.class);
+            // An indexed full backup yields just this user's blocks
+            Path backupPath = Paths.get(backupFilePath);
+            UserBackupData backupData = IndexedBackupArchive.isArchive(backupPath)
+                    ? indexedArchive.readUser(backupPath, targetUserId)
+                    : objectMapper.readValue(backupPath.toFile(), UserBackupData.class);
             
             RecoveryResult result = new RecoveryResult();
             result.setBackupTimestamp(backupData.getBackupTimestamp());
@@ -136,6 +250,9 @@ public class DatabaseRecoveryService {
             Map<Long, Long> attemptIdMapping = restoreUserQuizAttempts(backupData.getQuizAttempts(), userIdMapping, quizIdMapping, result);
             restoreUserQuizAttemptAnswers(backupData.getQuizAttemptAnswers(), attemptIdMapping, answerIdMapping, questionIdMapping, result);
             restoreUserFlashcardStudySessions(backupData.getFlashcardStudySessions(), flashcardIdMapping, result);
+            // Clearing the user also removed other users' attempts on their quizzes
+            quizRollups.rebuildAll();
+            resetBackupChain();
             
             logger.info("User recovery completed successfully");
             return result;
@@ -153,8 +270,7 @@ public class DatabaseRecoveryService {
         logger.info("Validating backup file: {}", backupFilePath);
         
         try {
-            String backupContent = Files.readString(Paths.get(backupFilePath));
-            DatabaseBackupData backupData = objectMapper.readValue(backupContent, DatabaseBackupData.class);
+            DatabaseBackupData backupData = readBackup(Paths.get(backupFilePath));
             
             ValidationResult result = new ValidationResult();
             result.setValid(true);
@@ -184,6 +300,92 @@ public class DatabaseRecoveryService {
         }
     }
 
+    /**
+     * Reads a backup file. A delta is read together with its base and the deltas taken before it,
+     * from the same directory, and merged into the full data as of the delta.
+     */
+    DatabaseBackupData readBackup(Path backupPath) throws IOException {
+        DatabaseBackupData backupData = readBackupFile(backupPath);
+        if (!DatabaseBackupData.DELTA.equals(backupData.getType())) {
+            return backupData;
+        }
+
+        Path dir = backupPath.toAbsolutePath().getParent();
+        Path basePath = dir.resolve(backupData.getBaseBackup());
+        if (!Files.exists(basePath)) {
+            throw new IOException("Base backup " + backupData.getBaseBackup() + " of this delta was not found");
+        }
+        DatabaseBackupData chain = readBackupFile(basePath);
+        int applied = 0;
+        for (Path deltaPath : DatabaseBackupService.listDeltas(dir, backupData.getBaseBackup())) {
+            if (Files.isSameFile(deltaPath, backupPath)) {
+                break;
+            }
+            DatabaseBackupData delta = objectMapper.readValue(deltaPath.toFile(), DatabaseBackupData.class);
+            if (!delta.getBackupTimestamp().isBefore(backupData.getBackupTimestamp())) {
+                break;
+            }
+            applyDelta(chain, delta);
+            applied++;
+        }
+        applyDelta(chain, backupData);
+        logger.info("Replayed {} with {} earlier delta(s) on top of {}", backupPath.getFileName(), applied, backupData.getBaseBackup());
+
+        chain.setType(DatabaseBackupData.FULL);
+        chain.setBackupTimestamp(backupData.getBackupTimestamp());
+        return chain;
+    }
+
+    // Full backups may be indexed archives; deltas are always JSON
+    private DatabaseBackupData readBackupFile(Path path) throws IOException {
+        if (IndexedBackupArchive.isArchive(path)) {
+            return indexedArchive.readAll(path);
+        }
+        return objectMapper.readValue(path.toFile(), DatabaseBackupData.class);
+    }
+
+    /**
+     * Upserts the delta's rows into the data by id, then drops its tombstoned ids
+     */
+    static void applyDelta(DatabaseBackupData data, DatabaseBackupData delta) {
+        Map<String, List<Long>> tombstones = delta.getTombstones() != null ? delta.getTombstones() : Map.of();
+        data.setUsers(merge(data.getUsers(), delta.getUsers(), tombstones.get("users")));
+        data.setDocuments(merge(data.getDocuments(), delta.getDocuments(), tombstones.get("documents")));
+        data.setFlashcards(merge(data.getFlashcards(), delta.getFlashcards(), tombstones.get("flashcards")));
+        data.setQuizzes(merge(data.getQuizzes(), delta.getQuizzes(), tombstones.get("quizzes")));
+        data.setQuizQuestions(merge(data.getQuizQuestions(), delta.getQuizQuestions(), tombstones.get("quizQuestions")));
+        data.setQuizAnswers(merge(data.getQuizAnswers(), delta.getQuizAnswers(), tombstones.get("quizAnswers")));
+        data.setQuizAttempts(merge(data.getQuizAttempts(), delta.getQuizAttempts(), tombstones.get("quizAttempts")));
+        data.setQuizAttemptAnswers(merge(data.getQuizAttemptAnswers(), delta.getQuizAttemptAnswers(), tombstones.get("quizAttemptAnswers")));
+        data.setFlashcardStudySessions(merge(data.getFlashcardStudySessions(), delta.getFlashcardStudySessions(), tombstones.get("flashcardStudySessions")));
+    }
+
+    private static List<Map<String, Object>> merge(List<Map<String, Object>> rows, List<Map<String, Object>> changed, List<Long> deleted) {
+        // Ids only grow, so new rows appended at the end keep every section in id order
+        Map<Long, Map<String, Object>> byId = new LinkedHashMap<>();
+        if (rows != null) {
+            rows.forEach(row -> byId.put(toLong(row.get("id")), row));
+        }
+        if (changed != null) {
+            changed.forEach(row -> byId.put(toLong(row.get("id")), row));
+        }
+        if (deleted != null) {
+            deleted.forEach(byId::remove);
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * A restore gives every row a new id, so tombstones recorded so far no longer describe the
+     * data and the next scheduled backup has to start a new chain
+     */
+    private void resetBackupChain() {
+        // Push out the removes so their tombstones are written before being dropped
+        userRepository.flush();
+        tombstoneRepository.deleteAllInBatch();
+        tombstoneRepository.save(BackupTombstone.chainReset());
+    }
+
     private void clearExistingData() {
         logger.info("Clearing existing data");
         quizAttemptAnswerRepository.deleteAll();
@@ -193,8 +395,24 @@ public class DatabaseRecoveryService {
         quizRepository.deleteAll();
         flashcardStudySessionRepository.deleteAll();
         flashcardRepository.deleteAll();
+        documentSegmentRepository.deleteAllInBatch();
+        documentContentRepository.deleteAllInBatch();
         documentRepository.deleteAll();
         userRepository.deleteAll();
+        clearCaches();
+    }
+
+    private void clearCaches() {
+        countCache.clear();
+        publishedQuizCache.clear();
+        collectionVersions.reset();
+        // Search indexes were built from the replaced rows; they rebuild from the restored ones on use
+        passageIndex.clear();
+        try {
+            semanticSearch.reset();
+        } catch (IOException e) {
+            logger.warn("Could not drop the vector indexes after the restore", e);
+        }
     }
 
     private void clearUserData(Long userId) {
@@ -206,7 +424,13 @@ public class DatabaseRecoveryService {
         quizRepository.deleteByUserId(userId);
         flashcardStudySessionRepository.deleteByFlashcardUserId(userId);
         flashcardRepository.deleteByUserId(userId);
+        documentSegmentRepository.deleteByUserId(userId);
+        documentContentRepository.deleteByUserId(userId);
         documentRepository.deleteByUserId(userId);
+        countCache.invalidate(userId);
+        // The quiz cache is keyed by quiz id only, so drop it whole
+        publishedQuizCache.clear();
+        collectionVersions.reset();
     }
 
     // Restore methods
@@ -305,7 +529,6 @@ public class DatabaseRecoveryService {
                 document.setFileName((String) docData.get("fileName"));
                 document.setFilePath((String) docData.get("filePath"));
                 document.setFileSize(toLong(docData.get("fileSize")));
-                document.setContent((String) docData.get("content"));
                 document.setSummary((String) docData.get("summary"));
                 document.setProcessingStatus(Document.ProcessingStatus.valueOf((String) docData.get("processingStatus")));
                 document.setCreatedAt(parseDateTime(docData.get("createdAt")));
@@ -319,6 +542,10 @@ public class DatabaseRecoveryService {
                 }
                 
                 Document savedDoc = documentRepository.save(document);
+                String content = (String) docData.get("content");
+                if (content != null) {
+                    documentContentRepository.save(new DocumentContent(savedDoc.getId(), content));
+                }
                 idMapping.put(toLong(docData.get("id")), savedDoc.getId());
                 result.incrementDocumentsRestored();
                 
@@ -347,6 +574,16 @@ public class DatabaseRecoveryService {
                 flashcard.setDifficulty(Flashcard.Difficulty.valueOf((String) cardData.get("difficulty")));
                 flashcard.setCreatedAt(parseDateTime(cardData.get("createdAt")));
                 flashcard.setUpdatedAt(parseDateTime(cardData.get("updatedAt")));
+                // Backups taken before review scheduling have no schedule; those cards start out due
+                if (cardData.get("nextReviewAt") != null) {
+                    flashcard.setNextReviewAt(parseDateTime(cardData.get("nextReviewAt")));
+                    flashcard.setIntervalDays(((Number) cardData.get("intervalDays")).intValue());
+                    flashcard.setEaseFactor(((Number) cardData.get("easeFactor")).doubleValue());
+                    flashcard.setRepetitions(((Number) cardData.get("repetitions")).intValue());
+                    flashcard.setLastReviewedAt(parseDateTime(cardData.get("lastReviewedAt")));
+                } else {
+                    flashcard.setNextReviewAt(flashcard.getCreatedAt());
+                }
                 
                 Long userId = userIdMapping.get(toLong(cardData.get("userId")));
                 if (userId != null) {
@@ -713,7 +950,7 @@ public class DatabaseRecoveryService {
         return (LocalDateTime) dateTime;
     }
 
-    private Long toLong(Object value) {
+    private static Long toLong(Object value) {
         if (value == null) return null;
         if (value instanceof Number) return ((Number) value).longValue();
         if (value instanceof String) return Long.parseLong((String) value);
@@ -763,6 +1000,19 @@ public class DatabaseRecoveryService {
         public void incrementFlashcardStudySessionsRestored() { this.flashcardStudySessionsRestored++; }
         public List<String> getErrors() { return errors; }
         public void addError(String error) { this.errors.add(error); }
+
+        // Row counts per backup section, from a bulk restore
+        public void setRestored(Map<String, Integer> restored) {
+            this.usersRestored = restored.getOrDefault("users", 0);
+            this.documentsRestored = restored.getOrDefault("documents", 0);
+            this.flashcardsRestored = restored.getOrDefault("flashcards", 0);
+            this.quizzesRestored = restored.getOrDefault("quizzes", 0);
+            this.quizQuestionsRestored = restored.getOrDefault("quizQuestions", 0);
+            this.quizAnswersRestored = restored.getOrDefault("quizAnswers", 0);
+            this.quizAttemptsRestored = restored.getOrDefault("quizAttempts", 0);
+            this.quizAttemptAnswersRestored = restored.getOrDefault("quizAttemptAnswers", 0);
+            this.flashcardStudySessionsRestored = restored.getOrDefault("flashcardStudySessions", 0);
+        }
     }
 
     public static class ValidationResult {
@@ -1,98 +1,84 @@
 package com.example.springbootjava.service;
 
-import org.apache.tika.Tika;
-import org.apache.tika.exception.TikaException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 @Service
 public class DocumentContentExtractor {
     
-    private final Tika tika = new Tika();
+    private static final Logger logger = LoggerFactory.getLogger(DocumentContentExtractor.class);
     
-    @Value("${document.storage.local.base-path:./uploads}")
-    private String basePath;
+    @Autowired
+    private StorageBackend storageBackend;
     
     @Autowired
-    private LocalFileStorageService fileStorageService;
+    private TikaExtractionService extractionService;
     
     public String extractContent(String filePath) throws IOException {
-        System.out.println("=== CONTENT EXTRACTION START ===");
-        System.out.println("Extracting content from filePath: " + filePath);
-        System.out.println("Base path: " + basePath);
-        
+        return extractDocument(filePath).getText().trim();
+    }
+    
+    /**
+     * Extracts a stored file, keeping the per-page text for formats that have pages. Files not on
+     * local disk are downloaded to a temporary file first, since parsing needs random access.
+     */
+    public TikaExtractionService.ExtractionResult extractDocument(String filePath) throws IOException {
+        Path tempFile = null;
         try {
             // Validate file path - must not be mock
             if (filePath == null || filePath.startsWith("mock://")) {
-                throw new IOException("Invalid file path: " + filePath + ". Mock files are not supported. File must be stored locally.");
+                throw new IOException("Invalid file path: " + filePath + ". Mock files are not supported. File must be in document storage.");
             }
             
-            // Normalize path separators (handle both Windows \ and Unix /)
-            String normalizedPath = filePath.replace('\\', '/');
-            System.out.println("Normalized path: " + normalizedPath);
-            
-            // Remove "uploads/" prefix if present (normalized to forward slashes)
-            String pathForCheck;
-            if (normalizedPath.startsWith("uploads/")) {
-                pathForCheck = normalizedPath.substring(8); // Remove "uploads/" prefix (8 chars)
-            } else {
-                pathForCheck = normalizedPath;
+            String key = StorageBackend.keyOf(filePath);
+            if (!storageBackend.exists(key)) {
+                throw new IOException("File does not exist at path: " + filePath + " (key " + key + ")");
             }
-            System.out.println("Path for check: " + pathForCheck);
             
-            // Check if file exists using the storage service
-            System.out.println("Checking if file exists...");
-            if (!fileStorageService.fileExists(pathForCheck)) {
-                // Try with the full path as stored
-                if (!fileStorageService.fileExists(normalizedPath)) {
-                    throw new IOException("File does not exist at path: " + filePath + " (checked: " + pathForCheck + " and " + normalizedPath + ")");
-                } else {
-                    pathForCheck = normalizedPath;
+            Path fullPath = storageBackend.localPath(key).orElse(null);
+            if (fullPath == null) {
+                // Keep the extension, format detection goes by it
+                tempFile = Files.createTempFile("extract-", "." + getFileExtension(key));
+                try (InputStream content = storageBackend.get(key)) {
+                    Files.copy(content, tempFile, StandardCopyOption.REPLACE_EXISTING);
                 }
-            }
-            System.out.println("File exists, proceeding with extraction");
-            
-            // Build full path using base path - Paths.get handles path separators correctly
-            Path fullPath = Paths.get(basePath, pathForCheck);
-            System.out.println("Full path for extraction: " + fullPath.toString());
-            System.out.println("File exists at full path: " + Files.exists(fullPath));
-            
-            if (!Files.exists(fullPath)) {
-                throw new IOException("File does not exist at full path: " + fullPath.toString());
+                fullPath = tempFile;
             }
             
-            // Use Apache Tika to extract content from all supported file types
-            System.out.println("Starting Tika content extraction...");
-            String content = tika.parseToString(fullPath);
+            // Bounded Tika extraction (character cap, timeout, optional forked JVM)
+            logger.debug("Extracting content from {}", fullPath);
+            TikaExtractionService.ExtractionResult result = extractionService.extract(fullPath);
+            String content = result.getText();
             
             // Clean up the content
             if (content == null || content.trim().isEmpty()) {
                 throw new IOException("Tika returned empty content for file: " + filePath + ". Cannot process empty document.");
             }
             
-            System.out.println("Successfully extracted content, length: " + content.length());
-            System.out.println("Content preview: " + content.substring(0, Math.min(200, content.length())) + "...");
-            return content.trim();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Extracted {} chars from {}, preview: {}...", content.length(), filePath,
+                        content.substring(0, Math.min(200, content.length())));
+            }
+            return result;
             
-        } catch (TikaException e) {
-            System.err.println("Tika parsing failed for file: " + filePath + ", error: " + e.getMessage());
-            e.printStackTrace();
-            throw new IOException("Failed to extract content from file using Tika: " + e.getMessage(), e);
+        } catch (IOException e) {
+            logger.error("Content extraction failed for file {}: {}", filePath, e.getMessage());
+            throw e;
         } catch (Exception e) {
-            System.err.println("Unexpected error during content extraction: " + e.getMessage());
-            e.printStackTrace();
-            if (e instanceof IOException) {
-                throw e;
-            }
+            logger.error("Unexpected error during content extraction for file {}", filePath, e);
             throw new IOException("Failed to extract content from file: " + e.getMessage(), e);
         } finally {
-            System.out.println("=== CONTENT EXTRACTION END ===");
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
         }
     }
     
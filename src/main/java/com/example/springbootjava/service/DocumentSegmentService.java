@@ -0,0 +1,180 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Document;
+import com.example.springbootjava.entity.DocumentContent;
+import com.example.springbootjava.entity.DocumentSegment;
+import com.example.springbootjava.repository.DocumentContentRepository;
+import com.example.springbootjava.repository.DocumentRepository;
+import com.example.springbootjava.repository.DocumentSegmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Stores extracted text as a {@link DocumentContent} row plus one offset range per page or slide,
+ * and serves page text by slicing the stored content in the database.
+ */
+@Service
+@Transactional
+public class DocumentSegmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentSegmentService.class);
+
+    private static final String PAGE_SEPARATOR = "\n\n";
+
+    @Autowired
+    private DocumentSegmentRepository segmentRepository;
+
+    @Autowired
+    private DocumentContentRepository contentRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentContentExtractor contentExtractor;
+
+    @Autowired
+    @Qualifier("taskExecutor")
+    private Executor taskExecutor;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Running segment backfills by document id, so concurrent requests start one extraction
+    private final Map<Long, CompletableFuture<Void>> backfills = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the document content from the extracted pages and replaces its segments.
+     * Formats without pages become a single segment. The document's updated_at moves with the
+     * content, since delta backups export the content as part of the document row.
+     *
+     * @return the stored content
+     */
+    public String replaceSegments(Document document, TikaExtractionService.ExtractionResult extraction) {
+        List<String> pages = extraction.getPages() != null ? extraction.getPages() : List.of(extraction.getText());
+
+        StringBuilder content = new StringBuilder();
+        List<DocumentSegment> segments = new ArrayList<>(pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            if (i > 0) {
+                content.append(PAGE_SEPARATOR);
+            }
+            int start = content.length();
+            content.append(pages.get(i).strip());
+            // Blank pages keep a zero-length segment so page numbers match the original document
+            segments.add(new DocumentSegment(document, i + 1, start, content.length()));
+        }
+
+        // The id is the document's, so save() updates an existing row instead of adding one
+        String text = content.toString();
+        contentRepository.save(new DocumentContent(document.getId(), text));
+        documentRepository.touch(document.getId(), LocalDateTime.now());
+        segmentRepository.deleteByDocumentId(document.getId());
+        segmentRepository.saveAll(segments);
+        logger.debug("Stored {} segments for document {}", segments.size(), document.getId());
+        return text;
+    }
+
+    /**
+     * Full extracted text, or null if the document has not been processed
+     */
+    @Transactional(readOnly = true)
+    public String getContent(Document document) {
+        return contentRepository.findContentByDocumentId(document.getId()).orElse(null);
+    }
+
+    /**
+     * Characters start..end (0-based, end exclusive) of the stored content
+     */
+    @Transactional(readOnly = true)
+    public String getContentSlice(Document document, int start, int end) {
+        if (end <= start) {
+            return "";
+        }
+        String text = contentRepository.findContentSlice(document.getId(), start + 1, end - start);
+        return text != null ? text : "";
+    }
+
+    /**
+     * Segments in page order. Documents processed before segments existed have none yet: for those
+     * this starts extracting them again in the background and returns an empty list, and
+     * {@link #isBackfilling} tells the caller to come back later.
+     */
+    public List<DocumentSegment> getSegments(Document document) throws IOException {
+        List<DocumentSegment> segments = segmentRepository.findByDocumentId(document.getId());
+        if (segments.isEmpty() && document.getFilePath() != null && !document.getFilePath().startsWith("mock://")) {
+            startBackfill(document);
+        }
+        return segments;
+    }
+
+    /**
+     * Whether the document's segments are being extracted in the background
+     */
+    public boolean isBackfilling(Document document) {
+        return backfills.containsKey(document.getId());
+    }
+
+    // At most one backfill per document; a failed one is retried by the next request
+    private void startBackfill(Document document) {
+        CompletableFuture<Void> backfill = new CompletableFuture<>();
+        if (backfills.putIfAbsent(document.getId(), backfill) != null) {
+            return;
+        }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    logger.info("Backfilling page segments for document {}", document.getId());
+                    TikaExtractionService.ExtractionResult extraction = contentExtractor.extractDocument(document.getFilePath());
+                    transactionTemplate.executeWithoutResult(status -> replaceSegments(document, extraction));
+                } catch (Exception e) {
+                    logger.warn("Could not backfill page segments for document {}", document.getId(), e);
+                } finally {
+                    backfills.remove(document.getId(), backfill);
+                    backfill.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            backfills.remove(document.getId(), backfill);
+            logger.warn("Backfill of page segments for document {} deferred, executor is busy", document.getId());
+        }
+    }
+
+    public int getPageCount(Document document) throws IOException {
+        return getSegments(document).size();
+    }
+
+    public String getPageText(Document document, int page) throws IOException {
+        return getPageRangeText(document, page, page);
+    }
+
+    /**
+     * Text of pages fromPage..toPage (1-based, inclusive), fetched as a single slice of the stored content
+     */
+    public String getPageRangeText(Document document, int fromPage, int toPage) throws IOException {
+        List<DocumentSegment> segments = getSegments(document);
+        if (segments.isEmpty() && isBackfilling(document)) {
+            throw new IllegalArgumentException("Pages of document " + document.getId() + " are still being prepared, try again shortly");
+        }
+        if (fromPage < 1 || toPage < fromPage || toPage > segments.size()) {
+            throw new IllegalArgumentException("Page range " + fromPage + "-" + toPage
+                    + " is outside the document's " + segments.size() + " pages");
+        }
+        return getContentSlice(document, segments.get(fromPage - 1).getStartOffset(), segments.get(toPage - 1).getEndOffset());
+    }
+}
@@ -1,14 +1,26 @@
 package com.example.springbootjava.service;
 
+import com.example.springbootjava.config.MdcTaskDecorator;
+import com.example.springbootjava.dto.CursorPage;
+import com.example.springbootjava.dto.DocumentResponseDTO;
+import com.example.springbootjava.dto.DocumentSummaryDTO;
+import com.example.springbootjava.dto.PageCursor;
 import com.example.springbootjava.entity.Document;
+import com.example.springbootjava.entity.DocumentSegment;
 import com.example.springbootjava.entity.User;
+import com.example.springbootjava.repository.DocumentContentRepository;
 import com.example.springbootjava.repository.DocumentRepository;
+import com.example.springbootjava.repository.DocumentSegmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -17,12 +29,15 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 @Service
 @Transactional
 public class DocumentService {
     
+    private static final Logger logger = LoggerFactory.getLogger(DocumentService.class);
+    
     @Autowired
     private DocumentRepository documentRepository;
     
@@ -35,47 +50,70 @@ public class DocumentService {
     @Autowired
     private DocumentContentExtractor contentExtractor;
     
+    @Autowired
+    private DocumentSegmentService segmentService;
+    
+    @Autowired
+    private DocumentSegmentRepository segmentRepository;
+    
+    @Autowired
+    private DocumentContentRepository contentRepository;
+    
+    @Autowired
+    private PassageIndexService passageIndex;
+    
+    @Autowired
+    private SemanticSearchService semanticSearch;
+    
+    @Autowired
+    private TotalCountCache countCache;
+    
+    @Autowired
+    private CollectionVersions collectionVersions;
+    
+    @Autowired
+    private QuizRollupService quizRollups;
+    
     @Value("${document.storage.local.enabled:true}")
     private boolean localStorageEnabled;
     
+    @Value("${document.storage.backend:local}")
+    private String storageBackend;
+    
+    // Not transactional: the file transfer, which can be a multipart upload to an object store,
+    // must not hold a connection or locks; the quota reservation and the save commit on their own
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Document uploadDocument(MultipartFile file, User user) throws IOException {
-        System.out.println("=== DOCUMENT UPLOAD START ===");
-        
         // Get file details
         String originalFilename = file.getOriginalFilename();
-        String contentType = file.getContentType();
         long fileSize = file.getSize();
         
-        System.out.println("Original filename: " + originalFilename);
-        System.out.println("Content type: " + contentType);
-        System.out.println("File size: " + fileSize + " bytes");
-        
-        // Store file locally - REQUIRED, no fallbacks
-        System.out.println("Storing file locally...");
-        System.out.println("Local storage enabled: " + localStorageEnabled);
+        logger.debug("Uploading '{}' ({} bytes, {}) for user {}",
+                originalFilename, fileSize, file.getContentType(), user.getId());
         
-        if (!localStorageEnabled) {
-            throw new IllegalStateException("Local storage is disabled. Cannot upload documents without file storage enabled.");
+        // Store file in the storage backend - REQUIRED, no fallbacks
+        if (!isFileStorageEnabled()) {
+            throw new IllegalStateException("File storage is disabled. Cannot upload documents without file storage enabled.");
         }
         
         String storedFilePath;
         try {
             storedFilePath = fileStorageService.storeFile(file, user.getId());
-            System.out.println("File stored successfully at: " + storedFilePath);
+            logger.debug("File stored at {}", storedFilePath);
             
             // Verify file was actually stored
             if (!fileStorageService.fileExists(storedFilePath)) {
                 throw new IOException("File storage verification failed. File not found at: " + storedFilePath);
             }
-            System.out.println("File verification: File exists in storage");
+        } catch (StorageUsageService.QuotaExceededException e) {
+            logger.info("Upload of '{}' by user {} rejected: {}", originalFilename, user.getId(), e.getMessage());
+            throw e;
         } catch (Exception e) {
-            System.err.println("CRITICAL ERROR: Failed to store file: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Failed to store file '{}' for user {}", originalFilename, user.getId(), e);
             throw new IOException("Failed to store uploaded file: " + e.getMessage(), e);
         }
         
         // Create document entity
-        System.out.println("Creating document entity...");
         Document document = new Document(
                 originalFilename,
                 getFileType(originalFilename),
@@ -84,17 +122,20 @@ public class DocumentService {
                 fileSize,
                 user
         );
-        System.out.println("Document entity created");
         
-        // Save document
-        System.out.println("Saving document to database...");
-        document = documentRepository.save(document);
-        System.out.println("Document saved with ID: " + document.getId());
+        // Save document; a file without a document would only be found by garbage collection
+        try {
+            document = documentRepository.save(document);
+        } catch (RuntimeException e) {
+            fileStorageService.deleteFile(storedFilePath);
+            throw e;
+        }
+        countCache.invalidate(user.getId());
+        collectionVersions.bump(user.getId(), CollectionVersions.Type.DOCUMENTS);
+        logger.debug("Document {} saved, starting processing", document.getId());
         
         // Process document asynchronously
-        System.out.println("Starting document processing...");
         processDocumentAsync(document);
-        System.out.println("=== DOCUMENT UPLOAD COMPLETE ===");
         
         return document;
     }
@@ -107,10 +148,66 @@ public class DocumentService {
         return documentRepository.findByUserOrderByCreatedAtDesc(user, pageable);
     }
     
+    public CursorPage<DocumentSummaryDTO> getUserDocuments(User user, PageCursor cursor, int limit, boolean includeTotal) {
+        CursorPage<DocumentSummaryDTO> page = CursorPage.of(documentRepository.findPageByUser(
+                user, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(limit)), limit, DocumentService::cursorOf);
+        if (includeTotal) {
+            page.setTotalCount(countCache.get(user.getId(), "documents",
+                    () -> documentRepository.countByUser(user)));
+        }
+        return page;
+    }
+    
+    /**
+     * Page {@code page} of the user's documents by offset, for clients still sending page/size. The
+     * result carries a cursor for the following page so they can move over to cursors.
+     */
+    public CursorPage<DocumentSummaryDTO> getUserDocumentsByOffset(User user, int page, int size, boolean includeTotal) {
+        CursorPage<DocumentSummaryDTO> result = CursorPage.ofOffset(documentRepository.findPageByUser(
+                user, PageCursor.START.getCreatedAt(), PageCursor.START.getId(), PageRequest.of(page, size)), size, DocumentService::cursorOf);
+        if (includeTotal) {
+            result.setTotalCount(countCache.get(user.getId(), "documents",
+                    () -> documentRepository.countByUser(user)));
+        }
+        return result;
+    }
+    
+    public CursorPage<DocumentSummaryDTO> searchDocuments(User user, String searchTerm, PageCursor cursor, int limit, boolean includeTotal) {
+        CursorPage<DocumentSummaryDTO> page = CursorPage.of(documentRepository.findPageByUserAndSearchTerm(
+                user, searchTerm, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(limit)), limit, DocumentService::cursorOf);
+        if (includeTotal) {
+            page.setTotalCount(countCache.get(user.getId(), "documents:search:" + searchTerm.toLowerCase(),
+                    () -> documentRepository.countByUserAndSearchTerm(user, searchTerm)));
+        }
+        return page;
+    }
+    
+    public CursorPage<DocumentSummaryDTO> getDocumentsByFileType(User user, String fileType, PageCursor cursor, int limit, boolean includeTotal) {
+        CursorPage<DocumentSummaryDTO> page = CursorPage.of(documentRepository.findPageByUserAndFileType(
+                user, fileType, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(limit)), limit, DocumentService::cursorOf);
+        if (includeTotal) {
+            page.setTotalCount(countCache.get(user.getId(), "documents:type:" + fileType,
+                    () -> documentRepository.countByUserAndFileType(user, fileType)));
+        }
+        return page;
+    }
+    
+    private static PageCursor cursorOf(DocumentSummaryDTO document) {
+        return new PageCursor(document.getCreatedAt(), document.getId());
+    }
+    
     public Optional<Document> getDocumentById(Long id) {
         return documentRepository.findById(id);
     }
     
+    @Transactional(readOnly = true)
+    public Optional<DocumentResponseDTO> getDocumentResponse(Long id, User user) {
+        // The response carries the owner's email, so the user is fetched in the same select
+        return documentRepository.findWithUserById(id)
+                .filter(document -> document.getUser().getId().equals(user.getId()))
+                .map(DocumentResponseDTO::new);
+    }
+    
     public List<Document> searchDocuments(User user, String searchTerm) {
         return documentRepository.findByUserAndSearchTerm(user, searchTerm);
     }
@@ -132,49 +229,54 @@ public class DocumentService {
         if (documentOpt.isPresent()) {
             Document document = documentOpt.get();
             if (document.getUser().getId().equals(user.getId())) {
-                // Delete file from storage if local storage is enabled
-                if (localStorageEnabled && document.getFilePath() != null && !document.getFilePath().startsWith("mock://")) {
-                    System.out.println("Deleting file from storage: " + document.getFilePath());
+                // Delete file from storage if file storage is enabled
+                if (isFileStorageEnabled() && document.getFilePath() != null && !document.getFilePath().startsWith("mock://")) {
                     boolean fileDeleted = fileStorageService.deleteFile(document.getFilePath());
-                    if (fileDeleted) {
-                        System.out.println("File deleted successfully");
-                    } else {
-                        System.out.println("Warning: File deletion failed, but continuing with database cleanup");
+                    if (!fileDeleted) {
+                        logger.warn("File deletion failed for {}, continuing with database cleanup", document.getFilePath());
                     }
                 } else if (document.getFilePath() != null && document.getFilePath().startsWith("mock://")) {
-                    System.out.println("Skipping file deletion (mock file path detected)");
+                    logger.debug("Skipping file deletion for mock path of document {}", id);
                 }
                 
-                // Delete from database
-                System.out.println("Deleting document from database");
+                // Delete from database; segments go in one statement instead of one per page
+                List<Long> quizIds = quizRollups.findQuizIdsByDocument(document.getId());
+                Set<Long> attemptUsers = quizRollups.prepareQuizDeletion(quizIds);
+                segmentRepository.deleteByDocumentId(document.getId());
+                contentRepository.deleteByDocumentId(document.getId());
                 documentRepository.delete(document);
+                quizRollups.rebuild(attemptUsers, quizIds);
+                countCache.invalidate(user.getId());
+                // The document's flashcards and quizzes are removed with it
+                collectionVersions.bump(user.getId(), CollectionVersions.Type.DOCUMENTS,
+                        CollectionVersions.Type.FLASHCARDS, CollectionVersions.Type.QUIZZES);
+                passageIndex.remove(id);
+                semanticSearch.removeDocument(id);
+                logger.debug("Document {} deleted", id);
             }
         }
     }
     
     @Async
     public CompletableFuture<Void> processDocumentAsync(Document document) {
-        return CompletableFuture.runAsync(() -> {
+        // Wrapped so the request's MDC (request id) follows the work onto the pool thread
+        return CompletableFuture.runAsync(MdcTaskDecorator.wrap(() -> {
             try {
-                System.out.println("=== DOCUMENT PROCESSING START ===");
-                System.out.println("Processing document ID: " + document.getId());
-                System.out.println("Document title: " + document.getTitle());
-                System.out.println("Local storage enabled: " + localStorageEnabled);
-                System.out.println("File path: " + document.getFilePath());
+                logger.debug("Processing document {} at {}", document.getId(), document.getFilePath());
                 
                 // Set status to PROCESSING
                 document.setProcessingStatus(Document.ProcessingStatus.PROCESSING);
                 documentRepository.save(document);
-                System.out.println("Document status set to PROCESSING");
+                statusChanged(document);
                 
                 // Validate file path - must not be mock
                 if (document.getFilePath() == null || document.getFilePath().startsWith("mock://")) {
                     throw new IOException("Invalid file path: " + document.getFilePath() + ". File must be stored locally.");
                 }
                 
-                // Validate local storage is enabled
-                if (!localStorageEnabled) {
-                    throw new IllegalStateException("Local storage is disabled. Cannot process document without file storage.");
+                // Validate file storage is enabled
+                if (!isFileStorageEnabled()) {
+                    throw new IllegalStateException("File storage is disabled. Cannot process document without file storage.");
                 }
                 
                 // Validate file exists
@@ -182,18 +284,17 @@ public class DocumentService {
                     throw new IOException("File does not exist at path: " + document.getFilePath());
                 }
                 
-                // Extract content from file for AI processing
-                System.out.println("Extracting content from file for AI processing...");
-                String contentForAI = contentExtractor.extractContent(document.getFilePath());
+                // Extract content from file for AI processing, keeping per-page offsets for page lookups
+                TikaExtractionService.ExtractionResult extraction = contentExtractor.extractDocument(document.getFilePath());
+                String contentForAI = segmentService.replaceSegments(document, extraction);
                 
                 if (contentForAI == null || contentForAI.trim().isEmpty()) {
                     throw new IOException("Failed to extract content from file. Content is empty.");
                 }
                 
-                System.out.println("Content extracted successfully, length: " + contentForAI.length());
+                logger.debug("Extracted {} chars from document {}", contentForAI.length(), document.getId());
                 
                 // Generate AI summary using extracted content
-                System.out.println("Generating AI summary using OpenAI...");
                 String summary = aiService.generateSummary(contentForAI);
                 
                 if (summary == null || summary.trim().isEmpty()) {
@@ -201,33 +302,45 @@ public class DocumentService {
                 }
                 
                 document.setSummary(summary);
-                System.out.println("AI summary generated successfully");
                 
                 // Update processing status to COMPLETED
-                System.out.println("Updating processing status to COMPLETED...");
                 document.setProcessingStatus(Document.ProcessingStatus.COMPLETED);
                 documentRepository.save(document);
-                System.out.println("Document processing completed successfully");
-                System.out.println("=== DOCUMENT PROCESSING END ===");
+                statusChanged(document);
+                logger.info("Document {} processed", document.getId());
+                
+                // A failed index build is not fatal: the first question rebuilds it
+                try {
+                    List<DocumentSegment> segments = segmentRepository.findByDocumentId(document.getId());
+                    passageIndex.index(document, contentForAI, segments);
+                    semanticSearch.indexDocument(document, contentForAI, segments);
+                } catch (Exception indexError) {
+                    logger.warn("Passage indexing failed for document {}", document.getId(), indexError);
+                }
                 
             } catch (Exception e) {
-                System.out.println("=== DOCUMENT PROCESSING ERROR ===");
-                System.out.println("Error processing document: " + e.getMessage());
-                e.printStackTrace();
-                System.out.println("=== DOCUMENT PROCESSING ERROR END ===");
+                logger.error("Error processing document {}", document.getId(), e);
                 
                 try {
                     document.setProcessingStatus(Document.ProcessingStatus.FAILED);
                     documentRepository.save(document);
-                    System.out.println("Document status set to FAILED");
+                    statusChanged(document);
                 } catch (Exception saveError) {
-                    System.err.println("CRITICAL: Failed to save error status: " + saveError.getMessage());
-                    saveError.printStackTrace();
+                    logger.error("Failed to save FAILED status for document {}", document.getId(), saveError);
                 }
             }
-        });
+        }));
     }
     
+    // Document lists show the processing status, so each saved status moves their ETag on
+    // document.storage.local.enabled only switches off the local backend; the others always store files
+    private boolean isFileStorageEnabled() {
+        return localStorageEnabled || !"local".equals(storageBackend);
+    }
+    
+    private void statusChanged(Document document) {
+        collectionVersions.bump(document.getUser().getId(), CollectionVersions.Type.DOCUMENTS);
+    }
     
     private String getFileType(String filename) {
         String extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
@@ -0,0 +1,42 @@
+package com.example.springbootjava.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns text into unit-length vectors for semantic search. The active implementation is chosen
+ * with {@code search.embedding.provider}; vectors from different providers are not comparable.
+ */
+public interface EmbeddingProvider {
+
+    int dimensions();
+
+    /**
+     * Identifies the provider and its settings; an index built with a different fingerprint is rebuilt
+     */
+    long fingerprint();
+
+    float[] embed(String text);
+
+    default List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+}
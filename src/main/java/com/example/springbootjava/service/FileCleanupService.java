@@ -1,87 +1,218 @@
 package com.example.springbootjava.service;
 
+import com.example.springbootjava.repository.DocumentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 @Service
 public class FileCleanupService {
     
+    private static final Logger logger = LoggerFactory.getLogger(FileCleanupService.class);
+    
     @Autowired
     private LocalFileStorageService fileStorageService;
     
+    @Autowired
+    private DocumentRepository documentRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
     @Value("${document.storage.local.base-path:./uploads}")
     private String basePath;
     
-    @Value("${file.cleanup.retention-days:30}")
-    private int retentionDays;
-    
     @Value("${file.cleanup.enabled:true}")
     private boolean cleanupEnabled;
     
+    // The nightly runs walk the local uploads directory, which other backends leave empty
+    @Value("${document.storage.backend:local}")
+    private String storageBackend;
+    
+    // Unreferenced files modified more recently than this are kept, covering uploads whose
+    // document row is not committed yet
+    @Value("${file.cleanup.grace-hours:24}")
+    private long graceHours;
+    
+    // When set, scheduled runs only report what they would delete
+    @Value("${file.cleanup.dry-run:false}")
+    private boolean dryRun;
+    
+    // User directories swept at once
+    @Value("${file.cleanup.threads:4}")
+    private int threads;
+    
+    private static final int MAX_REPORTED_FILES = 1000;
+    
     /**
-     * Clean up old files that are no longer referenced in the database
+     * Clean up files that are no longer referenced in the database
      * Runs daily at 2 AM
      */
     @Scheduled(cron = "0 0 2 * * ?")
     public void cleanupOrphanedFiles() {
         if (!cleanupEnabled) {
-            System.out.println("File cleanup is disabled");
+            logger.info("File cleanup is disabled");
+            return;
+        }
+        if (!isLocalBackend()) {
             return;
         }
         
-        System.out.println("Starting file cleanup process...");
+        try {
+            collectGarbage(dryRun);
+        } catch (IOException e) {
+            logger.error("Error during file cleanup", e);
+        }
+    }
+    
+    private boolean isLocalBackend() {
+        return "local".equals(storageBackend);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warnIfUnsupported() {
+        if (cleanupEnabled && !isLocalBackend()) {
+            logger.warn("Unreferenced file cleanup is off: it only covers the local storage backend, not '{}'", storageBackend);
+        }
+    }
+    
+    /**
+     * Mark and sweep over the uploads directory. Marks every path referenced by a document, then
+     * walks the user directories concurrently and deletes, or with dryRun only reports, files that
+     * are unreferenced and older than the grace period. Nothing is swept if marking fails.
+     * Throws IllegalStateException on other storage backends, whose files are not on local disk.
+     */
+    public GcReport collectGarbage(boolean dryRun) throws IOException {
+        if (!isLocalBackend()) {
+            throw new IllegalStateException("Unreferenced file cleanup only covers the local storage backend, not '" + storageBackend + "'");
+        }
+        long started = System.currentTimeMillis();
+        Path uploadsDir = Paths.get(basePath).toAbsolutePath().normalize();
+        GcReport report = new GcReport(dryRun);
+        if (!Files.exists(uploadsDir)) {
+            logger.info("Uploads directory does not exist, skipping cleanup");
+            return report;
+        }
+        logger.info("Starting file cleanup process{}", dryRun ? " (dry run)" : "");
+        
+        ReferencedPaths referenced = markReferencedPaths(uploadsDir);
+        report.referencedFiles = referenced.size();
         
+        Instant graceCutoff = Instant.now().minus(graceHours, ChronoUnit.HOURS);
+        List<Path> roots = new ArrayList<>();
+        boolean looseFiles = false;
+        try (Stream<Path> children = Files.list(uploadsDir)) {
+            for (Path child : children.toList()) {
+                if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    roots.add(child);
+                } else {
+                    looseFiles = true;
+                }
+            }
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "File-gc");
+            thread.setDaemon(true);
+            return thread;
+        });
         try {
-            Path uploadsDir = Paths.get(basePath);
-            if (!Files.exists(uploadsDir)) {
-                System.out.println("Uploads directory does not exist, skipping cleanup");
-                return;
+            List<Future<GcReport>> sweeps = new ArrayList<>();
+            for (Path root : roots) {
+                sweeps.add(executor.submit(() -> sweep(uploadsDir, root, Integer.MAX_VALUE, referenced, graceCutoff, dryRun)));
             }
-            
-            LocalDateTime cutoffDate = LocalDateTime.now().minus(retentionDays, ChronoUnit.DAYS);
-            int deletedCount = 0;
-            long totalSize = 0;
-            
-            // Walk through all files in the uploads directory
-            try (Stream<Path> paths = Files.walk(uploadsDir)) {
-                for (Path filePath : paths.filter(Files::isRegularFile).toList()) {
-                    try {
-                        // Check if file is older than retention period
-                        LocalDateTime fileTime = LocalDateTime.ofInstant(
-                            Files.getLastModifiedTime(filePath).toInstant(),
-                            java.time.ZoneId.systemDefault()
-                        );
-                        
-                        if (fileTime.isBefore(cutoffDate)) {
-                            long fileSize = Files.size(filePath);
-                            if (Files.deleteIfExists(filePath)) {
-                                deletedCount++;
-                                totalSize += fileSize;
-                                System.out.println("Deleted old file: " + filePath);
-                            }
-                        }
-                    } catch (IOException e) {
-                        System.err.println("Error processing file " + filePath + ": " + e.getMessage());
+            if (looseFiles) {
+                sweeps.add(executor.submit(() -> sweep(uploadsDir, uploadsDir, 1, referenced, graceCutoff, dryRun)));
+            }
+            for (Future<GcReport> sweep : sweeps) {
+                report.merge(sweep.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("File cleanup interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("File cleanup failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        report.durationMs = System.currentTimeMillis() - started;
+        logger.info("File cleanup completed in {} ms. Scanned {} files, {} referenced; {} {} unreferenced files ({}), kept {} within the grace period",
+                report.durationMs, report.scannedFiles, report.referencedFiles, dryRun ? "would delete" : "deleted",
+                report.orphanedFiles, formatFileSize(report.orphanedBytes), report.recentUnreferencedFiles);
+        return report;
+    }
+    
+    // Every referenced path, relative to the uploads directory, streamed from the database
+    private ReferencedPaths markReferencedPaths(Path uploadsDir) {
+        List<String> paths = transactionTemplate.execute(status -> {
+            List<String> keys = new ArrayList<>();
+            try (Stream<String> filePaths = documentRepository.streamAllFilePaths()) {
+                filePaths.forEach(filePath -> keys.add(relativeKey(uploadsDir, fileStorageService.resolvePath(filePath))));
+            }
+            return keys;
+        });
+        return new ReferencedPaths(paths != null ? paths : List.of());
+    }
+    
+    private GcReport sweep(Path uploadsDir, Path root, int maxDepth, ReferencedPaths referenced, Instant graceCutoff,
+                           boolean dryRun) throws IOException {
+        GcReport report = new GcReport(dryRun);
+        Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), maxDepth, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (!attributes.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                report.scannedFiles++;
+                String key = relativeKey(uploadsDir, file);
+                if (referenced.contains(key)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (!attributes.lastModifiedTime().toInstant().isBefore(graceCutoff)) {
+                    report.recentUnreferencedFiles++;
+                    return FileVisitResult.CONTINUE;
+                }
+                try {
+                    if (dryRun || Files.deleteIfExists(file)) {
+                        report.addOrphan(key, attributes.size());
                     }
+                } catch (IOException e) {
+                    logger.warn("Could not delete unreferenced file {}", key, e);
+                    report.errors.add(key + ": " + e.getMessage());
                 }
+                return FileVisitResult.CONTINUE;
             }
             
-            System.out.println("File cleanup completed. Deleted " + deletedCount + " files, freed " + 
-                             formatFileSize(totalSize) + " of space");
-            
-        } catch (IOException e) {
-            System.err.println("Error during file cleanup: " + e.getMessage());
-        }
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                report.errors.add(relativeKey(uploadsDir, file) + ": " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return report;
+    }
+    
+    private static String relativeKey(Path uploadsDir, Path file) {
+        return uploadsDir.relativize(file.toAbsolutePath().normalize()).toString().replace('\\', '/');
     }
     
     /**
@@ -89,11 +220,11 @@ public class FileCleanupService {
      */
     @Scheduled(cron = "0 30 2 * * ?") // Run 30 minutes after file cleanup
     public void cleanupEmptyDirectories() {
-        if (!cleanupEnabled) {
+        if (!cleanupEnabled || !isLocalBackend()) {
             return;
         }
         
-        System.out.println("Starting empty directory cleanup...");
+        logger.info("Starting empty directory cleanup");
         
         try {
             Path uploadsDir = Paths.get(basePath);
@@ -117,19 +248,19 @@ public class FileCleanupService {
                         if (Files.list(dirPath).findAny().isEmpty()) {
                             if (Files.deleteIfExists(dirPath)) {
                                 deletedCount++;
-                                System.out.println("Deleted empty directory: " + dirPath);
+                                logger.debug("Deleted empty directory: {}", dirPath);
                             }
                         }
                     } catch (IOException e) {
-                        System.err.println("Error processing directory " + dirPath + ": " + e.getMessage());
+                        logger.warn("Error processing directory {}", dirPath, e);
                     }
                 }
             }
             
-            System.out.println("Empty directory cleanup completed. Deleted " + deletedCount + " directories");
+            logger.info("Empty directory cleanup completed. Deleted {} directories", deletedCount);
             
         } catch (IOException e) {
-            System.err.println("Error during directory cleanup: " + e.getMessage());
+            logger.error("Error during directory cleanup", e);
         }
     }
     
@@ -161,18 +292,82 @@ public class FileCleanupService {
             return new StorageStats(fileCount, dirCount, totalSize);
             
         } catch (IOException e) {
-            System.err.println("Error getting storage stats: " + e.getMessage());
+            logger.warn("Error getting storage stats", e);
             return new StorageStats(0, 0, 0);
         }
     }
     
-    private String formatFileSize(long bytes) {
+    static String formatFileSize(long bytes) {
         if (bytes < 1024) return bytes + " B";
         int exp = (int) (Math.log(bytes) / Math.log(1024));
         String pre = "KMGTPE".charAt(exp - 1) + "";
         return String.format("%.1f %sB", bytes / Math.pow(1024, exp), pre);
     }
     
+    /**
+     * Sorted, de-duplicated array of referenced paths, searched by bisection
+     */
+    static final class ReferencedPaths {
+        private final String[] paths;
+        
+        ReferencedPaths(Collection<String> paths) {
+            this.paths = paths.stream().sorted().distinct().toArray(String[]::new);
+        }
+        
+        boolean contains(String path) {
+            return Arrays.binarySearch(paths, path) >= 0;
+        }
+        
+        int size() {
+            return paths.length;
+        }
+    }
+    
+    public static class GcReport {
+        private final boolean dryRun;
+        private int referencedFiles;
+        private int scannedFiles;
+        private int orphanedFiles;
+        private long orphanedBytes;
+        private int recentUnreferencedFiles;
+        private long durationMs;
+        private final List<String> orphans = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        
+        GcReport(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+        
+        private void addOrphan(String path, long size) {
+            orphanedFiles++;
+            orphanedBytes += size;
+            if (orphans.size() < MAX_REPORTED_FILES) {
+                orphans.add(path);
+            }
+        }
+        
+        private void merge(GcReport other) {
+            scannedFiles += other.scannedFiles;
+            orphanedFiles += other.orphanedFiles;
+            orphanedBytes += other.orphanedBytes;
+            recentUnreferencedFiles += other.recentUnreferencedFiles;
+            orphans.addAll(other.orphans.subList(0, Math.min(other.orphans.size(), MAX_REPORTED_FILES - orphans.size())));
+            errors.addAll(other.errors);
+        }
+        
+        public boolean isDryRun() { return dryRun; }
+        public int getReferencedFiles() { return referencedFiles; }
+        public int getScannedFiles() { return scannedFiles; }
+        // Deleted, or with a dry run the files that would be
+        public int getOrphanedFiles() { return orphanedFiles; }
+        public long getOrphanedBytes() { return orphanedBytes; }
+        public int getRecentUnreferencedFiles() { return recentUnreferencedFiles; }
+        public long getDurationMs() { return durationMs; }
+        // The first orphans found, relative to the uploads directory
+        public List<String> getOrphans() { return orphans; }
+        public List<String> getErrors() { return errors; }
+    }
+    
     public static class StorageStats {
         private final int fileCount;
         private final int directoryCount;
@@ -188,11 +383,6 @@ public class FileCleanupService {
         public int getDirectoryCount() { return directoryCount; }
         public long getTotalSizeBytes() { return totalSizeBytes; }
         
-        public String getFormattedSize() {
-            if (totalSizeBytes < 1024) return totalSizeBytes + " B";
-            int exp = (int) (Math.log(totalSizeBytes) / Math.log(1024));
-            String pre = "KMGTPE".charAt(exp - 1) + "";
-            return String.format("%.1f %sB", totalSizeBytes / Math.pow(1024, exp), pre);
-        }
+        public String getFormattedSize() { return formatFileSize(totalSizeBytes); }
     }
 }
@@ -0,0 +1,388 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.repository.DocumentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Snapshots of the uploaded files that documents point at, kept next to the database backups
+ * under files/snapshot_<time>/. Uploads are never rewritten in place, so a file whose size and
+ * modification time match the previous snapshot is hard-linked from it instead of copied; a
+ * snapshot costs one link per unchanged file and a copy of each new one. manifest.json lists
+ * every file with its SHA-256 and is written last, so a directory without one is incomplete.
+ */
+@Service
+public class FileSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSnapshotService.class);
+    private static final DateTimeFormatter SNAPSHOT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS");
+    private static final String MANIFEST = "manifest.json";
+    private static final String DATA_DIR = "data";
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private LocalFileStorageService fileStorageService;
+
+    @Autowired
+    private DatabaseBackupService backupService;
+
+    @Value("${backup.files.restore-threads:4}")
+    private int restoreThreads;
+
+    // Snapshots link and copy files on local disk, so only the local backend has any
+    @Value("${document.storage.backend:local}")
+    private String storageBackend;
+
+    private final ObjectMapper objectMapper;
+
+    public FileSnapshotService() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+    }
+
+    /**
+     * Snapshots every file a document references, linking the ones unchanged since the latest
+     * snapshot and copying the rest
+     */
+    public SnapshotResult createSnapshot() throws IOException {
+        requireLocalBackend();
+        Path root = snapshotsRoot();
+        Files.createDirectories(root);
+
+        Path previousDir = findLatestSnapshot();
+        Map<String, FileEntry> previous = new HashMap<>();
+        if (previousDir != null) {
+            for (FileEntry entry : readManifest(previousDir).getFiles()) {
+                previous.put(entry.getFilePath(), entry);
+            }
+        }
+
+        String name = "snapshot_" + LocalDateTime.now().format(SNAPSHOT_FORMAT);
+        Path snapshotDir = Files.createDirectory(root.resolve(name));
+        SnapshotResult result = new SnapshotResult(name);
+        List<FileEntry> entries = new ArrayList<>();
+
+        for (String filePath : documentRepository.findAllFilePaths()) {
+            Path source = fileStorageService.resolvePath(filePath);
+            if (!Files.isRegularFile(source)) {
+                logger.warn("Skipping missing upload {}", filePath);
+                result.missing.add(filePath);
+                continue;
+            }
+            Path target = dataPath(snapshotDir, filePath);
+            Files.createDirectories(target.getParent());
+            long size = Files.size(source);
+            long lastModified = Files.getLastModifiedTime(source).toMillis();
+
+            FileEntry before = previous.get(filePath);
+            String sha256 = null;
+            if (before != null && before.getSize() == size && before.getLastModified() == lastModified
+                    && link(dataPath(previousDir, filePath), target)) {
+                sha256 = before.getSha256();
+                result.linked++;
+            }
+            if (sha256 == null) {
+                sha256 = copyWithChecksum(source, target);
+                result.copied++;
+                result.bytesCopied += size;
+            }
+            entries.add(new FileEntry(filePath, size, lastModified, sha256));
+        }
+
+        SnapshotManifest manifest = new SnapshotManifest();
+        manifest.setCreatedAt(LocalDateTime.now());
+        manifest.setPreviousSnapshot(previousDir != null ? previousDir.getFileName().toString() : null);
+        manifest.setFiles(entries);
+        Path manifestTmp = snapshotDir.resolve(MANIFEST + ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(manifestTmp.toFile(), manifest);
+        Files.move(manifestTmp, snapshotDir.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE);
+
+        logger.info("File snapshot {} completed: {} copied ({} bytes), {} linked, {} missing",
+                name, result.copied, result.bytesCopied, result.linked, result.missing.size());
+        return result;
+    }
+
+    /**
+     * Writes the files of a snapshot (the latest when name is null) back to upload storage on
+     * several threads, verifying each against its manifest checksum before putting it in place
+     */
+    public RestoreResult restoreSnapshot(String name) throws IOException {
+        requireLocalBackend();
+        Path snapshotDir = name != null ? snapshotsRoot().resolve(name).normalize() : findLatestSnapshot();
+        if (snapshotDir == null || !snapshotDir.startsWith(snapshotsRoot()) || !Files.exists(snapshotDir.resolve(MANIFEST))) {
+            throw new IOException("File snapshot not found: " + (name != null ? name : "no snapshots yet"));
+        }
+        List<FileEntry> entries = readManifest(snapshotDir).getFiles();
+        logger.info("Restoring {} files from {}", entries.size(), snapshotDir.getFileName());
+
+        RestoreResult result = new RestoreResult(snapshotDir.getFileName().toString());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, restoreThreads), runnable -> {
+            Thread thread = new Thread(runnable, "File-restore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<String>> futures = new ArrayList<>(entries.size());
+            for (FileEntry entry : entries) {
+                futures.add(executor.submit(() -> restoreFile(snapshotDir, entry)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                String error;
+                try {
+                    error = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    error = e.getCause().getMessage();
+                }
+                if (error == null) {
+                    result.restored++;
+                } else {
+                    logger.warn("Could not restore {}: {}", entries.get(i).getFilePath(), error);
+                    result.failed.put(entries.get(i).getFilePath(), error);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("File restore interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        logger.info("File restore from {} completed: {} restored, {} failed", result.snapshot, result.restored, result.failed.size());
+        return result;
+    }
+
+    /**
+     * Completed snapshots, newest first
+     */
+    public List<String> listSnapshots() throws IOException {
+        Path root = snapshotsRoot();
+        if (!Files.exists(root)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> dirs = Files.list(root)) {
+            return dirs.filter(dir -> dir.getFileName().toString().startsWith("snapshot_") && Files.exists(dir.resolve(MANIFEST)))
+                    .map(dir -> dir.getFileName().toString())
+                    .sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Deletes all but the newest keepCount snapshots. Files still linked from a kept snapshot
+     * keep their data, so this only frees what no remaining snapshot holds.
+     */
+    public int cleanupOldSnapshots(int keepCount) throws IOException {
+        Path root = snapshotsRoot();
+        if (!Files.exists(root)) {
+            return 0;
+        }
+        List<Path> snapshots;
+        try (Stream<Path> dirs = Files.list(root)) {
+            snapshots = dirs.filter(dir -> dir.getFileName().toString().startsWith("snapshot_"))
+                    .sorted(Comparator.comparing((Path dir) -> dir.getFileName().toString()).reversed())
+                    .collect(Collectors.toList());
+        }
+        // Skip past unfinished directories so a snapshot in progress is never counted as kept
+        int kept = 0;
+        int deletedCount = 0;
+        for (Path dir : snapshots) {
+            if (kept < keepCount) {
+                if (Files.exists(dir.resolve(MANIFEST))) {
+                    kept++;
+                }
+                continue;
+            }
+            deleteRecursively(dir);
+            deletedCount++;
+            logger.info("Deleted old file snapshot: {}", dir.getFileName());
+        }
+        return deletedCount;
+    }
+
+    private String restoreFile(Path snapshotDir, FileEntry entry) throws IOException {
+        Path source = dataPath(snapshotDir, entry.getFilePath());
+        if (!Files.isRegularFile(source)) {
+            return "missing from snapshot";
+        }
+        Path target = fileStorageService.resolvePath(entry.getFilePath());
+        Files.createDirectories(target.getParent());
+        Path tmp = target.resolveSibling(target.getFileName() + ".restore");
+        String sha256 = copyWithChecksum(source, tmp);
+        if (!sha256.equals(entry.getSha256())) {
+            Files.deleteIfExists(tmp);
+            return "checksum mismatch";
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return null;
+    }
+
+    private void requireLocalBackend() {
+        if (!"local".equals(storageBackend)) {
+            throw new IllegalStateException("File snapshots only cover the local storage backend, not '" + storageBackend + "'");
+        }
+    }
+
+    private Path snapshotsRoot() {
+        return backupService.getBackupDirectory().resolve("files").toAbsolutePath().normalize();
+    }
+
+    private Path findLatestSnapshot() throws IOException {
+        List<String> snapshots = listSnapshots();
+        return snapshots.isEmpty() ? null : snapshotsRoot().resolve(snapshots.get(0));
+    }
+
+    private SnapshotManifest readManifest(Path snapshotDir) throws IOException {
+        return objectMapper.readValue(snapshotDir.resolve(MANIFEST).toFile(), SnapshotManifest.class);
+    }
+
+    // Where a document's file lives inside a snapshot: the path below uploads/, under data/
+    private static Path dataPath(Path snapshotDir, String filePath) throws IOException {
+        String relative = filePath.replace('\\', '/');
+        if (relative.startsWith("uploads/")) {
+            relative = relative.substring("uploads/".length());
+        }
+        Path dataDir = snapshotDir.resolve(DATA_DIR);
+        Path path = dataDir.resolve(relative).normalize();
+        if (!path.startsWith(dataDir)) {
+            throw new IOException("File path escapes the snapshot: " + filePath);
+        }
+        return path;
+    }
+
+    private static boolean link(Path existing, Path link) {
+        if (!Files.isRegularFile(existing)) {
+            return false;
+        }
+        try {
+            Files.createLink(link, existing);
+            return true;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // No hard links here (other file system, link limit); the caller copies instead
+            logger.debug("Could not link {}: {}", existing, e.getMessage());
+            return false;
+        } catch (IOException e) {
+            logger.debug("Could not link {}", existing, e);
+            return false;
+        }
+    }
+
+    private static String copyWithChecksum(Path source, Path target) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    public static class SnapshotManifest {
+        private LocalDateTime createdAt;
+        private String previousSnapshot;
+        private List<FileEntry> files;
+
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+        public String getPreviousSnapshot() { return previousSnapshot; }
+        public void setPreviousSnapshot(String previousSnapshot) { this.previousSnapshot = previousSnapshot; }
+        public List<FileEntry> getFiles() { return files; }
+        public void setFiles(List<FileEntry> files) { this.files = files; }
+    }
+
+    public static class FileEntry {
+        private String filePath;
+        private long size;
+        private long lastModified;
+        private String sha256;
+
+        public FileEntry() {
+        }
+
+        public FileEntry(String filePath, long size, long lastModified, String sha256) {
+            this.filePath = filePath;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+        }
+
+        public String getFilePath() { return filePath; }
+        public void setFilePath(String filePath) { this.filePath = filePath; }
+        public long getSize() { return size; }
+        public void setSize(long size) { this.size = size; }
+        public long getLastModified() { return lastModified; }
+        public void setLastModified(long lastModified) { this.lastModified = lastModified; }
+        public String getSha256() { return sha256; }
+        public void setSha256(String sha256) { this.sha256 = sha256; }
+    }
+
+    public static class SnapshotResult {
+        private final String snapshot;
+        private int copied;
+        private int linked;
+        private long bytesCopied;
+        private final List<String> missing = new ArrayList<>();
+
+        SnapshotResult(String snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public String getSnapshot() { return snapshot; }
+        public int getCopied() { return copied; }
+        public int getLinked() { return linked; }
+        public long getBytesCopied() { return bytesCopied; }
+        public List<String> getMissing() { return missing; }
+    }
+
+    public static class RestoreResult {
+        private final String snapshot;
+        private int restored;
+        private final Map<String, String> failed = new TreeMap<>();
+
+        RestoreResult(String snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public String getSnapshot() { return snapshot; }
+        public int getRestored() { return restored; }
+        public Map<String, String> getFailed() { return failed; }
+    }
+}
@@ -1,33 +1,71 @@
 package com.example.springbootjava.service;
 
+import com.example.springbootjava.dto.CursorPage;
+import com.example.springbootjava.dto.FlashcardResponseDTO;
+import com.example.springbootjava.dto.PageCursor;
+import com.example.springbootjava.dto.StudyEventDTO;
 import com.example.springbootjava.entity.Document;
 import com.example.springbootjava.entity.Flashcard;
+import com.example.springbootjava.entity.FlashcardStudySession;
 import com.example.springbootjava.entity.User;
 import com.example.springbootjava.repository.FlashcardRepository;
+import com.example.springbootjava.repository.FlashcardStudySessionRepository;
 import com.example.springbootjava.service.DocumentContentExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 @Transactional
 public class FlashcardService {
     
+    private static final Logger logger = LoggerFactory.getLogger(FlashcardService.class);
+    
     @Autowired
     private FlashcardRepository flashcardRepository;
     
+    @Autowired
+    private FlashcardStudySessionRepository studySessionRepository;
+    
+    @Autowired
+    private StudyEventBuffer studyEventBuffer;
+    
+    @Value("${study-events.max-per-request:1000}")
+    private int maxStudyEventsPerRequest;
+    
     @Autowired
     private AIService aiService;
     
     @Autowired
     private DocumentContentExtractor contentExtractor;
     
+    @Autowired
+    private DocumentSegmentService segmentService;
+    
+    @Autowired
+    private SemanticSearchService semanticSearch;
+    
+    @Autowired
+    private TotalCountCache countCache;
+    
+    @Autowired
+    private CollectionVersions collectionVersions;
+    
     public List<Flashcard> getUserFlashcards(User user) {
         return flashcardRepository.findByUserOrderByCreatedAtDesc(user);
     }
@@ -36,6 +74,67 @@ public class FlashcardService {
         return flashcardRepository.findByUserOrderByCreatedAtDesc(user, pageable);
     }
     
+    public CursorPage<FlashcardResponseDTO> getUserFlashcards(User user, PageCursor cursor, int limit, boolean includeTotal) {
+        CursorPage<FlashcardResponseDTO> page = CursorPage.of(flashcardRepository.findPageByUser(
+                user, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(limit)), limit, FlashcardService::cursorOf)
+                .map(FlashcardResponseDTO::new);
+        if (includeTotal) {
+            page.setTotalCount(countCache.get(user.getId(), "flashcards", () -> flashcardRepository.countByUser(user)));
+        }
+        return page;
+    }
+    
+    /**
+     * Page {@code page} of the user's flashcards by offset, for clients still sending page/size. The
+     * result carries a cursor for the following page so they can move over to cursors.
+     */
+    public CursorPage<FlashcardResponseDTO> getUserFlashcardsByOffset(User user, int page, int size, boolean includeTotal) {
+        CursorPage<FlashcardResponseDTO> result = CursorPage.ofOffset(flashcardRepository.findPageByUser(
+                user, PageCursor.START.getCreatedAt(), PageCursor.START.getId(), PageRequest.of(page, size)), size, FlashcardService::cursorOf)
+                .map(FlashcardResponseDTO::new);
+        if (includeTotal) {
+            result.setTotalCount(countCache.get(user.getId(), "flashcards", () -> flashcardRepository.countByUser(user)));
+        }
+        return result;
+    }
+    
+    public CursorPage<FlashcardResponseDTO> getFlashcardsByDifficulty(User user, Flashcard.Difficulty difficulty, PageCursor cursor, int limit, boolean includeTotal) {
+        CursorPage<FlashcardResponseDTO> page = CursorPage.of(flashcardRepository.findPageByUserAndDifficulty(
+                user, difficulty, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(limit)), limit, FlashcardService::cursorOf)
+                .map(FlashcardResponseDTO::new);
+        if (includeTotal) {
+            page.setTotalCount(countCache.get(user.getId(), "flashcards:difficulty:" + difficulty,
+                    () -> flashcardRepository.countByUserAndDifficulty(user, difficulty)));
+        }
+        return page;
+    }
+    
+    public CursorPage<FlashcardResponseDTO> getFlashcardsByCategory(User user, String category, PageCursor cursor, int limit, boolean includeTotal) {
+        CursorPage<FlashcardResponseDTO> page = CursorPage.of(flashcardRepository.findPageByUserAndCategory(
+                user, category, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(limit)), limit, FlashcardService::cursorOf)
+                .map(FlashcardResponseDTO::new);
+        if (includeTotal) {
+            page.setTotalCount(countCache.get(user.getId(), "flashcards:category:" + category,
+                    () -> flashcardRepository.countByUserAndCategory(user, category)));
+        }
+        return page;
+    }
+    
+    public CursorPage<FlashcardResponseDTO> searchFlashcards(User user, String searchTerm, PageCursor cursor, int limit, boolean includeTotal) {
+        CursorPage<FlashcardResponseDTO> page = CursorPage.of(flashcardRepository.findPageByUserAndSearchTerm(
+                user, searchTerm, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(limit)), limit, FlashcardService::cursorOf)
+                .map(FlashcardResponseDTO::new);
+        if (includeTotal) {
+            page.setTotalCount(countCache.get(user.getId(), "flashcards:search:" + searchTerm.toLowerCase(),
+                    () -> flashcardRepository.countByUserAndSearchTerm(user, searchTerm)));
+        }
+        return page;
+    }
+    
+    private static PageCursor cursorOf(Flashcard flashcard) {
+        return new PageCursor(flashcard.getCreatedAt(), flashcard.getId());
+    }
+    
     public List<Flashcard> getFlashcardsByDifficulty(User user, Flashcard.Difficulty difficulty) {
         return flashcardRepository.findByUserAndDifficulty(user, difficulty);
     }
@@ -48,8 +147,76 @@ public class FlashcardService {
         return flashcardRepository.findByUserAndSearchTerm(user, searchTerm);
     }
     
-    public List<Flashcard> getRandomFlashcards(User user, int limit) {
-        return flashcardRepository.findRandomByUser(user, limit);
+    public List<FlashcardResponseDTO> getRandomFlashcards(User user, int limit) {
+        return flashcardRepository.findRandomByUser(user, limit).stream()
+                .map(FlashcardResponseDTO::new)
+                .toList();
+    }
+    
+    @Transactional(readOnly = true)
+    public List<FlashcardResponseDTO> getDueFlashcards(User user, int limit) {
+        return flashcardRepository.findDueByUser(user, LocalDateTime.now(), PageRequest.of(0, limit)).stream()
+                .map(FlashcardResponseDTO::new)
+                .toList();
+    }
+    
+    /**
+     * Records a review graded 0-5 and reschedules the card in the same transaction; empty when the
+     * card does not exist or belongs to someone else
+     */
+    public Optional<FlashcardResponseDTO> reviewFlashcard(Long id, User user, int quality, Integer timeSpentSeconds) {
+        Optional<Flashcard> flashcard = flashcardRepository.findWithDocumentById(id)
+                .filter(card -> card.getUser().getId().equals(user.getId()));
+        flashcard.ifPresent(card -> {
+            ReviewScheduler.review(card, quality, LocalDateTime.now());
+            studySessionRepository.save(new FlashcardStudySession((double) quality, timeSpentSeconds, card));
+            // Totals are unchanged, only the schedule fields in the lists move
+            collectionVersions.bump(user.getId(), CollectionVersions.Type.FLASHCARDS);
+        });
+        return flashcard.map(FlashcardResponseDTO::new);
+    }
+    
+    /**
+     * Hands a batch of study events to the write-behind buffer after one ownership query for the
+     * whole batch. Events for cards the user does not own are dropped; returns how many were kept.
+     * A scored event is a review graded like {@link #reviewFlashcard} and reschedules its card when
+     * the buffer writes it; an unscored one only records the time spent.
+     * Throws RejectedExecutionException when the buffer has no room, so the client can retry later.
+     */
+    @Transactional(readOnly = true)
+    public int recordStudyEvents(User user, List<StudyEventDTO> events) throws IOException {
+        if (events.size() > maxStudyEventsPerRequest) {
+            throw new IllegalArgumentException("At most " + maxStudyEventsPerRequest + " events per request");
+        }
+        Set<Long> ids = new HashSet<>();
+        for (StudyEventDTO event : events) {
+            if (event.getFlashcardId() == null) {
+                throw new IllegalArgumentException("flashcardId is required");
+            }
+            if (event.getScore() != null && !(event.getScore() >= ReviewScheduler.MIN_QUALITY
+                    && event.getScore() <= ReviewScheduler.MAX_QUALITY)) {
+                throw new IllegalArgumentException("score must be between " + ReviewScheduler.MIN_QUALITY
+                        + " and " + ReviewScheduler.MAX_QUALITY);
+            }
+            if (event.getTimeSpentSeconds() != null && event.getTimeSpentSeconds() < 0) {
+                throw new IllegalArgumentException("timeSpentSeconds must not be negative");
+            }
+            ids.add(event.getFlashcardId());
+        }
+        Set<Long> owned = ids.isEmpty() ? Set.of() : new HashSet<>(flashcardRepository.findIdsByUserAndIdIn(user, ids));
+        
+        LocalDateTime now = LocalDateTime.now();
+        List<StudyEventBuffer.StudyEvent> accepted = new ArrayList<>(events.size());
+        for (StudyEventDTO event : events) {
+            if (owned.contains(event.getFlashcardId())) {
+                LocalDateTime occurredAt = event.getOccurredAt() != null && event.getOccurredAt().isBefore(now) ? event.getOccurredAt() : now;
+                accepted.add(new StudyEventBuffer.StudyEvent(event.getFlashcardId(), event.getScore(), event.getTimeSpentSeconds(), occurredAt));
+            }
+        }
+        if (!studyEventBuffer.offer(accepted)) {
+            throw new RejectedExecutionException("Study event buffer is full");
+        }
+        return accepted.size();
     }
     
     public long getFlashcardCount(User user) {
@@ -61,22 +228,45 @@ public class FlashcardService {
     }
     
     public Flashcard createFlashcard(Flashcard flashcard) {
-        return flashcardRepository.save(flashcard);
+        Flashcard saved = flashcardRepository.save(flashcard);
+        markChanged(saved.getUser());
+        semanticSearch.indexFlashcards(List.of(saved));
+        return saved;
     }
     
     public Optional<Flashcard> getFlashcardById(Long id) {
         return flashcardRepository.findById(id);
     }
     
+    @Transactional(readOnly = true)
+    public Optional<FlashcardResponseDTO> getFlashcardResponse(Long id, User user) {
+        return flashcardRepository.findWithDocumentById(id)
+                .filter(flashcard -> flashcard.getUser().getId().equals(user.getId()))
+                .map(FlashcardResponseDTO::new);
+    }
+    
     public Flashcard updateFlashcard(Flashcard flashcard) {
-        return flashcardRepository.save(flashcard);
+        Flashcard saved = flashcardRepository.save(flashcard);
+        markChanged(saved.getUser());
+        semanticSearch.indexFlashcards(List.of(saved));
+        return saved;
     }
     
     public void deleteFlashcard(Long id) {
+        // deleteById loads the entity first, so this lookup is served from the persistence context
+        flashcardRepository.findById(id).ifPresent(flashcard -> markChanged(flashcard.getUser()));
         flashcardRepository.deleteById(id);
+        semanticSearch.removeFlashcard(id);
     }
     
     public List<Flashcard> generateFlashcardsFromDocument(Document document, User user) {
+        return generateFlashcardsFromDocument(document, user, null, null);
+    }
+    
+    /**
+     * Generates flashcards from the whole document, or only from pages fromPage..toPage when either is given
+     */
+    public List<Flashcard> generateFlashcardsFromDocument(Document document, User user, Integer fromPage, Integer toPage) {
         // Validate document is processed
         if (document.getProcessingStatus() != Document.ProcessingStatus.COMPLETED) {
             throw new IllegalStateException("Document must be processed before generating flashcards. Current status: " + document.getProcessingStatus());
@@ -87,35 +277,35 @@ public class FlashcardService {
             throw new IllegalStateException("Invalid file path: " + document.getFilePath() + ". Document must have a valid stored file.");
         }
         
-        // Extract content from the document file
+        boolean pageRange = fromPage != null || toPage != null;
+        
+        // Extract content from the document file, or slice the stored text for a page range
         String content;
         try {
-            System.out.println("=== FLASHCARD GENERATION START ===");
-            System.out.println("Document ID: " + document.getId());
-            System.out.println("Document title: " + document.getTitle());
-            System.out.println("Document file path: " + document.getFilePath());
-            System.out.println("Document file type: " + document.getFileType());
-            
-            System.out.println("Extracting real content from file...");
-            content = contentExtractor.extractContent(document.getFilePath());
+            if (pageRange) {
+                int first = fromPage != null ? fromPage : 1;
+                int last = toPage != null ? toPage : segmentService.getPageCount(document);
+                content = segmentService.getPageRangeText(document, first, last);
+            } else {
+                content = contentExtractor.extractContent(document.getFilePath());
+            }
             
             if (content == null || content.trim().isEmpty()) {
                 throw new IOException("Content extraction returned empty content");
             }
             
-            System.out.println("Content extraction successful, length: " + content.length());
+            logger.debug("Extracted {} chars from document {} for flashcards", content.length(), document.getId());
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error extracting content from document: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error extracting content from document {}: {}", document.getId(), e.getMessage());
             throw new RuntimeException("Failed to extract content from document: " + e.getMessage(), e);
         }
         
-        System.out.println("Generating flashcards using AI service...");
         List<Flashcard> flashcards = aiService.generateFlashcards(
                 content, 
                 document.getTitle()
         );
-        System.out.println("AI service generated " + flashcards.size() + " flashcards");
         
         // Set user and document for each flashcard
         for (Flashcard flashcard : flashcards) {
@@ -124,8 +314,9 @@ public class FlashcardService {
         }
         
         List<Flashcard> savedFlashcards = flashcardRepository.saveAll(flashcards);
-        System.out.println("Saved " + savedFlashcards.size() + " flashcards to database");
-        System.out.println("=== FLASHCARD GENERATION END ===");
+        markChanged(user);
+        semanticSearch.indexFlashcards(savedFlashcards);
+        logger.debug("Saved {} flashcards for document {}", savedFlashcards.size(), document.getId());
         
         return savedFlashcards;
     }
@@ -138,6 +329,17 @@ public class FlashcardService {
             flashcard.setUser(user);
         }
         
-        return flashcardRepository.saveAll(flashcards);
+        List<Flashcard> savedFlashcards = flashcardRepository.saveAll(flashcards);
+        markChanged(user);
+        semanticSearch.indexFlashcards(savedFlashcards);
+        return savedFlashcards;
+    }
+    
+    // Drops cached totals and moves the list ETag on for everything that changes what lists show
+    private void markChanged(User user) {
+        if (user != null) {
+            countCache.invalidate(user.getId());
+            collectionVersions.bump(user.getId(), CollectionVersions.Type.FLASHCARDS);
+        }
     }
 }
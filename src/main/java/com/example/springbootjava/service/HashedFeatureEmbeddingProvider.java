@@ -0,0 +1,96 @@
+package com.example.springbootjava.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Offline embedder using the hashing trick: words, word pairs and character trigrams are hashed
+ * into a fixed number of signed buckets. Trigrams let related word forms ("photosynthesis",
+ * "photosynthetic") land close together; it does not know synonyms the way a language model does.
+ */
+@Component
+@ConditionalOnProperty(name = "search.embedding.provider", havingValue = "hashed", matchIfMissing = true)
+public class HashedFeatureEmbeddingProvider implements EmbeddingProvider {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of",
+            "on", "or", "that", "the", "this", "to", "was", "were", "with");
+
+    @Value("${search.embedding.dimensions:256}")
+    private int dimensions;
+
+    public HashedFeatureEmbeddingProvider() {
+    }
+
+    public HashedFeatureEmbeddingProvider(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public long fingerprint() {
+        return ("hashed-v1:" + dimensions).hashCode();
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        List<String> words = words(text);
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            add(vector, "w:" + word, 1.0f);
+            if (i > 0) {
+                add(vector, "b:" + words.get(i - 1) + ' ' + word, 0.5f);
+            }
+            String padded = '^' + word + '$';
+            for (int j = 0; j + 3 <= padded.length(); j++) {
+                add(vector, "c:" + padded.substring(j, j + 3), 0.25f);
+            }
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+
+    private void add(float[] vector, String feature, float weight) {
+        int hash = mix(feature.hashCode());
+        // One hash picks the bucket, an independent bit picks the sign so collisions cancel out on average
+        int bucket = Math.floorMod(hash, dimensions);
+        vector[bucket] += (mix(hash ^ 0x5bd1e995) & 1) == 0 ? weight : -weight;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!STOP_WORDS.contains(word)) {
+                    words.add(word);
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,737 @@
+package com.example.springbootjava.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical navigable small world graph over unit-length vectors, kept in a memory-mapped file.
+ * Every node is a fixed-size record holding its key, two payload ints, its vector and its level-0
+ * neighbours, so the bulk of the index is paged in by the OS rather than held on the heap. The far
+ * smaller upper layers stay on the heap and are written to a sidecar file by {@link #flush()}.
+ * Searches share a read lock; inserts and deletes take the write lock.
+ */
+public class HnswIndex implements Closeable {
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int NODES_PER_SEGMENT = 16384;
+    private static final int DELETED = 1;
+
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_DIMENSIONS = 8;
+    private static final int H_M = 12;
+    private static final int H_FINGERPRINT = 16;
+    private static final int H_COUNT = 24;
+    private static final int H_ENTRY = 28;
+    private static final int H_MAX_LEVEL = 32;
+
+    private static final int R_KEY = 0;
+    private static final int R_LEVEL = 8;
+    private static final int R_FLAGS = 12;
+    private static final int R_PAYLOAD_A = 16;
+    private static final int R_PAYLOAD_B = 20;
+    private static final int R_VECTOR = 24;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final int dimensions;
+    private final int m;
+    private final int maxNeighbors0;
+    private final int efConstruction;
+    private final int recordBytes;
+    private final int neighborsOffset;
+    private final double levelMultiplier;
+    private final long fingerprint;
+
+    private final Map<Long, Integer> nodesByKey = new HashMap<>();
+    private final Map<Integer, int[][]> upperNeighbors = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ThreadLocal<VisitedSet> visited = ThreadLocal.withInitial(VisitedSet::new);
+    private final float[] scratch;
+
+    private int count;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deletedCount;
+
+    private HnswIndex(Path file, FileChannel channel, int dimensions, int m, int efConstruction, long fingerprint) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxNeighbors0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.fingerprint = fingerprint;
+        this.neighborsOffset = R_VECTOR + 4 * dimensions + 4;
+        this.recordBytes = neighborsOffset + 4 * maxNeighbors0;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.scratch = new float[dimensions];
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Creates an empty index, replacing any file at the path
+     */
+    public static HnswIndex create(Path file, int dimensions, int m, int efConstruction, long fingerprint) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.deleteIfExists(upperFile(file));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        HnswIndex index = new HnswIndex(file, channel, dimensions, m, efConstruction, fingerprint);
+        index.header.putInt(H_MAGIC, MAGIC);
+        index.header.putInt(H_VERSION, VERSION);
+        index.header.putInt(H_DIMENSIONS, dimensions);
+        index.header.putInt(H_M, m);
+        index.header.putLong(H_FINGERPRINT, fingerprint);
+        index.writeHeaderState();
+        return index;
+    }
+
+    /**
+     * Opens a flushed index, or returns null when the file is missing, from another embedder, or was not flushed
+     */
+    public static HnswIndex open(Path file, int dimensions, int efConstruction, long fingerprint) throws IOException {
+        if (!Files.exists(file) || !Files.exists(upperFile(file)) || Files.size(file) < HEADER_BYTES) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer probe = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        probe.order(ByteOrder.LITTLE_ENDIAN);
+        if (probe.getInt(H_MAGIC) != MAGIC || probe.getInt(H_VERSION) != VERSION
+                || probe.getInt(H_DIMENSIONS) != dimensions || probe.getLong(H_FINGERPRINT) != fingerprint) {
+            channel.close();
+            return null;
+        }
+
+        HnswIndex index = new HnswIndex(file, channel, dimensions, probe.getInt(H_M), efConstruction, fingerprint);
+        index.count = probe.getInt(H_COUNT);
+        index.entryPoint = probe.getInt(H_ENTRY);
+        index.maxLevel = probe.getInt(H_MAX_LEVEL);
+        if (!index.readUpperLayers()) {
+            index.close();
+            return null;
+        }
+        index.ensureCapacity(index.count);
+        for (int node = 0; node < index.count; node++) {
+            if (index.isDeleted(node)) {
+                index.deletedCount++;
+            } else {
+                index.nodesByKey.put(index.segment(node).getLong(index.base(node) + R_KEY), node);
+            }
+        }
+        return index;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long key) {
+        lock.readLock().lock();
+        try {
+            return nodesByKey.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a vector under a key; an existing entry for the key is replaced
+     */
+    public void upsert(long key, float[] vector, int payloadA, int payloadB) throws IOException {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer previous = nodesByKey.remove(key);
+            if (previous != null) {
+                markDeleted(previous);
+            }
+            nodesByKey.put(key, insert(key, vector, payloadA, payloadB));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean delete(long key) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodesByKey.remove(key);
+            if (node == null) {
+                return false;
+            }
+            markDeleted(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The k live entries closest to the query, most similar first; ef bounds the search beam (ef >= k)
+     */
+    public List<Hit> search(float[] query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || nodesByKey.isEmpty()) {
+                return List.of();
+            }
+            int entry = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                entry = greedyClosest(query, entry, level);
+            }
+            NodeQueue results = searchLayer(query, entry, Math.max(ef, k), 0, true);
+            while (results.size() > k) {
+                results.pop();
+            }
+            Hit[] hits = new Hit[results.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                float distance = results.topKey();
+                int node = results.pop();
+                MappedByteBuffer segment = segment(node);
+                int base = base(node);
+                hits[i] = new Hit(segment.getLong(base + R_KEY), segment.getInt(base + R_PAYLOAD_A),
+                        segment.getInt(base + R_PAYLOAD_B), 1 - distance);
+            }
+            return List.of(hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the upper layers and syncs the mapped records so the index can be reopened
+     */
+    public void flush() throws IOException {
+        lock.readLock().lock();
+        try {
+            writeHeaderState();
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            header.force();
+            Path upper = upperFile(file);
+            Path temp = upper.resolveSibling(upper.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                // The node count ties the sidecar to the record file it was written with
+                out.writeInt(count);
+                out.writeInt(upperNeighbors.size());
+                for (Map.Entry<Integer, int[][]> entry : upperNeighbors.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    for (int[] neighbors : entry.getValue()) {
+                        out.writeInt(neighbors[0]);
+                        for (int i = 1; i <= neighbors[0]; i++) {
+                            out.writeInt(neighbors[i]);
+                        }
+                    }
+                }
+            }
+            Files.move(temp, upper, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the live entries into a fresh index at the target path, dropping deleted nodes
+     */
+    public HnswIndex compactTo(Path target) throws IOException {
+        HnswIndex compacted = create(target, dimensions, m, efConstruction, fingerprint);
+        lock.readLock().lock();
+        try {
+            for (int node = 0; node < count; node++) {
+                if (isDeleted(node)) {
+                    continue;
+                }
+                MappedByteBuffer segment = segment(node);
+                int base = base(node);
+                float[] vector = new float[dimensions];
+                for (int i = 0; i < dimensions; i++) {
+                    vector[i] = segment.getFloat(base + R_VECTOR + 4 * i);
+                }
+                compacted.upsert(segment.getLong(base + R_KEY), vector,
+                        segment.getInt(base + R_PAYLOAD_A), segment.getInt(base + R_PAYLOAD_B));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        compacted.flush();
+        return compacted;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    static Path upperFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".upper");
+    }
+
+    private int insert(long key, float[] vector, int payloadA, int payloadB) throws IOException {
+        int node = count;
+        ensureCapacity(node + 1);
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+
+        MappedByteBuffer segment = segment(node);
+        int base = base(node);
+        segment.putLong(base + R_KEY, key);
+        segment.putInt(base + R_LEVEL, level);
+        segment.putInt(base + R_FLAGS, 0);
+        segment.putInt(base + R_PAYLOAD_A, payloadA);
+        segment.putInt(base + R_PAYLOAD_B, payloadB);
+        for (int i = 0; i < dimensions; i++) {
+            segment.putFloat(base + R_VECTOR + 4 * i, vector[i]);
+        }
+        segment.putInt(base + neighborsOffset - 4, 0);
+        if (level > 0) {
+            upperNeighbors.put(node, new int[level][m + 1]);
+        }
+
+        if (entryPoint < 0) {
+            count = node + 1;
+            entryPoint = node;
+            maxLevel = level;
+            writeHeaderState();
+            return node;
+        }
+
+        int entry = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            entry = greedyClosest(vector, entry, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeQueue candidates = searchLayer(vector, entry, efConstruction, l, false);
+            int size = candidates.size();
+            int[] nodes = new int[size];
+            float[] distances = new float[size];
+            for (int i = size - 1; i >= 0; i--) {
+                distances[i] = candidates.topKey();
+                nodes[i] = candidates.pop();
+            }
+            entry = nodes[0];
+
+            int[] selected = new int[m];
+            int selectedCount = selectNeighbors(nodes, distances, size, m, selected);
+            setNeighbors(node, l, selected, selectedCount);
+            for (int i = 0; i < selectedCount; i++) {
+                connect(selected[i], node, l);
+            }
+        }
+
+        count = node + 1;
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        writeHeaderState();
+        return node;
+    }
+
+    /**
+     * Adds a back-link, pruning the neighbour's list with the selection heuristic once it is full
+     */
+    private void connect(int from, int to, int level) {
+        int capacity = level == 0 ? maxNeighbors0 : m;
+        int existing = neighborCount(from, level);
+        if (existing < capacity) {
+            setNeighbor(from, level, existing, to);
+            setNeighborCount(from, level, existing + 1);
+            return;
+        }
+
+        float[] base = readVector(from, new float[dimensions]);
+        int[] nodes = new int[existing + 1];
+        float[] distances = new float[existing + 1];
+        for (int i = 0; i < existing; i++) {
+            nodes[i] = neighbor(from, level, i);
+        }
+        nodes[existing] = to;
+        for (int i = 0; i <= existing; i++) {
+            distances[i] = distance(base, nodes[i]);
+        }
+        sortByDistance(nodes, distances);
+        int[] selected = new int[capacity];
+        int selectedCount = selectNeighbors(nodes, distances, nodes.length, capacity, selected);
+        setNeighbors(from, level, selected, selectedCount);
+    }
+
+    /**
+     * HNSW neighbour heuristic: keep a candidate only if it is closer to the base than to any kept
+     * neighbour, which spreads links across clusters; remaining slots are filled with the closest rejects
+     */
+    private int selectNeighbors(int[] nodes, float[] distances, int size, int max, int[] selected) {
+        int count = 0;
+        boolean[] taken = new boolean[size];
+        for (int i = 0; i < size && count < max; i++) {
+            float[] candidate = readVector(nodes[i], scratch);
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (distance(candidate, selected[j]) < distances[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = nodes[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < size && count < max; i++) {
+            if (!taken[i]) {
+                selected[count++] = nodes[i];
+            }
+        }
+        return count;
+    }
+
+    private int greedyClosest(float[] query, int entry, int level) {
+        int current = entry;
+        float best = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int neighbors = neighborCount(current, level);
+            for (int i = 0; i < neighbors; i++) {
+                int candidate = neighbor(current, level, i);
+                float d = distance(query, candidate);
+                if (d < best) {
+                    best = d;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one layer; returns up to ef nodes in a max-heap on distance.
+     * With liveOnly, deleted nodes are still walked through but never returned.
+     */
+    private NodeQueue searchLayer(float[] query, int entry, int ef, int level, boolean liveOnly) {
+        VisitedSet seen = visited.get();
+        seen.reset(count + 1);
+        NodeQueue candidates = new NodeQueue(false);
+        NodeQueue results = new NodeQueue(true);
+
+        float entryDistance = distance(query, entry);
+        seen.add(entry);
+        candidates.push(entry, entryDistance);
+        if (!liveOnly || !isDeleted(entry)) {
+            results.push(entry, entryDistance);
+        }
+        while (candidates.size() > 0) {
+            if (results.size() >= ef && candidates.topKey() > results.topKey()) {
+                break;
+            }
+            int current = candidates.pop();
+            int neighbors = neighborCount(current, level);
+            for (int i = 0; i < neighbors; i++) {
+                int candidate = neighbor(current, level, i);
+                if (!seen.add(candidate)) {
+                    continue;
+                }
+                float d = distance(query, candidate);
+                if (results.size() < ef || d < results.topKey()) {
+                    candidates.push(candidate, d);
+                    if (!liveOnly || !isDeleted(candidate)) {
+                        results.push(candidate, d);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private float distance(float[] query, int node) {
+        MappedByteBuffer segment = segment(node);
+        int offset = base(node) + R_VECTOR;
+        float dot = 0;
+        for (int i = 0; i < dimensions; i++) {
+            dot += query[i] * segment.getFloat(offset + 4 * i);
+        }
+        return 1 - dot;
+    }
+
+    private float[] readVector(int node, float[] target) {
+        MappedByteBuffer segment = segment(node);
+        int offset = base(node) + R_VECTOR;
+        for (int i = 0; i < dimensions; i++) {
+            target[i] = segment.getFloat(offset + 4 * i);
+        }
+        return target;
+    }
+
+    private int neighborCount(int node, int level) {
+        if (level == 0) {
+            return segment(node).getInt(base(node) + neighborsOffset - 4);
+        }
+        return upperNeighbors.get(node)[level - 1][0];
+    }
+
+    private int neighbor(int node, int level, int index) {
+        if (level == 0) {
+            return segment(node).getInt(base(node) + neighborsOffset + 4 * index);
+        }
+        return upperNeighbors.get(node)[level - 1][index + 1];
+    }
+
+    private void setNeighbor(int node, int level, int index, int neighbor) {
+        if (level == 0) {
+            segment(node).putInt(base(node) + neighborsOffset + 4 * index, neighbor);
+        } else {
+            upperNeighbors.get(node)[level - 1][index + 1] = neighbor;
+        }
+    }
+
+    private void setNeighborCount(int node, int level, int neighbors) {
+        if (level == 0) {
+            segment(node).putInt(base(node) + neighborsOffset - 4, neighbors);
+        } else {
+            upperNeighbors.get(node)[level - 1][0] = neighbors;
+        }
+    }
+
+    private void setNeighbors(int node, int level, int[] neighbors, int size) {
+        for (int i = 0; i < size; i++) {
+            setNeighbor(node, level, i, neighbors[i]);
+        }
+        setNeighborCount(node, level, size);
+    }
+
+    private boolean isDeleted(int node) {
+        return (segment(node).getInt(base(node) + R_FLAGS) & DELETED) != 0;
+    }
+
+    private void markDeleted(int node) {
+        MappedByteBuffer segment = segment(node);
+        int base = base(node);
+        segment.putInt(base + R_FLAGS, segment.getInt(base + R_FLAGS) | DELETED);
+        deletedCount++;
+    }
+
+    private MappedByteBuffer segment(int node) {
+        return segments.get(node / NODES_PER_SEGMENT);
+    }
+
+    private int base(int node) {
+        return (node % NODES_PER_SEGMENT) * recordBytes;
+    }
+
+    private void ensureCapacity(int nodes) throws IOException {
+        long segmentBytes = (long) NODES_PER_SEGMENT * recordBytes;
+        while ((long) segments.size() * NODES_PER_SEGMENT < nodes) {
+            // Mapping past the end of the file grows it
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_BYTES + segments.size() * segmentBytes, segmentBytes);
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            segments.add(segment);
+        }
+    }
+
+    private void writeHeaderState() {
+        header.putInt(H_COUNT, count);
+        header.putInt(H_ENTRY, entryPoint);
+        header.putInt(H_MAX_LEVEL, maxLevel);
+    }
+
+    private boolean readUpperLayers() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(upperFile(file))))) {
+            if (in.readInt() != count) {
+                return false;
+            }
+            int nodes = in.readInt();
+            for (int n = 0; n < nodes; n++) {
+                int node = in.readInt();
+                int[][] levels = new int[in.readInt()][m + 1];
+                for (int[] neighbors : levels) {
+                    neighbors[0] = in.readInt();
+                    for (int i = 1; i <= neighbors[0]; i++) {
+                        neighbors[i] = in.readInt();
+                    }
+                }
+                upperNeighbors.put(node, levels);
+            }
+            return true;
+        }
+    }
+
+    private static void sortByDistance(int[] nodes, float[] distances) {
+        for (int i = 1; i < nodes.length; i++) {
+            int node = nodes[i];
+            float distance = distances[i];
+            int j = i - 1;
+            while (j >= 0 && distances[j] > distance) {
+                nodes[j + 1] = nodes[j];
+                distances[j + 1] = distances[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            distances[j + 1] = distance;
+        }
+    }
+
+    public static class Hit {
+        private final long key;
+        private final int payloadA;
+        private final int payloadB;
+        private final float similarity;
+
+        public Hit(long key, int payloadA, int payloadB, float similarity) {
+            this.key = key;
+            this.payloadA = payloadA;
+            this.payloadB = payloadB;
+            this.similarity = similarity;
+        }
+
+        public long getKey() { return key; }
+        public int getPayloadA() { return payloadA; }
+        public int getPayloadB() { return payloadB; }
+        public float getSimilarity() { return similarity; }
+    }
+
+    /**
+     * Binary heap of (node, distance) on primitive arrays; a max-heap keeps the worst result on top
+     */
+    private static class NodeQueue {
+        private final boolean max;
+        private int[] nodes = new int[64];
+        private float[] keys = new float[64];
+        private int size;
+
+        NodeQueue(boolean max) {
+            this.max = max;
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topKey() {
+            return keys[0];
+        }
+
+        void push(int node, float key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(key, keys[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastKey = keys[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(keys[child + 1], keys[child])) {
+                    child++;
+                }
+                if (!before(keys[child], lastKey)) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            keys[i] = lastKey;
+            return top;
+        }
+
+        private boolean before(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+
+    /**
+     * Visited marks by generation, so clearing between searches is a counter bump instead of a fill
+     */
+    private static class VisitedSet {
+        private int[] marks = new int[1024];
+        private int generation;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        boolean add(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
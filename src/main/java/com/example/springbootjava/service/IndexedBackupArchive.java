@@ -0,0 +1,451 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.service.DatabaseBackupService.DatabaseBackupData;
+import com.example.springbootjava.service.DatabaseBackupService.UserBackupData;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary container for full backups that can be read one user at a time. Rows are grouped by
+ * section and owning user into deflate-compressed blocks of newline-separated JSON records, and an
+ * index of fixed-width entries sorted by user id and section locates every block. Reading one user
+ * binary-searches the index on disk and seeks to that user's blocks only, so its cost does not grow
+ * with the number of users. Layout: magic, blocks, deflated JSON header, index, then header offset,
+ * header length, index offset, entry count and magic again, so both are found from the end of the
+ * file. Archives of the first version, with a deflated JSON footer listing every block, still read.
+ */
+@Component
+public class IndexedBackupArchive {
+
+    public static final String EXTENSION = ".bkp";
+
+    private static final byte[] MAGIC = "SBKPIDX2".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MAGIC_V1 = "SBKPIDX1".getBytes(StandardCharsets.US_ASCII);
+    private static final int TRAILER_LENGTH = Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + 8;
+    private static final int TRAILER_LENGTH_V1 = Long.BYTES + Integer.BYTES + 8;
+    // userId, section, offset, length, rows, crc
+    private static final int ENTRY_LENGTH = Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES;
+    // Entries read at a time once the search has found a user's first one
+    private static final int ENTRY_BATCH = 64;
+    private static final TypeReference<Map<String, String>> HEADER = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Object>> ROW = new TypeReference<>() {};
+
+    private static final List<String> SECTIONS = List.of("users", "documents", "flashcards", "quizzes", "quizQuestions",
+            "quizAnswers", "quizAttempts", "quizAttemptAnswers", "flashcardStudySessions");
+
+    // Rows whose owner could not be resolved; restored by full restores only
+    private static final long NO_OWNER = 0L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Uncompressed size at which a user's block in a section is closed
+    @Value("${backup.indexed.block-size:262144}")
+    private int blockSize;
+
+    // Uncompressed bytes held across all users of a section before every open block is written out
+    @Value("${backup.indexed.pending-bytes:67108864}")
+    private long pendingBytesLimit;
+
+    public static boolean isArchive(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] magic = in.readNBytes(MAGIC.length);
+            return Arrays.equals(magic, MAGIC) || Arrays.equals(magic, MAGIC_V1);
+        }
+    }
+
+    /**
+     * Converts a full JSON backup into an archive. Sections must come parents first, as backups
+     * write them, so each child row can be attributed to the user that owns its parent.
+     */
+    public void write(Path jsonBackup, Path target) throws IOException {
+        Footer footer = new Footer();
+        Map<String, Map<Long, Long>> owners = new HashMap<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(jsonBackup.toFile());
+             CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+            out.write(MAGIC);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Not a backup file: " + jsonBackup);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (SECTIONS.contains(field) && value == JsonToken.START_ARRAY) {
+                    writeSection(field, parser, owners, footer, out);
+                } else if ("backupTimestamp".equals(field) || "version".equals(field) || "type".equals(field)) {
+                    footer.header.put(field, value == JsonToken.VALUE_NULL ? null : parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            long headerOffset = out.position;
+            byte[] headerBytes = deflate(objectMapper.writeValueAsBytes(footer.header));
+            out.write(headerBytes);
+
+            long indexOffset = out.position;
+            // Blocks of a user and section keep their file order, which is the order of their rows
+            footer.blocks.sort(Comparator.comparingLong((BlockEntry block) -> block.userId)
+                    .thenComparingInt(block -> SECTIONS.indexOf(block.section))
+                    .thenComparingLong(block -> block.offset));
+            DataOutputStream index = new DataOutputStream(out);
+            for (BlockEntry block : footer.blocks) {
+                index.writeLong(block.userId);
+                index.writeInt(SECTIONS.indexOf(block.section));
+                index.writeLong(block.offset);
+                index.writeInt(block.length);
+                index.writeInt(block.rows);
+                index.writeLong(block.crc);
+            }
+            index.writeLong(headerOffset);
+            index.writeInt(headerBytes.length);
+            index.writeLong(indexOffset);
+            index.writeInt(footer.blocks.size());
+            index.write(MAGIC);
+            index.flush();
+        }
+    }
+
+    /**
+     * Reads every section of the archive
+     */
+    public DatabaseBackupData readAll(Path archive) throws IOException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            Footer footer = readFooter(channel);
+            Map<String, List<Map<String, Object>>> sections = new HashMap<>();
+            for (BlockEntry block : allBlocks(channel, footer)) {
+                sections.computeIfAbsent(block.section, section -> new ArrayList<>()).addAll(readBlock(channel, block));
+            }
+            // Blocks are grouped by user; put each section back in id order
+            sections.values().forEach(rows -> rows.sort(Comparator.comparingLong(row -> ((Number) row.get("id")).longValue())));
+
+            DatabaseBackupData data = new DatabaseBackupData();
+            applyHeader(footer, data);
+            data.setUsers(sections.getOrDefault("users", new ArrayList<>()));
+            data.setDocuments(sections.getOrDefault("documents", new ArrayList<>()));
+            data.setFlashcards(sections.getOrDefault("flashcards", new ArrayList<>()));
+            data.setQuizzes(sections.getOrDefault("quizzes", new ArrayList<>()));
+            data.setQuizQuestions(sections.getOrDefault("quizQuestions", new ArrayList<>()));
+            data.setQuizAnswers(sections.getOrDefault("quizAnswers", new ArrayList<>()));
+            data.setQuizAttempts(sections.getOrDefault("quizAttempts", new ArrayList<>()));
+            data.setQuizAttemptAnswers(sections.getOrDefault("quizAttemptAnswers", new ArrayList<>()));
+            data.setFlashcardStudySessions(sections.getOrDefault("flashcardStudySessions", new ArrayList<>()));
+            return data;
+        }
+    }
+
+    /**
+     * Reads one user's rows, touching only the header, about log2(blocks) index entries and that
+     * user's blocks
+     */
+    public UserBackupData readUser(Path archive, Long userId) throws IOException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            Footer footer = readFooter(channel);
+            Map<String, List<Map<String, Object>>> sections = new HashMap<>();
+            for (String section : SECTIONS) {
+                sections.put(section, new ArrayList<>());
+            }
+            for (BlockEntry block : userBlocks(channel, footer, userId)) {
+                sections.get(block.section).addAll(readBlock(channel, block));
+            }
+
+            UserBackupData data = new UserBackupData();
+            data.setBackupTimestamp(parseTimestamp(footer.header.get("backupTimestamp")));
+            data.setVersion(footer.header.get("version"));
+            data.setUserId(userId);
+            data.setUser(sections.get("users").isEmpty() ? null : sections.get("users").get(0));
+            data.setDocuments(sections.get("documents"));
+            data.setFlashcards(sections.get("flashcards"));
+            data.setQuizzes(sections.get("quizzes"));
+            data.setQuizQuestions(sections.get("quizQuestions"));
+            data.setQuizAnswers(sections.get("quizAnswers"));
+            data.setQuizAttempts(sections.get("quizAttempts"));
+            data.setQuizAttemptAnswers(sections.get("quizAttemptAnswers"));
+            data.setFlashcardStudySessions(sections.get("flashcardStudySessions"));
+            return data;
+        }
+    }
+
+    private void writeSection(String section, JsonParser parser, Map<String, Map<Long, Long>> owners,
+                              Footer footer, CountingOutputStream out) throws IOException {
+        Map<Long, ByteArrayOutputStream> pending = new LinkedHashMap<>();
+        Map<Long, Integer> pendingRows = new HashMap<>();
+        long pendingBytes = 0;
+        Map<Long, Long> sectionOwners = owners.computeIfAbsent(section, name -> new HashMap<>());
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Map<String, Object> row = parser.readValueAs(ROW);
+            Long id = toLong(row.get("id"));
+            long owner = ownerOf(section, row, owners);
+            if (id != null) {
+                sectionOwners.put(id, owner);
+            }
+
+            ByteArrayOutputStream buffer = pending.computeIfAbsent(owner, key -> new ByteArrayOutputStream());
+            int before = buffer.size();
+            objectMapper.writeValue(buffer, row);
+            buffer.write('\n');
+            pendingBytes += buffer.size() - before;
+            pendingRows.merge(owner, 1, Integer::sum);
+
+            if (buffer.size() >= blockSize) {
+                pendingBytes -= buffer.size();
+                writeBlock(section, owner, buffer, pendingRows.remove(owner), footer, out);
+                pending.remove(owner);
+            } else if (pendingBytes >= pendingBytesLimit) {
+                // Bounds memory on sections with many small users, at the cost of extra blocks
+                for (Map.Entry<Long, ByteArrayOutputStream> entry : pending.entrySet()) {
+                    writeBlock(section, entry.getKey(), entry.getValue(), pendingRows.remove(entry.getKey()), footer, out);
+                }
+                pending.clear();
+                pendingBytes = 0;
+            }
+        }
+        for (Map.Entry<Long, ByteArrayOutputStream> entry : pending.entrySet()) {
+            writeBlock(section, entry.getKey(), entry.getValue(), pendingRows.remove(entry.getKey()), footer, out);
+        }
+    }
+
+    // The user a row belongs to, as in user backups: the owner of the row or of its parent
+    private static long ownerOf(String section, Map<String, Object> row, Map<String, Map<Long, Long>> owners) {
+        Long owner;
+        switch (section) {
+            case "users":
+                owner = toLong(row.get("id"));
+                break;
+            case "quizQuestions":
+                owner = owners.getOrDefault("quizzes", Map.of()).get(toLong(row.get("quizId")));
+                break;
+            case "quizAnswers":
+                owner = owners.getOrDefault("quizQuestions", Map.of()).get(toLong(row.get("questionId")));
+                break;
+            case "quizAttemptAnswers":
+                owner = owners.getOrDefault("quizAttempts", Map.of()).get(toLong(row.get("attemptId")));
+                break;
+            case "flashcardStudySessions":
+                owner = owners.getOrDefault("flashcards", Map.of()).get(toLong(row.get("flashcardId")));
+                break;
+            default:
+                owner = toLong(row.get("userId"));
+        }
+        return owner != null ? owner : NO_OWNER;
+    }
+
+    private static void writeBlock(String section, long userId, ByteArrayOutputStream records, int rows,
+                                   Footer footer, CountingOutputStream out) throws IOException {
+        byte[] raw = records.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        byte[] compressed = deflate(raw);
+
+        BlockEntry block = new BlockEntry();
+        block.section = section;
+        block.userId = userId;
+        block.offset = out.position;
+        block.length = compressed.length;
+        block.rows = rows;
+        block.crc = crc.getValue();
+        out.write(compressed);
+        footer.blocks.add(block);
+    }
+
+    private List<Map<String, Object>> readBlock(FileChannel channel, BlockEntry block) throws IOException {
+        byte[] raw = inflate(readFully(channel, block.offset, block.length));
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if (crc.getValue() != block.crc) {
+            throw new IOException("Corrupt " + block.section + " block at offset " + block.offset);
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(block.rows);
+        try (MappingIterator<Map<String, Object>> records = objectMapper.readerFor(ROW).readValues(raw)) {
+            while (records.hasNext()) {
+                rows.add(records.next());
+            }
+        }
+        return rows;
+    }
+
+    // The header, and where the index is; a first-version footer comes with every block already listed
+    private Footer readFooter(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < MAGIC.length + TRAILER_LENGTH_V1) {
+            throw new IOException("Truncated backup archive");
+        }
+        byte[] magic = readFully(channel, size - MAGIC.length, MAGIC.length);
+        if (Arrays.equals(magic, MAGIC_V1)) {
+            ByteBuffer trailer = ByteBuffer.wrap(readFully(channel, size - TRAILER_LENGTH_V1, TRAILER_LENGTH_V1));
+            long footerOffset = trailer.getLong();
+            int footerLength = trailer.getInt();
+            Footer footer = objectMapper.readValue(inflate(readFully(channel, footerOffset, footerLength)), Footer.class);
+            footer.indexOffset = -1;
+            return footer;
+        }
+        if (!Arrays.equals(magic, MAGIC) || size < MAGIC.length + TRAILER_LENGTH) {
+            throw new IOException("Backup archive has no footer; it was not written completely");
+        }
+        ByteBuffer trailer = ByteBuffer.wrap(readFully(channel, size - TRAILER_LENGTH, TRAILER_LENGTH));
+        long headerOffset = trailer.getLong();
+        int headerLength = trailer.getInt();
+        Footer footer = new Footer();
+        footer.indexOffset = trailer.getLong();
+        footer.entryCount = trailer.getInt();
+        if (footer.indexOffset + (long) footer.entryCount * ENTRY_LENGTH != size - TRAILER_LENGTH) {
+            throw new IOException("Backup archive index does not match its trailer");
+        }
+        footer.header = objectMapper.readValue(inflate(readFully(channel, headerOffset, headerLength)), HEADER);
+        return footer;
+    }
+
+    private static List<BlockEntry> allBlocks(FileChannel channel, Footer footer) throws IOException {
+        if (footer.indexOffset < 0) {
+            return footer.blocks;
+        }
+        List<BlockEntry> blocks = new ArrayList<>(footer.entryCount);
+        for (int next = 0; next < footer.entryCount; next += ENTRY_BATCH) {
+            blocks.addAll(readEntries(channel, footer, next, Math.min(ENTRY_BATCH, footer.entryCount - next)));
+        }
+        return blocks;
+    }
+
+    private static List<BlockEntry> userBlocks(FileChannel channel, Footer footer, long userId) throws IOException {
+        if (footer.indexOffset < 0) {
+            return footer.blocks.stream().filter(block -> block.userId == userId).toList();
+        }
+        // First entry of the user, or where it would be
+        int low = 0;
+        int high = footer.entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long entryUser = ByteBuffer.wrap(readFully(channel, footer.indexOffset + (long) middle * ENTRY_LENGTH, Long.BYTES)).getLong();
+            if (entryUser < userId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<BlockEntry> blocks = new ArrayList<>();
+        for (int next = low; next < footer.entryCount; next += ENTRY_BATCH) {
+            for (BlockEntry block : readEntries(channel, footer, next, Math.min(ENTRY_BATCH, footer.entryCount - next))) {
+                if (block.userId != userId) {
+                    return blocks;
+                }
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    private static List<BlockEntry> readEntries(FileChannel channel, Footer footer, int first, int count) throws IOException {
+        ByteBuffer entries = ByteBuffer.wrap(readFully(channel, footer.indexOffset + (long) first * ENTRY_LENGTH, count * ENTRY_LENGTH));
+        List<BlockEntry> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BlockEntry block = new BlockEntry();
+            block.userId = entries.getLong();
+            int section = entries.getInt();
+            if (section < 0 || section >= SECTIONS.size()) {
+                throw new IOException("Corrupt backup archive index entry " + (first + i));
+            }
+            block.section = SECTIONS.get(section);
+            block.offset = entries.getLong();
+            block.length = entries.getInt();
+            block.rows = entries.getInt();
+            block.crc = entries.getLong();
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    private static byte[] readFully(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Backup archive ends inside a block");
+            }
+        }
+        return buffer.array();
+    }
+
+    private static byte[] deflate(byte[] raw) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+            out.write(raw);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] compressed) throws IOException {
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void applyHeader(Footer footer, DatabaseBackupData data) {
+        data.setBackupTimestamp(parseTimestamp(footer.header.get("backupTimestamp")));
+        data.setVersion(footer.header.get("version"));
+        String type = footer.header.get("type");
+        data.setType(type != null ? type : DatabaseBackupData.FULL);
+    }
+
+    private static LocalDateTime parseTimestamp(String value) {
+        return value != null ? LocalDateTime.parse(value) : null;
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? Long.valueOf(number.longValue()) : null;
+    }
+
+    // Written as JSON by the first version only; the index fields are not part of it
+    static class Footer {
+        public Map<String, String> header = new HashMap<>();
+        public List<BlockEntry> blocks = new ArrayList<>();
+        // Where the index starts, or -1 when blocks holds every entry
+        long indexOffset;
+        int entryCount;
+    }
+
+    static class BlockEntry {
+        public String section;
+        public long userId;
+        public long offset;
+        public int length;
+        public int rows;
+        public long crc;
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long position;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+    }
+}
@@ -1,23 +1,42 @@
 package com.example.springbootjava.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Upload policy (allowed types and sizes, file naming, per-user quotas) in front of the configured
+ * {@link StorageBackend}, which holds the bytes. Stored paths keep the "uploads/user_{id}/..." form
+ * whatever the backend.
+ */
 @Service
 public class LocalFileStorageService {
     
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileStorageService.class);
+    
+    @Autowired
+    private StorageUsageService usageService;
+    
+    @Autowired
+    private StorageBackend storageBackend;
+    
     @Value("${document.storage.local.base-path:./uploads}")
     private String basePath;
     
@@ -27,69 +46,80 @@ public class LocalFileStorageService {
     @Value("${document.storage.local.allowed-extensions:pdf,doc,docx,txt,ppt,pptx}")
     private String allowedExtensions;
     
+    // How long a download URL handed to a client stays valid, for backends that offer them
+    @Value("${document.storage.download-url-ttl-seconds:300}")
+    private long downloadUrlTtlSeconds;
+    
     private static final List<String> ALLOWED_EXTENSIONS_LIST = Arrays.asList(
         "pdf", "doc", "docx", "txt", "ppt", "pptx"
     );
     
+    /**
+     * Validates, reserves quota for and stores an upload. Call it outside a transaction: the quota
+     * reservation commits on its own so no row lock is held while the bytes are transferred.
+     */
     public String storeFile(MultipartFile file, Long userId) throws IOException {
         // Validate file
         validateFile(file);
         
-        // Create user-specific directory
-        Path userDir = createUserDirectory(userId);
+        // Count the file against the user's quota before writing it; given back if the write fails
+        usageService.reserve(userId, file.getSize());
         
-        // Generate unique filename
+        // Generate unique filename in the user's directory
         String originalFilename = file.getOriginalFilename();
         String extension = getFileExtension(originalFilename);
-        String uniqueFilename = generateUniqueFilename(originalFilename, extension);
+        String key = "user_" + userId + "/" + generateUniqueFilename(originalFilename, extension);
         
-        // Store file
-        Path filePath = userDir.resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        // Stream the upload to the backend
+        try (InputStream content = file.getInputStream()) {
+            storageBackend.put(key, content, file.getSize(), getContentType(key));
+        } catch (IOException | RuntimeException e) {
+            usageService.release(userId, file.getSize());
+            throw e;
+        }
         
-        // Return relative path for database storage (normalize to forward slashes for cross-platform compatibility)
-        String relativePath = Paths.get("uploads", "user_" + userId, uniqueFilename).toString();
-        // Normalize to forward slashes for consistent storage
-        return relativePath.replace('\\', '/');
+        // Path for database storage, always with forward slashes
+        return "uploads/" + key;
     }
     
-    private String normalizePath(String filePath) {
-        if (filePath == null) {
-            return null;
-        }
-        // Normalize path separators to forward slashes for cross-platform compatibility
-        // Paths.get() will handle the conversion to the correct separator for the OS
-        return filePath.replace('\\', '/');
+    /**
+     * Location on disk of a path as stored in {@code Document.filePath}; only meaningful with the
+     * local backend
+     */
+    public Path resolvePath(String filePath) {
+        return Paths.get(basePath, StorageBackend.keyOf(filePath));
     }
     
-    public byte[] retrieveFile(String filePath) throws IOException {
-        String normalizedPath = normalizePath(filePath);
-        // Remove "uploads/" prefix if present
-        if (normalizedPath.startsWith("uploads/")) {
-            normalizedPath = normalizedPath.substring(8);
-        }
-        Path fullPath = Paths.get(basePath, normalizedPath);
-        if (!Files.exists(fullPath)) {
-            throw new IOException("File not found: " + filePath);
-        }
-        return Files.readAllBytes(fullPath);
+    /**
+     * Streams a stored file; the caller closes the stream
+     */
+    public InputStream openFile(String filePath) throws IOException {
+        return storageBackend.get(StorageBackend.keyOf(filePath));
+    }
+    
+    /**
+     * A short-lived URL the client can fetch the file from directly, when the backend offers one
+     */
+    public Optional<URI> getDownloadUrl(String filePath, String contentDisposition) throws IOException {
+        return storageBackend.presignedDownloadUrl(StorageBackend.keyOf(filePath), Duration.ofSeconds(downloadUrlTtlSeconds),
+                getContentType(filePath), contentDisposition);
     }
     
     public boolean deleteFile(String filePath) {
         try {
-            String normalizedPath = normalizePath(filePath);
-            // Remove "uploads/" prefix if present
-            if (normalizedPath.startsWith("uploads/")) {
-                normalizedPath = normalizedPath.substring(8);
-            }
-            Path fullPath = Paths.get(basePath, normalizedPath);
-            if (Files.exists(fullPath)) {
-                Files.delete(fullPath);
-                return true;
+            String key = StorageBackend.keyOf(filePath);
+            long size = storageBackend.size(key);
+            storageBackend.delete(key);
+            Path directory = Paths.get(key).getParent();
+            Long owner = directory != null ? StorageUsageService.userIdOf(directory) : null;
+            if (owner != null) {
+                usageService.record(owner, -size, -1);
             }
+            return true;
+        } catch (NoSuchFileException e) {
             return false;
         } catch (IOException e) {
-            System.err.println("Error deleting file: " + e.getMessage());
+            logger.warn("Error deleting file {}", filePath, e);
             return false;
         }
     }
@@ -98,26 +128,16 @@ public class LocalFileStorageService {
         if (filePath == null) {
             return false;
         }
-        String normalizedPath = normalizePath(filePath);
-        // Remove "uploads/" prefix if present
-        if (normalizedPath.startsWith("uploads/")) {
-            normalizedPath = normalizedPath.substring(8);
+        try {
+            return storageBackend.exists(StorageBackend.keyOf(filePath));
+        } catch (IOException e) {
+            logger.warn("Error checking file {}", filePath, e);
+            return false;
         }
-        Path fullPath = Paths.get(basePath, normalizedPath);
-        return Files.exists(fullPath);
     }
     
     public long getFileSize(String filePath) throws IOException {
-        String normalizedPath = normalizePath(filePath);
-        // Remove "uploads/" prefix if present
-        if (normalizedPath.startsWith("uploads/")) {
-            normalizedPath = normalizedPath.substring(8);
-        }
-        Path fullPath = Paths.get(basePath, normalizedPath);
-        if (!Files.exists(fullPath)) {
-            throw new IOException("File not found: " + filePath);
-        }
-        return Files.size(fullPath);
+        return storageBackend.size(StorageBackend.keyOf(filePath));
     }
     
     public String getContentType(String filePath) {
@@ -163,14 +183,6 @@ public class LocalFileStorageService {
         }
     }
     
-    private Path createUserDirectory(Long userId) throws IOException {
-        Path userDir = Paths.get(basePath, "user_" + userId);
-        if (!Files.exists(userDir)) {
-            Files.createDirectories(userDir);
-        }
-        return userDir;
-    }
-    
     private String generateUniqueFilename(String originalFilename, String extension) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
         String uuid = UUID.randomUUID().toString().substring(0, 8);
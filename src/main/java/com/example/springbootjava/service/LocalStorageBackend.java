@@ -0,0 +1,109 @@
+package com.example.springbootjava.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Files in a directory on local disk (document.storage.local.base-path). Only usable by a single
+ * application instance, or several sharing one file system.
+ */
+@Component
+@ConditionalOnProperty(name = "document.storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalStorageBackend implements StorageBackend {
+
+    @Value("${document.storage.local.base-path:./uploads}")
+    private String basePath;
+
+    @Override
+    public void put(String key, InputStream content, long length, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Files.copy(content, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public Map<String, Long> list(String directory) throws IOException {
+        Map<String, Long> files = new HashMap<>();
+        Path root = root();
+        Path dir = resolve(directory);
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    files.put(root.relativize(file).toString().replace('\\', '/'), attrs.size());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // Deleted while walking
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    @Override
+    public Optional<URI> presignedDownloadUrl(String key, Duration ttl, String contentType, String contentDisposition) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    private Path root() {
+        return Paths.get(basePath).toAbsolutePath().normalize();
+    }
+
+    // Keys never resolve outside the base path
+    private Path resolve(String key) {
+        Path root = root();
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Storage key outside the storage root: " + key);
+        }
+        return path;
+    }
+}
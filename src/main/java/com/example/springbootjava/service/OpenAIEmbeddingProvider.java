@@ -0,0 +1,62 @@
+package com.example.springbootjava.service;
+
+import com.theokanning.openai.embedding.Embedding;
+import com.theokanning.openai.embedding.EmbeddingRequest;
+import com.theokanning.openai.service.OpenAiService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model-based embeddings through the OpenAI embeddings API
+ */
+@Component
+@ConditionalOnProperty(name = "search.embedding.provider", havingValue = "openai")
+public class OpenAIEmbeddingProvider implements EmbeddingProvider {
+
+    @Autowired
+    private OpenAiService openAiService;
+
+    @Value("${search.embedding.openai-model:text-embedding-ada-002}")
+    private String model;
+
+    @Value("${search.embedding.dimensions:1536}")
+    private int dimensions;
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public long fingerprint() {
+        return ("openai:" + model + ":" + dimensions).hashCode();
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return embedAll(List.of(text)).get(0);
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<Embedding> embeddings = openAiService.createEmbeddings(EmbeddingRequest.builder()
+                .model(model)
+                .input(texts)
+                .build()).getData();
+        float[][] vectors = new float[texts.size()][];
+        for (Embedding embedding : embeddings) {
+            List<Double> values = embedding.getEmbedding();
+            float[] vector = new float[values.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = values.get(i).floatValue();
+            }
+            vectors[embedding.getIndex()] = EmbeddingProvider.normalize(vector);
+        }
+        return new ArrayList<>(List.of(vectors));
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.springbootjava.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts text page by page (PDF) or slide by slide (PPTX). Documents with at least
+ * {@code document.extraction.parallel.min-pages} pages are split into page ranges that run on a
+ * fork/join pool and are reassembled in order; smaller documents stay on the calling thread.
+ * PDFs are read from the file with temp-file scratch space, never copied into memory as a whole.
+ */
+@Component
+public class PageTextExtractor {
+
+    private static final String DRAWINGML_NS = "http://schemas.openxmlformats.org/drawingml/2006/main";
+    private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    @Value("${document.extraction.parallel.min-pages:40}")
+    private int minPagesForParallel;
+
+    @Value("${document.extraction.parallel.pages-per-task:8}")
+    private int pagesPerTask;
+
+    @Value("${document.extraction.parallel.threads:0}")
+    private int parallelThreads;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelThreads > 0 ? parallelThreads : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public boolean supports(String format) {
+        return "pdf".equals(format) || "pptx".equals(format);
+    }
+
+    public boolean isParallelCandidate(int pageCount) {
+        return pageCount >= minPagesForParallel && pool.getParallelism() > 1;
+    }
+
+    /**
+     * Number of pages (PDF) or slides (PPTX)
+     */
+    public int countPages(Path file, String format) throws IOException {
+        if ("pdf".equals(format)) {
+            try (PDDocument document = loadPdf(file)) {
+                return document.getNumberOfPages();
+            }
+        }
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            return slideEntries(zip).size();
+        }
+    }
+
+    /**
+     * Extracts per-page text in page order, stopping once maxChars have been collected
+     */
+    public PageText extract(Path file, String format, int maxChars, BooleanSupplier cancelled) throws IOException {
+        if (!supports(format)) {
+            throw new IllegalArgumentException("Page-aware extraction is not available for " + format);
+        }
+        return "pdf".equals(format)
+                ? extractPdf(file, maxChars, cancelled)
+                : extractPptx(file, maxChars, cancelled, false);
+    }
+
+    /**
+     * Like {@link #extract}, where that costs no more than the caller's own parse; returns null
+     * otherwise, and the caller parses the file as usual. A PDF has to be loaded to count its pages,
+     * so it is always extracted from that load, on the calling thread when it is small. A deck's
+     * slides are counted from the zip directory, so only decks large enough to split are extracted.
+     */
+    public PageText tryExtract(Path file, String format, int maxChars, BooleanSupplier cancelled) throws IOException {
+        if (!supports(format)) {
+            return null;
+        }
+        return "pdf".equals(format)
+                ? extractPdf(file, maxChars, cancelled)
+                : extractPptx(file, maxChars, cancelled, true);
+    }
+
+    private PageText extractPdf(Path file, int maxChars, BooleanSupplier cancelled) throws IOException {
+        // PDDocument is not thread-safe, so each range borrows a copy no other worker is using;
+        // at most one copy per pool thread is ever loaded, and the first is the one that was counted
+        Queue<PDDocument> idle = new ConcurrentLinkedQueue<>();
+        List<PDDocument> loaded = Collections.synchronizedList(new ArrayList<>());
+        PDDocument first = loadPdf(file);
+        loaded.add(first);
+        try {
+            int pageCount = first.getNumberOfPages();
+            PageCollector collector = new PageCollector(pageCount, maxChars, cancelled);
+            if (!isParallelCandidate(pageCount)) {
+                extractPdfRange(first, 0, pageCount, collector);
+                return collector.toPageText(false);
+            }
+            idle.add(first);
+            invoke(new RangeTask(0, pageCount, (from, to) -> {
+                PDDocument document = idle.poll();
+                if (document == null) {
+                    document = loadPdf(file);
+                    loaded.add(document);
+                }
+                try {
+                    extractPdfRange(document, from, to, collector);
+                } finally {
+                    idle.add(document);
+                }
+            }));
+            return collector.toPageText(true);
+        } finally {
+            for (PDDocument document : loaded) {
+                document.close();
+            }
+        }
+    }
+
+    // Parses objects from the file as they are needed and keeps scratch data on disk
+    private static PDDocument loadPdf(Path file) throws IOException {
+        return PDDocument.load(file.toFile(), MemoryUsageSetting.setupTempFileOnly());
+    }
+
+    private void extractPdfRange(PDDocument document, int from, int to, PageCollector collector) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        for (int page = from; page < to && collector.shouldContinue(page); page++) {
+            stripper.setStartPage(page + 1);
+            stripper.setEndPage(page + 1);
+            collector.put(page, stripper.getText(document));
+        }
+    }
+
+    private PageText extractPptx(Path file, int maxChars, BooleanSupplier cancelled, boolean parallelOnly) throws IOException {
+        // java.util.zip.ZipFile allows concurrent reads of different entries
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            List<String> slides = slideEntries(zip);
+            if (parallelOnly && !isParallelCandidate(slides.size())) {
+                return null;
+            }
+            PageCollector collector = new PageCollector(slides.size(), maxChars, cancelled);
+            RangeWork work = (from, to) -> {
+                for (int slide = from; slide < to && collector.shouldContinue(slide); slide++) {
+                    collector.put(slide, slideText(zip, slides.get(slide), maxChars));
+                }
+            };
+            boolean parallel = isParallelCandidate(slides.size());
+            if (parallel) {
+                invoke(new RangeTask(0, slides.size(), work));
+            } else {
+                work.run(0, slides.size());
+            }
+            return collector.toPageText(parallel);
+        }
+    }
+
+    private void invoke(RangeTask task) throws IOException {
+        try {
+            pool.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Slide part names in presentation order, resolved through presentation.xml and its relationships
+     */
+    private List<String> slideEntries(ZipFile zip) throws IOException {
+        Map<String, String> targetsById = new HashMap<>();
+        parseXml(zip, "ppt/_rels/presentation.xml.rels", new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if ("Relationship".equals(localName) && attributes.getValue("Type") != null
+                        && attributes.getValue("Type").endsWith("/slide")) {
+                    targetsById.put(attributes.getValue("Id"), attributes.getValue("Target"));
+                }
+            }
+        });
+
+        List<String> slides = new ArrayList<>();
+        parseXml(zip, "ppt/presentation.xml", new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if ("sldId".equals(localName)) {
+                    String target = targetsById.get(attributes.getValue(RELATIONSHIPS_NS, "id"));
+                    if (target != null) {
+                        slides.add(target.startsWith("/") ? target.substring(1) : "ppt/" + target);
+                    }
+                }
+            }
+        });
+        return slides;
+    }
+
+    private String slideText(ZipFile zip, String entryName, int maxChars) throws IOException {
+        StringBuilder text = new StringBuilder();
+        parseXml(zip, entryName, new DefaultHandler() {
+            private boolean inText;
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                inText = DRAWINGML_NS.equals(uri) && "t".equals(localName);
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName) throws SAXException {
+                if (DRAWINGML_NS.equals(uri) && "p".equals(localName)) {
+                    text.append('\n');
+                }
+                inText = false;
+                if (text.length() > maxChars) {
+                    throw new SAXException("Slide text exceeds limit");
+                }
+            }
+
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                if (inText) {
+                    text.append(ch, start, length);
+                }
+            }
+        });
+        return text.toString();
+    }
+
+    private void parseXml(ZipFile zip, String entryName, DefaultHandler handler) throws IOException {
+        ZipEntry entry = zip.getEntry(entryName);
+        if (entry == null) {
+            throw new IOException("Missing part " + entryName);
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            newSaxParser().parse(in, handler);
+        } catch (SAXException e) {
+            // A slide that blows the limit keeps whatever text was collected before the abort
+            if (!"Slide text exceeds limit".equals(e.getMessage())) {
+                throw new IOException("Failed to parse " + entryName + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static SAXParser newSaxParser() throws IOException {
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newSAXParser();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Cannot create XML parser", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RangeWork {
+        void run(int from, int to) throws IOException;
+    }
+
+    /**
+     * Splits [from, to) in half until a range fits in pagesPerTask, then extracts it
+     */
+    private class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final RangeWork work;
+
+        RangeTask(int from, int to, RangeWork work) {
+            this.from = from;
+            this.to = to;
+            this.work = work;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= pagesPerTask) {
+                try {
+                    work.run(from, to);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, work), new RangeTask(middle, to, work));
+        }
+    }
+
+    /**
+     * Collects page texts by index; skips a page once the pages before it already fill the character
+     * budget, or throws when the caller cancels. Pages finish out of order, so the budget is only
+     * charged against earlier pages: text of later pages that finished first never stops an earlier one.
+     */
+    static class PageCollector {
+        private final String[] pages;
+        private final int maxChars;
+        private final BooleanSupplier cancelled;
+
+        PageCollector(int pageCount, int maxChars, BooleanSupplier cancelled) {
+            this.pages = new String[pageCount];
+            this.maxChars = maxChars;
+            this.cancelled = cancelled;
+        }
+
+        synchronized boolean shouldContinue(int page) {
+            if (cancelled.getAsBoolean()) {
+                throw new UncheckedIOException(new IOException("Extraction cancelled"));
+            }
+            long before = 0;
+            for (int i = 0; i < page; i++) {
+                if (pages[i] != null) {
+                    before += pages[i].length();
+                    if (before >= maxChars) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        synchronized void put(int page, String text) {
+            pages[page] = text;
+        }
+
+        synchronized PageText toPageText(boolean parallel) {
+            // Pages finish out of order, so the exact cut is applied on the ordered result
+            List<String> ordered = new ArrayList<>(pages.length);
+            int remaining = maxChars;
+            boolean truncated = false;
+            for (String page : pages) {
+                // A missing page was skipped because the budget ran out
+                if (page == null || remaining <= 0) {
+                    truncated = true;
+                    break;
+                }
+                if (page.length() > remaining) {
+                    ordered.add(page.substring(0, remaining));
+                    truncated = true;
+                    break;
+                }
+                ordered.add(page);
+                remaining -= page.length();
+            }
+            return new PageText(ordered, pages.length, truncated, parallel);
+        }
+    }
+
+    public static class PageText {
+        private final List<String> pages;
+        private final int totalPages;
+        private final boolean truncated;
+        private final boolean parallel;
+
+        public PageText(List<String> pages, int totalPages, boolean truncated, boolean parallel) {
+            this.pages = pages;
+            this.totalPages = totalPages;
+            this.truncated = truncated;
+            this.parallel = parallel;
+        }
+
+        public List<String> getPages() { return pages; }
+        public int getTotalPages() { return totalPages; }
+        public boolean isTruncated() { return truncated; }
+        public boolean isParallel() { return parallel; }
+
+        public String joined() {
+            return String.join("\n", pages);
+        }
+    }
+}
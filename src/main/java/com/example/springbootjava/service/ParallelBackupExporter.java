@@ -0,0 +1,346 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.service.DatabaseBackupService.DatabaseBackupData;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes a full backup by dumping every table over plain JDBC, each table split into id ranges.
+ * On PostgreSQL a coordinating REPEATABLE READ transaction exports its snapshot
+ * (pg_export_snapshot) and worker connections, opened outside the application pool, import it,
+ * so the ranges are read concurrently yet all see the same point in time. Other databases read
+ * every range on the coordinating connection. Each range goes to its own part file, and the
+ * parts are then stitched into the usual single-file backup JSON.
+ */
+@Component
+public class ParallelBackupExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelBackupExporter.class);
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-Fa-f]+(-[0-9A-Fa-f]+)+");
+
+    // In DatabaseBackupData order; columns pair an SQL expression over alias t with its JSON key
+    private static final List<Section> SECTIONS = List.of(
+            new Section("users", "users", "users t",
+                    "t.id", "id", "t.first_name", "firstName", "t.last_name", "lastName", "t.email", "email",
+                    "t.password", "password", "t.role", "role", "t.enabled", "enabled",
+                    "t.created_at", "createdAt", "t.updated_at", "updatedAt"),
+            new Section("documents", "documents", "documents t LEFT JOIN document_contents c ON c.document_id = t.id",
+                    "t.id", "id", "t.title", "title", "t.description", "description", "t.file_type", "fileType",
+                    "t.file_name", "fileName", "t.file_path", "filePath", "t.file_size", "fileSize", "c.content", "content",
+                    "t.summary", "summary", "t.processing_status", "processingStatus",
+                    "t.created_at", "createdAt", "t.updated_at", "updatedAt", "t.user_id", "userId"),
+            new Section("flashcards", "flashcards", "flashcards t",
+                    "t.id", "id", "t.question", "question", "t.answer", "answer", "t.category", "category",
+                    "t.difficulty", "difficulty", "t.created_at", "createdAt", "t.updated_at", "updatedAt",
+                    "t.next_review_at", "nextReviewAt", "t.interval_days", "intervalDays", "t.ease_factor", "easeFactor",
+                    "t.repetitions", "repetitions", "t.last_reviewed_at", "lastReviewedAt",
+                    "t.user_id", "userId", "t.document_id", "documentId"),
+            new Section("quizzes", "quizzes", "quizzes t",
+                    "t.id", "id", "t.title", "title", "t.description", "description",
+                    "t.time_limit_minutes", "timeLimitMinutes", "t.difficulty", "difficulty", "t.is_published", "isPublished",
+                    "t.created_at", "createdAt", "t.updated_at", "updatedAt", "t.user_id", "userId", "t.document_id", "documentId"),
+            new Section("quizQuestions", "quiz_questions", "quiz_questions t",
+                    "t.id", "id", "t.question_text", "questionText", "t.question_type", "questionType", "t.points", "points",
+                    "t.order_index", "order", "t.created_at", "createdAt", "t.updated_at", "updatedAt", "t.quiz_id", "quizId"),
+            new Section("quizAnswers", "quiz_answers", "quiz_answers t",
+                    "t.id", "id", "t.answer_text", "answerText", "t.is_correct", "isCorrect", "t.order_index", "order",
+                    "t.created_at", "createdAt", "t.updated_at", "updatedAt", "t.question_id", "questionId"),
+            new Section("quizAttempts", "quiz_attempts", "quiz_attempts t",
+                    "t.id", "id", "t.score", "score", "t.max_score", "maxScore", "t.time_spent_minutes", "timeSpentMinutes",
+                    "t.completed_at", "completedAt", "t.created_at", "createdAt", "t.updated_at", "updatedAt",
+                    "t.user_id", "userId", "t.quiz_id", "quizId"),
+            new Section("quizAttemptAnswers", "quiz_attempt_answers", "quiz_attempt_answers t",
+                    "t.id", "id", "t.selected_answer_id", "selectedAnswerId", "t.is_correct", "isCorrect",
+                    "t.created_at", "createdAt", "t.updated_at", "updatedAt", "t.attempt_id", "attemptId", "t.question_id", "questionId"),
+            new Section("flashcardStudySessions", "flashcard_study_sessions", "flashcard_study_sessions t",
+                    "t.id", "id", "t.score", "score", "t.time_spent_seconds", "timeSpentSeconds",
+                    "t.created_at", "createdAt", "t.updated_at", "updatedAt", "t.flashcard_id", "flashcardId"));
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    // Worker connections on PostgreSQL; 0 uses one per core
+    @Value("${backup.export.threads:0}")
+    private int threads;
+
+    // Id span of one range; tables smaller than this are read in one piece
+    @Value("${backup.export.chunk-size:50000}")
+    private long chunkSize;
+
+    private final ObjectMapper objectMapper;
+
+    public ParallelBackupExporter() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+    }
+
+    /**
+     * Writes the header fields of backupData followed by every table to target
+     */
+    public void export(DatabaseBackupData backupData, Path target) throws IOException {
+        Path partsDir = Files.createTempDirectory(target.toAbsolutePath().getParent(), ".export-");
+        try (Connection coordinator = dataSource.getConnection()) {
+            coordinator.setAutoCommit(false);
+            coordinator.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            coordinator.setReadOnly(true);
+            try {
+                boolean postgres = "PostgreSQL".equals(coordinator.getMetaData().getDatabaseProductName());
+                String snapshotId = postgres ? exportSnapshot(coordinator) : null;
+
+                Queue<Range> ranges = new ConcurrentLinkedQueue<>(planRanges(coordinator));
+                int total = ranges.size();
+                int workers = snapshotId != null ? Math.min(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), total) : 1;
+                long started = System.currentTimeMillis();
+                if (workers > 1) {
+                    exportInParallel(ranges, snapshotId, workers, partsDir);
+                } else {
+                    drain(coordinator, ranges, partsDir);
+                }
+                logger.info("Exported {} ranges on {} connection(s) in {} ms", total, workers, System.currentTimeMillis() - started);
+            } finally {
+                coordinator.rollback();
+            }
+            assemble(backupData, partsDir, target);
+        } catch (SQLException e) {
+            throw new IOException("Table export failed: " + e.getMessage(), e);
+        } finally {
+            deleteRecursively(partsDir);
+        }
+    }
+
+    private static String exportSnapshot(Connection coordinator) throws SQLException {
+        try (Statement statement = coordinator.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_export_snapshot()")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    // Splits each table's id span, as of the snapshot, into ranges of chunkSize ids
+    private List<Range> planRanges(Connection coordinator) throws SQLException {
+        List<Range> ranges = new ArrayList<>();
+        for (Section section : SECTIONS) {
+            try (Statement statement = coordinator.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT MIN(id), MAX(id) FROM " + section.table)) {
+                rs.next();
+                long min = rs.getLong(1);
+                if (rs.wasNull()) {
+                    continue;
+                }
+                long max = rs.getLong(2);
+                int index = 0;
+                for (long from = min; from <= max; from += chunkSize) {
+                    ranges.add(new Range(section, index++, from, Math.min(max, from + chunkSize - 1)));
+                    if (from > Long.MAX_VALUE - chunkSize) {
+                        break;
+                    }
+                }
+            }
+        }
+        return ranges;
+    }
+
+    private void exportInParallel(Queue<Range> ranges, String snapshotId, int workers, Path partsDir) throws IOException, SQLException {
+        if (!SNAPSHOT_ID.matcher(snapshotId).matches()) {
+            throw new SQLException("Unexpected snapshot id: " + snapshotId);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "Backup-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> {
+                    try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                            dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                        connection.setAutoCommit(false);
+                        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                        connection.setReadOnly(true);
+                        try (Statement statement = connection.createStatement()) {
+                            // Must be the first statement of the transaction
+                            statement.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+                        }
+                        try {
+                            drain(connection, ranges, partsDir);
+                        } finally {
+                            connection.rollback();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            // Wait for every worker so none is still writing parts when they are deleted
+            Throwable failure = null;
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                        // Stop the other workers from taking further ranges
+                        ranges.clear();
+                    }
+                }
+            }
+            if (failure instanceof SQLException sqlException) {
+                throw sqlException;
+            } else if (failure != null) {
+                throw new IOException(failure.getMessage(), failure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ranges.clear();
+            throw new IOException("Table export interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void drain(Connection connection, Queue<Range> ranges, Path partsDir) throws IOException, SQLException {
+        Range range;
+        while ((range = ranges.poll()) != null) {
+            exportRange(connection, range, partsDir);
+        }
+    }
+
+    private void exportRange(Connection connection, Range range, Path partsDir) throws IOException, SQLException {
+        Section section = range.section;
+        try (PreparedStatement statement = connection.prepareStatement(section.selectSql)) {
+            // Stream the rows; PostgreSQL only uses a cursor when the fetch size is set
+            statement.setFetchSize(1000);
+            statement.setLong(1, range.from);
+            statement.setLong(2, range.to);
+            try (ResultSet rs = statement.executeQuery();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(partFile(partsDir, section, range.index).toFile(), JsonEncoding.UTF8)) {
+                generator.writeStartArray();
+                while (rs.next()) {
+                    generator.writeStartObject();
+                    for (int i = 0; i < section.keys.length; i++) {
+                        Object value = rs.getObject(i + 1);
+                        if (value instanceof Timestamp timestamp) {
+                            value = timestamp.toLocalDateTime();
+                        }
+                        generator.writeObjectField(section.keys[i], value);
+                    }
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    // Writes the backup header and, per section, the rows of its part files in id order
+    private void assemble(DatabaseBackupData backupData, Path partsDir, Path target) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(target.toFile(), JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeObjectField("backupTimestamp", backupData.getBackupTimestamp());
+            generator.writeStringField("version", backupData.getVersion());
+            generator.writeStringField("type", backupData.getType());
+            for (Section section : SECTIONS) {
+                generator.writeArrayFieldStart(section.name);
+                for (int index = 0; Files.exists(partFile(partsDir, section, index)); index++) {
+                    try (JsonParser parser = objectMapper.getFactory().createParser(partFile(partsDir, section, index).toFile())) {
+                        parser.nextToken();
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            generator.copyCurrentStructure(parser);
+                        }
+                    }
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private static Path partFile(Path partsDir, Section section, int index) {
+        return partsDir.resolve(section.name + "-" + index + ".json");
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not remove export parts in {}", dir, e);
+        }
+    }
+
+    /**
+     * The backup sections in dependency order, each with its columns and their JSON keys
+     */
+    static List<Section> sections() {
+        return SECTIONS;
+    }
+
+    static final class Section {
+        final String name;
+        final String table;
+        // SQL expressions over alias t (the section's table) or c (document_contents)
+        final String[] columns;
+        final String[] keys;
+        final String selectSql;
+
+        Section(String name, String table, String from, String... columnsAndKeys) {
+            this.name = name;
+            this.table = table;
+            this.columns = new String[columnsAndKeys.length / 2];
+            this.keys = new String[columns.length];
+            for (int i = 0; i < keys.length; i++) {
+                columns[i] = columnsAndKeys[2 * i];
+                keys[i] = columnsAndKeys[2 * i + 1];
+            }
+            this.selectSql = "SELECT " + String.join(", ", columns) + " FROM " + from + " WHERE t.id BETWEEN ? AND ? ORDER BY t.id";
+        }
+    }
+
+    private static final class Range {
+        final Section section;
+        final int index;
+        final long from;
+        final long to;
+
+        Range(Section section, int index, long from, long to) {
+            this.section = section;
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
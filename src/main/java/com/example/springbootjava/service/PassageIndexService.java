@@ -0,0 +1,416 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Document;
+import com.example.springbootjava.entity.DocumentSegment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * In-process BM25 index over fixed-size passages of each document's text, used to pick the
+ * passages that answer a question. Each document gets an immutable index built once when its
+ * processing completes (or on first use after a restart); postings are flat int arrays and
+ * passages are stored as offsets into the document content rather than copies of the text.
+ */
+@Service
+public class PassageIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PassageIndexService.class);
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "do", "does", "for", "from", "how", "in",
+            "is", "it", "its", "of", "on", "or", "that", "the", "this", "to", "was", "were", "what",
+            "when", "where", "which", "who", "why", "with");
+
+    @Autowired
+    private DocumentSegmentService segmentService;
+
+    @Value("${document.qa.passage-tokens:120}")
+    private int passageTokens;
+
+    @Value("${document.qa.top-k:5}")
+    private int topK;
+
+    @Value("${document.qa.context-token-budget:800}")
+    private int contextTokenBudget;
+
+    @Value("${document.qa.max-indexed-documents:200}")
+    private int maxIndexedDocuments;
+
+    private final Map<Long, DocumentIndex> indexes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, DocumentIndex> eldest) {
+            return size() > maxIndexedDocuments;
+        }
+    };
+
+    /**
+     * Indexes (or re-indexes) a processed document from its stored content and page segments
+     */
+    public void index(Document document, String content, List<DocumentSegment> segments) {
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+        DocumentIndex index = build(content, segments);
+        synchronized (indexes) {
+            indexes.put(document.getId(), index);
+        }
+        logger.debug("Indexed document {}: {} passages, {} terms, ~{} KB",
+                document.getId(), index.passageCount(), index.terms.length, index.sizeInBytes() / 1024);
+    }
+
+    public void remove(Long documentId) {
+        synchronized (indexes) {
+            indexes.remove(documentId);
+        }
+    }
+
+    /**
+     * Drops every document index, e.g. after a restore replaced the documents; each is rebuilt on
+     * its next question
+     */
+    public void clear() {
+        synchronized (indexes) {
+            indexes.clear();
+        }
+    }
+
+    /**
+     * Best passages for a question, highest score first, limited to top-k and the context token budget
+     */
+    public List<Passage> search(Document document, String question) throws IOException {
+        DocumentIndex index;
+        synchronized (indexes) {
+            index = indexes.get(document.getId());
+        }
+        String content = null;
+        if (index == null) {
+            // Indexes live in memory only, so the first question after a restart rebuilds it
+            List<DocumentSegment> segments = segmentService.getSegments(document);
+            if (segments.isEmpty()) {
+                // Still being backfilled; an index without pages would stay empty once they exist
+                return List.of();
+            }
+            content = segmentService.getContent(document);
+            index(document, content, segments);
+            synchronized (indexes) {
+                index = indexes.get(document.getId());
+            }
+            if (index == null) {
+                return List.of();
+            }
+        }
+
+        List<Passage> passages = new ArrayList<>();
+        int budget = contextTokenBudget;
+        for (Hit hit : index.topPassages(queryTerms(question), topK)) {
+            int start = index.passageStarts[hit.passage];
+            int end = index.passageEnds[hit.passage];
+            // Roughly four characters per model token
+            int tokens = (end - start + 3) / 4;
+            if (tokens > budget && !passages.isEmpty()) {
+                break;
+            }
+            int cut = Math.min(end, start + budget * 4);
+            // The content is read once, and only when a passage is chosen, then sliced in memory
+            if (content == null) {
+                content = segmentService.getContent(document);
+            }
+            passages.add(new Passage(index.passagePages[hit.passage], start, cut,
+                    hit.score, content.substring(Math.min(start, content.length()), Math.min(cut, content.length()))));
+            budget -= (cut - start + 3) / 4;
+            if (budget <= 0) {
+                break;
+            }
+        }
+        return passages;
+    }
+
+    private DocumentIndex build(String content, List<DocumentSegment> segments) {
+        IntList passageStarts = new IntList();
+        IntList passageEnds = new IntList();
+        IntList passagePages = new IntList();
+        IntList passageLengths = new IntList();
+        // Postings per term, in passage order: passage ids and term frequencies
+        Map<String, IntList[]> postings = new HashMap<>();
+
+        int[][] pages = segments.isEmpty()
+                ? new int[][] {{1, 0, content.length()}}
+                : segments.stream()
+                        .map(segment -> new int[] {segment.getPageNumber(), segment.getStartOffset(), segment.getEndOffset()})
+                        .toArray(int[][]::new);
+
+        for (int[] page : pages) {
+            // Passages never straddle a page, so each one can cite its page
+            int pos = Math.min(page[1], content.length());
+            int pageEnd = Math.min(page[2], content.length());
+            int passage = -1;
+            int tokens = 0;
+            while (true) {
+                int tokenStart = nextTokenStart(content, pos, pageEnd);
+                if (tokenStart < 0) {
+                    break;
+                }
+                int tokenEnd = tokenEnd(content, tokenStart, pageEnd);
+                pos = tokenEnd;
+                if (passage < 0 || tokens == passageTokens) {
+                    if (passage >= 0) {
+                        passageLengths.add(tokens);
+                    }
+                    passage = passageStarts.size();
+                    passageStarts.add(tokenStart);
+                    passageEnds.add(tokenEnd);
+                    passagePages.add(page[0]);
+                    tokens = 0;
+                }
+                tokens++;
+                passageEnds.set(passage, tokenEnd);
+
+                String term = normalize(content, tokenStart, tokenEnd);
+                if (term == null) {
+                    continue;
+                }
+                IntList[] termPostings = postings.computeIfAbsent(term, key -> new IntList[] {new IntList(), new IntList()});
+                int last = termPostings[0].size() - 1;
+                if (last >= 0 && termPostings[0].get(last) == passage) {
+                    termPostings[1].set(last, termPostings[1].get(last) + 1);
+                } else {
+                    termPostings[0].add(passage);
+                    termPostings[1].add(1);
+                }
+            }
+            if (passage >= 0) {
+                passageLengths.add(tokens);
+            }
+        }
+
+        // Flatten into sorted terms with offsets into shared posting arrays; each index owns its
+        // terms, so evicting a document frees them
+        String[] sortedTerms = postings.keySet().stream().sorted().toArray(String[]::new);
+        int[] postingOffsets = new int[sortedTerms.length + 1];
+        int total = 0;
+        for (int i = 0; i < sortedTerms.length; i++) {
+            postingOffsets[i] = total;
+            total += postings.get(sortedTerms[i])[0].size();
+        }
+        postingOffsets[sortedTerms.length] = total;
+        int[] postingPassages = new int[total];
+        int[] postingFrequencies = new int[total];
+        for (int i = 0; i < sortedTerms.length; i++) {
+            IntList[] termPostings = postings.get(sortedTerms[i]);
+            termPostings[0].copyTo(postingPassages, postingOffsets[i]);
+            termPostings[1].copyTo(postingFrequencies, postingOffsets[i]);
+        }
+
+        return new DocumentIndex(sortedTerms, postingOffsets, postingPassages, postingFrequencies,
+                passageStarts.toArray(), passageEnds.toArray(), passagePages.toArray(), passageLengths.toArray());
+    }
+
+    private String[] queryTerms(String question) {
+        Set<String> terms = new LinkedHashSet<>();
+        int pos = 0;
+        while (true) {
+            int start = nextTokenStart(question, pos, question.length());
+            if (start < 0) {
+                break;
+            }
+            int end = tokenEnd(question, start, question.length());
+            pos = end;
+            String term = normalize(question, start, end);
+            if (term != null) {
+                terms.add(term);
+            }
+        }
+        return terms.toArray(String[]::new);
+    }
+
+    private static int nextTokenStart(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int tokenEnd(String text, int start, int to) {
+        int i = start;
+        while (i < to && Character.isLetterOrDigit(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String normalize(String text, int start, int end) {
+        if (end - start < 2) {
+            return null;
+        }
+        String term = text.substring(start, end).toLowerCase();
+        return STOP_WORDS.contains(term) ? null : term;
+    }
+
+    /**
+     * Immutable BM25 index of one document in compressed-row layout
+     */
+    private static class DocumentIndex {
+        private final String[] terms;
+        private final int[] postingOffsets;
+        private final int[] postingPassages;
+        private final int[] postingFrequencies;
+        private final int[] passageStarts;
+        private final int[] passageEnds;
+        private final int[] passagePages;
+        private final int[] passageLengths;
+        private final float averageLength;
+
+        DocumentIndex(String[] terms, int[] postingOffsets, int[] postingPassages, int[] postingFrequencies,
+                      int[] passageStarts, int[] passageEnds, int[] passagePages, int[] passageLengths) {
+            this.terms = terms;
+            this.postingOffsets = postingOffsets;
+            this.postingPassages = postingPassages;
+            this.postingFrequencies = postingFrequencies;
+            this.passageStarts = passageStarts;
+            this.passageEnds = passageEnds;
+            this.passagePages = passagePages;
+            this.passageLengths = passageLengths;
+            this.averageLength = passageLengths.length == 0 ? 0 : (float) Arrays.stream(passageLengths).sum() / passageLengths.length;
+        }
+
+        int passageCount() {
+            return passageStarts.length;
+        }
+
+        long sizeInBytes() {
+            // Roughly 48 bytes of object and array overhead per term string plus its characters
+            long termBytes = 0;
+            for (String term : terms) {
+                termBytes += 48 + term.length();
+            }
+            return termBytes + 4L * (postingOffsets.length + postingPassages.length + postingFrequencies.length
+                    + 4L * passageStarts.length);
+        }
+
+        List<Hit> topPassages(String[] queryTerms, int k) {
+            float[] scores = new float[passageCount()];
+            int n = passageCount();
+            for (String queryTerm : queryTerms) {
+                // Unknown terms cannot match any passage
+                int term = Arrays.binarySearch(terms, queryTerm);
+                if (term < 0) {
+                    continue;
+                }
+                int from = postingOffsets[term];
+                int to = postingOffsets[term + 1];
+                int df = to - from;
+                float idf = (float) Math.log(1 + (n - df + 0.5) / (df + 0.5));
+                for (int i = from; i < to; i++) {
+                    int passage = postingPassages[i];
+                    int tf = postingFrequencies[i];
+                    float norm = K1 * (1 - B + B * passageLengths[passage] / averageLength);
+                    scores[passage] += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+
+            PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.comparingDouble(passage -> scores[passage]));
+            for (int passage = 0; passage < n; passage++) {
+                if (scores[passage] <= 0) {
+                    continue;
+                }
+                best.add(passage);
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+            Hit[] hits = new Hit[best.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                int passage = best.poll();
+                hits[i] = new Hit(passage, scores[passage]);
+            }
+            return Arrays.asList(hits);
+        }
+    }
+
+    private static class Hit {
+        private final int passage;
+        private final float score;
+
+        Hit(int passage, float score) {
+            this.passage = passage;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Growable int array, to avoid boxing while postings are collected
+     */
+    private static class IntList {
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void copyTo(int[] target, int offset) {
+            System.arraycopy(values, 0, target, offset, size);
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    public static class Passage {
+        private final int pageNumber;
+        private final int startOffset;
+        private final int endOffset;
+        private final float score;
+        private final String text;
+
+        public Passage(int pageNumber, int startOffset, int endOffset, float score, String text) {
+            this.pageNumber = pageNumber;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.score = score;
+            this.text = text;
+        }
+
+        public int getPageNumber() { return pageNumber; }
+        public int getStartOffset() { return startOffset; }
+        public int getEndOffset() { return endOffset; }
+        public float getScore() { return score; }
+        public String getText() { return text; }
+    }
+}
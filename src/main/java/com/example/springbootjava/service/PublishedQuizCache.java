@@ -0,0 +1,115 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.dto.QuizResponseDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * Serialized definitions of published quizzes, keyed by quiz id and updatedAt so an edit can never
+ * be served stale. Entries hold the quiz JSON without the per-user {@code score}, which
+ * {@link #withScore} splices in per request. The total size of the cached JSON is bounded, and the
+ * least recently used quizzes are evicted first.
+ */
+@Component
+public class PublishedQuizCache {
+
+    // Rough per-entry cost of the map node, key and array header on top of the JSON bytes
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private static final byte[] SCORE_PREFIX = "{\"score\":".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${quiz.cache.max-bytes:16777216}")
+    private long maxBytes;
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long weight;
+
+    /**
+     * Returns the cached definition of the quiz as of updatedAt, or null when it is not cached
+     */
+    public synchronized byte[] get(Long quizId, LocalDateTime updatedAt) {
+        Entry entry = entries.get(quizId);
+        return entry != null && Objects.equals(entry.updatedAt, updatedAt) ? entry.json : null;
+    }
+
+    /**
+     * Serializes the quiz without its score, caches it and returns the cached bytes
+     */
+    public byte[] put(Long quizId, LocalDateTime updatedAt, QuizResponseDTO quiz) {
+        ObjectNode tree = objectMapper.valueToTree(quiz);
+        tree.remove("score");
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(tree);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize quiz " + quizId, e);
+        }
+        long entryWeight = json.length + ENTRY_OVERHEAD_BYTES;
+        if (entryWeight > maxBytes) {
+            return json;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(quizId, new Entry(updatedAt, json));
+            if (previous != null) {
+                weight -= previous.json.length + ENTRY_OVERHEAD_BYTES;
+            }
+            weight += entryWeight;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (weight > maxBytes && eldest.hasNext()) {
+                weight -= eldest.next().json.length + ENTRY_OVERHEAD_BYTES;
+                eldest.remove();
+            }
+        }
+        return json;
+    }
+
+    public synchronized void invalidate(Long quizId) {
+        Entry removed = entries.remove(quizId);
+        if (removed != null) {
+            weight -= removed.json.length + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Prepends the user's best score (or null) to a cached definition: {"score":N, followed by
+     * the definition without its opening brace
+     */
+    public static byte[] withScore(byte[] definition, Integer score) {
+        byte[] value = (score + (definition.length > 2 ? "," : "")).getBytes(StandardCharsets.UTF_8);
+        byte[] json = new byte[SCORE_PREFIX.length + value.length + definition.length - 1];
+        System.arraycopy(SCORE_PREFIX, 0, json, 0, SCORE_PREFIX.length);
+        System.arraycopy(value, 0, json, SCORE_PREFIX.length, value.length);
+        System.arraycopy(definition, 1, json, SCORE_PREFIX.length + value.length, definition.length - 1);
+        return json;
+    }
+
+    private static class Entry {
+        final LocalDateTime updatedAt;
+        final byte[] json;
+
+        Entry(LocalDateTime updatedAt, byte[] json) {
+            this.updatedAt = updatedAt;
+            this.json = json;
+        }
+    }
+}
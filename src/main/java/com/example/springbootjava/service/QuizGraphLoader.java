@@ -0,0 +1,73 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.dto.QuizQuestionResponseDTO;
+import com.example.springbootjava.entity.QuizAnswer;
+import com.example.springbootjava.entity.QuizQuestion;
+import com.example.springbootjava.repository.QuizAnswerRepository;
+import com.example.springbootjava.repository.QuizQuestionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the questions and answers of a set of quizzes without walking their lazy collections:
+ * one IN query per batch of quiz ids for the questions and one per batch of question ids for the
+ * answers, both already sorted by order_index. A page of quizzes therefore costs two queries
+ * however many questions it holds, as long as each side fits in one batch.
+ */
+@Component
+public class QuizGraphLoader {
+
+    @Autowired
+    private QuizQuestionRepository questionRepository;
+
+    @Autowired
+    private QuizAnswerRepository answerRepository;
+
+    @Value("${quiz.graph.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Returns each quiz's questions in display order, keyed by quiz id; quizzes without questions
+     * are absent from the map. Must run inside a transaction.
+     */
+    public Map<Long, List<QuizQuestionResponseDTO>> loadQuestions(Collection<Long> quizIds) {
+        Map<Long, List<QuizQuestionResponseDTO>> questionsByQuiz = new HashMap<>();
+        if (quizIds.isEmpty()) {
+            return questionsByQuiz;
+        }
+
+        List<QuizQuestion> questions = new ArrayList<>();
+        for (List<Long> batch : batches(new ArrayList<>(quizIds))) {
+            questions.addAll(questionRepository.findByQuizIdIn(batch));
+        }
+
+        Map<Long, List<QuizAnswer>> answersByQuestion = new HashMap<>();
+        List<Long> questionIds = questions.stream().map(QuizQuestion::getId).toList();
+        for (List<Long> batch : batches(questionIds)) {
+            for (QuizAnswer answer : answerRepository.findByQuestionIdIn(batch)) {
+                answersByQuestion.computeIfAbsent(answer.getQuestion().getId(), id -> new ArrayList<>()).add(answer);
+            }
+        }
+
+        for (QuizQuestion question : questions) {
+            questionsByQuiz.computeIfAbsent(question.getQuiz().getId(), id -> new ArrayList<>())
+                    .add(new QuizQuestionResponseDTO(question, answersByQuestion.getOrDefault(question.getId(), List.of())));
+        }
+        return questionsByQuiz;
+    }
+
+    private List<List<Long>> batches(List<Long> ids) {
+        List<List<Long>> batches = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += batchSize) {
+            batches.add(ids.subList(start, Math.min(start + batchSize, ids.size())));
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Quiz;
+import com.example.springbootjava.entity.QuizAttempt;
+import com.example.springbootjava.entity.QuizScoreRollup;
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.repository.QuizScoreRollupRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maintains {@link QuizScoreRollup} rows so quiz analytics never aggregate over quiz_attempts.
+ * Each attempt updates its rows in the transaction that saves it. Deleting attempts cannot be
+ * applied incrementally (min and max do not subtract), so those paths rebuild the affected users
+ * and quizzes from the raw attempts instead.
+ *
+ * Writers lock the user rows and then the quiz rows involved, both in id order, so concurrent
+ * updates of the same rollup rows are serialized without deadlocking each other.
+ */
+@Service
+@Transactional
+public class QuizRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuizRollupService.class);
+
+    private static final String INSERT_SQL = "INSERT INTO quiz_score_rollups "
+            + "(user_id, quiz_id, bucket, bucket_start, attempt_count, score_sum, min_score, max_score, time_spent_minutes) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private QuizScoreRollupRepository rollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds a newly saved attempt to its user, quiz and user-on-quiz rollups
+     */
+    public void recordAttempt(QuizAttempt attempt) {
+        long userId = attempt.getUser().getId();
+        long quizId = attempt.getQuiz().getId();
+        lock(List.of(userId), List.of(quizId));
+
+        LocalDateTime completedAt = attempt.getCompletedAt() != null ? attempt.getCompletedAt() : attempt.getCreatedAt();
+        List<Key> keys = keysFor(userId, quizId, completedAt.toLocalDate());
+        Set<LocalDate> bucketStarts = new TreeSet<>();
+        keys.forEach(key -> bucketStarts.add(key.bucketStart));
+
+        Map<Key, QuizScoreRollup> existing = new HashMap<>();
+        for (QuizScoreRollup rollup : rollupRepository.findForAttempt(userId, quizId, bucketStarts)) {
+            existing.put(Key.of(rollup), rollup);
+        }
+        for (Key key : keys) {
+            QuizScoreRollup rollup = existing.get(key);
+            if (rollup == null) {
+                rollup = new QuizScoreRollup(key.userId, key.quizId, key.bucket, key.bucketStart);
+                add(rollup, attempt.getScore(), attempt.getTimeSpentMinutes());
+                entityManager.persist(rollup);
+            } else {
+                add(rollup, attempt.getScore(), attempt.getTimeSpentMinutes());
+            }
+        }
+    }
+
+    /**
+     * Locks the rows that serialize rollup writers. Callers that insert or delete attempts take it
+     * first, since the foreign key checks of those writes would otherwise hold the rows shared.
+     */
+    public void lock(Collection<Long> userIds, Collection<Long> quizIds) {
+        for (Long userId : new TreeSet<>(userIds)) {
+            entityManager.find(User.class, userId, LockModeType.PESSIMISTIC_WRITE);
+        }
+        for (Long quizId : new TreeSet<>(quizIds)) {
+            entityManager.find(Quiz.class, quizId, LockModeType.PESSIMISTIC_WRITE);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findQuizIdsByDocument(Long documentId) {
+        return jdbcTemplate.queryForList("SELECT id FROM quizzes WHERE document_id = ?", Long.class, documentId);
+    }
+
+    /**
+     * Users with attempts on the quizzes, locked ahead of deleting the quizzes; pass them with the
+     * quiz ids to {@link #rebuild} once the quizzes are gone
+     */
+    public Set<Long> prepareQuizDeletion(Collection<Long> quizIds) {
+        if (quizIds.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> userIds = new TreeSet<>(new NamedParameterJdbcTemplate(jdbcTemplate).queryForList(
+                "SELECT DISTINCT user_id FROM quiz_attempts WHERE quiz_id IN (:quizIds)",
+                new MapSqlParameterSource("quizIds", quizIds), Long.class));
+        lock(userIds, quizIds);
+        return userIds;
+    }
+
+    /**
+     * Recomputes every rollup of the given users and the all-user rollups of the given quizzes from
+     * the attempts left after pending changes are flushed
+     */
+    public void rebuild(Collection<Long> userIds, Collection<Long> quizIds) {
+        if (userIds.isEmpty() && quizIds.isEmpty()) {
+            return;
+        }
+        lock(userIds, quizIds);
+        entityManager.flush();
+
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbcTemplate);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userIds", userIds.isEmpty() ? List.of(-1L) : userIds)
+                .addValue("quizIds", quizIds.isEmpty() ? List.of(-1L) : quizIds);
+        named.update("DELETE FROM quiz_score_rollups WHERE user_id IN (:userIds) OR (user_id = 0 AND quiz_id IN (:quizIds))", params);
+
+        Set<Long> users = Set.copyOf(userIds);
+        Set<Long> quizzes = Set.copyOf(quizIds);
+        Map<Key, QuizScoreRollup> rollups = new LinkedHashMap<>();
+        named.query("SELECT user_id, quiz_id, score, time_spent_minutes, COALESCE(completed_at, created_at) AS completed_at "
+                + "FROM quiz_attempts WHERE user_id IN (:userIds) OR quiz_id IN (:quizIds)", params, row -> {
+            long userId = row.getLong("user_id");
+            long quizId = row.getLong("quiz_id");
+            LocalDate day = row.getTimestamp("completed_at").toLocalDateTime().toLocalDate();
+            for (Key key : keysFor(userId, quizId, day)) {
+                // A user's rows are rebuilt only for the given users, a quiz's all-user rows only for the given quizzes
+                if (key.userId == QuizScoreRollup.ANY ? quizzes.contains(key.quizId) : users.contains(key.userId)) {
+                    accumulate(rollups, key, row.getDouble("score"), row.getObject("time_spent_minutes", Integer.class));
+                }
+            }
+        });
+        insert(rollups.values());
+    }
+
+    /**
+     * Recomputes every rollup from quiz_attempts; the repair path if rollups ever drift. It does not
+     * lock out concurrent attempts, so it is best run off-peak.
+     */
+    @Scheduled(cron = "${analytics.rollup.rebuild-cron:-}")
+    public void rebuildAll() {
+        long started = System.nanoTime();
+        entityManager.flush();
+        jdbcTemplate.update("DELETE FROM quiz_score_rollups");
+
+        Map<Key, QuizScoreRollup> rollups = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT user_id, quiz_id, score, time_spent_minutes, COALESCE(completed_at, created_at) AS completed_at "
+                + "FROM quiz_attempts", row -> {
+            LocalDate day = row.getTimestamp("completed_at").toLocalDateTime().toLocalDate();
+            for (Key key : keysFor(row.getLong("user_id"), row.getLong("quiz_id"), day)) {
+                accumulate(rollups, key, row.getDouble("score"), row.getObject("time_spent_minutes", Integer.class));
+            }
+        });
+        insert(rollups.values());
+        logger.info("Rebuilt {} quiz score rollups in {} ms", rollups.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Transactional(readOnly = true)
+    public QuizScoreRollup getUserSummary(Long userId) {
+        return find(userId, QuizScoreRollup.ANY);
+    }
+
+    @Transactional(readOnly = true)
+    public QuizScoreRollup getQuizSummary(Long quizId) {
+        return find(QuizScoreRollup.ANY, quizId);
+    }
+
+    @Transactional(readOnly = true)
+    public QuizScoreRollup getUserQuizSummary(Long userId, Long quizId) {
+        return find(userId, quizId);
+    }
+
+    /**
+     * Day or week rows of a user (quizId ANY) or quiz (userId ANY) between from and to, oldest first
+     */
+    @Transactional(readOnly = true)
+    public List<QuizScoreRollup> getTimeline(Long userId, Long quizId, QuizScoreRollup.Bucket bucket, LocalDate from, LocalDate to) {
+        if (bucket == QuizScoreRollup.Bucket.WEEK) {
+            from = weekOf(from);
+        }
+        return rollupRepository.findByUserIdAndQuizIdAndBucketAndBucketStartBetweenOrderByBucketStart(userId, quizId, bucket, from, to);
+    }
+
+    private QuizScoreRollup find(Long userId, Long quizId) {
+        return rollupRepository.findByUserIdAndQuizIdAndBucketAndBucketStart(userId, quizId, QuizScoreRollup.Bucket.ALL, QuizScoreRollup.ALL_TIME)
+                .orElse(null);
+    }
+
+    private void insert(Collection<QuizScoreRollup> rollups) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, rollups, 500, (statement, rollup) -> {
+            statement.setLong(1, rollup.getUserId());
+            statement.setLong(2, rollup.getQuizId());
+            statement.setString(3, rollup.getBucket().name());
+            statement.setDate(4, Date.valueOf(rollup.getBucketStart()));
+            statement.setLong(5, rollup.getAttemptCount());
+            statement.setDouble(6, rollup.getScoreSum());
+            statement.setDouble(7, rollup.getMinScore());
+            statement.setDouble(8, rollup.getMaxScore());
+            statement.setLong(9, rollup.getTimeSpentMinutes());
+        });
+    }
+
+    private static void accumulate(Map<Key, QuizScoreRollup> rollups, Key key, double score, Integer timeSpentMinutes) {
+        QuizScoreRollup rollup = rollups.computeIfAbsent(key,
+                k -> new QuizScoreRollup(k.userId, k.quizId, k.bucket, k.bucketStart));
+        add(rollup, score, timeSpentMinutes);
+    }
+
+    private static void add(QuizScoreRollup rollup, Double score, Integer timeSpentMinutes) {
+        double value = score != null ? score : 0.0;
+        rollup.setMinScore(rollup.getAttemptCount() == 0 ? value : Math.min(rollup.getMinScore(), value));
+        rollup.setMaxScore(rollup.getAttemptCount() == 0 ? value : Math.max(rollup.getMaxScore(), value));
+        rollup.setAttemptCount(rollup.getAttemptCount() + 1);
+        rollup.setScoreSum(rollup.getScoreSum() + value);
+        if (timeSpentMinutes != null) {
+            rollup.setTimeSpentMinutes(rollup.getTimeSpentMinutes() + timeSpentMinutes);
+        }
+    }
+
+    // The seven rows one attempt contributes to
+    private static List<Key> keysFor(long userId, long quizId, LocalDate day) {
+        LocalDate week = weekOf(day);
+        List<Key> keys = new ArrayList<>(7);
+        for (long[] subject : new long[][]{{userId, QuizScoreRollup.ANY}, {QuizScoreRollup.ANY, quizId}}) {
+            keys.add(new Key(subject[0], subject[1], QuizScoreRollup.Bucket.ALL, QuizScoreRollup.ALL_TIME));
+            keys.add(new Key(subject[0], subject[1], QuizScoreRollup.Bucket.DAY, day));
+            keys.add(new Key(subject[0], subject[1], QuizScoreRollup.Bucket.WEEK, week));
+        }
+        keys.add(new Key(userId, quizId, QuizScoreRollup.Bucket.ALL, QuizScoreRollup.ALL_TIME));
+        return keys;
+    }
+
+    static LocalDate weekOf(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static final class Key {
+        final long userId;
+        final long quizId;
+        final QuizScoreRollup.Bucket bucket;
+        final LocalDate bucketStart;
+
+        Key(long userId, long quizId, QuizScoreRollup.Bucket bucket, LocalDate bucketStart) {
+            this.userId = userId;
+            this.quizId = quizId;
+            this.bucket = bucket;
+            this.bucketStart = bucketStart;
+        }
+
+        static Key of(QuizScoreRollup rollup) {
+            return new Key(rollup.getUserId(), rollup.getQuizId(), rollup.getBucket(), rollup.getBucketStart());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return userId == other.userId && quizId == other.quizId && bucket == other.bucket && bucketStart.equals(other.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, quizId, bucket, bucketStart);
+        }
+    }
+}
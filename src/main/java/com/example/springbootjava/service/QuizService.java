@@ -1,5 +1,9 @@
 package com.example.springbootjava.service;
 
+import com.example.springbootjava.dto.CursorPage;
+import com.example.springbootjava.dto.PageCursor;
+import com.example.springbootjava.dto.QuizQuestionResponseDTO;
+import com.example.springbootjava.dto.QuizResponseDTO;
 import com.example.springbootjava.entity.Document;
 import com.example.springbootjava.entity.Quiz;
 import com.example.springbootjava.entity.QuizQuestion;
@@ -10,14 +14,19 @@ import com.example.springbootjava.repository.QuizRepository;
 import com.example.springbootjava.repository.QuizQuestionRepository;
 import com.example.springbootjava.repository.QuizAnswerRepository;
 import com.example.springbootjava.repository.QuizAttemptRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.HashSet;
@@ -26,6 +35,8 @@ import java.util.HashSet;
 @Transactional
 public class QuizService {
     
+    private static final Logger logger = LoggerFactory.getLogger(QuizService.class);
+    
     @Autowired
     private QuizRepository quizRepository;
     
@@ -41,9 +52,27 @@ public class QuizService {
     @Autowired
     private DocumentContentExtractor contentExtractor;
     
+    @Autowired
+    private DocumentSegmentService segmentService;
+    
     @Autowired
     private QuizAttemptRepository quizAttemptRepository;
     
+    @Autowired
+    private TotalCountCache countCache;
+    
+    @Autowired
+    private CollectionVersions collectionVersions;
+    
+    @Autowired
+    private QuizRollupService quizRollups;
+    
+    @Autowired
+    private QuizGraphLoader quizGraphLoader;
+    
+    @Autowired
+    private PublishedQuizCache publishedQuizCache;
+    
     public List<Quiz> getUserQuizzes(User user) {
         return quizRepository.findByUserOrderByCreatedAtDesc(user);
     }
@@ -52,6 +81,95 @@ public class QuizService {
         return quizRepository.findByUserOrderByCreatedAtDesc(user, pageable);
     }
     
+    public CursorPage<QuizResponseDTO> getUserQuizzes(User user, PageCursor cursor, int limit, boolean includeTotal) {
+        CursorPage<QuizResponseDTO> page = toResponses(CursorPage.of(quizRepository.findPageByUser(
+                user, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(limit)), limit, QuizService::cursorOf), user);
+        if (includeTotal) {
+            page.setTotalCount(countCache.get(user.getId(), "quizzes",
+                    () -> quizRepository.countByUser(user)));
+        }
+        return page;
+    }
+    
+    /**
+     * Page {@code page} of the user's quizzes by offset, for clients still sending page/size. The
+     * result carries a cursor for the following page so they can move over to cursors.
+     */
+    public CursorPage<QuizResponseDTO> getUserQuizzesByOffset(User user, int page, int size, boolean includeTotal) {
+        CursorPage<QuizResponseDTO> result = toResponses(CursorPage.ofOffset(quizRepository.findPageByUser(
+                user, PageCursor.START.getCreatedAt(), PageCursor.START.getId(), PageRequest.of(page, size)), size, QuizService::cursorOf), user);
+        if (includeTotal) {
+            result.setTotalCount(countCache.get(user.getId(), "quizzes",
+                    () -> quizRepository.countByUser(user)));
+        }
+        return result;
+    }
+    
+    public CursorPage<QuizResponseDTO> getPublishedQuizzes(User user, PageCursor cursor, int limit, boolean includeTotal) {
+        CursorPage<QuizResponseDTO> page = toResponses(CursorPage.of(quizRepository.findPublishedPageByUser(
+                user, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(limit)), limit, QuizService::cursorOf), user);
+        if (includeTotal) {
+            page.setTotalCount(countCache.get(user.getId(), "quizzes:published",
+                    () -> quizRepository.countPublishedByUser(user)));
+        }
+        return page;
+    }
+    
+    /**
+     * Offset counterpart of {@link #getPublishedQuizzes(User, PageCursor, int, boolean)}; see
+     * {@link #getUserQuizzesByOffset}
+     */
+    public CursorPage<QuizResponseDTO> getPublishedQuizzesByOffset(User user, int page, int size, boolean includeTotal) {
+        CursorPage<QuizResponseDTO> result = toResponses(CursorPage.ofOffset(quizRepository.findPublishedPageByUser(
+                user, PageCursor.START.getCreatedAt(), PageCursor.START.getId(), PageRequest.of(page, size)), size, QuizService::cursorOf), user);
+        if (includeTotal) {
+            result.setTotalCount(countCache.get(user.getId(), "quizzes:published",
+                    () -> quizRepository.countPublishedByUser(user)));
+        }
+        return result;
+    }
+    
+    public CursorPage<QuizResponseDTO> getQuizzesByDifficulty(User user, Quiz.Difficulty difficulty, PageCursor cursor, int limit, boolean includeTotal) {
+        CursorPage<QuizResponseDTO> page = toResponses(CursorPage.of(quizRepository.findPageByUserAndDifficulty(
+                user, difficulty, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(limit)), limit, QuizService::cursorOf), null);
+        if (includeTotal) {
+            page.setTotalCount(countCache.get(user.getId(), "quizzes:difficulty:" + difficulty,
+                    () -> quizRepository.countByUserAndDifficulty(user, difficulty)));
+        }
+        return page;
+    }
+    
+    public CursorPage<QuizResponseDTO> searchQuizzes(User user, String searchTerm, PageCursor cursor, int limit, boolean includeTotal) {
+        CursorPage<QuizResponseDTO> page = toResponses(CursorPage.of(quizRepository.findPageByUserAndSearchTerm(
+                user, searchTerm, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(limit)), limit, QuizService::cursorOf), null);
+        if (includeTotal) {
+            page.setTotalCount(countCache.get(user.getId(), "quizzes:search:" + searchTerm.toLowerCase(),
+                    () -> quizRepository.countByUserAndSearchTerm(user, searchTerm)));
+        }
+        return page;
+    }
+    
+    /**
+     * Maps a page of quizzes to responses inside the transaction. Questions and answers come from
+     * QuizGraphLoader and, when a user is given, their best scores from one grouped query.
+     */
+    private CursorPage<QuizResponseDTO> toResponses(CursorPage<Quiz> quizzes, User bestScoresFor) {
+        List<Long> quizIds = quizzes.getItems().stream().map(Quiz::getId).toList();
+        Map<Long, List<QuizQuestionResponseDTO>> questions = quizGraphLoader.loadQuestions(quizIds);
+        Map<Long, Integer> bestScores = new HashMap<>();
+        if (bestScoresFor != null && !quizIds.isEmpty()) {
+            for (Object[] row : quizAttemptRepository.findBestScoresByUserAndQuizIds(bestScoresFor, quizIds)) {
+                bestScores.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+        }
+        return quizzes.map(quiz -> new QuizResponseDTO(quiz,
+                questions.getOrDefault(quiz.getId(), List.of()), bestScores.get(quiz.getId())));
+    }
+    
+    private static PageCursor cursorOf(Quiz quiz) {
+        return new PageCursor(quiz.getCreatedAt(), quiz.getId());
+    }
+    
     public List<Quiz> getPublishedQuizzes(User user) {
         return quizRepository.findPublishedByUser(user);
     }
@@ -73,22 +191,72 @@ public class QuizService {
     }
     
     public Quiz createQuiz(Quiz quiz) {
-        return quizRepository.save(quiz);
+        Quiz saved = quizRepository.save(quiz);
+        markChanged(saved.getUser());
+        return saved;
     }
     
     public Optional<Quiz> getQuizById(Long id) {
         return quizRepository.findById(id);
     }
     
+    @Transactional(readOnly = true)
+    public Optional<QuizResponseDTO> getQuizResponse(Long id, User user) {
+        return quizRepository.findWithDocumentById(id)
+                .filter(quiz -> quiz.getUser().getId().equals(user.getId()))
+                .map(quiz -> {
+                    Double bestScore = getBestScoreForUserAndQuiz(user, quiz);
+                    List<QuizQuestionResponseDTO> questions = quizGraphLoader.loadQuestions(List.of(id))
+                            .getOrDefault(id, List.of());
+                    return new QuizResponseDTO(quiz, questions, bestScore != null ? bestScore.intValue() : null);
+                });
+    }
+    
+    /**
+     * Response JSON for a published quiz the caller has already checked access to. The definition
+     * comes from PublishedQuizCache while the quiz's updatedAt is unchanged, so a hit costs only the
+     * best-score query; a miss loads and serializes the quiz graph once.
+     */
+    @Transactional(readOnly = true)
+    public byte[] getPublishedQuizJson(Quiz quiz, User user) {
+        byte[] definition = publishedQuizCache.get(quiz.getId(), quiz.getUpdatedAt());
+        if (definition == null) {
+            Quiz current = quizRepository.findWithDocumentById(quiz.getId())
+                    .orElseThrow(() -> new IllegalArgumentException("Quiz not found with id: " + quiz.getId()));
+            List<QuizQuestionResponseDTO> questions = quizGraphLoader.loadQuestions(List.of(current.getId()))
+                    .getOrDefault(current.getId(), List.of());
+            definition = publishedQuizCache.put(current.getId(), current.getUpdatedAt(),
+                    new QuizResponseDTO(current, questions, null));
+        }
+        Double bestScore = getBestScoreForUserAndQuiz(user, quiz);
+        return PublishedQuizCache.withScore(definition, bestScore != null ? bestScore.intValue() : null);
+    }
+    
     public Quiz updateQuiz(Quiz quiz) {
-        return quizRepository.save(quiz);
+        Quiz saved = quizRepository.save(quiz);
+        markChanged(saved.getUser());
+        publishedQuizCache.invalidate(saved.getId());
+        return saved;
     }
     
     public void deleteQuiz(Long id) {
+        // deleteById loads the entity first, so this lookup is served from the persistence context
+        quizRepository.findById(id).ifPresent(quiz -> markChanged(quiz.getUser()));
+        Set<Long> attemptUsers = quizRollups.prepareQuizDeletion(List.of(id));
         quizRepository.deleteById(id);
+        // The quiz's attempts go with it; its takers' rollups are recomputed without them
+        quizRollups.rebuild(attemptUsers, List.of(id));
+        publishedQuizCache.invalidate(id);
     }
     
     public Quiz generateQuizFromDocument(Document document, User user, int numberOfQuestions) {
+        return generateQuizFromDocument(document, user, numberOfQuestions, null, null);
+    }
+    
+    /**
+     * Generates a quiz from the whole document, or only from pages fromPage..toPage when either is given
+     */
+    public Quiz generateQuizFromDocument(Document document, User user, int numberOfQuestions, Integer fromPage, Integer toPage) {
         // Validate document is processed
         if (document.getProcessingStatus() != Document.ProcessingStatus.COMPLETED) {
             throw new IllegalStateException("Document must be processed before generating quiz. Current status: " + document.getProcessingStatus());
@@ -99,27 +267,37 @@ public class QuizService {
             throw new IllegalStateException("Invalid file path: " + document.getFilePath() + ". Document must have a valid stored file.");
         }
         
-        // Extract content from the document file
+        boolean pageRange = fromPage != null || toPage != null;
+        
+        // Extract content from the document file, or slice the stored text for a page range
         String content;
+        String source = document.getTitle();
         try {
-            System.out.println("Extracting content from document for quiz generation...");
-            content = contentExtractor.extractContent(document.getFilePath());
+            if (pageRange) {
+                int first = fromPage != null ? fromPage : 1;
+                int last = toPage != null ? toPage : segmentService.getPageCount(document);
+                content = segmentService.getPageRangeText(document, first, last);
+                source = document.getTitle() + " (pages " + first + "-" + last + ")";
+            } else {
+                content = contentExtractor.extractContent(document.getFilePath());
+            }
             
             if (content == null || content.trim().isEmpty()) {
                 throw new IOException("Content extraction returned empty content");
             }
             
-            System.out.println("Content extraction successful, length: " + content.length());
+            logger.debug("Extracted {} chars from document {} for quiz", content.length(), document.getId());
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error extracting content from document: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error extracting content from document {}: {}", document.getId(), e.getMessage());
             throw new RuntimeException("Failed to extract content from document: " + e.getMessage(), e);
         }
         
         // Create the quiz
         Quiz quiz = new Quiz();
-        quiz.setTitle("Quiz: " + document.getTitle());
-        quiz.setDescription("Generated quiz from " + document.getTitle());
+        quiz.setTitle("Quiz: " + source);
+        quiz.setDescription("Generated quiz from " + source);
         quiz.setTimeLimitMinutes(10);
         quiz.setDifficulty(Quiz.Difficulty.MEDIUM);
         quiz.setIsPublished(true);
@@ -128,6 +306,7 @@ public class QuizService {
         
         // Save the quiz first to get an ID
         quiz = quizRepository.save(quiz);
+        markChanged(user);
         
         // Generate quiz questions with answers using AI service (combined call)
         List<AIService.QuestionWithAnswers> questionsWithAnswers = aiService.generateQuizQuestionsWithAnswers(
@@ -189,6 +368,7 @@ public class QuizService {
         
         // Save the quiz first to get an ID
         quiz = quizRepository.save(quiz);
+        markChanged(user);
         
         // Generate quiz questions with answers using AI service (combined call)
         List<AIService.QuestionWithAnswers> questionsWithAnswers = aiService.generateQuizQuestionsWithAnswers(
@@ -245,13 +425,18 @@ public class QuizService {
         }
         
         Quiz quiz = quizOpt.get();
+        quizRollups.lock(List.of(user.getId()), List.of(quizId));
         
         // Calculate max score (100.0 for percentage-based scoring)
         Double maxScore = 100.0;
         
         // Create and save quiz attempt
         QuizAttempt attempt = new QuizAttempt(score, maxScore, timeSpentMinutes, quiz, user);
-        return quizAttemptRepository.save(attempt);
+        QuizAttempt saved = quizAttemptRepository.save(attempt);
+        quizRollups.recordAttempt(saved);
+        // Quiz lists carry the best score
+        collectionVersions.bump(user.getId(), CollectionVersions.Type.QUIZZES);
+        return saved;
     }
     
     public Double getBestScoreForUserAndQuiz(User user, Quiz quiz) {
@@ -263,8 +448,19 @@ public class QuizService {
         Optional<Quiz> quizOpt = quizRepository.findById(quizId);
         if (quizOpt.isPresent()) {
             Quiz quiz = quizOpt.get();
+            quizRollups.lock(List.of(user.getId()), List.of(quizId));
             List<QuizAttempt> attempts = quizAttemptRepository.findByUserAndQuiz(user, quiz);
             quizAttemptRepository.deleteAll(attempts);
+            quizRollups.rebuild(List.of(user.getId()), List.of(quizId));
+            collectionVersions.bump(user.getId(), CollectionVersions.Type.QUIZZES);
+        }
+    }
+    
+    // Drops cached totals and moves the list ETag on for everything that changes what lists show
+    private void markChanged(User user) {
+        if (user != null) {
+            countCache.invalidate(user.getId());
+            collectionVersions.bump(user.getId(), CollectionVersions.Type.QUIZZES);
         }
     }
 }
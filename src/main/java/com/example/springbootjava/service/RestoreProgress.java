@@ -0,0 +1,122 @@
+package com.example.springbootjava.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live state of one full restore, per table, shared between the threads doing the restore and
+ * the requests polling or cancelling it. Cancelling only sets a flag that the restore checks
+ * between batches and steps; once the swap has started the restore can no longer be cancelled.
+ */
+public class RestoreProgress {
+
+    public enum Phase { LOADING, SWAPPING, COMPLETED, FAILED, CANCELLED }
+
+    public enum TableState { PENDING, LOADING, INDEXING, LINKING, DONE, FAILED }
+
+    private final String backupFile;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final Map<String, TableProgress> tables = new ConcurrentHashMap<>();
+    private final List<String> tableOrder = new ArrayList<>();
+    private volatile Phase phase = Phase.LOADING;
+    private volatile boolean cancelRequested;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    public RestoreProgress(String backupFile) {
+        this.backupFile = backupFile;
+    }
+
+    /**
+     * Registers a table before the restore starts on it
+     */
+    public synchronized TableProgress track(String table, long rowsTotal) {
+        TableProgress progress = new TableProgress(table, rowsTotal);
+        if (tables.put(table, progress) == null) {
+            tableOrder.add(table);
+        }
+        return progress;
+    }
+
+    public TableProgress table(String table) {
+        return tables.get(table);
+    }
+
+    /**
+     * Asks the restore to stop; false when it is already past the point of no return
+     */
+    public synchronized boolean cancel() {
+        if (phase != Phase.LOADING) {
+            return false;
+        }
+        cancelRequested = true;
+        return true;
+    }
+
+    /**
+     * Called by the restore between steps; throws once a cancel was requested
+     */
+    public void checkCancelled() {
+        if (cancelRequested) {
+            throw new CancellationException("Restore was cancelled");
+        }
+    }
+
+    /**
+     * Moves to the swap unless a cancel got in first
+     */
+    public synchronized void startSwap() {
+        checkCancelled();
+        phase = Phase.SWAPPING;
+    }
+
+    public void finish(Phase phase, String error) {
+        this.phase = phase;
+        this.error = error;
+        this.finishedAt = LocalDateTime.now();
+    }
+
+    public boolean isRunning() {
+        return phase == Phase.LOADING || phase == Phase.SWAPPING;
+    }
+
+    public String getBackupFile() { return backupFile; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public Phase getPhase() { return phase; }
+    public boolean isCancelRequested() { return cancelRequested; }
+    public String getError() { return error; }
+
+    public synchronized List<TableProgress> getTables() {
+        List<TableProgress> ordered = new ArrayList<>(tableOrder.size());
+        for (String table : tableOrder) {
+            ordered.add(tables.get(table));
+        }
+        return ordered;
+    }
+
+    public static class TableProgress {
+        private final String table;
+        private final long rowsTotal;
+        private final AtomicLong rowsLoaded = new AtomicLong();
+        private volatile TableState state = TableState.PENDING;
+
+        TableProgress(String table, long rowsTotal) {
+            this.table = table;
+            this.rowsTotal = rowsTotal;
+        }
+
+        public void addRowsLoaded(long rows) { rowsLoaded.addAndGet(rows); }
+        public void setState(TableState state) { this.state = state; }
+
+        public String getTable() { return table; }
+        public long getRowsTotal() { return rowsTotal; }
+        public long getRowsLoaded() { return rowsLoaded.get(); }
+        public TableState getState() { return state; }
+    }
+}
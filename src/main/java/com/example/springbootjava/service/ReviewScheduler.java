@@ -0,0 +1,56 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Flashcard;
+
+import java.time.LocalDateTime;
+
+/**
+ * SM-2 spaced-repetition schedule. A review is graded 0-5; grades below 3 restart the card at a
+ * one-day interval, passing grades grow the interval by the card's ease factor, and every grade
+ * nudges the ease factor up or down.
+ */
+public final class ReviewScheduler {
+
+    public static final int MIN_QUALITY = 0;
+    public static final int MAX_QUALITY = 5;
+
+    static final double INITIAL_EASE = 2.5;
+    static final double MIN_EASE = 1.3;
+
+    private ReviewScheduler() {
+    }
+
+    /**
+     * Applies a review graded quality at now to the card's schedule
+     */
+    public static void review(Flashcard flashcard, int quality, LocalDateTime now) {
+        if (quality < MIN_QUALITY || quality > MAX_QUALITY) {
+            throw new IllegalArgumentException("quality must be between " + MIN_QUALITY + " and " + MAX_QUALITY);
+        }
+        int repetitions = flashcard.getRepetitions() != null ? flashcard.getRepetitions() : 0;
+        int interval = flashcard.getIntervalDays() != null ? flashcard.getIntervalDays() : 0;
+        double ease = flashcard.getEaseFactor() != null ? flashcard.getEaseFactor() : INITIAL_EASE;
+
+        if (quality < 3) {
+            repetitions = 0;
+            interval = 1;
+        } else {
+            if (repetitions == 0) {
+                interval = 1;
+            } else if (repetitions == 1) {
+                interval = 6;
+            } else {
+                interval = (int) Math.round(interval * ease);
+            }
+            repetitions++;
+        }
+        int miss = MAX_QUALITY - quality;
+        ease = Math.max(MIN_EASE, ease + 0.1 - miss * (0.08 + miss * 0.02));
+
+        flashcard.setRepetitions(repetitions);
+        flashcard.setIntervalDays(interval);
+        flashcard.setEaseFactor(ease);
+        flashcard.setLastReviewedAt(now);
+        flashcard.setNextReviewAt(now.plusDays(interval));
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.springbootjava.service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * AWS Signature Version 4 for S3 requests, either as headers or as a presigned URL. URIs passed in
+ * must already have their path and query encoded with {@link #encode}.
+ */
+final class S3RequestSigner {
+
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+
+    S3RequestSigner(String accessKey, String secretKey, String region) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+    }
+
+    /**
+     * Headers to add to a request: x-amz-date, x-amz-content-sha256 and Authorization. headers
+     * are the other headers to sign; the host is always signed.
+     */
+    Map<String, String> sign(String method, URI uri, Map<String, String> headers, String payloadHash, Instant now) {
+        String amzDate = AMZ_DATE.format(now);
+        Map<String, String> signed = new TreeMap<>();
+        headers.forEach((name, value) -> signed.put(name.toLowerCase(Locale.ROOT), value.trim()));
+        signed.put("host", host(uri));
+        signed.put("x-amz-content-sha256", payloadHash);
+        signed.put("x-amz-date", amzDate);
+
+        String signedHeaders = String.join(";", signed.keySet());
+        String canonicalHeaders = signed.entrySet().stream()
+                .map(header -> header.getKey() + ":" + header.getValue() + "\n")
+                .collect(Collectors.joining());
+        String canonicalRequest = method + "\n" + canonicalPath(uri) + "\n" + canonicalQuery(uri.getRawQuery()) + "\n"
+                + canonicalHeaders + "\n" + signedHeaders + "\n" + payloadHash;
+        String scope = scope(now);
+
+        Map<String, String> added = new LinkedHashMap<>();
+        added.put("x-amz-date", amzDate);
+        added.put("x-amz-content-sha256", payloadHash);
+        added.put("Authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature(canonicalRequest, amzDate, now));
+        return added;
+    }
+
+    /**
+     * uri with query parameters that let anyone holding it make this request until ttl runs out
+     */
+    URI presign(String method, URI uri, Duration ttl, Instant now) {
+        String amzDate = AMZ_DATE.format(now);
+        String query = (uri.getRawQuery() == null ? "" : uri.getRawQuery() + "&")
+                + "X-Amz-Algorithm=" + ALGORITHM
+                + "&X-Amz-Credential=" + encode(accessKey + "/" + scope(now), true)
+                + "&X-Amz-Date=" + amzDate
+                + "&X-Amz-Expires=" + ttl.toSeconds()
+                + "&X-Amz-SignedHeaders=host";
+        String canonicalRequest = method + "\n" + canonicalPath(uri) + "\n" + canonicalQuery(query) + "\n"
+                + "host:" + host(uri) + "\n\nhost\n" + UNSIGNED_PAYLOAD;
+        String base = uri.toString();
+        int queryStart = base.indexOf('?');
+        if (queryStart >= 0) {
+            base = base.substring(0, queryStart);
+        }
+        return URI.create(base + "?" + query + "&X-Amz-Signature=" + signature(canonicalRequest, amzDate, now));
+    }
+
+    /**
+     * RFC 3986 percent-encoding as SigV4 expects it; slashes are kept unless encodeSlash
+     */
+    static String encode(String value, boolean encodeSlash) {
+        StringBuilder encoded = new StringBuilder(value.length() + 16);
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (c == '/' && !encodeSlash)) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String signature(String canonicalRequest, String amzDate, Instant now) {
+        String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope(now) + "\n"
+                + sha256Hex(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), DATE.format(now));
+        key = hmac(key, region);
+        key = hmac(key, "s3");
+        key = hmac(key, "aws4_request");
+        return HexFormat.of().formatHex(hmac(key, stringToSign));
+    }
+
+    private String scope(Instant now) {
+        return DATE.format(now) + "/" + region + "/s3/aws4_request";
+    }
+
+    // What HttpClient sends as Host: the port only when it is not the scheme's default
+    private static String host(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1 || ("https".equals(uri.getScheme()) && port == 443) || ("http".equals(uri.getScheme()) && port == 80);
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    private static String canonicalPath(URI uri) {
+        String path = uri.getRawPath();
+        return path == null || path.isEmpty() ? "/" : path;
+    }
+
+    // Parameters sorted by name, then value; each already encoded
+    private static String canonicalQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        TreeMap<String, TreeMap<String, Boolean>> params = new TreeMap<>();
+        for (String param : rawQuery.split("&")) {
+            int eq = param.indexOf('=');
+            String name = eq < 0 ? param : param.substring(0, eq);
+            String value = eq < 0 ? "" : param.substring(eq + 1);
+            params.computeIfAbsent(name, n -> new TreeMap<>()).put(value, Boolean.TRUE);
+        }
+        StringBuilder canonical = new StringBuilder();
+        params.forEach((name, values) -> values.keySet().forEach(value -> {
+            if (canonical.length() > 0) {
+                canonical.append('&');
+            }
+            canonical.append(name).append('=').append(value);
+        }));
+        return canonical.toString();
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.springbootjava.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Files in a bucket of an S3-compatible object store (AWS S3, MinIO, ...), spoken to directly over
+ * HTTP with Signature V4. Files above the multipart threshold, or of unknown length, are uploaded
+ * in parts with a few parts in flight at once, so memory use is bounded by part size times
+ * concurrency. Downloads can be handed to clients as presigned URLs.
+ */
+@Component
+@ConditionalOnProperty(name = "document.storage.backend", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3StorageBackend.class);
+
+    // S3's smallest allowed part, except for the last
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    // Longest a presigned URL may be valid for
+    private static final Duration MAX_PRESIGN_TTL = Duration.ofDays(7);
+
+    @Value("${document.storage.s3.endpoint:https://s3.amazonaws.com}")
+    private String endpoint;
+
+    // Endpoint put in presigned URLs when clients reach the store at another address than we do
+    @Value("${document.storage.s3.public-endpoint:}")
+    private String publicEndpoint;
+
+    @Value("${document.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${document.storage.s3.bucket:}")
+    private String bucket;
+
+    @Value("${document.storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${document.storage.s3.secret-key:}")
+    private String secretKey;
+
+    // bucket in the path (MinIO and most self-hosted stores) rather than in the host name
+    @Value("${document.storage.s3.path-style:true}")
+    private boolean pathStyle;
+
+    @Value("${document.storage.s3.multipart-threshold:16MB}")
+    private String multipartThreshold;
+
+    @Value("${document.storage.s3.part-size:8MB}")
+    private String partSize;
+
+    // Parts uploaded at once
+    @Value("${document.storage.s3.upload-concurrency:4}")
+    private int uploadConcurrency;
+
+    @Value("${document.storage.s3.timeout-seconds:60}")
+    private long timeoutSeconds;
+
+    private HttpClient httpClient;
+    private S3RequestSigner signer;
+    private long multipartThresholdBytes;
+    private int partSizeBytes;
+
+    @PostConstruct
+    void init() {
+        if (bucket.isBlank()) {
+            throw new IllegalStateException("document.storage.s3.bucket must be set when document.storage.backend=s3");
+        }
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(timeoutSeconds))
+                .build();
+        signer = new S3RequestSigner(accessKey, secretKey, region);
+        multipartThresholdBytes = DataSize.parse(multipartThreshold).toBytes();
+        partSizeBytes = (int) Math.max(MIN_PART_SIZE, DataSize.parse(partSize).toBytes());
+        logger.info("Storing documents in bucket {} at {}", bucket, endpoint);
+    }
+
+    @Override
+    public void put(String key, InputStream content, long length, String contentType) throws IOException {
+        if (length >= 0 && length < multipartThresholdBytes) {
+            HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                    HttpRequest.BodyPublishers.ofInputStream(() -> content), length);
+            send("PUT", objectUri(endpoint, key, null), contentTypeHeader(contentType), body, S3RequestSigner.UNSIGNED_PAYLOAD);
+            return;
+        }
+        putMultipart(key, content, contentType);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        HttpResponse<InputStream> response = exchange("GET", objectUri(endpoint, key, null), Map.of(),
+                HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_SHA256, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() / 100 == 2) {
+            return response.body();
+        }
+        try (InputStream error = response.body()) {
+            throw failure("GET", key, response.statusCode(), new String(error.readNBytes(4096), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return head(key).isPresent();
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return head(key).orElseThrow(() -> new NoSuchFileException(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        // S3 answers 204 whether or not the object existed
+        send("DELETE", objectUri(endpoint, key, null), Map.of(), HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_SHA256);
+    }
+
+    @Override
+    public Map<String, Long> list(String directory) throws IOException {
+        Map<String, Long> files = new HashMap<>();
+        String prefix = directory.endsWith("/") ? directory : directory + "/";
+        String continuation = null;
+        do {
+            String query = "list-type=2&prefix=" + S3RequestSigner.encode(prefix, true)
+                    + (continuation == null ? "" : "&continuation-token=" + S3RequestSigner.encode(continuation, true));
+            org.w3c.dom.Document page = parseXml(send("GET", objectUri(endpoint, "", query), Map.of(),
+                    HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_SHA256));
+            NodeList contents = page.getElementsByTagName("Contents");
+            for (int i = 0; i < contents.getLength(); i++) {
+                Element object = (Element) contents.item(i);
+                files.put(text(object, "Key"), Long.parseLong(text(object, "Size")));
+            }
+            continuation = "true".equals(text(page.getDocumentElement(), "IsTruncated"))
+                    ? text(page.getDocumentElement(), "NextContinuationToken") : null;
+        } while (continuation != null);
+        return files;
+    }
+
+    @Override
+    public Optional<URI> presignedDownloadUrl(String key, Duration ttl, String contentType, String contentDisposition) {
+        StringBuilder query = new StringBuilder();
+        if (contentDisposition != null) {
+            query.append("response-content-disposition=").append(S3RequestSigner.encode(contentDisposition, true));
+        }
+        if (contentType != null) {
+            query.append(query.length() > 0 ? "&" : "").append("response-content-type=").append(S3RequestSigner.encode(contentType, true));
+        }
+        String base = publicEndpoint.isBlank() ? endpoint : publicEndpoint;
+        Duration validFor = ttl.compareTo(MAX_PRESIGN_TTL) > 0 ? MAX_PRESIGN_TTL : ttl;
+        return Optional.of(signer.presign("GET", objectUri(base, key, query.length() > 0 ? query.toString() : null), validFor, Instant.now()));
+    }
+
+    /**
+     * Initiates a multipart upload, sends the parts with up to uploadConcurrency in flight and
+     * completes it; aborts the upload if anything fails so no parts are left behind
+     */
+    private void putMultipart(String key, InputStream content, String contentType) throws IOException {
+        byte[] first = content.readNBytes(partSizeBytes);
+        if (first.length < partSizeBytes) {
+            // Fits in one request after all
+            send("PUT", objectUri(endpoint, key, null), contentTypeHeader(contentType),
+                    HttpRequest.BodyPublishers.ofByteArray(first), S3RequestSigner.sha256Hex(first));
+            return;
+        }
+
+        String uploadId = text(parseXml(send("POST", objectUri(endpoint, key, "uploads"), contentTypeHeader(contentType),
+                HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_SHA256)).getDocumentElement(), "UploadId");
+        String uploadQuery = "uploadId=" + S3RequestSigner.encode(uploadId, true);
+        List<CompletableFuture<String>> etags = new ArrayList<>();
+        Deque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+        try {
+            byte[] part = first;
+            int partNumber = 1;
+            while (part.length > 0) {
+                if (inFlight.size() >= uploadConcurrency) {
+                    inFlight.removeFirst().get();
+                }
+                CompletableFuture<String> etag = uploadPart(key, uploadQuery, partNumber++, part);
+                etags.add(etag);
+                inFlight.addLast(etag);
+                part = content.readNBytes(partSizeBytes);
+            }
+
+            StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < etags.size(); i++) {
+                complete.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                        .append(etags.get(i).get()).append("</ETag></Part>");
+            }
+            byte[] body = complete.append("</CompleteMultipartUpload>").toString().getBytes(StandardCharsets.UTF_8);
+            String response = send("POST", objectUri(endpoint, key, uploadQuery), Map.of("Content-Type", "application/xml"),
+                    HttpRequest.BodyPublishers.ofByteArray(body), S3RequestSigner.sha256Hex(body));
+            // Completion can fail after the 200 status has been sent
+            if (response.contains("<Error>")) {
+                throw new IOException("Completing upload of " + key + " failed: " + response);
+            }
+            logger.debug("Uploaded {} in {} parts", key, etags.size());
+        } catch (Exception e) {
+            etags.forEach(etag -> etag.cancel(true));
+            try {
+                send("DELETE", objectUri(endpoint, key, uploadQuery), Map.of(), HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_SHA256);
+            } catch (IOException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Upload of " + key + " was interrupted");
+            }
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw cause instanceof IOException io ? io : new IOException("Upload of " + key + " failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private CompletableFuture<String> uploadPart(String key, String uploadQuery, int partNumber, byte[] part) {
+        URI uri = objectUri(endpoint, key, "partNumber=" + partNumber + "&" + uploadQuery);
+        HttpRequest request = request("PUT", uri, Map.of(), HttpRequest.BodyPublishers.ofByteArray(part), S3RequestSigner.sha256Hex(part));
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw new CompletionException(failure("PUT part " + partNumber + " of", key, response.statusCode(), response.body()));
+            }
+            return response.headers().firstValue("ETag")
+                    .orElseThrow(() -> new CompletionException(new IOException("No ETag for part " + partNumber + " of " + key)));
+        });
+    }
+
+    // Size from a HEAD request, or empty when there is no such object
+    private Optional<Long> head(String key) throws IOException {
+        HttpResponse<Void> response = exchange("HEAD", objectUri(endpoint, key, null), Map.of(),
+                HttpRequest.BodyPublishers.noBody(), S3RequestSigner.EMPTY_SHA256, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw failure("HEAD", key, response.statusCode(), "");
+        }
+        return Optional.of(response.headers().firstValueAsLong("Content-Length").orElse(0L));
+    }
+
+    // Response body of a request that must succeed
+    private String send(String method, URI uri, Map<String, String> headers, HttpRequest.BodyPublisher body, String payloadHash) throws IOException {
+        HttpResponse<String> response = exchange(method, uri, headers, body, payloadHash, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw failure(method, uri.getRawPath(), response.statusCode(), response.body());
+        }
+        return response.body();
+    }
+
+    private <T> HttpResponse<T> exchange(String method, URI uri, Map<String, String> headers, HttpRequest.BodyPublisher body,
+                                         String payloadHash, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request(method, uri, headers, body, payloadHash), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(method + " " + uri.getRawPath() + " was interrupted");
+        }
+    }
+
+    private HttpRequest request(String method, URI uri, Map<String, String> headers, HttpRequest.BodyPublisher body, String payloadHash) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .method(method, body);
+        headers.forEach(builder::header);
+        signer.sign(method, uri, headers, payloadHash, Instant.now()).forEach(builder::header);
+        return builder.build();
+    }
+
+    private URI objectUri(String base, String key, String query) {
+        URI root = URI.create(base.endsWith("/") ? base.substring(0, base.length() - 1) : base);
+        String path = S3RequestSigner.encode(key, false);
+        String uri = pathStyle
+                ? root + "/" + bucket + (path.isEmpty() ? "" : "/" + path)
+                : root.getScheme() + "://" + bucket + "." + root.getRawAuthority() + "/" + path;
+        return URI.create(query == null ? uri : uri + "?" + query);
+    }
+
+    private static Map<String, String> contentTypeHeader(String contentType) {
+        return contentType == null ? Map.of() : Map.of("Content-Type", contentType);
+    }
+
+    private static IOException failure(String operation, String key, int status, String body) {
+        if (status == 404) {
+            return new NoSuchFileException(key);
+        }
+        return new IOException(operation + " " + key + " failed with status " + status + (body.isBlank() ? "" : ": " + body));
+    }
+
+    private static org.w3c.dom.Document parseXml(String xml) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IOException("Unreadable response from object store: " + e.getMessage(), e);
+        }
+    }
+
+    // Text of the first child element with the given name, or null
+    private static String text(Element parent, String name) {
+        NodeList nodes = parent.getElementsByTagName(name);
+        return nodes.getLength() == 0 ? null : nodes.item(0).getTextContent();
+    }
+}
@@ -4,6 +4,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -17,6 +19,9 @@ public class ScheduledBackupService {
     @Autowired
     private DatabaseBackupService backupService;
 
+    @Autowired
+    private FileSnapshotService fileSnapshotService;
+
     @Value("${backup.scheduled.enabled:true}")
     private boolean scheduledBackupEnabled;
 
@@ -26,8 +31,25 @@ public class ScheduledBackupService {
     @Value("${backup.scheduled.max-backups:50}")
     private int maxBackups;
 
+    @Value("${backup.files.enabled:true}")
+    private boolean fileSnapshotsEnabled;
+
+    @Value("${backup.files.max-snapshots:14}")
+    private int maxSnapshots;
+
+    // File snapshots copy the local uploads directory; other backends keep their own copies
+    @Value("${document.storage.backend:local}")
+    private String storageBackend;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warnIfSnapshotsUnsupported() {
+        if (fileSnapshotsEnabled && !"local".equals(storageBackend)) {
+            logger.warn("File snapshots are off: they only cover the local storage backend, not '{}'", storageBackend);
+        }
+    }
+
     /**
-     * Daily backup at 2:00 AM
+     * Daily backup at 2:00 AM, as a delta on top of the latest full backup
      */
     @Scheduled(cron = "${backup.scheduled.daily-cron:0 0 2 * * ?}")
     public void performDailyBackup() {
@@ -38,8 +60,9 @@ public class ScheduledBackupService {
 
         try {
             logger.info("Starting scheduled daily backup");
-            String backupPath = backupService.createBackup();
+            String backupPath = backupService.createIncrementalBackup();
             logger.info("Scheduled daily backup completed: {}", backupPath);
+            snapshotFiles();
             
             // Clean up old backups
             cleanupOldBackups();
@@ -50,7 +73,7 @@ public class ScheduledBackupService {
     }
 
     /**
-     * Weekly backup on Sundays at 3:00 AM
+     * Weekly full backup on Sundays at 3:00 AM, which the following daily deltas build on
      */
     @Scheduled(cron = "${backup.scheduled.weekly-cron:0 0 3 * * SUN}")
     public void performWeeklyBackup() {
@@ -63,6 +86,7 @@ public class ScheduledBackupService {
             logger.info("Starting scheduled weekly backup");
             String backupPath = backupService.createBackup();
             logger.info("Scheduled weekly backup completed: {}", backupPath);
+            snapshotFiles();
             
         } catch (Exception e) {
             logger.error("Scheduled weekly backup failed", e);
@@ -83,6 +107,7 @@ public class ScheduledBackupService {
             logger.info("Starting scheduled monthly backup");
             String backupPath = backupService.createBackup();
             logger.info("Scheduled monthly backup completed: {}", backupPath);
+            snapshotFiles();
             
         } catch (Exception e) {
             logger.error("Scheduled monthly backup failed", e);
@@ -105,12 +130,37 @@ public class ScheduledBackupService {
             if (deletedCount > 0) {
                 logger.info("Cleaned up {} old backup files", deletedCount);
             }
+            if (fileSnapshotsEnabled) {
+                int deletedSnapshots = fileSnapshotService.cleanupOldSnapshots(maxSnapshots);
+                if (deletedSnapshots > 0) {
+                    logger.info("Cleaned up {} old file snapshots", deletedSnapshots);
+                }
+            }
+            int prunedCount = backupService.pruneTombstones();
+            if (prunedCount > 0) {
+                logger.debug("Pruned {} backup tombstones", prunedCount);
+            }
             
         } catch (Exception e) {
             logger.error("Scheduled backup cleanup failed", e);
         }
     }
 
+    /**
+     * Snapshots the uploaded files alongside a database backup. A failure is logged and does not
+     * fail the database backup that already succeeded.
+     */
+    private void snapshotFiles() {
+        if (!fileSnapshotsEnabled || !"local".equals(storageBackend)) {
+            return;
+        }
+        try {
+            fileSnapshotService.createSnapshot();
+        } catch (Exception e) {
+            logger.error("Scheduled file snapshot failed", e);
+        }
+    }
+
     /**
      * Manual backup trigger
      */
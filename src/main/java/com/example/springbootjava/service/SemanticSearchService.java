@@ -0,0 +1,583 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Document;
+import com.example.springbootjava.entity.DocumentSegment;
+import com.example.springbootjava.entity.Flashcard;
+import com.example.springbootjava.repository.DocumentContentRepository;
+import com.example.springbootjava.repository.DocumentRepository;
+import com.example.springbootjava.repository.DocumentSegmentRepository;
+import com.example.springbootjava.repository.FlashcardRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Semantic search over a user's flashcards and document chunks. Each user has an {@link HnswIndex}
+ * file under {@code search.semantic.index-dir}; writes are applied in order on a single background
+ * thread so saving a flashcard never waits for embedding, and searches read the index concurrently.
+ *
+ * A rebuild or compaction writes a new index beside the old one under the writer lock, publishes it,
+ * and leaves the old one to be closed by whichever search releases it last.
+ */
+@Service
+public class SemanticSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SemanticSearchService.class);
+
+    // Keys carry the entry type in the top bits; document chunks pack the chunk number below the document id
+    private static final long FLASHCARD_TAG = 1L << 60;
+    private static final long DOCUMENT_TAG = 2L << 60;
+    private static final int CHUNK_BITS = 20;
+
+    public enum EntryType { FLASHCARD, DOCUMENT }
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    @Autowired
+    private FlashcardRepository flashcardRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentSegmentRepository segmentRepository;
+
+    @Autowired
+    private DocumentContentRepository contentRepository;
+
+    @Value("${search.semantic.index-dir:./search-index}")
+    private String indexDir;
+
+    @Value("${search.semantic.m:16}")
+    private int m;
+
+    @Value("${search.semantic.ef-construction:100}")
+    private int efConstruction;
+
+    @Value("${search.semantic.ef-search:64}")
+    private int efSearch;
+
+    @Value("${search.semantic.chunk-words:150}")
+    private int chunkWords;
+
+    @Value("${search.semantic.flush-interval-seconds:10}")
+    private long flushIntervalSeconds;
+
+    @Value("${search.semantic.compact-deleted-ratio:0.3}")
+    private double compactDeletedRatio;
+
+    // Published index per user; while one is opened or built the entry is a pending future, so
+    // concurrent callers wait for that single build instead of starting their own
+    private final Map<Long, CompletableFuture<IndexRef>> indexes = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // Held by background writes, rebuilds and compactions, which must not interleave
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private ExecutorService writer;
+    private volatile long lastFlushNanos = System.nanoTime();
+
+    @PostConstruct
+    public void init() {
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Vector-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushDirty();
+        for (Long userId : Set.copyOf(indexes.keySet())) {
+            unpublish(userId);
+        }
+    }
+
+    /**
+     * Queues flashcards for (re-)indexing under their owner's index
+     */
+    public void indexFlashcards(List<Flashcard> flashcards) {
+        List<long[]> owners = new ArrayList<>(flashcards.size());
+        List<String> texts = new ArrayList<>(flashcards.size());
+        for (Flashcard flashcard : flashcards) {
+            if (flashcard.getId() == null || flashcard.getUser() == null) {
+                continue;
+            }
+            owners.add(new long[] {flashcard.getUser().getId(), flashcard.getId()});
+            texts.add(flashcardText(flashcard));
+        }
+        if (owners.isEmpty()) {
+            return;
+        }
+        submit(() -> {
+            List<float[]> vectors = embeddingProvider.embedAll(texts);
+            for (int i = 0; i < owners.size(); i++) {
+                long userId = owners.get(i)[0];
+                try (IndexRef ref = acquire(userId)) {
+                    ref.index().upsert(FLASHCARD_TAG | owners.get(i)[1], vectors.get(i), 0, 0);
+                }
+                dirty.add(userId);
+            }
+        });
+    }
+
+    public void removeFlashcard(Long flashcardId) {
+        submit(() -> {
+            for (Long userId : indexes.keySet()) {
+                try (IndexRef ref = retainOpen(userId)) {
+                    if (ref != null && ref.index().delete(FLASHCARD_TAG | flashcardId)) {
+                        dirty.add(userId);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Queues a processed document's chunks for indexing, replacing any chunks indexed before
+     */
+    public void indexDocument(Document document, String content, List<DocumentSegment> segments) {
+        if (content == null || content.isEmpty() || document.getUser() == null) {
+            return;
+        }
+        Long userId = document.getUser().getId();
+        Long documentId = document.getId();
+        List<int[]> chunks = chunk(content, segments);
+        List<String> texts = new ArrayList<>(chunks.size());
+        for (int[] chunk : chunks) {
+            texts.add(document.getTitle() + "\n" + content.substring(chunk[0], chunk[1]));
+        }
+        submit(() -> {
+            try (IndexRef ref = acquire(userId)) {
+                HnswIndex index = ref.index();
+                deleteChunks(index, documentId);
+                List<float[]> vectors = embeddingProvider.embedAll(texts);
+                for (int i = 0; i < chunks.size(); i++) {
+                    index.upsert(documentKey(documentId, i), vectors.get(i), chunks.get(i)[0], chunks.get(i)[1]);
+                }
+            }
+            dirty.add(userId);
+        });
+    }
+
+    public void removeDocument(Long documentId) {
+        submit(() -> {
+            for (Long userId : indexes.keySet()) {
+                try (IndexRef ref = retainOpen(userId)) {
+                    if (ref != null && deleteChunks(ref.index(), documentId) > 0) {
+                        dirty.add(userId);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Nearest entries to the query in the user's index, most similar first
+     */
+    public List<SemanticHit> search(Long userId, String query, int k, Set<EntryType> types) throws IOException {
+        float[] vector = embeddingProvider.embed(query);
+        // Over-fetch when filtering by type so the filter still leaves k results
+        int fetch = types.size() == EntryType.values().length ? k : k * 4;
+        List<HnswIndex.Hit> found;
+        try (IndexRef ref = acquire(userId)) {
+            found = ref.index().search(vector, fetch, Math.max(efSearch, fetch));
+        }
+        List<SemanticHit> hits = new ArrayList<>(k);
+        for (HnswIndex.Hit hit : found) {
+            EntryType type = (hit.getKey() & DOCUMENT_TAG) != 0 ? EntryType.DOCUMENT : EntryType.FLASHCARD;
+            if (!types.contains(type)) {
+                continue;
+            }
+            long id = type == EntryType.DOCUMENT
+                    ? (hit.getKey() & ~DOCUMENT_TAG) >>> CHUNK_BITS
+                    : hit.getKey() & ~FLASHCARD_TAG;
+            hits.add(new SemanticHit(type, id, hit.getSimilarity(), hit.getPayloadA(), hit.getPayloadB()));
+            if (hits.size() == k) {
+                break;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Rebuilds the user's index from the database and swaps it in; searches keep using the old
+     * index until the new one is published, and background writes wait for the swap
+     */
+    public void rebuild(Long userId) throws IOException {
+        writeLock.lock();
+        // Holding the current index also waits out a first build that is still running
+        try (IndexRef current = acquire(userId)) {
+            replace(userId, build(userId, sibling(current.index().getFile(), ".rebuild")));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Closes every user's index and deletes the index files, for when the data they were built from
+     * has been replaced; each index is rebuilt from the database on its next use
+     */
+    public void reset() throws IOException {
+        writeLock.lock();
+        try {
+            dirty.clear();
+            for (Long userId : Set.copyOf(indexes.keySet())) {
+                unpublish(userId);
+            }
+            Path dir = Paths.get(indexDir);
+            if (Files.isDirectory(dir)) {
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path file : files.toList()) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+            logger.info("Dropped all vector indexes");
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * The user's index, opened or built on first use and retained for the caller, who must close
+     * the returned reference
+     */
+    IndexRef acquire(Long userId) throws IOException {
+        while (true) {
+            CompletableFuture<IndexRef> future = indexes.get(userId);
+            if (future == null) {
+                CompletableFuture<IndexRef> building = new CompletableFuture<>();
+                future = indexes.putIfAbsent(userId, building);
+                if (future == null) {
+                    // This caller builds; the slow part runs outside any map operation
+                    future = building;
+                    try {
+                        building.complete(new IndexRef(openOrBuild(userId)));
+                    } catch (IOException | RuntimeException e) {
+                        indexes.remove(userId, building);
+                        building.completeExceptionally(e);
+                        throw e;
+                    }
+                }
+            }
+            IndexRef ref = await(future);
+            if (ref.retain()) {
+                return ref;
+            }
+            // Replaced and drained since the lookup; the map already holds its successor
+        }
+    }
+
+    // The user's index retained for the caller, or null when it is not open
+    private IndexRef retainOpen(Long userId) {
+        CompletableFuture<IndexRef> future = indexes.get(userId);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        IndexRef ref = future.join();
+        return ref.retain() ? ref : null;
+    }
+
+    private static IndexRef await(CompletableFuture<IndexRef> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Moves a finished index over the user's index file and publishes it. The index it replaces is
+     * closed once the searches still holding it are done; on POSIX file systems their mappings
+     * keep the replaced file's contents alive until then.
+     */
+    private void replace(Long userId, HnswIndex replacement) throws IOException {
+        Path file = indexFile(userId);
+        Path built = replacement.getFile();
+        replacement.flush();
+        replacement.close();
+        Files.move(built, file, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(HnswIndex.upperFile(built), HnswIndex.upperFile(file), StandardCopyOption.REPLACE_EXISTING);
+        HnswIndex index = HnswIndex.open(file, embeddingProvider.dimensions(), efConstruction, embeddingProvider.fingerprint());
+        if (index == null) {
+            throw new IOException("Replaced vector index " + file + " could not be opened");
+        }
+        CompletableFuture<IndexRef> previous = indexes.put(userId, CompletableFuture.completedFuture(new IndexRef(index)));
+        if (previous != null && previous.isDone() && !previous.isCompletedExceptionally()) {
+            previous.join().close();
+        }
+    }
+
+    // Drops the map's reference to the user's index, which closes once its last reader is done
+    private void unpublish(Long userId) {
+        CompletableFuture<IndexRef> previous = indexes.remove(userId);
+        if (previous != null) {
+            try {
+                await(previous).close();
+            } catch (IOException | RuntimeException e) {
+                // A build that failed left nothing to close
+            }
+        }
+    }
+
+    private HnswIndex openOrBuild(Long userId) throws IOException {
+        Path file = indexFile(userId);
+        HnswIndex index = HnswIndex.open(file, embeddingProvider.dimensions(), efConstruction, embeddingProvider.fingerprint());
+        if (index != null) {
+            logger.debug("Opened vector index for user {} with {} entries", userId, index.size());
+            return index;
+        }
+        // Missing, unflushed or built by another embedder: rebuild from the database
+        return build(userId, file);
+    }
+
+    // Builds the user's index from the database into the given file
+    private HnswIndex build(Long userId, Path file) throws IOException {
+        long started = System.nanoTime();
+        HnswIndex index = HnswIndex.create(file, embeddingProvider.dimensions(), m, efConstruction, embeddingProvider.fingerprint());
+        List<Flashcard> flashcards = flashcardRepository.findByUserId(userId);
+        List<float[]> vectors = embeddingProvider.embedAll(flashcards.stream().map(SemanticSearchService::flashcardText).toList());
+        for (int i = 0; i < flashcards.size(); i++) {
+            index.upsert(FLASHCARD_TAG | flashcards.get(i).getId(), vectors.get(i), 0, 0);
+        }
+        for (Document document : documentRepository.findByUserId(userId)) {
+            String content = contentRepository.findContentByDocumentId(document.getId()).orElse(null);
+            if (content == null || content.isEmpty()) {
+                continue;
+            }
+            List<int[]> chunks = chunk(content, segmentRepository.findByDocumentId(document.getId()));
+            List<String> texts = new ArrayList<>(chunks.size());
+            for (int[] chunk : chunks) {
+                texts.add(document.getTitle() + "\n" + content.substring(chunk[0], chunk[1]));
+            }
+            List<float[]> chunkVectors = embeddingProvider.embedAll(texts);
+            for (int i = 0; i < chunks.size(); i++) {
+                index.upsert(documentKey(document.getId(), i), chunkVectors.get(i), chunks.get(i)[0], chunks.get(i)[1]);
+            }
+        }
+        index.flush();
+        logger.info("Built vector index for user {} with {} entries in {} ms",
+                userId, index.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return index;
+    }
+
+    private int deleteChunks(HnswIndex index, Long documentId) {
+        int deleted = 0;
+        while (index.delete(documentKey(documentId, deleted))) {
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Splits each page into windows of roughly chunk-words words, returned as [start, end) offsets
+     */
+    private List<int[]> chunk(String content, List<DocumentSegment> segments) {
+        List<int[]> pages = new ArrayList<>();
+        if (segments.isEmpty()) {
+            pages.add(new int[] {0, content.length()});
+        } else {
+            for (DocumentSegment segment : segments) {
+                pages.add(new int[] {segment.getStartOffset(), Math.min(segment.getEndOffset(), content.length())});
+            }
+        }
+
+        List<int[]> chunks = new ArrayList<>();
+        for (int[] page : pages) {
+            int chunkStart = -1;
+            int words = 0;
+            boolean inWord = false;
+            for (int i = page[0]; i < page[1]; i++) {
+                boolean letter = Character.isLetterOrDigit(content.charAt(i));
+                if (letter && !inWord) {
+                    if (chunkStart < 0) {
+                        chunkStart = i;
+                    }
+                    words++;
+                }
+                inWord = letter;
+                if (!letter && words >= chunkWords) {
+                    chunks.add(new int[] {chunkStart, i});
+                    chunkStart = -1;
+                    words = 0;
+                }
+            }
+            if (chunkStart >= 0) {
+                chunks.add(new int[] {chunkStart, page[1]});
+            }
+        }
+        return chunks;
+    }
+
+    private void submit(IndexTask task) {
+        writer.execute(() -> {
+            writeLock.lock();
+            try {
+                task.run();
+                maybeCompactAndFlush();
+            } catch (Exception e) {
+                logger.error("Vector index update failed", e);
+            } finally {
+                writeLock.unlock();
+            }
+        });
+    }
+
+    private void maybeCompactAndFlush() throws IOException {
+        for (Long userId : dirty) {
+            try (IndexRef ref = retainOpen(userId)) {
+                if (ref == null) {
+                    continue;
+                }
+                HnswIndex index = ref.index();
+                if (index.deletedCount() > 1000
+                        && index.deletedCount() > compactDeletedRatio * (index.size() + index.deletedCount())) {
+                    compact(userId, index);
+                }
+            }
+        }
+        if (System.nanoTime() - lastFlushNanos > TimeUnit.SECONDS.toNanos(flushIntervalSeconds)) {
+            flushDirty();
+        }
+    }
+
+    // Runs under the writer lock, so nothing writes to the index while it is copied
+    private void compact(Long userId, HnswIndex index) throws IOException {
+        replace(userId, index.compactTo(sibling(index.getFile(), ".compact")));
+        logger.info("Compacted vector index for user {}", userId);
+    }
+
+    private void flushDirty() {
+        lastFlushNanos = System.nanoTime();
+        for (Long userId : dirty) {
+            dirty.remove(userId);
+            try (IndexRef ref = retainOpen(userId)) {
+                if (ref != null) {
+                    ref.index().flush();
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to flush vector index for user {}", userId, e);
+            }
+        }
+    }
+
+    private Path indexFile(Long userId) {
+        return Paths.get(indexDir, "user-" + userId + ".hnsw");
+    }
+
+    private static Path sibling(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+
+    private static long documentKey(Long documentId, int chunk) {
+        return DOCUMENT_TAG | (documentId << CHUNK_BITS) | chunk;
+    }
+
+    private static String flashcardText(Flashcard flashcard) {
+        return flashcard.getQuestion() + "\n" + flashcard.getAnswer();
+    }
+
+    @FunctionalInterface
+    private interface IndexTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * An index and a count of its holders. The map of published indexes holds one reference and
+     * every search or write holds another while it runs; the index closes when the count drops to
+     * zero, so replacing it never closes it under a running search.
+     */
+    static final class IndexRef implements AutoCloseable {
+        private final HnswIndex index;
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        IndexRef(HnswIndex index) {
+            this.index = index;
+        }
+
+        HnswIndex index() {
+            return index;
+        }
+
+        // False once the index has been closed
+        boolean retain() {
+            int count;
+            do {
+                count = refs.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!refs.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (refs.decrementAndGet() == 0) {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close vector index {}", index.getFile(), e);
+                }
+            }
+        }
+    }
+
+    public static class SemanticHit {
+        private final EntryType type;
+        private final long id;
+        private final float score;
+        private final int startOffset;
+        private final int endOffset;
+
+        public SemanticHit(EntryType type, long id, float score, int startOffset, int endOffset) {
+            this.type = type;
+            this.id = id;
+            this.score = score;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+        }
+
+        public EntryType getType() { return type; }
+        public long getId() { return id; }
+        public float getScore() { return score; }
+        public int getStartOffset() { return startOffset; }
+        public int getEndOffset() { return endOffset; }
+    }
+}
@@ -0,0 +1,735 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.service.DatabaseBackupService.DatabaseBackupData;
+import com.example.springbootjava.service.ParallelBackupExporter.Section;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Restores a full backup on PostgreSQL without touching the live tables until the very end. The
+ * backed-up tables, and every table whose foreign keys point at them, are created in a shadow
+ * schema with their columns only, loaded in batches, and only then given their keys, foreign keys
+ * and indexes. Each loaded table is checked against the backup by row count and by a checksum of
+ * its rows read back, and a single short transaction then moves the live tables into a retired
+ * schema and the shadow tables into public. Readers and writers only wait for those renames, however
+ * large the backup; the retired tables are dropped afterwards. Tables that are not in the backup but
+ * reference it get the live rows whose references the restored data still resolves, so they are
+ * not swapped in empty. Document segments are the exception: they are offsets into the content,
+ * which comes from the backup, so they are swapped in empty and rebuilt on first use.
+ *
+ * <p>The tables are restored as a DAG over their foreign keys. Since the keys are only added after
+ * the load, every table is loaded, indexed and verified concurrently on its own connection; a
+ * table's foreign keys are added once it and the tables they reference have their keys.
+ */
+@Component
+public class ShadowSchemaRestorer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShadowSchemaRestorer.class);
+
+    static final String LIVE_SCHEMA = "public";
+    static final String SHADOW_SCHEMA = "restore_shadow";
+    static final String RETIRED_SCHEMA = "restore_retired";
+
+    // Derived from restored data and rebuilt from it on demand, so live rows are never carried over
+    static final Set<String> REBUILT_TABLES = Set.of("document_segments");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${backup.restore.shadow.enabled:true}")
+    private boolean enabled;
+
+    @Value("${backup.restore.batch-size:1000}")
+    private int batchSize;
+
+    // Worker connections, from a pool of their own beside the application pool; 0 uses one per core
+    @Value("${backup.restore.threads:4}")
+    private int threads;
+
+    // How long the swap waits for locks held by running requests before giving up
+    @Value("${backup.restore.swap-lock-timeout-ms:10000}")
+    private long swapLockTimeoutMs;
+
+    /**
+     * Whether restores can go through a shadow schema; other databases restore in place
+     */
+    public boolean isSupported() {
+        if (!enabled) {
+            return false;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            logger.warn("Could not determine the database type, restoring in place", e);
+            return false;
+        }
+    }
+
+    /**
+     * Loads the backup into the shadow schema, verifies it and swaps it in, reporting per table
+     * to progress. Returns the rows loaded per backup section. If this throws, including when
+     * cancelled through progress, the live tables are as they were.
+     */
+    public Map<String, Integer> restore(DatabaseBackupData data, RestoreProgress progress) throws SQLException {
+        long started = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                List<String> tables = tablesToSwap(connection);
+                Map<String, TableRestore> plan = captureKeysAndIndexes(connection, tables);
+                List<String[]> sharedSequences = sharedSequences(connection, tables);
+                createShadowTables(connection, tables);
+                planLoads(connection, data, plan);
+                planCopies(connection, plan);
+                connection.commit();
+
+                Map<String, Integer> loaded = new LinkedHashMap<>();
+                for (TableRestore table : plan.values()) {
+                    table.progress = progress.track(table.table, table.load != null ? table.load.rows.size() : 0);
+                    if (table.load != null && table.load.section != null) {
+                        loaded.put(table.load.section, table.load.rows.size());
+                    }
+                }
+                runDag(plan, progress);
+                logger.info("Loaded, indexed and verified {} tables in {} in {} ms", plan.size(), SHADOW_SCHEMA, System.currentTimeMillis() - started);
+
+                syncIdentitySequences(connection, tables);
+                connection.commit();
+
+                progress.startSwap();
+                swap(connection, tables, sharedSequences);
+                logger.info("Swapped {} restored tables into {} after {} ms", tables.size(), LIVE_SCHEMA, System.currentTimeMillis() - started);
+                return loaded;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                dropSchema(connection, SHADOW_SCHEMA);
+                throw e;
+            } finally {
+                dropSchema(connection, RETIRED_SCHEMA);
+            }
+        }
+    }
+
+    // Loads every table at once, then links each to its parents as soon as they have their keys
+    private void runDag(Map<String, TableRestore> plan, RestoreProgress progress) throws SQLException {
+        int workers = Math.min(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), plan.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "Restore-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicReference<Exception> failed = new AtomicReference<>();
+        HikariDataSource workerPool = workerPool(Math.max(1, workers));
+        try {
+            Map<String, CompletableFuture<Void>> keyed = new HashMap<>();
+            for (TableRestore table : plan.values()) {
+                if (table.load != null) {
+                    keyed.put(table.table, CompletableFuture.runAsync(() -> step(table, failed, () -> loadAndIndex(workerPool, table, progress, failed)), executor));
+                }
+            }
+            // A copied table keeps only rows whose parents were restored, so it loads after them
+            List<TableRestore> copies = plan.values().stream().filter(table -> table.load == null).collect(Collectors.toCollection(ArrayList::new));
+            while (!copies.isEmpty()) {
+                List<TableRestore> ready = copies.stream()
+                        .filter(table -> table.parents.stream().allMatch(parent -> keyed.containsKey(parent) || !plan.containsKey(parent)))
+                        .toList();
+                // Copies referencing each other in a cycle just start together
+                for (TableRestore table : ready.isEmpty() ? List.copyOf(copies) : ready) {
+                    CompletableFuture<?>[] parents = table.parents.stream().map(keyed::get).filter(Objects::nonNull).toArray(CompletableFuture[]::new);
+                    keyed.put(table.table, CompletableFuture.allOf(parents)
+                            .thenRunAsync(() -> step(table, failed, () -> loadAndIndex(workerPool, table, progress, failed)), executor));
+                    copies.remove(table);
+                }
+            }
+            // Every task, so none is still running when the shadow schema is dropped after a failure
+            List<CompletableFuture<Void>> tasks = new ArrayList<>(keyed.values());
+            for (TableRestore table : plan.values()) {
+                List<CompletableFuture<Void>> before = new ArrayList<>();
+                before.add(keyed.get(table.table));
+                table.parents.stream().map(keyed::get).filter(Objects::nonNull).forEach(before::add);
+                tasks.add(CompletableFuture.allOf(before.toArray(new CompletableFuture[0]))
+                        .thenRunAsync(() -> step(table, failed, () -> link(workerPool, table, progress, failed)), executor));
+            }
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException | CancellationException e) {
+            // Report the cancel when one was asked for, else the failure that stopped the others
+            progress.checkCancelled();
+            Exception cause = failed.get();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw cause instanceof RuntimeException runtime ? runtime : e;
+        } finally {
+            executor.shutdownNow();
+            workerPool.close();
+        }
+    }
+
+    // A short-lived pool for the workers, built from the same datasource settings as the application pool
+    private HikariDataSource workerPool(int size) {
+        HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("Restore-workers");
+        pool.setMaximumPoolSize(size);
+        pool.setMinimumIdle(0);
+        pool.setAutoCommit(false);
+        return pool;
+    }
+
+    // Runs one task of a table; the first failure is kept and stops the other tasks
+    private static void step(TableRestore table, AtomicReference<Exception> failed, SqlTask task) {
+        try {
+            task.run();
+        } catch (SQLException | RuntimeException e) {
+            table.progress.setState(RestoreProgress.TableState.FAILED);
+            if (!(e instanceof CancellationException)) {
+                failed.compareAndSet(null, e);
+            }
+            throw new CompletionException(e);
+        }
+    }
+
+    private void loadAndIndex(DataSource workerPool, TableRestore table, RestoreProgress progress, AtomicReference<Exception> failed) throws SQLException {
+        try (Connection connection = workerPool.getConnection()) {
+            if (table.load != null) {
+                table.progress.setState(RestoreProgress.TableState.LOADING);
+                load(connection, table.load, table.progress, progress, failed);
+                connection.commit();
+            } else if (table.copySql != null) {
+                table.progress.setState(RestoreProgress.TableState.LOADING);
+                checkStop(progress, failed);
+                try (Statement statement = connection.createStatement()) {
+                    logger.info("Copied {} live rows of {} that the restored data still references", statement.executeUpdate(table.copySql), table.table);
+                }
+                connection.commit();
+            }
+            table.progress.setState(RestoreProgress.TableState.INDEXING);
+            for (String sql : table.keysAndIndexes) {
+                checkStop(progress, failed);
+                execute(connection, sql);
+            }
+            execute(connection, "ANALYZE " + shadow(table.table));
+            if (table.load != null) {
+                verify(connection, table.load);
+            }
+            connection.commit();
+        }
+    }
+
+    private void link(DataSource workerPool, TableRestore table, RestoreProgress progress, AtomicReference<Exception> failed) throws SQLException {
+        try (Connection connection = workerPool.getConnection()) {
+            table.progress.setState(RestoreProgress.TableState.LINKING);
+            // Unqualified names in foreign keys resolve to the shadow tables first
+            execute(connection, "SET LOCAL search_path TO " + SHADOW_SCHEMA + ", " + LIVE_SCHEMA);
+            for (String sql : table.foreignKeys) {
+                checkStop(progress, failed);
+                execute(connection, sql);
+            }
+            connection.commit();
+            table.progress.setState(RestoreProgress.TableState.DONE);
+        }
+    }
+
+    private static void checkStop(RestoreProgress progress, AtomicReference<Exception> failed) {
+        progress.checkCancelled();
+        if (failed.get() != null) {
+            throw new CancellationException("Stopped after another table failed");
+        }
+    }
+
+    // The backed-up tables plus every live table that references one of them, transitively
+    private List<String> tablesToSwap(Connection connection) throws SQLException {
+        LinkedHashSet<String> tables = new LinkedHashSet<>();
+        for (Section section : ParallelBackupExporter.sections()) {
+            tables.add(section.table);
+        }
+        tables.add("document_contents");
+        Deque<String> pending = new ArrayDeque<>(tables);
+        String sql = "SELECT DISTINCT child.relname FROM pg_constraint con " +
+                "JOIN pg_class child ON child.oid = con.conrelid " +
+                "JOIN pg_namespace ns ON ns.oid = child.relnamespace " +
+                "JOIN pg_class parent ON parent.oid = con.confrelid " +
+                "JOIN pg_namespace pns ON pns.oid = parent.relnamespace " +
+                "WHERE con.contype = 'f' AND ns.nspname = ? AND pns.nspname = ? AND parent.relname = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            while (!pending.isEmpty()) {
+                statement.setString(1, LIVE_SCHEMA);
+                statement.setString(2, LIVE_SCHEMA);
+                statement.setString(3, pending.poll());
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        if (tables.add(rs.getString(1))) {
+                            pending.add(rs.getString(1));
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(tables);
+    }
+
+    // Keys and indexes of the live tables, to be recreated on the shadow tables once loaded:
+    // primary, unique and exclusion keys, then plain indexes, and separately the foreign keys
+    // along with the tables they reference
+    private Map<String, TableRestore> captureKeysAndIndexes(Connection connection, List<String> tables) throws SQLException {
+        Map<String, TableRestore> plan = new LinkedHashMap<>();
+        execute(connection, "SET LOCAL search_path TO " + LIVE_SCHEMA);
+        String constraintSql = "SELECT con.conname, pg_get_constraintdef(con.oid), con.contype, parent.relname FROM pg_constraint con " +
+                "JOIN pg_class c ON c.oid = con.conrelid JOIN pg_namespace ns ON ns.oid = c.relnamespace " +
+                "LEFT JOIN pg_class parent ON parent.oid = con.confrelid " +
+                "WHERE ns.nspname = ? AND c.relname = ? AND con.contype IN ('p', 'u', 'x', 'f') ORDER BY con.conname";
+        String indexSql = "SELECT pg_get_indexdef(i.indexrelid) FROM pg_index i " +
+                "JOIN pg_class c ON c.oid = i.indrelid JOIN pg_namespace ns ON ns.oid = c.relnamespace " +
+                "WHERE ns.nspname = ? AND c.relname = ? AND NOT EXISTS (SELECT 1 FROM pg_constraint con " +
+                "WHERE con.conindid = i.indexrelid AND con.contype IN ('p', 'u', 'x'))";
+        for (String name : tables) {
+            TableRestore table = new TableRestore(name);
+            List<String> indexes = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(constraintSql)) {
+                statement.setString(1, LIVE_SCHEMA);
+                statement.setString(2, name);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        String sql = "ALTER TABLE " + shadow(name) + " ADD CONSTRAINT " + quote(rs.getString(1)) + " " + rs.getString(2);
+                        if ("f".equals(rs.getString(3))) {
+                            table.foreignKeys.add(sql);
+                            if (!name.equals(rs.getString(4))) {
+                                table.parents.add(rs.getString(4));
+                            }
+                        } else {
+                            table.keysAndIndexes.add(sql);
+                        }
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(indexSql)) {
+                statement.setString(1, LIVE_SCHEMA);
+                statement.setString(2, name);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        indexes.add(retarget(rs.getString(1), name));
+                    }
+                }
+            }
+            table.keysAndIndexes.addAll(indexes);
+            plan.put(name, table);
+        }
+        return plan;
+    }
+
+    // Points CREATE INDEX ... ON [public.]table at the shadow table
+    static String retarget(String indexDef, String table) throws SQLException {
+        Matcher matcher = Pattern.compile(" ON (ONLY )?(" + Pattern.quote(LIVE_SCHEMA) + "\\.)?(" + Pattern.quote(table) + "|"
+                + Pattern.quote(quote(table)) + ") USING ").matcher(indexDef);
+        if (!matcher.find()) {
+            throw new SQLException("Cannot recreate index on " + table + ": " + indexDef);
+        }
+        return indexDef.substring(0, matcher.start()) + " ON " + shadow(table) + " USING "
+                + indexDef.substring(matcher.end());
+    }
+
+    // Sequences behind serial (not identity) columns stay shared with the live table, which owns them
+    private List<String[]> sharedSequences(Connection connection, List<String> tables) throws SQLException {
+        List<String[]> sequences = new ArrayList<>();
+        String sql = "SELECT a.attname, pg_get_serial_sequence(?, a.attname) FROM pg_attribute a " +
+                "WHERE a.attrelid = ?::regclass AND a.attnum > 0 AND NOT a.attisdropped AND a.attidentity = ''";
+        for (String table : tables) {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, live(table));
+                statement.setString(2, live(table));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        if (rs.getString(2) != null) {
+                            sequences.add(new String[] { table, rs.getString(1), rs.getString(2) });
+                        }
+                    }
+                }
+            }
+        }
+        return sequences;
+    }
+
+    private void createShadowTables(Connection connection, List<String> tables) throws SQLException {
+        execute(connection, "DROP SCHEMA IF EXISTS " + SHADOW_SCHEMA + " CASCADE");
+        execute(connection, "CREATE SCHEMA " + SHADOW_SCHEMA);
+        for (String table : tables) {
+            // Columns, defaults, identity and check constraints; keys and indexes come after the load
+            execute(connection, "CREATE TABLE " + shadow(table) + " (LIKE " + live(table)
+                    + " INCLUDING DEFAULTS INCLUDING IDENTITY INCLUDING CONSTRAINTS)");
+        }
+    }
+
+    // The rows of every backup section, plus document contents, with their target columns
+    private void planLoads(Connection connection, DatabaseBackupData data, Map<String, TableRestore> plan) throws SQLException {
+        List<Object[]> contents = new ArrayList<>();
+        for (Section section : ParallelBackupExporter.sections()) {
+            List<Map<String, Object>> rows = rowsOf(data, section.name);
+            List<String> columns = new ArrayList<>();
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < section.columns.length; i++) {
+                if (section.columns[i].startsWith("t.")) {
+                    columns.add(section.columns[i].substring(2));
+                    keys.add(section.keys[i]);
+                }
+            }
+            List<Object[]> values = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                Object[] value = new Object[keys.size()];
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = row.get(keys.get(i));
+                }
+                values.add(value);
+                if ("documents".equals(section.name) && row.get("content") != null) {
+                    contents.add(new Object[] { row.get("id"), row.get("content") });
+                }
+            }
+            plan.get(section.table).load = new TableLoad(section.name, section.table, columns, values, columnTypes(connection, section.table, columns));
+        }
+        List<String> contentColumns = List.of("document_id", "content");
+        plan.get("document_contents").load = new TableLoad(null, "document_contents", contentColumns, contents,
+                columnTypes(connection, "document_contents", contentColumns));
+    }
+
+    // Tables outside the backup copy the live rows whose foreign keys resolve in the shadow tables;
+    // a self-reference is left to the foreign key check when the table is linked
+    private void planCopies(Connection connection, Map<String, TableRestore> plan) throws SQLException {
+        String sql = "SELECT con.conname, parent.relname, a.attname, pa.attname FROM pg_constraint con " +
+                "JOIN pg_class c ON c.oid = con.conrelid JOIN pg_namespace ns ON ns.oid = c.relnamespace " +
+                "JOIN pg_class parent ON parent.oid = con.confrelid " +
+                "CROSS JOIN LATERAL unnest(con.conkey, con.confkey) AS k(col, pcol) " +
+                "JOIN pg_attribute a ON a.attrelid = con.conrelid AND a.attnum = k.col " +
+                "JOIN pg_attribute pa ON pa.attrelid = con.confrelid AND pa.attnum = k.pcol " +
+                "WHERE con.contype = 'f' AND ns.nspname = ? AND c.relname = ? ORDER BY con.conname, k.col";
+        for (TableRestore table : plan.values()) {
+            if (table.load != null || REBUILT_TABLES.contains(table.table)) {
+                continue;
+            }
+            // Per foreign key: the parent table, then pairs of child and parent columns
+            Map<String, List<String>> foreignKeys = new LinkedHashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, LIVE_SCHEMA);
+                statement.setString(2, table.table);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        List<String> key = foreignKeys.computeIfAbsent(rs.getString(1), name -> new ArrayList<>());
+                        if (key.isEmpty()) {
+                            key.add(rs.getString(2));
+                        }
+                        key.add(rs.getString(3));
+                        key.add(rs.getString(4));
+                    }
+                }
+            }
+            List<String> conditions = new ArrayList<>();
+            for (List<String> key : foreignKeys.values()) {
+                if (key.get(0).equals(table.table) || !plan.containsKey(key.get(0))) {
+                    continue;
+                }
+                List<String> nulls = new ArrayList<>();
+                List<String> matches = new ArrayList<>();
+                for (int i = 1; i < key.size(); i += 2) {
+                    nulls.add("l." + quote(key.get(i)) + " IS NULL");
+                    matches.add("p." + quote(key.get(i + 1)) + " = l." + quote(key.get(i)));
+                }
+                conditions.add("(" + String.join(" OR ", nulls) + " OR EXISTS (SELECT 1 FROM " + shadow(key.get(0))
+                        + " p WHERE " + String.join(" AND ", matches) + "))");
+            }
+            table.copySql = "INSERT INTO " + shadow(table.table) + " OVERRIDING SYSTEM VALUE SELECT * FROM " + live(table.table)
+                    + " l" + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions));
+        }
+    }
+
+    private static int[] columnTypes(Connection connection, String table, List<String> columns) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT " + columnList(columns) + " FROM " + shadow(table) + " WHERE false")) {
+            ResultSetMetaData meta = rs.getMetaData();
+            int[] types = new int[columns.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = meta.getColumnType(i + 1);
+            }
+            return types;
+        }
+    }
+
+    // Inserts in id order, in batches, taking the checksum of the rows as sent
+    private void load(Connection connection, TableLoad load, RestoreProgress.TableProgress tableProgress,
+                      RestoreProgress progress, AtomicReference<Exception> failed) throws SQLException {
+        // The first column is the id, matching the order the rows are read back in
+        load.rows.sort(Comparator.comparing(row -> (Long) normalize(row[0], Types.BIGINT)));
+        String placeholders = String.join(", ", Collections.nCopies(load.columns.size(), "?"));
+        MessageDigest digest = newDigest();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO " + shadow(load.table) + " (" + columnList(load.columns) + ") VALUES (" + placeholders + ")")) {
+            int batched = 0;
+            for (Object[] row : load.rows) {
+                for (int i = 0; i < row.length; i++) {
+                    Object value = normalize(row[i], load.types[i]);
+                    bind(statement, i + 1, value, load.types[i]);
+                    update(digest, value);
+                }
+                statement.addBatch();
+                if (++batched == batchSize) {
+                    checkStop(progress, failed);
+                    statement.executeBatch();
+                    tableProgress.addRowsLoaded(batched);
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                statement.executeBatch();
+                tableProgress.addRowsLoaded(batched);
+            }
+        }
+        load.checksum = HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Reads the table back in id order and compares its row count and checksum with what was sent
+    private void verify(Connection connection, TableLoad load) throws SQLException {
+        MessageDigest digest = newDigest();
+        int rows = 0;
+        try (Statement statement = connection.createStatement()) {
+            statement.setFetchSize(1000);
+            try (ResultSet rs = statement.executeQuery("SELECT " + columnList(load.columns) + " FROM " + shadow(load.table)
+                    + " ORDER BY " + quote(load.columns.get(0)))) {
+                while (rs.next()) {
+                    for (int i = 0; i < load.types.length; i++) {
+                        update(digest, normalize(rs.getObject(i + 1), load.types[i]));
+                    }
+                    rows++;
+                }
+            }
+        }
+        if (rows != load.rows.size()) {
+            throw new SQLException(load.table + ": restored " + rows + " rows but the backup has " + load.rows.size());
+        }
+        if (!HexFormat.of().formatHex(digest.digest()).equals(load.checksum)) {
+            throw new SQLException(load.table + ": restored rows do not match the backup checksum");
+        }
+    }
+
+    // Identity columns got fresh sequences with the shadow tables; move them past the restored ids
+    private void syncIdentitySequences(Connection connection, List<String> tables) throws SQLException {
+        String sql = "SELECT a.attname, pg_get_serial_sequence(?, a.attname) FROM pg_attribute a " +
+                "WHERE a.attrelid = ?::regclass AND a.attnum > 0 AND NOT a.attisdropped AND a.attidentity <> ''";
+        for (String table : tables) {
+            List<String[]> sequences = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, shadow(table));
+                statement.setString(2, shadow(table));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        sequences.add(new String[] { rs.getString(1), rs.getString(2) });
+                    }
+                }
+            }
+            for (String[] sequence : sequences) {
+                setSequence(connection, sequence[1], shadow(table), sequence[0]);
+            }
+        }
+    }
+
+    // The only step the application waits for: catalog renames under one short lock
+    private void swap(Connection connection, List<String> tables, List<String[]> sharedSequences) throws SQLException {
+        execute(connection, "DROP SCHEMA IF EXISTS " + RETIRED_SCHEMA + " CASCADE");
+        execute(connection, "CREATE SCHEMA " + RETIRED_SCHEMA);
+        connection.commit();
+
+        execute(connection, "SET LOCAL lock_timeout = " + Math.max(1, swapLockTimeoutMs));
+        for (String[] sequence : sharedSequences) {
+            // Keep serial sequences in public when their owning table is retired
+            execute(connection, "ALTER SEQUENCE " + sequence[2] + " OWNED BY NONE");
+        }
+        for (String table : tables) {
+            execute(connection, "ALTER TABLE " + live(table) + " SET SCHEMA " + RETIRED_SCHEMA);
+        }
+        for (String table : tables) {
+            execute(connection, "ALTER TABLE " + shadow(table) + " SET SCHEMA " + LIVE_SCHEMA);
+        }
+        for (String[] sequence : sharedSequences) {
+            execute(connection, "ALTER SEQUENCE " + sequence[2] + " OWNED BY " + live(sequence[0]) + "." + quote(sequence[1]));
+            setSequence(connection, sequence[2], live(sequence[0]), sequence[1]);
+        }
+        connection.commit();
+        execute(connection, "DROP SCHEMA " + SHADOW_SCHEMA);
+        connection.commit();
+    }
+
+    private static void setSequence(Connection connection, String sequence, String table, String column) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT setval(?::regclass, COALESCE((SELECT MAX(" + quote(column) + ") FROM " + table + "), 0) + 1, false)")) {
+            statement.setString(1, sequence);
+            statement.execute();
+        }
+    }
+
+    private static void dropSchema(Connection connection, String schema) {
+        try {
+            connection.rollback();
+            execute(connection, "DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+            connection.commit();
+        } catch (SQLException e) {
+            logger.warn("Could not drop schema {}", schema, e);
+        }
+    }
+
+    private static List<Map<String, Object>> rowsOf(DatabaseBackupData data, String section) {
+        List<Map<String, Object>> rows = switch (section) {
+            case "users" -> data.getUsers();
+            case "documents" -> data.getDocuments();
+            case "flashcards" -> data.getFlashcards();
+            case "quizzes" -> data.getQuizzes();
+            case "quizQuestions" -> data.getQuizQuestions();
+            case "quizAnswers" -> data.getQuizAnswers();
+            case "quizAttempts" -> data.getQuizAttempts();
+            case "quizAttemptAnswers" -> data.getQuizAttemptAnswers();
+            case "flashcardStudySessions" -> data.getFlashcardStudySessions();
+            default -> throw new IllegalArgumentException("Unknown backup section: " + section);
+        };
+        return rows != null ? rows : List.of();
+    }
+
+    /**
+     * Brings a value from the backup JSON, or read back over JDBC, to one Java type per SQL
+     * type, so both sides of the checksum agree
+     */
+    static Object normalize(Object value, int sqlType) {
+        if (value == null) {
+            return null;
+        }
+        switch (sqlType) {
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                if (value instanceof Timestamp timestamp) {
+                    return timestamp.toLocalDateTime();
+                }
+                return value instanceof LocalDateTime ? value : LocalDateTime.parse(value.toString());
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return value instanceof Number number ? Long.valueOf(number.longValue()) : Long.valueOf(value.toString());
+            case Types.REAL:
+                return value instanceof Number number ? Float.valueOf(number.floatValue()) : Float.valueOf(value.toString());
+            case Types.DOUBLE:
+            case Types.FLOAT:
+                return value instanceof Number number ? Double.valueOf(number.doubleValue()) : Double.valueOf(value.toString());
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return new BigDecimal(value.toString()).stripTrailingZeros();
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return value instanceof Boolean ? value : Boolean.valueOf(value.toString());
+            default:
+                return value.toString();
+        }
+    }
+
+    private static void bind(PreparedStatement statement, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, sqlType);
+        } else if (value instanceof LocalDateTime dateTime) {
+            statement.setTimestamp(index, Timestamp.valueOf(dateTime));
+        } else {
+            statement.setObject(index, value, sqlType);
+        }
+    }
+
+    private static void update(MessageDigest digest, Object value) {
+        String text = value == null ? "\u0000"
+                : value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0x1F);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String columnList(List<String> columns) {
+        return String.join(", ", columns.stream().map(ShadowSchemaRestorer::quote).toList());
+    }
+
+    private static String live(String table) {
+        return LIVE_SCHEMA + "." + quote(table);
+    }
+
+    private static String shadow(String table) {
+        return SHADOW_SCHEMA + "." + quote(table);
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private interface SqlTask {
+        void run() throws SQLException;
+    }
+
+    private static final class TableRestore {
+        final String table;
+        final List<String> keysAndIndexes = new ArrayList<>();
+        final List<String> foreignKeys = new ArrayList<>();
+        final Set<String> parents = new LinkedHashSet<>();
+        TableLoad load;
+        // For a table outside the backup, the statement copying its surviving live rows
+        String copySql;
+        RestoreProgress.TableProgress progress;
+
+        TableRestore(String table) {
+            this.table = table;
+        }
+    }
+
+    private static final class TableLoad {
+        final String section;
+        final String table;
+        final List<String> columns;
+        final List<Object[]> rows;
+        final int[] types;
+        String checksum;
+
+        TableLoad(String section, String table, List<String> columns, List<Object[]> rows, int[] types) {
+            this.section = section;
+            this.table = table;
+            this.columns = columns;
+            this.rows = rows;
+            this.types = types;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.springbootjava.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Where uploaded files are kept. The active implementation is chosen with
+ * {@code document.storage.backend}. Keys are relative to the storage root, e.g.
+ * {@code user_1/20240101_120000_ab12cd34.pdf}; {@link #keyOf} maps a stored
+ * {@code Document.filePath} to its key.
+ */
+public interface StorageBackend {
+
+    /**
+     * Streams content into key, replacing what was there. length may be -1 when unknown.
+     */
+    void put(String key, InputStream content, long length, String contentType) throws IOException;
+
+    /**
+     * Streams the file at key; throws {@link java.nio.file.NoSuchFileException} when there is none.
+     * The caller closes the stream.
+     */
+    InputStream get(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Size in bytes; throws {@link java.nio.file.NoSuchFileException} when there is no file
+     */
+    long size(String key) throws IOException;
+
+    /**
+     * Removes the file at key; nothing happens when there is none
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Sizes of every file under a directory key such as {@code user_1}, by key
+     */
+    Map<String, Long> list(String directory) throws IOException;
+
+    /**
+     * A URL clients can download the file from without going through this application, valid
+     * for ttl, or empty when the backend cannot serve files itself
+     */
+    Optional<URI> presignedDownloadUrl(String key, Duration ttl, String contentType, String contentDisposition) throws IOException;
+
+    /**
+     * The file on local disk, for backends that keep files there
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * Key of a path as stored in {@code Document.filePath} ("uploads/user_1/x.pdf", with either separator)
+     */
+    static String keyOf(String filePath) {
+        String key = filePath.replace('\\', '/');
+        if (key.startsWith("uploads/")) {
+            key = key.substring("uploads/".length());
+        }
+        while (key.startsWith("/")) {
+            key = key.substring(1);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.entity.UserStorageUsage;
+import com.example.springbootjava.repository.UserStorageUsageRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Per-user storage counters and quotas. Storing and deleting a file adjust the user's
+ * {@link UserStorageUsage} row in the caller's transaction, so reading a user's usage is a single
+ * row lookup instead of a walk of the uploads directory.
+ *
+ * Writers lock the user row first, which serializes the quota checks of concurrent uploads by the
+ * same user. An upload reserves its size in a short transaction before the bytes are written, so
+ * the lock is never held for the duration of a transfer. Files written or removed outside these paths (a rolled-back
+ * upload, garbage collection, a snapshot restore) make the counters drift; {@link #reconcileAll}
+ * recounts each user's directory in the storage backend to correct that.
+ */
+@Service
+public class StorageUsageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageUsageService.class);
+
+    private static final String USER_DIR_PREFIX = "user_";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserStorageUsageRepository usageRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    // Most a user may store in total, e.g. 500MB; 0 for no limit
+    @Value("${document.storage.quota.max-size:0}")
+    private String maxSize;
+
+    // Most files a user may store; 0 for no limit
+    @Value("${document.storage.quota.max-files:0}")
+    private long maxFiles;
+
+    /**
+     * Checks that one more file of the given size fits the user's quota and counts it against the
+     * quota straight away. Call it outside a transaction, so this runs as a short one of its own and
+     * the user row is not locked while the bytes are written; {@link #release} it if the write fails.
+     * A quota failure is a checked exception and does not mark a surrounding transaction rollback-only.
+     */
+    @Transactional
+    public void reserve(Long userId, long bytes) throws QuotaExceededException {
+        if (!lock(userId)) {
+            return;
+        }
+        UserStorageUsage usage = usageRepository.findById(userId).orElse(null);
+        long bytesUsed = usage != null ? usage.getBytesUsed() : 0;
+        long fileCount = usage != null ? usage.getFileCount() : 0;
+        long maxBytes = getMaxBytes();
+        if (maxBytes > 0 && bytesUsed + bytes > maxBytes) {
+            throw new QuotaExceededException("Storage quota exceeded: " + FileCleanupService.formatFileSize(bytesUsed)
+                    + " of " + FileCleanupService.formatFileSize(maxBytes) + " used, file needs " + FileCleanupService.formatFileSize(bytes));
+        }
+        if (maxFiles > 0 && fileCount + 1 > maxFiles) {
+            throw new QuotaExceededException("Storage quota exceeded: " + fileCount + " of " + maxFiles + " files used");
+        }
+        add(userId, usage, bytes, 1);
+    }
+
+    /**
+     * Gives back a reservation whose file was never stored
+     */
+    @Transactional
+    public void release(Long userId, long bytes) {
+        record(userId, -bytes, -1);
+    }
+
+    /**
+     * Adds a stored (positive) or deleted (negative) amount to the user's counters
+     */
+    @Transactional
+    public void record(Long userId, long bytes, long files) {
+        if (!lock(userId)) {
+            return;
+        }
+        add(userId, usageRepository.findById(userId).orElse(null), bytes, files);
+    }
+
+    // The user lock makes this read-modify-write safe; counters never go below zero
+    private void add(Long userId, UserStorageUsage usage, long bytes, long files) {
+        if (usage == null) {
+            usage = new UserStorageUsage(userId);
+            entityManager.persist(usage);
+        }
+        usage.setBytesUsed(Math.max(0, usage.getBytesUsed() + bytes));
+        usage.setFileCount(Math.max(0, usage.getFileCount() + files));
+    }
+
+    @Transactional(readOnly = true)
+    public Usage getUsage(Long userId) {
+        UserStorageUsage usage = usageRepository.findById(userId).orElseGet(() -> new UserStorageUsage(userId));
+        return new Usage(usage.getBytesUsed(), usage.getFileCount(), getMaxBytes(), maxFiles, usage.getReconciledAt());
+    }
+
+    /**
+     * Recounts the files of every user, and drops counters of users that are gone, one transaction per user
+     */
+    @Scheduled(cron = "${document.storage.quota.reconcile-cron:0 45 2 * * ?}")
+    public ReconcileReport reconcileAll() {
+        long started = System.currentTimeMillis();
+        ReconcileReport report = new ReconcileReport();
+
+        Set<Long> userIds = new TreeSet<>(usageRepository.findAll().stream().map(UserStorageUsage::getUserId).toList());
+        userIds.addAll(entityManager.createQuery("SELECT u.id FROM User u", Long.class).getResultList());
+
+        for (Long userId : userIds) {
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> reconcile(userId)))) {
+                    report.usersCorrected++;
+                }
+                report.usersChecked++;
+            } catch (RuntimeException e) {
+                logger.warn("Could not reconcile storage of user {}: {}", userId, e.getMessage());
+                report.errors++;
+            }
+        }
+        report.durationMs = System.currentTimeMillis() - started;
+        logger.info("Reconciled storage of {} users in {} ms, {} corrected", report.usersChecked, report.durationMs, report.usersCorrected);
+        return report;
+    }
+
+    // True when the counters had drifted
+    private boolean reconcile(Long userId) {
+        boolean locked = lock(userId);
+        UserStorageUsage usage = usageRepository.findById(userId).orElse(null);
+        if (!locked) {
+            // The user is gone; so are their counters
+            if (usage != null) {
+                usageRepository.delete(usage);
+            }
+            return usage != null;
+        }
+        long[] actual = measure(USER_DIR_PREFIX + userId);
+        if (usage == null) {
+            if (actual[1] == 0) {
+                return false;
+            }
+            usage = new UserStorageUsage(userId);
+            entityManager.persist(usage);
+        } else {
+            entityManager.refresh(usage);
+        }
+        boolean drifted = usage.getBytesUsed() != actual[0] || usage.getFileCount() != actual[1];
+        if (drifted) {
+            logger.info("Storage of user {} drifted: counted {} bytes in {} files, found {} bytes in {} files",
+                    userId, usage.getBytesUsed(), usage.getFileCount(), actual[0], actual[1]);
+        }
+        usage.setBytesUsed(actual[0]);
+        usage.setFileCount(actual[1]);
+        usage.setReconciledAt(LocalDateTime.now());
+        return drifted;
+    }
+
+    // Bytes and files under a directory key of the storage backend
+    private long[] measure(String directory) {
+        try {
+            Map<String, Long> files = storageBackend.list(directory);
+            return new long[]{files.values().stream().mapToLong(Long::longValue).sum(), files.size()};
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not list " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Locks the user row for the rest of the transaction; false if there is no such user
+    private boolean lock(Long userId) {
+        return userId != null && entityManager.find(User.class, userId, LockModeType.PESSIMISTIC_WRITE) != null;
+    }
+
+    private long getMaxBytes() {
+        return DataSize.parse(maxSize.trim()).toBytes();
+    }
+
+    /**
+     * Owner of a user directory (user_{id}), or null for any other directory
+     */
+    static Long userIdOf(Path dir) {
+        Path name = dir.getFileName();
+        if (name == null || !name.toString().startsWith(USER_DIR_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.toString().substring(USER_DIR_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static class QuotaExceededException extends IOException {
+        public QuotaExceededException(String message) {
+            super(message);
+        }
+    }
+
+    public static class Usage {
+        private final long bytesUsed;
+        private final long fileCount;
+        private final long maxBytes;
+        private final long maxFiles;
+        private final LocalDateTime reconciledAt;
+
+        Usage(long bytesUsed, long fileCount, long maxBytes, long maxFiles, LocalDateTime reconciledAt) {
+            this.bytesUsed = bytesUsed;
+            this.fileCount = fileCount;
+            this.maxBytes = maxBytes;
+            this.maxFiles = maxFiles;
+            this.reconciledAt = reconciledAt;
+        }
+
+        public long getBytesUsed() { return bytesUsed; }
+        public long getFileCount() { return fileCount; }
+        // 0 when unlimited
+        public long getMaxBytes() { return maxBytes; }
+        public long getMaxFiles() { return maxFiles; }
+        public LocalDateTime getReconciledAt() { return reconciledAt; }
+        public String getFormattedSize() { return FileCleanupService.formatFileSize(bytesUsed); }
+    }
+
+    public static class ReconcileReport {
+        private int usersChecked;
+        private int usersCorrected;
+        private int errors;
+        private long durationMs;
+
+        public int getUsersChecked() { return usersChecked; }
+        public int getUsersCorrected() { return usersCorrected; }
+        public int getErrors() { return errors; }
+        public long getDurationMs() { return durationMs; }
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Flashcard;
+import com.example.springbootjava.repository.FlashcardRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for flashcard study events. Accepted events are held in a bounded queue and
+ * written as JDBC batches once batch-size events are waiting or every flush interval, whichever
+ * comes first. Without the journal a crash loses whatever is still buffered; with it, events are
+ * appended to a local segment file first and a crash loses at most the last sync interval
+ * (nothing when it is 0). Leftover segments are replayed on startup, so delivery is at least once.
+ *
+ * Scored events are reviews: the batch that writes them also advances each card's SM-2 schedule,
+ * in the order the events occurred. An event no later than the card's last review is not applied
+ * again, so a replayed segment does not review a card twice.
+ */
+@Component
+public class StudyEventBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudyEventBuffer.class);
+
+    private static final String INSERT_SQL = "INSERT INTO flashcard_study_sessions "
+            + "(flashcard_id, score, time_spent_seconds, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SEGMENT_PREFIX = "study-events-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FlashcardRepository flashcardRepository;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Value("${study-events.buffer-capacity:10000}")
+    private int capacity;
+
+    @Value("${study-events.batch-size:500}")
+    private int batchSize;
+
+    @Value("${study-events.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${study-events.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    @Value("${study-events.journal.dir:./study-journal}")
+    private String journalDir;
+
+    @Value("${study-events.journal.sync-interval-ms:0}")
+    private long syncIntervalMs;
+
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+
+    // Guarded by lock
+    private final ArrayDeque<StudyEvent> buffer = new ArrayDeque<>();
+    private FileChannel journal;
+    private Path segment;
+    private long segmentSequence;
+    private boolean flushQueued;
+
+    // Segments whose events are still buffered after a failed flush; guarded by flushLock
+    private final List<Path> unflushedSegments = new ArrayList<>();
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (journalEnabled) {
+            Files.createDirectories(Paths.get(journalDir));
+            replayJournal();
+            openSegment();
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Study-event-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (journalEnabled && syncIntervalMs > 0) {
+            flusher.scheduleWithFixedDelay(this::syncJournal, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        synchronized (lock) {
+            closeJournal();
+        }
+    }
+
+    /**
+     * Buffers all of the events, or none of them when the buffer lacks room for the lot. With the
+     * journal on, the events are on disk (and synced, for a sync interval of 0) before this returns.
+     */
+    public boolean offer(List<StudyEvent> events) throws IOException {
+        if (events.isEmpty()) {
+            return true;
+        }
+        synchronized (lock) {
+            if (buffer.size() + events.size() > capacity) {
+                return false;
+            }
+            if (journal != null) {
+                append(events);
+            }
+            buffer.addAll(events);
+            if (buffer.size() >= batchSize && !flushQueued) {
+                flushQueued = true;
+                flusher.execute(this::flushQuietly);
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return buffer.size();
+        }
+    }
+
+    /**
+     * Writes everything buffered so far. A failed batch goes back to the front of the buffer and
+     * its journal segment is kept until a later flush succeeds.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<StudyEvent> batch;
+            Path flushedSegment;
+            synchronized (lock) {
+                flushQueued = false;
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(buffer);
+                buffer.clear();
+                flushedSegment = rotateSegment();
+            }
+            if (flushedSegment != null) {
+                unflushedSegments.add(flushedSegment);
+            }
+            try {
+                insert(batch);
+            } catch (DataAccessException e) {
+                synchronized (lock) {
+                    for (int i = batch.size() - 1; i >= 0; i--) {
+                        buffer.addFirst(batch.get(i));
+                    }
+                }
+                throw e;
+            }
+            for (Path flushed : unflushedSegments) {
+                try {
+                    Files.deleteIfExists(flushed);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete flushed study event segment {}", flushed, e);
+                }
+            }
+            unflushedSegments.clear();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to flush study events, will retry", e);
+        }
+    }
+
+    // One transaction per attempt, so a failed batch leaves nothing behind to be written twice
+    private void insert(List<StudyEvent> events) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                batchInsert(events);
+                applyReviews(events);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // A card was deleted while its events were buffered; drop those events and retry once
+            List<StudyEvent> live = withExistingFlashcards(events);
+            logger.info("Dropping {} study events for deleted flashcards", events.size() - live.size());
+            transactionTemplate.executeWithoutResult(status -> {
+                batchInsert(live);
+                applyReviews(live);
+            });
+        }
+    }
+
+    private void applyReviews(List<StudyEvent> events) {
+        Map<Long, List<StudyEvent>> reviews = new HashMap<>();
+        for (StudyEvent event : events) {
+            // Journals written before scores were checked may hold any number; those stay telemetry
+            if (event.getScore() != null && event.getScore() >= ReviewScheduler.MIN_QUALITY
+                    && event.getScore() <= ReviewScheduler.MAX_QUALITY) {
+                reviews.computeIfAbsent(event.getFlashcardId(), id -> new ArrayList<>()).add(event);
+            }
+        }
+        if (reviews.isEmpty()) {
+            return;
+        }
+        Set<Long> users = new HashSet<>();
+        for (Flashcard card : flashcardRepository.findAllById(reviews.keySet())) {
+            List<StudyEvent> cardReviews = reviews.get(card.getId());
+            cardReviews.sort(Comparator.comparing(StudyEvent::getOccurredAt));
+            for (StudyEvent event : cardReviews) {
+                if (card.getLastReviewedAt() == null || event.getOccurredAt().isAfter(card.getLastReviewedAt())) {
+                    ReviewScheduler.review(card, event.getScore().intValue(), event.getOccurredAt());
+                    users.add(card.getUser().getId());
+                }
+            }
+        }
+        users.forEach(userId -> collectionVersions.bump(userId, CollectionVersions.Type.FLASHCARDS));
+    }
+
+    private void batchInsert(List<StudyEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        // created_at keeps when the card was studied, which the client reports and may be days old
+        // for a late sync; updated_at is when the row was written, which incremental backups select by
+        Timestamp insertedAt = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, batchSize, (statement, event) -> {
+            Timestamp occurredAt = Timestamp.valueOf(event.getOccurredAt());
+            statement.setLong(1, event.getFlashcardId());
+            if (event.getScore() != null) {
+                statement.setDouble(2, event.getScore());
+            } else {
+                statement.setNull(2, Types.DOUBLE);
+            }
+            if (event.getTimeSpentSeconds() != null) {
+                statement.setInt(3, event.getTimeSpentSeconds());
+            } else {
+                statement.setNull(3, Types.INTEGER);
+            }
+            statement.setTimestamp(4, occurredAt);
+            statement.setTimestamp(5, insertedAt);
+        });
+    }
+
+    private List<StudyEvent> withExistingFlashcards(List<StudyEvent> events) {
+        Set<Long> ids = new HashSet<>();
+        events.forEach(event -> ids.add(event.getFlashcardId()));
+        Set<Long> existing = new HashSet<>(new NamedParameterJdbcTemplate(jdbcTemplate)
+                .queryForList("SELECT id FROM flashcards WHERE id IN (:ids)", Map.of("ids", ids), Long.class));
+        return events.stream().filter(event -> existing.contains(event.getFlashcardId())).toList();
+    }
+
+    // Journal: one tab-separated line per event in numbered segment files
+
+    private void append(List<StudyEvent> events) throws IOException {
+        StringBuilder lines = new StringBuilder(events.size() * 48);
+        for (StudyEvent event : events) {
+            lines.append(event.getFlashcardId()).append('\t')
+                    .append(event.getScore() != null ? event.getScore() : "").append('\t')
+                    .append(event.getTimeSpentSeconds() != null ? event.getTimeSpentSeconds() : "").append('\t')
+                    .append(event.getOccurredAt()).append('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            journal.write(bytes);
+        }
+        if (syncIntervalMs <= 0) {
+            journal.force(false);
+        }
+    }
+
+    private void syncJournal() {
+        synchronized (lock) {
+            if (journal == null) {
+                return;
+            }
+            try {
+                journal.force(false);
+            } catch (IOException e) {
+                logger.warn("Failed to sync study event journal {}", segment, e);
+            }
+        }
+    }
+
+    // Closes the current segment and starts the next; returns the closed one, or null without a journal
+    private Path rotateSegment() {
+        if (journal == null) {
+            return null;
+        }
+        Path closed = segment;
+        closeJournal();
+        try {
+            openSegment();
+        } catch (IOException e) {
+            // Carry on unjournaled rather than refuse events; the next rotation tries again
+            logger.error("Failed to open study event journal segment, events are not journaled", e);
+        }
+        return closed;
+    }
+
+    private void openSegment() throws IOException {
+        segment = Paths.get(journalDir, String.format("%s%019d%s", SEGMENT_PREFIX, ++segmentSequence, SEGMENT_SUFFIX));
+        journal = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.force(false);
+            journal.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close study event journal {}", segment, e);
+        }
+        journal = null;
+    }
+
+    // Buffers the events of segments left by a previous run; the segments go with the first flush
+    private void replayJournal() throws IOException {
+        TreeSet<Path> segments = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(journalDir), SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            files.forEach(segments::add);
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+        String last = segments.last().getFileName().toString();
+        segmentSequence = Long.parseLong(last.substring(SEGMENT_PREFIX.length(), last.length() - SEGMENT_SUFFIX.length()));
+
+        for (Path file : segments) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    StudyEvent event = parse(line);
+                    // A torn last line from the crash is skipped
+                    if (event != null) {
+                        buffer.add(event);
+                    }
+                }
+            }
+        }
+        unflushedSegments.addAll(segments);
+        logger.info("Replaying {} study events from {} journal segments", buffer.size(), segments.size());
+    }
+
+    private static StudyEvent parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 4) {
+            return null;
+        }
+        try {
+            return new StudyEvent(Long.parseLong(fields[0]),
+                    fields[1].isEmpty() ? null : Double.valueOf(fields[1]),
+                    fields[2].isEmpty() ? null : Integer.valueOf(fields[2]),
+                    LocalDateTime.parse(fields[3]));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public static final class StudyEvent {
+        private final long flashcardId;
+        private final Double score;
+        private final Integer timeSpentSeconds;
+        private final LocalDateTime occurredAt;
+
+        public StudyEvent(long flashcardId, Double score, Integer timeSpentSeconds, LocalDateTime occurredAt) {
+            this.flashcardId = flashcardId;
+            this.score = score;
+            this.timeSpentSeconds = timeSpentSeconds;
+            this.occurredAt = occurredAt;
+        }
+
+        public long getFlashcardId() { return flashcardId; }
+        public Double getScore() { return score; }
+        public Integer getTimeSpentSeconds() { return timeSpentSeconds; }
+        public LocalDateTime getOccurredAt() { return occurredAt; }
+    }
+}
@@ -0,0 +1,415 @@
+package com.example.springbootjava.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.fork.ForkParser;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs Tika text extraction with a streaming character cap, a wall-clock timeout and,
+ * optionally, inside a pool of forked JVMs so a parser crash or OOM only takes down a worker.
+ *
+ * In process, each extraction runs on a thread of its own. Interrupts cannot stop a parser spinning
+ * in CPU-bound or native code, so a timeout abandons the thread instead of waiting for it: the slot
+ * it held is free for the next upload at once. Uploads are refused while max-stuck-threads abandoned
+ * threads are still running, which bounds the cores a batch of pathological files can take.
+ */
+@Service
+public class TikaExtractionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TikaExtractionService.class);
+
+    @Autowired
+    private TikaParserPool parserPool;
+
+    @Autowired
+    private PageTextExtractor pageTextExtractor;
+
+    @Value("${document.extraction.max-chars:500000}")
+    private int maxChars;
+
+    @Value("${document.extraction.timeout-seconds:60}")
+    private long timeoutSeconds;
+
+    @Value("${document.extraction.threads:2}")
+    private int extractionThreads;
+
+    @Value("${document.extraction.max-stuck-threads:4}")
+    private int maxStuckThreads;
+
+    @Value("${document.extraction.fork.enabled:false}")
+    private boolean forkEnabled;
+
+    @Value("${document.extraction.fork.pool-size:2}")
+    private int forkPoolSize;
+
+    @Value("${document.extraction.fork.max-heap:256m}")
+    private String forkMaxHeap;
+
+    private final Map<String, FormatStats> statsByFormat = new ConcurrentHashMap<>();
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    // Threads a timeout gave up on that are still running
+    private final AtomicInteger stuckThreads = new AtomicInteger();
+    // Extractions that may run at once
+    private Semaphore slots;
+    private ForkParser forkParser;
+
+    @PostConstruct
+    public void init() {
+        slots = new Semaphore(extractionThreads);
+
+        if (forkEnabled) {
+            forkParser = new ForkParser(TikaExtractionService.class.getClassLoader(), parserPool.newParser());
+            forkParser.setPoolSize(forkPoolSize);
+            forkParser.setJavaCommand(forkJavaCommand());
+            forkParser.setServerParseTimeoutMillis(TimeUnit.SECONDS.toMillis(timeoutSeconds));
+            logger.info("Tika extraction runs in up to {} forked JVMs (-Xmx{})", forkPoolSize, forkMaxHeap);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (forkParser != null) {
+            forkParser.close();
+        }
+    }
+
+    /**
+     * Extracts the body text of a file, stopping at the configured character limit or timeout
+     */
+    public ExtractionResult extract(Path file) throws IOException {
+        String format = formatOf(file);
+        long bytes = Files.size(file);
+        BoundedTextHandler handler = new BoundedTextHandler(maxChars);
+        // The pooled parser the parse is using, so a timeout can replace it
+        AtomicReference<Parser> borrowed = new AtomicReference<>();
+        long started = System.nanoTime();
+
+        acquireSlot(format);
+        FutureTask<PageTextExtractor.PageText> future = new FutureTask<>(() -> {
+            // PDFs, and decks large enough to split into page ranges, are extracted page by page;
+            // forked mode keeps every parse out of process
+            if (forkParser == null) {
+                PageTextExtractor.PageText pages = pageTextExtractor.tryExtract(file, format, maxChars, handler::isCancelled);
+                if (pages != null) {
+                    return pages;
+                }
+            }
+            parse(file, handler, borrowed);
+            return null;
+        });
+        // Taken by whichever comes first, the worker finishing or the caller giving up on it
+        AtomicBoolean settled = new AtomicBoolean();
+        Thread worker = new Thread(() -> {
+            try {
+                future.run();
+            } finally {
+                if (!settled.compareAndSet(false, true)) {
+                    stuckThreads.decrementAndGet();
+                    logger.info("Abandoned extraction of {} finished", file.getFileName());
+                }
+            }
+        }, "Extract-" + threadCount.incrementAndGet());
+        worker.setDaemon(true);
+
+        PageTextExtractor.PageText pageText = null;
+        try {
+            worker.start();
+            pageText = future.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // Parsers that still emit text stop at the next callback; the interrupt covers blocking IO
+            handler.cancel();
+            future.cancel(true);
+            // A parser spinning in native or CPU-bound code ignores both; its thread is left to finish
+            // on its own and the pool replaces its parser
+            parserPool.abandon(borrowed.getAndSet(null));
+            if (settled.compareAndSet(false, true)) {
+                logger.warn("Abandoned extraction thread {} after {}s, {} abandoned threads still running",
+                        worker.getName(), timeoutSeconds, stuckThreads.incrementAndGet());
+            }
+            stats(format).timeouts.increment();
+            throw new IOException("Extraction of " + file.getFileName() + " timed out after " + timeoutSeconds + "s");
+        } catch (InterruptedException e) {
+            handler.cancel();
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Extraction interrupted", e);
+        } catch (ExecutionException e) {
+            // Tika wraps handler exceptions, so the handler itself says whether the limit stopped the parse
+            Throwable cause = e.getCause();
+            if (!handler.isTruncated()) {
+                stats(format).failures.increment();
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw new IOException("Failed to extract content: " + cause.getMessage(), cause);
+            }
+        } finally {
+            slots.release();
+        }
+
+        long elapsedNanos = System.nanoTime() - started;
+        String text = pageText != null ? pageText.joined() : handler.getText();
+        List<String> pages = pageText != null ? pageText.getPages() : handler.getPages();
+        boolean truncated = pageText != null ? pageText.isTruncated() : handler.isTruncated();
+        stats(format).record(bytes, text.length(), elapsedNanos, truncated);
+        if (truncated) {
+            logger.warn("Extraction of {} truncated at {} chars", file.getFileName(), maxChars);
+        }
+        return new ExtractionResult(text, pages, format, truncated, elapsedNanos);
+    }
+
+    // Waits up to the extraction timeout for a free slot; refuses outright while too many abandoned
+    // threads are still burning CPU
+    private void acquireSlot(String format) throws IOException {
+        if (stuckThreads.get() >= maxStuckThreads) {
+            stats(format).failures.increment();
+            throw new IOException("Extraction capacity exhausted by " + stuckThreads.get() + " stuck parses, try again later");
+        }
+        try {
+            if (!slots.tryAcquire(timeoutSeconds, TimeUnit.SECONDS)) {
+                stats(format).failures.increment();
+                throw new IOException("Extraction capacity exhausted, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to extract", e);
+        }
+    }
+
+    /**
+     * Per-format extraction counters, keyed by file extension
+     */
+    public Map<String, FormatStats> getStatsByFormat() {
+        return new TreeMap<>(statsByFormat);
+    }
+
+    private void parse(Path file, BoundedTextHandler handler, AtomicReference<Parser> borrowed)
+            throws IOException, SAXException, TikaException {
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, file.getFileName().toString());
+        ParseContext context = new ParseContext();
+        if (forkParser != null) {
+            try (InputStream stream = Files.newInputStream(file)) {
+                forkParser.parse(stream, new BodyContentHandler(handler), metadata, context);
+            }
+            return;
+        }
+
+        Parser parser = parserPool.borrow();
+        borrowed.set(parser);
+        try (InputStream stream = Files.newInputStream(file)) {
+            context.set(Parser.class, parser);
+            parser.parse(stream, new BodyContentHandler(handler), metadata, context);
+        } finally {
+            // Unless a timeout already abandoned it and the pool has a replacement
+            if (borrowed.compareAndSet(parser, null)) {
+                parserPool.release(parser);
+            }
+        }
+    }
+
+    private List<String> forkJavaCommand() {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("-Xmx" + forkMaxHeap);
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        return command;
+    }
+
+    private FormatStats stats(String format) {
+        return statsByFormat.computeIfAbsent(format, key -> new FormatStats());
+    }
+
+    private static String formatOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "unknown" : name.substring(dot + 1).toLowerCase();
+    }
+
+    /**
+     * Collects body text and aborts the parse once the limit is hit or the caller gives up.
+     * Page (PDF) and slide (PowerPoint) divs in Tika's XHTML are recorded as page boundaries.
+     */
+    static class BoundedTextHandler extends DefaultHandler {
+        private final int maxChars;
+        private final StringBuilder text = new StringBuilder();
+        private final List<Integer> pageStarts = new ArrayList<>();
+        private volatile boolean cancelled;
+        private boolean truncated;
+
+        BoundedTextHandler(int maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("div".equals(localName)) {
+                String cssClass = attributes.getValue("class");
+                if ("page".equals(cssClass) || "slide-content".equals(cssClass)) {
+                    pageStarts.add(text.length());
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            append(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            append(ch, start, length);
+        }
+
+        private void append(char[] ch, int start, int length) throws SAXException {
+            if (cancelled) {
+                throw new SAXException("Extraction cancelled");
+            }
+            int remaining = maxChars - text.length();
+            if (length > remaining) {
+                text.append(ch, start, Math.max(remaining, 0));
+                truncated = true;
+                throw new LimitReachedException();
+            }
+            text.append(ch, start, length);
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        String getText() {
+            return text.toString();
+        }
+
+        /**
+         * Text per page, or null when the parser emitted no page boundaries
+         */
+        List<String> getPages() {
+            if (pageStarts.isEmpty()) {
+                return null;
+            }
+            List<String> pages = new ArrayList<>(pageStarts.size());
+            for (int i = 0; i < pageStarts.size(); i++) {
+                // Anything emitted before the first page div belongs to the first page
+                int start = i == 0 ? 0 : pageStarts.get(i);
+                int end = i + 1 < pageStarts.size() ? pageStarts.get(i + 1) : text.length();
+                pages.add(text.substring(start, end));
+            }
+            return pages;
+        }
+    }
+
+    static class LimitReachedException extends SAXException {
+        LimitReachedException() {
+            super("Character limit reached");
+        }
+    }
+
+    public static class ExtractionResult {
+        private final String text;
+        private final List<String> pages;
+        private final String format;
+        private final boolean truncated;
+        private final long elapsedNanos;
+
+        public ExtractionResult(String text, List<String> pages, String format, boolean truncated, long elapsedNanos) {
+            this.text = text;
+            this.pages = pages;
+            this.format = format;
+            this.truncated = truncated;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getText() { return text; }
+        /** Text per page or slide, or null for formats without pages */
+        public List<String> getPages() { return pages; }
+        public String getFormat() { return format; }
+        public boolean isTruncated() { return truncated; }
+        public long getElapsedNanos() { return elapsedNanos; }
+    }
+
+    public static class FormatStats {
+        private final LongAdder extractions = new LongAdder();
+        private final LongAdder truncations = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder charsOut = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void record(long bytes, long chars, long elapsedNanos, boolean truncated) {
+            extractions.increment();
+            bytesIn.add(bytes);
+            charsOut.add(chars);
+            nanos.add(elapsedNanos);
+            if (truncated) {
+                truncations.increment();
+            }
+        }
+
+        public long getExtractions() { return extractions.sum(); }
+        public long getTruncations() { return truncations.sum(); }
+        public long getTimeouts() { return timeouts.sum(); }
+        public long getFailures() { return failures.sum(); }
+        public long getBytesIn() { return bytesIn.sum(); }
+        public long getCharsOut() { return charsOut.sum(); }
+
+        public double getAverageMillis() {
+            long count = extractions.sum();
+            return count == 0 ? 0 : nanos.sum() / 1_000_000.0 / count;
+        }
+
+        public double getMegabytesPerSecond() {
+            long total = nanos.sum();
+            return total == 0 ? 0 : (bytesIn.sum() / (1024.0 * 1024.0)) / (total / 1_000_000_000.0);
+        }
+
+        public double getCharsPerSecond() {
+            long total = nanos.sum();
+            return total == 0 ? 0 : charsOut.sum() / (total / 1_000_000_000.0);
+        }
+    }
+}
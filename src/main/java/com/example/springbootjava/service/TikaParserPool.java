@@ -0,0 +1,164 @@
+package com.example.springbootjava.service;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of AutoDetectParser instances built from tika-config.xml, which only registers the
+ * parsers for the upload formats we accept. Parsers are warmed on startup, before the web server
+ * accepts requests, by parsing the embedded samples in tika-warmup/ so the first real upload does
+ * not pay for lazy init and cold JIT.
+ */
+@Component
+public class TikaParserPool implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(TikaParserPool.class);
+
+    private static final String CONFIG_RESOURCE = "tika-config.xml";
+    private static final String[] WARMUP_SAMPLES = {
+            "sample.pdf", "sample.docx", "sample.pptx", "sample.ppt", "sample.txt"
+    };
+
+    @Value("${document.extraction.parser-pool-size:0}")
+    private int configuredPoolSize;
+
+    @Value("${document.extraction.parser-borrow-timeout-seconds:30}")
+    private long borrowTimeoutSeconds;
+
+    @Value("${document.extraction.warmup.enabled:true}")
+    private boolean warmupEnabled;
+
+    @Value("${document.extraction.warmup.iterations:3}")
+    private int warmupIterations;
+
+    private TikaConfig tikaConfig;
+    private BlockingQueue<Parser> parsers;
+    private int poolSize;
+
+    @PostConstruct
+    public void init() throws Exception {
+        try (InputStream config = new ClassPathResource(CONFIG_RESOURCE).getInputStream()) {
+            tikaConfig = new TikaConfig(config);
+        }
+        poolSize = configuredPoolSize > 0 ? configuredPoolSize : Runtime.getRuntime().availableProcessors();
+        parsers = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            parsers.add(newParser());
+        }
+        logger.info("Tika parser pool ready with {} parsers", poolSize);
+    }
+
+    /**
+     * Creates a standalone parser from the restricted config, e.g. for a ForkParser child
+     */
+    public Parser newParser() {
+        return new AutoDetectParser(tikaConfig);
+    }
+
+    /**
+     * Takes a parser from the pool, waiting up to the borrow timeout
+     */
+    public Parser borrow() throws IOException {
+        try {
+            Parser parser = parsers.poll(borrowTimeoutSeconds, TimeUnit.SECONDS);
+            if (parser == null) {
+                throw new IOException("No Tika parser available after " + borrowTimeoutSeconds + "s");
+            }
+            return parser;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a Tika parser", e);
+        }
+    }
+
+    /**
+     * Returns a parser to the pool
+     */
+    public void release(Parser parser) {
+        if (parser != null) {
+            parsers.offer(parser);
+        }
+    }
+
+    /**
+     * Gives up on a borrowed parser whose parse timed out and may never return; the caller must not
+     * release it afterwards. A new parser takes its place straight away, so a stuck parse does not
+     * shrink the pool.
+     */
+    public void abandon(Parser parser) {
+        if (parser != null) {
+            parsers.offer(newParser());
+            logger.warn("Replaced a Tika parser stuck in a timed-out parse");
+        }
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    // Runs once all singletons exist, which is before the web server starts taking requests
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (warmupEnabled) {
+            warmUp(warmupIterations);
+        }
+    }
+
+    /**
+     * Parses every embedded sample with every pooled parser so parsers and JIT are hot before traffic.
+     * Takes one parser out of the pool at a time, so a warm-up never leaves extraction waiting.
+     */
+    public void warmUp(int iterations) {
+        long started = System.currentTimeMillis();
+        int warmed = 0;
+        for (int i = 0; i < iterations; i++) {
+            // The queue is FIFO, so taking and returning poolSize parsers visits each of them once
+            for (int n = 0; n < poolSize; n++) {
+                Parser parser = parsers.poll();
+                if (parser == null) {
+                    break;
+                }
+                try {
+                    for (String sample : WARMUP_SAMPLES) {
+                        parseSample(parser, sample);
+                    }
+                    warmed++;
+                } finally {
+                    release(parser);
+                }
+            }
+        }
+        logger.info("Tika warm-up parsed {} samples {} times in {} ms",
+                WARMUP_SAMPLES.length, warmed, System.currentTimeMillis() - started);
+    }
+
+    private void parseSample(Parser parser, String sample) {
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, sample);
+        ParseContext context = new ParseContext();
+        context.set(Parser.class, parser);
+        try (InputStream stream = new ClassPathResource("tika-warmup/" + sample).getInputStream()) {
+            parser.parse(stream, new BodyContentHandler(-1), metadata, context);
+        } catch (Exception e) {
+            logger.warn("Warm-up parse of {} failed: {}", sample, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.springbootjava.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived cache of per-user collection counts so paginated endpoints can report a total
+ * without running {@code COUNT(*)} on every page. Services drop a user's entries whenever
+ * they add, change or remove something the counts cover.
+ */
+@Component
+public class TotalCountCache {
+
+    private static final int MAX_KEYS_PER_USER = 256;
+
+    @Value("${pagination.total-count-ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${pagination.total-count-max-users:10000}")
+    private int maxUsers;
+
+    private final Map<Long, Map<String, Entry>> counts = new ConcurrentHashMap<>();
+
+    public long get(Long userId, String key, LongSupplier loader) {
+        long now = System.nanoTime();
+        Map<String, Entry> userCounts = counts.get(userId);
+        if (userCounts != null) {
+            Entry entry = userCounts.get(key);
+            if (entry != null && now - entry.loadedAt < ttlSeconds * 1_000_000_000L) {
+                return entry.count;
+            }
+        }
+        long count = loader.getAsLong();
+        if (counts.size() >= maxUsers && !counts.containsKey(userId)) {
+            counts.clear();
+        }
+        Map<String, Entry> target = counts.computeIfAbsent(userId, id -> new ConcurrentHashMap<>());
+        if (target.size() >= MAX_KEYS_PER_USER) {
+            // Search terms make keys open-ended; dropping the lot is cheaper than tracking expiry
+            target.clear();
+        }
+        target.put(key, new Entry(count, now));
+        return count;
+    }
+
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            counts.remove(userId);
+        }
+    }
+
+    public void clear() {
+        counts.clear();
+    }
+
+    private static class Entry {
+        final long count;
+        final long loadedAt;
+
+        Entry(long count, long loadedAt) {
+            this.count = count;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.springbootjava.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.example.springbootjava.entity.Flashcard;
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.repository.FlashcardRepository;
+import com.example.springbootjava.repository.UserRepository;
+import com.example.springbootjava.security.JwtUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput of GET /api/flashcards with application logging written synchronously by request
+ * threads against the same events handed to an async appender, both at one level
+ * ({@code -Dbench.level}, DEBUG by default) and to a file. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class FlashcardEndpointBenchmark {
+    
+    private static final int THREADS = Integer.getInteger("bench.threads", 16);
+    private static final long WARMUP_MILLIS = Long.getLong("bench.warmupMillis", 3000);
+    private static final long RUN_MILLIS = Long.getLong("bench.runMillis", 10000);
+    private static final Level LEVEL = Level.toLevel(System.getProperty("bench.level"), Level.DEBUG);
+    
+    @LocalServerPort
+    private int port;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private FlashcardRepository flashcardRepository;
+    
+    @Autowired
+    private JwtUtils jwtUtils;
+    
+    @Test
+    void flashcardListThroughput() throws Exception {
+        User user = new User("Bench", "User", "bench@example.com", "password123");
+        user = userRepository.save(user);
+        List<Flashcard> flashcards = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            flashcards.add(new Flashcard("Question " + i, "Answer " + i, user));
+        }
+        flashcardRepository.saveAll(flashcards);
+        String token = jwtUtils.generateToken(user);
+        
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(THREADS)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/flashcards"))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+        
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        double sync = measure(client, request, context, false);
+        double async = measure(client, request, context, true);
+        
+        System.out.printf("GET /api/flashcards, %d threads, %s logging: sync %.0f req/s, async %.0f req/s (%.2fx)%n",
+                THREADS, LEVEL, sync, async, async / sync);
+    }
+    
+    // Requests per second with every event at LEVEL written to a file, by the request threads or through a queue
+    private double measure(HttpClient client, HttpRequest request, LoggerContext context, boolean async) throws Exception {
+        Path logFile = Files.createTempFile(async ? "bench-async" : "bench-sync", ".log");
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        Logger app = context.getLogger("com.example.springbootjava");
+        List<Appender<ILoggingEvent>> detached = detachAll(root);
+        Appender<ILoggingEvent> appender = async ? asyncAppender(context, fileAppender(context, logFile)) : fileAppender(context, logFile);
+        root.addAppender(appender);
+        app.setLevel(LEVEL);
+        try {
+            run(client, request, WARMUP_MILLIS);
+            return run(client, request, RUN_MILLIS);
+        } finally {
+            app.setLevel(null);
+            root.detachAppender(appender);
+            appender.stop();
+            detached.forEach(root::addAppender);
+            Files.deleteIfExists(logFile);
+        }
+    }
+    
+    private double run(HttpClient client, HttpRequest request, long millis) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+        AtomicLong completed = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(workers.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    assertEquals(200, response.statusCode());
+                    completed.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        workers.shutdown();
+        return completed.get() * 1000.0 / millis;
+    }
+    
+    private List<Appender<ILoggingEvent>> detachAll(Logger logger) {
+        List<Appender<ILoggingEvent>> appenders = new ArrayList<>();
+        for (Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders(); it.hasNext(); ) {
+            appenders.add(it.next());
+        }
+        appenders.forEach(logger::detachAppender);
+        return appenders;
+    }
+    
+    private FileAppender<ILoggingEvent> fileAppender(LoggerContext context, Path file) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %5p [%X{requestId:-}] %t %logger{36} : %m%n");
+        encoder.start();
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(file.toString());
+        appender.setEncoder(encoder);
+        appender.setImmediateFlush(true);
+        appender.start();
+        return appender;
+    }
+    
+    // Configured like ASYNC_CONSOLE in logback-spring.xml
+    private AsyncAppender asyncAppender(LoggerContext context, Appender<ILoggingEvent> delegate) {
+        AsyncAppender appender = new AsyncAppender();
+        appender.setContext(context);
+        appender.setQueueSize(8192);
+        appender.setDiscardingThreshold(0);
+        appender.setNeverBlock(true);
+        appender.addAppender(delegate);
+        appender.start();
+        return appender;
+    }
+}
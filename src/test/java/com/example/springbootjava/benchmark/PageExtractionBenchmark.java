@@ -0,0 +1,97 @@
+package com.example.springbootjava.benchmark;
+
+import com.example.springbootjava.service.PageTextExtractor;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Speedup of page-range parallel PDF extraction over the single-threaded path, by page count and
+ * thread count. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class PageExtractionBenchmark {
+
+    private static final int[] PAGE_COUNTS = {50, 150, 300};
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 3);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void pdfSpeedupByPagesAndThreads() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Set<Integer> threadCounts = new LinkedHashSet<>();
+        for (int threads = 2; threads <= Math.max(2, cores); threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(Math.max(2, cores));
+
+        System.out.printf("Page-range PDF extraction, %d available cores%n", cores);
+        for (int pages : PAGE_COUNTS) {
+            Path pdf = writePdf(pages);
+            double baseline = measure(pdf, 1, pages);
+            StringBuilder row = new StringBuilder(String.format("%4d pages: 1 thread %7.1f ms", pages, baseline));
+            for (int threads : threadCounts) {
+                double millis = measure(pdf, threads, pages);
+                row.append(String.format(" | %d threads %7.1f ms (%.2fx)", threads, millis, baseline / millis));
+            }
+            System.out.println(row);
+        }
+    }
+
+    private double measure(Path pdf, int threads, int expectedPages) throws Exception {
+        PageTextExtractor extractor = new PageTextExtractor();
+        // threads == 1 gives a parallelism-1 pool, which isParallelCandidate routes to the single-threaded path
+        ReflectionTestUtils.setField(extractor, "minPagesForParallel", 1);
+        ReflectionTestUtils.setField(extractor, "pagesPerTask", 8);
+        ReflectionTestUtils.setField(extractor, "parallelThreads", threads);
+        extractor.init();
+        try {
+            extractor.extract(pdf, "pdf", Integer.MAX_VALUE, () -> false);
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long started = System.nanoTime();
+                PageTextExtractor.PageText text = extractor.extract(pdf, "pdf", Integer.MAX_VALUE, () -> false);
+                best = Math.min(best, System.nanoTime() - started);
+                assertEquals(expectedPages, text.getPages().size());
+            }
+            return best / 1_000_000.0;
+        } finally {
+            extractor.shutdown();
+        }
+    }
+
+    private Path writePdf(int pages) throws Exception {
+        Path file = tempDir.resolve("bench-" + pages + ".pdf");
+        try (PDDocument document = new PDDocument()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    content.newLineAtOffset(40, 750);
+                    for (int line = 0; line < 50; line++) {
+                        content.showText("Page " + (p + 1) + " line " + line + ": cellular respiration releases energy from glucose.");
+                        content.newLineAtOffset(0, -14);
+                    }
+                    content.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.springbootjava.benchmark;
+
+import com.example.springbootjava.dto.QuizQuestionResponseDTO;
+import com.example.springbootjava.dto.QuizResponseDTO;
+import com.example.springbootjava.entity.Quiz;
+import com.example.springbootjava.entity.QuizAnswer;
+import com.example.springbootjava.entity.QuizQuestion;
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.service.QuizGraphLoader;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Statements and time needed to render a page of quizzes as QuizResponseDTOs, walking the lazy
+ * question/answer collections against loading them with QuizGraphLoader, as the number of
+ * questions per quiz grows. The loader's count only steps up once a side spills over
+ * {@code quiz.graph.batch-size} ids. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(QuizGraphLoader.class)
+@TestPropertySource(properties = "quiz.graph.batch-size=" + QuizGraphBenchmark.BATCH_SIZE)
+class QuizGraphBenchmark {
+
+    private static final int QUIZZES = Integer.getInteger("bench.quizzes", 20);
+    private static final int ANSWERS = 4;
+    static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private QuizGraphLoader quizGraphLoader;
+
+    @Test
+    void statementsPerPageByQuestionCount() {
+        User user = new User("Bench", "User", "quiz-bench@example.com", "password123");
+        user = entityManager.persist(user);
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        for (int questionsPerQuiz : new int[] {5, 20, 80}) {
+            List<Long> quizIds = new ArrayList<>();
+            for (int q = 0; q < QUIZZES; q++) {
+                Quiz quiz = entityManager.persist(new Quiz("Quiz " + q, null, 10, user));
+                quizIds.add(quiz.getId());
+                for (int i = 0; i < questionsPerQuiz; i++) {
+                    QuizQuestion question = new QuizQuestion("Question " + i, QuizQuestion.QuestionType.MULTIPLE_CHOICE, quiz);
+                    question.setOrder(i);
+                    entityManager.persist(question);
+                    for (int a = 0; a < ANSWERS; a++) {
+                        entityManager.persist(new QuizAnswer("Answer " + a, a == 0, a, question));
+                    }
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+
+            statistics.clear();
+            long started = System.nanoTime();
+            List<Quiz> quizzes = quizzesById(quizIds);
+            quizzes.forEach(QuizResponseDTO::new);
+            long lazyNanos = System.nanoTime() - started;
+            long lazyStatements = statistics.getPrepareStatementCount();
+            entityManager.clear();
+
+            statistics.clear();
+            started = System.nanoTime();
+            quizzes = quizzesById(quizIds);
+            Map<Long, List<QuizQuestionResponseDTO>> questions = quizGraphLoader.loadQuestions(quizIds);
+            quizzes.forEach(quiz -> new QuizResponseDTO(quiz, questions.get(quiz.getId()), null));
+            long loaderNanos = System.nanoTime() - started;
+            long statementsWithLoader = statistics.getPrepareStatementCount();
+            entityManager.clear();
+
+            System.out.printf("%d quizzes x %3d questions: lazy walk %5d statements %7.1f ms | loader %d statements %7.1f ms%n",
+                    QUIZZES, questionsPerQuiz, lazyStatements, lazyNanos / 1e6, statementsWithLoader, loaderNanos / 1e6);
+
+            // One select for the quizzes, then one per batch of quiz ids and one per batch of question ids
+            long expected = 1 + batches(QUIZZES) + batches(QUIZZES * questionsPerQuiz);
+            assertEquals(expected, statementsWithLoader);
+        }
+    }
+
+    private static long batches(int ids) {
+        return (ids + BATCH_SIZE - 1) / BATCH_SIZE;
+    }
+
+    private List<Quiz> quizzesById(List<Long> quizIds) {
+        return entityManager.getEntityManager()
+                .createQuery("SELECT q FROM Quiz q WHERE q.id IN :ids", Quiz.class)
+                .setParameter("ids", quizIds)
+                .getResultList();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.springbootjava.benchmark;
+
+import com.example.springbootjava.service.EmbeddingProvider;
+import com.example.springbootjava.service.HnswIndex;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Build time and query latency percentiles of the memory-mapped HNSW index. Set the size with
+ * {@code -Dbench.vectors=1000000}; run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class VectorSearchBenchmark {
+
+    private static final int VECTORS = Integer.getInteger("bench.vectors", 100_000);
+    private static final int DIMENSIONS = Integer.getInteger("bench.dimensions", 256);
+    private static final int QUERIES = Integer.getInteger("bench.queries", 2000);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void queryLatencyPercentiles() throws Exception {
+        Random random = new Random(1);
+        try (HnswIndex index = HnswIndex.create(tempDir.resolve("bench.hnsw"), DIMENSIONS, 16, 100, 1L)) {
+            long started = System.nanoTime();
+            for (int i = 0; i < VECTORS; i++) {
+                index.upsert(i, randomVector(random), 0, 0);
+            }
+            double buildSeconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf("HNSW build: %,d vectors x %d dims in %.1f s (%.0f inserts/s)%n",
+                    VECTORS, DIMENSIONS, buildSeconds, VECTORS / buildSeconds);
+
+            for (int ef : new int[] {32, 64, 128}) {
+                // Warm-up pass so the JIT and page cache are settled before timing
+                for (int q = 0; q < QUERIES / 4; q++) {
+                    index.search(randomVector(random), 10, ef);
+                }
+                long[] latencies = new long[QUERIES];
+                for (int q = 0; q < QUERIES; q++) {
+                    float[] query = randomVector(random);
+                    long queryStarted = System.nanoTime();
+                    index.search(query, 10, ef);
+                    latencies[q] = System.nanoTime() - queryStarted;
+                }
+                Arrays.sort(latencies);
+                System.out.printf("ef=%3d  p50 %.3f ms  p99 %.3f ms  max %.3f ms%n", ef,
+                        latencies[QUERIES / 2] / 1e6, latencies[QUERIES * 99 / 100] / 1e6, latencies[QUERIES - 1] / 1e6);
+            }
+        }
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+}
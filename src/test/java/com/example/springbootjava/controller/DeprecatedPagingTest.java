@@ -0,0 +1,136 @@
+package com.example.springbootjava.controller;
+
+import com.example.springbootjava.entity.Flashcard;
+import com.example.springbootjava.entity.Quiz;
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.repository.FlashcardRepository;
+import com.example.springbootjava.repository.QuizRepository;
+import com.example.springbootjava.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Clients that still send page/size to the list and /page endpoints get offset pages, marked
+ * deprecated, that hand over to cursors
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DeprecatedPagingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private QuizRepository quizRepository;
+
+    @Autowired
+    private FlashcardRepository flashcardRepository;
+
+    private User user;
+    private final List<Quiz> quizzes = new ArrayList<>();
+    private final List<Flashcard> flashcards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setEmail("paging-" + System.nanoTime() + "@example.com");
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setPassword("password123");
+        user.setEnabled(true);
+        user = userRepository.save(user);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < 3; i++) {
+            Quiz quiz = new Quiz("Quiz " + i, "Description " + i, 10, user);
+            quiz.setCreatedAt(now.minusMinutes(i));
+            quiz.setIsPublished(true);
+            quizzes.add(quizRepository.save(quiz));
+            Flashcard flashcard = new Flashcard("Question " + i, "Answer " + i, user);
+            flashcard.setCreatedAt(now.minusMinutes(i));
+            flashcards.add(flashcardRepository.save(flashcard));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        quizRepository.deleteAll(quizzes);
+        flashcardRepository.deleteAll(flashcards);
+        userRepository.delete(user);
+    }
+
+    @Test
+    void testGetAllQuizzes_PageAndSizeServeOffsetPagesMarkedDeprecated() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/quizzes").param("page", "0").param("size", "2")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Deprecation", "true"))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].title", is("Quiz 0")))
+                .andReturn();
+
+        mockMvc.perform(get("/api/quizzes/published").param("page", "1").param("size", "2")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Deprecation", "true"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title", is("Quiz 2")));
+
+        // The cursor of an offset page continues where it ended
+        String cursor = first.getResponse().getHeader(BaseController.NEXT_CURSOR_HEADER);
+        assertNotNull(cursor);
+        mockMvc.perform(get("/api/quizzes").param("cursor", cursor).param("limit", "2")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()))))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Deprecation"))
+                .andExpect(header().doesNotExist(BaseController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title", is("Quiz 2")));
+    }
+
+    @Test
+    void testPageEndpoints_PageAndSizeServeOffsetPagesMarkedDeprecated() throws Exception {
+        mockMvc.perform(get("/api/flashcards/page").param("page", "1").param("size", "2")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Deprecation", "true"))
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].question", is("Question 2")))
+                .andExpect(jsonPath("$.totalCount", is(3)));
+
+        mockMvc.perform(get("/api/documents/page").param("page", "0").param("size", "5")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Deprecation", "true"))
+                .andExpect(jsonPath("$.items", hasSize(0)))
+                .andExpect(jsonPath("$.hasMore", is(false)));
+
+        mockMvc.perform(get("/api/flashcards/page").param("limit", "2")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()))))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Deprecation"))
+                .andExpect(jsonPath("$.items", hasSize(2)));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.springbootjava.controller;
+
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.repository.DocumentRepository;
+import com.example.springbootjava.repository.UserRepository;
+import com.example.springbootjava.repository.UserStorageUsageRepository;
+import com.example.springbootjava.service.StorageUsageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Goes through the controller and the transactional document service, so a quota failure that
+ * poisoned the surrounding transaction would show up as a different status
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "document.storage.quota.max-files=1",
+        "document.storage.local.base-path=build/test-uploads-quota"
+})
+class DocumentUploadQuotaTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private UserStorageUsageRepository usageRepository;
+
+    @Autowired
+    private StorageUsageService storageUsage;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setEmail("quota-" + System.nanoTime() + "@example.com");
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setPassword("password123");
+        user.setEnabled(true);
+        user = userRepository.save(user);
+        storageUsage.record(user.getId(), 100, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        usageRepository.deleteById(user.getId());
+        userRepository.delete(user);
+    }
+
+    @Test
+    void testUpload_OverQuotaIsPayloadTooLargeAndLeavesCountersAlone() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "notes.txt", "text/plain",
+                "Some notes".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(multipart("/api/documents/upload").file(file)
+                        .with(authentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()))))
+                .andExpect(status().isPayloadTooLarge());
+
+        StorageUsageService.Usage usage = storageUsage.getUsage(user.getId());
+        assertEquals(100, usage.getBytesUsed());
+        assertEquals(1, usage.getFileCount());
+        assertEquals(0, documentRepository.countByUser(user));
+    }
+}
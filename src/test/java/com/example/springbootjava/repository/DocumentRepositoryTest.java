@@ -0,0 +1,90 @@
+package com.example.springbootjava.repository;
+
+import com.example.springbootjava.dto.DocumentSummaryDTO;
+import com.example.springbootjava.dto.PageCursor;
+import com.example.springbootjava.entity.Document;
+import com.example.springbootjava.entity.DocumentContent;
+import com.example.springbootjava.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class DocumentRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentContentRepository contentRepository;
+
+    private User testUser;
+    private Document notes;
+    private Document slides;
+
+    @BeforeEach
+    void setUp() {
+        testUser = new User();
+        testUser.setEmail("docs@example.com");
+        testUser.setFirstName("Test");
+        testUser.setLastName("User");
+        testUser.setPassword("password123");
+        testUser.setEnabled(true);
+        testUser = entityManager.persistAndFlush(testUser);
+
+        notes = entityManager.persistAndFlush(new Document("Biology notes", "PDF", "notes.pdf", "uploads/notes.pdf", 100L, testUser));
+        slides = entityManager.persistAndFlush(new Document("Lecture 3", "PPTX", "slides.pptx", "uploads/slides.pptx", 200L, testUser));
+        entityManager.persistAndFlush(new DocumentContent(notes.getId(), "The mitochondria is the powerhouse of the cell."));
+        entityManager.persistAndFlush(new DocumentContent(slides.getId(), "Photosynthesis happens in chloroplasts."));
+        entityManager.clear();
+    }
+
+    @Test
+    void testFindPageByUser_ReturnsMetadataProjection() {
+        List<DocumentSummaryDTO> page = documentRepository.findPageByUser(
+                testUser, PageCursor.START.getCreatedAt(), PageCursor.START.getId(), PageRequest.of(0, 10));
+
+        assertEquals(2, page.size());
+        DocumentSummaryDTO first = page.stream().filter(dto -> dto.getId().equals(notes.getId())).findFirst().orElseThrow();
+        assertEquals("Biology notes", first.getTitle());
+        assertEquals("notes.pdf", first.getOriginalFilename());
+        assertEquals(Document.ProcessingStatus.PENDING, first.getProcessingStatus());
+    }
+
+    @Test
+    void testFindPageByUserAndSearchTerm_MatchesStoredContent() {
+        List<DocumentSummaryDTO> page = documentRepository.findPageByUserAndSearchTerm(
+                testUser, "chloroplast", PageCursor.START.getCreatedAt(), PageCursor.START.getId(), PageRequest.of(0, 10));
+
+        assertEquals(1, page.size());
+        assertEquals(slides.getId(), page.get(0).getId());
+        assertEquals(1, documentRepository.countByUserAndSearchTerm(testUser, "chloroplast"));
+        assertEquals(1, documentRepository.countByUserAndSearchTerm(testUser, "biology"));
+    }
+
+    @Test
+    void testContentSlice() {
+        assertEquals("mitochondria", contentRepository.findContentSlice(notes.getId(), 5, 12));
+        assertEquals("Photosynthesis happens in chloroplasts.", contentRepository.findContentByDocumentId(slides.getId()).orElseThrow());
+    }
+
+    @Test
+    void testDeleteContentByUserId() {
+        contentRepository.deleteByUserId(testUser.getId());
+
+        assertTrue(contentRepository.findContentByDocumentId(notes.getId()).isEmpty());
+        assertEquals(2, documentRepository.countByUser(testUser));
+    }
+}
@@ -1,14 +1,24 @@
 package com.example.springbootjava.repository;
 
+import com.example.springbootjava.dto.CursorPage;
+import com.example.springbootjava.dto.FlashcardResponseDTO;
+import com.example.springbootjava.dto.PageCursor;
+import com.example.springbootjava.entity.Document;
 import com.example.springbootjava.entity.Flashcard;
 import com.example.springbootjava.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -141,6 +151,115 @@ class FlashcardRepositoryTest {
         assertEquals(1, mediumCount);
     }
 
+    @Test
+    void testFindPageByUser_WalksTiedTimestampsWithoutGapsOrRepeats() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Flashcard flashcard = new Flashcard();
+            flashcard.setQuestion("Question " + i);
+            flashcard.setAnswer("Answer " + i);
+            flashcard.setUser(testUser);
+            ids.add(entityManager.persistAndFlush(flashcard).getId());
+        }
+        // Same timestamp for all rows, so ordering within the page relies on the id tie-breaker
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Flashcard f SET f.createdAt = :createdAt")
+                .setParameter("createdAt", LocalDateTime.of(2024, 1, 1, 12, 0))
+                .executeUpdate();
+        entityManager.clear();
+
+        List<Long> seen = new ArrayList<>();
+        PageCursor cursor = PageCursor.START;
+        for (int page = 0; page < 5; page++) {
+            List<Flashcard> rows = flashcardRepository.findPageByUser(testUser, cursor.getCreatedAt(), cursor.getId(), CursorPage.lookahead(2));
+            CursorPage<Flashcard> result = CursorPage.of(rows, 2, f -> new PageCursor(f.getCreatedAt(), f.getId()));
+            result.getItems().forEach(f -> seen.add(f.getId()));
+            if (!result.isHasMore()) {
+                break;
+            }
+            cursor = PageCursor.decode(result.getNextCursor());
+        }
+
+        ids.sort(Comparator.reverseOrder());
+        assertEquals(ids, seen);
+    }
+
+    @Test
+    void testFindPageByUser_MapsDocumentTitlesInOneStatement() {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            documents.add(entityManager.persist(new Document("Chapter " + i, "PDF", "chapter" + i + ".pdf",
+                    "uploads/chapter" + i + ".pdf", 100L, testUser)));
+        }
+        for (int i = 0; i < 12; i++) {
+            entityManager.persist(new Flashcard("Question " + i, "Answer " + i, "Biology",
+                    Flashcard.Difficulty.MEDIUM, testUser, documents.get(i % documents.size())));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<FlashcardResponseDTO> page = flashcardRepository.findPageByUser(testUser, PageCursor.START.getCreatedAt(),
+                        PageCursor.START.getId(), CursorPage.lookahead(20)).stream()
+                .map(FlashcardResponseDTO::new)
+                .toList();
+
+        assertEquals(12, page.size());
+        assertTrue(page.stream().allMatch(flashcard -> flashcard.getDocument().getTitle().startsWith("Chapter")));
+        // One select for the page however many documents it spans; a lazy document would add one per document
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFindWithDocumentById_FetchesDocument() {
+        Document document = entityManager.persist(new Document("Chapter 1", "PDF", "chapter1.pdf", "uploads/chapter1.pdf", 100L, testUser));
+        Flashcard flashcard = entityManager.persist(new Flashcard("Question", "Answer", "Biology",
+                Flashcard.Difficulty.EASY, testUser, document));
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        FlashcardResponseDTO response = new FlashcardResponseDTO(flashcardRepository.findWithDocumentById(flashcard.getId()).orElseThrow());
+
+        assertEquals("Chapter 1", response.getDocument().getTitle());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFindDueByUser_ReturnsDueCardsSoonestFirst() {
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 9, 0);
+        Flashcard overdue = entityManager.persist(new Flashcard("Overdue", "Answer", testUser));
+        overdue.setNextReviewAt(now.minusDays(3));
+        Flashcard dueNow = entityManager.persist(new Flashcard("Due now", "Answer", testUser));
+        dueNow.setNextReviewAt(now);
+        Flashcard later = entityManager.persist(new Flashcard("Later", "Answer", testUser));
+        later.setNextReviewAt(now.plusDays(1));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Flashcard> due = flashcardRepository.findDueByUser(testUser, now, PageRequest.of(0, 20));
+
+        assertEquals(List.of(overdue.getId(), dueNow.getId()), due.stream().map(Flashcard::getId).toList());
+        assertEquals(1, flashcardRepository.findDueByUser(testUser, now, PageRequest.of(0, 1)).size());
+    }
+
+    @Test
+    void testFindDueByUser_UsesNextReviewIndex() {
+        String plan = String.valueOf(entityManager.getEntityManager()
+                .createNativeQuery("EXPLAIN SELECT id FROM flashcards WHERE user_id = " + testUser.getId()
+                        + " AND next_review_at <= TIMESTAMP '2024-06-01 09:00:00' ORDER BY next_review_at, id LIMIT 20")
+                .getSingleResult());
+
+        // A range scan on (user_id, next_review_at, id) that also satisfies the ORDER BY
+        assertTrue(plan.toUpperCase().contains("IDX_FLASHCARDS_USER_NEXT_REVIEW"), plan);
+    }
+
     @Test
     void testDeleteFlashcard() {
         Flashcard saved = entityManager.persistAndFlush(flashcard1);
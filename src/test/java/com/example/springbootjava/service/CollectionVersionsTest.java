@@ -0,0 +1,107 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.repository.CollectionVersionRepository;
+import com.example.springbootjava.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Committed data: versions are shared through the database, so each test commits its bumps
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(CollectionVersions.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CollectionVersionsTest {
+
+    @Autowired
+    private CollectionVersions versions;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CollectionVersionRepository versionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long alice;
+    private Long bob;
+
+    @BeforeEach
+    void setUp() {
+        alice = user("alice@example.com");
+        bob = user("bob@example.com");
+    }
+
+    @AfterEach
+    void tearDown() {
+        versionRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testBump_ChangesOnlyThatUsersCollection() {
+        String flashcards = versions.etag(alice, CollectionVersions.Type.FLASHCARDS);
+        String quizzes = versions.etag(alice, CollectionVersions.Type.QUIZZES);
+        String otherUser = versions.etag(bob, CollectionVersions.Type.FLASHCARDS);
+
+        versions.bump(alice, CollectionVersions.Type.FLASHCARDS);
+
+        assertNotEquals(flashcards, versions.etag(alice, CollectionVersions.Type.FLASHCARDS));
+        assertEquals(quizzes, versions.etag(alice, CollectionVersions.Type.QUIZZES));
+        assertEquals(otherUser, versions.etag(bob, CollectionVersions.Type.FLASHCARDS));
+    }
+
+    @Test
+    void testBump_CreatesTheRowOfAUserNeverPolled() {
+        versions.bump(alice, CollectionVersions.Type.DOCUMENTS, CollectionVersions.Type.QUIZZES);
+
+        assertEquals(1, versionRepository.findById(alice).orElseThrow().getDocumentsVersion());
+        assertEquals(0, versionRepository.findById(alice).orElseThrow().getFlashcardsVersion());
+        assertEquals(1, versionRepository.findById(alice).orElseThrow().getQuizzesVersion());
+        assertNull(versions.etag(999_999L, CollectionVersions.Type.DOCUMENTS));
+    }
+
+    @Test
+    void testBump_RolledBackWithTheWritingTransaction() {
+        String before = versions.etag(alice, CollectionVersions.Type.DOCUMENTS);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            versions.bump(alice, CollectionVersions.Type.DOCUMENTS);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(before, versions.etag(alice, CollectionVersions.Type.DOCUMENTS));
+    }
+
+    @Test
+    void testReset_InvalidatesEarlierTags() {
+        versions.bump(alice, CollectionVersions.Type.QUIZZES);
+        String before = versions.etag(alice, CollectionVersions.Type.QUIZZES);
+
+        versions.reset();
+
+        assertNotEquals(before, versions.etag(alice, CollectionVersions.Type.QUIZZES));
+    }
+
+    private Long user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setPassword("password123");
+        user.setEnabled(true);
+        return userRepository.save(user).getId();
+    }
+}
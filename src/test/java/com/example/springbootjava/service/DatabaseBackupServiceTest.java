@@ -0,0 +1,160 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Flashcard;
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.repository.BackupTombstoneRepository;
+import com.example.springbootjava.repository.FlashcardRepository;
+import com.example.springbootjava.repository.UserRepository;
+import com.example.springbootjava.service.DatabaseBackupService.DatabaseBackupData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Committed data: full backups read on their own connections, outside any test transaction
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({DatabaseBackupService.class, ParallelBackupExporter.class, IndexedBackupArchive.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DatabaseBackupServiceTest {
+
+    private static final LocalDateTime YESTERDAY = LocalDateTime.now().minusDays(1);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FlashcardRepository flashcardRepository;
+
+    @Autowired
+    private BackupTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private DatabaseBackupService backupService;
+
+    @Autowired
+    private ParallelBackupExporter parallelExporter;
+
+    @Autowired
+    private IndexedBackupArchive indexedArchive;
+
+    @TempDir
+    Path backupDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private Flashcard untouched;
+    private Flashcard edited;
+    private Flashcard deleted;
+    private Path basePath;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(backupService, "backupDir", backupDir.toString());
+        ReflectionTestUtils.setField(backupService, "overlapSeconds", 0L);
+        // One id per range, so the export has to stitch several parts per table
+        ReflectionTestUtils.setField(parallelExporter, "chunkSize", 1L);
+
+        // Rows last touched yesterday, which a delta taken after the base must leave out
+        User user = new User();
+        user.setEmail("alice@example.com");
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setPassword("password123");
+        user.setEnabled(true);
+        user.setUpdatedAt(YESTERDAY);
+        user = userRepository.save(user);
+        untouched = flashcard("Q0", user);
+        edited = flashcard("Q1", user);
+        deleted = flashcard("Q2", user);
+
+        basePath = Path.of(backupService.createBackup());
+    }
+
+    @AfterEach
+    void tearDown() {
+        flashcardRepository.deleteAll();
+        userRepository.deleteAll();
+        tombstoneRepository.deleteAll();
+    }
+
+    @Test
+    void testCreateBackup_WritesEveryRowInIdOrder() throws Exception {
+        assertTrue(basePath.getFileName().toString().endsWith(IndexedBackupArchive.EXTENSION));
+        DatabaseBackupData base = indexedArchive.readAll(basePath);
+
+        assertEquals(DatabaseBackupData.FULL, base.getType());
+        assertEquals(1, base.getUsers().size());
+        assertEquals("alice@example.com", base.getUsers().get(0).get("email"));
+        assertEquals(List.of(untouched.getId(), edited.getId(), deleted.getId()), ids(base.getFlashcards()));
+        Map<String, Object> card = base.getFlashcards().get(0);
+        assertEquals("Q0", card.get("question"));
+        assertEquals("MEDIUM", card.get("difficulty"));
+        assertEquals(base.getUsers().get(0).get("id"), card.get("userId"));
+        assertNotNull(card.get("createdAt"));
+        assertTrue(base.getQuizzes().isEmpty());
+    }
+
+    @Test
+    void testIncrementalBackup_HoldsOnlyChangedRowsAndTombstones() throws Exception {
+        Flashcard added = changeFlashcards();
+
+        Path deltaPath = Path.of(backupService.createIncrementalBackup());
+
+        assertTrue(deltaPath.getFileName().toString().matches("backup_.+_delta_.+\\.json"));
+        DatabaseBackupData delta = objectMapper.readValue(deltaPath.toFile(), DatabaseBackupData.class);
+        assertEquals(DatabaseBackupData.DELTA, delta.getType());
+        assertTrue(delta.getUsers().isEmpty());
+        assertEquals(List.of(edited.getId(), added.getId()), ids(delta.getFlashcards()).stream().sorted().toList());
+        assertEquals(Map.of("flashcards", List.of(deleted.getId())), delta.getTombstones());
+    }
+
+    @Test
+    void testReadBackup_ReplaysDeltaOntoBase() throws Exception {
+        Flashcard added = changeFlashcards();
+        Path deltaPath = Path.of(backupService.createIncrementalBackup());
+
+        DatabaseRecoveryService recoveryService = new DatabaseRecoveryService();
+        ReflectionTestUtils.setField(recoveryService, "indexedArchive", indexedArchive);
+        DatabaseBackupData restored = recoveryService.readBackup(deltaPath);
+
+        assertEquals(DatabaseBackupData.FULL, restored.getType());
+        assertEquals(1, restored.getUsers().size());
+        List<Map<String, Object>> flashcards = restored.getFlashcards();
+        assertEquals(List.of(untouched.getId(), edited.getId(), added.getId()), ids(flashcards));
+        assertTrue(flashcards.stream().anyMatch(row -> "A1 revised".equals(row.get("answer"))));
+    }
+
+    private Flashcard changeFlashcards() {
+        edited.setAnswer("A1 revised");
+        edited = flashcardRepository.save(edited);
+        flashcardRepository.delete(deleted);
+        return flashcardRepository.save(new Flashcard("Q3", "A3", edited.getUser()));
+    }
+
+    private Flashcard flashcard(String question, User user) {
+        Flashcard flashcard = new Flashcard(question, "A", user);
+        flashcard.setUpdatedAt(YESTERDAY);
+        return flashcardRepository.save(flashcard);
+    }
+
+    private static List<Long> ids(List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> ((Number) row.get("id")).longValue()).toList();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Document;
+import com.example.springbootjava.entity.DocumentContent;
+import com.example.springbootjava.entity.DocumentSegment;
+import com.example.springbootjava.repository.DocumentContentRepository;
+import com.example.springbootjava.repository.DocumentRepository;
+import com.example.springbootjava.repository.DocumentSegmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentSegmentServiceTest {
+
+    @Mock
+    private DocumentSegmentRepository segmentRepository;
+
+    @Mock
+    private DocumentContentRepository contentRepository;
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private DocumentContentExtractor contentExtractor;
+
+    @InjectMocks
+    private DocumentSegmentService segmentService;
+
+    private Document document;
+    private String storedContent;
+    // Backfill tasks submitted to the executor, run when the test says so
+    private final List<Runnable> submitted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        document = new Document();
+        document.setId(7L);
+        document.setFilePath("uploads/user_1/slides.pdf");
+        ReflectionTestUtils.setField(segmentService, "taskExecutor", (Executor) submitted::add);
+        ReflectionTestUtils.setField(segmentService, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReplaceSegments_StoresOffsetsIntoContent() {
+        TikaExtractionService.ExtractionResult extraction = new TikaExtractionService.ExtractionResult(
+                "ignored", List.of(" First page\n", "", "Third page "), "pdf", false, 0);
+
+        storedContent = segmentService.replaceSegments(document, extraction);
+
+        ArgumentCaptor<List<DocumentSegment>> captor = ArgumentCaptor.forClass(List.class);
+        verify(segmentRepository).deleteByDocumentId(7L);
+        verify(segmentRepository).saveAll(captor.capture());
+        List<DocumentSegment> segments = captor.getValue();
+
+        assertEquals("First page\n\n\n\nThird page", storedContent);
+        verify(contentRepository).save(argThat(content -> content.getDocumentId().equals(7L)
+                && content.getContent().equals(storedContent)));
+        // Delta backups pick the new content up with the document row
+        verify(documentRepository).touch(eq(7L), any(LocalDateTime.class));
+        assertEquals(3, segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            assertEquals(i + 1, segments.get(i).getPageNumber());
+        }
+        assertEquals("First page", slice(segments.get(0)));
+        assertEquals(0, segments.get(1).getLength());
+        assertEquals("Third page", slice(segments.get(2)));
+    }
+
+    @Test
+    void testReplaceSegments_UnpagedFormatIsOneSegment() {
+        String content = segmentService.replaceSegments(document,
+                new TikaExtractionService.ExtractionResult("  Whole text  ", null, "txt", false, 0));
+
+        assertEquals("Whole text", content);
+        verify(segmentRepository).saveAll(argThat(segments -> ((List<?>) segments).size() == 1));
+    }
+
+    @Test
+    void testGetPageRangeText_SlicesStoredContent() throws Exception {
+        when(segmentRepository.findByDocumentId(7L)).thenReturn(List.of(
+                new DocumentSegment(document, 1, 0, 10),
+                new DocumentSegment(document, 2, 12, 20),
+                new DocumentSegment(document, 3, 22, 30)));
+        when(contentRepository.findContentSlice(7L, 13, 18)).thenReturn("page two..page three");
+
+        assertEquals("page two..page three", segmentService.getPageRangeText(document, 2, 3));
+    }
+
+    @Test
+    void testGetPageRangeText_RejectsPagesOutsideDocument() {
+        when(segmentRepository.findByDocumentId(7L)).thenReturn(List.of(new DocumentSegment(document, 1, 0, 10)));
+
+        assertThrows(IllegalArgumentException.class, () -> segmentService.getPageRangeText(document, 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> segmentService.getPageText(document, 0));
+        verify(contentRepository, never()).findContentSlice(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testGetSegments_BackfillsDocumentsWithoutSegmentsInTheBackground() throws Exception {
+        List<DocumentSegment> stored = new ArrayList<>();
+        when(segmentRepository.findByDocumentId(7L)).thenAnswer(invocation -> new ArrayList<>(stored));
+        when(segmentRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            stored.addAll(invocation.getArgument(0));
+            return stored;
+        });
+        when(contentExtractor.extractDocument(document.getFilePath())).thenReturn(
+                new TikaExtractionService.ExtractionResult("a\nb", List.of("a", "b"), "pdf", false, 0));
+
+        // Concurrent requests get an empty answer straight away and share one extraction
+        assertTrue(segmentService.getSegments(document).isEmpty());
+        assertTrue(segmentService.getSegments(document).isEmpty());
+        assertTrue(segmentService.isBackfilling(document));
+        assertThrows(IllegalArgumentException.class, () -> segmentService.getPageText(document, 1));
+        assertEquals(1, submitted.size());
+        verify(contentExtractor, never()).extractDocument(any());
+
+        submitted.get(0).run();
+
+        assertFalse(segmentService.isBackfilling(document));
+        assertEquals(2, segmentService.getSegments(document).size());
+        verify(contentExtractor, times(1)).extractDocument(document.getFilePath());
+        verify(contentRepository).save(any(DocumentContent.class));
+    }
+
+    @Test
+    void testGetSegments_RetriesFailedBackfill() throws Exception {
+        when(segmentRepository.findByDocumentId(7L)).thenReturn(List.of());
+        when(contentExtractor.extractDocument(document.getFilePath())).thenThrow(new IOException("unreadable"));
+
+        segmentService.getSegments(document);
+        submitted.get(0).run();
+
+        assertFalse(segmentService.isBackfilling(document));
+        segmentService.getSegments(document);
+        assertEquals(2, submitted.size());
+    }
+
+    private String slice(DocumentSegment segment) {
+        return storedContent.substring(segment.getStartOffset(), segment.getEndOffset());
+    }
+}
@@ -2,7 +2,9 @@ package com.example.springbootjava.service;
 
 import com.example.springbootjava.entity.Document;
 import com.example.springbootjava.entity.User;
+import com.example.springbootjava.repository.DocumentContentRepository;
 import com.example.springbootjava.repository.DocumentRepository;
+import com.example.springbootjava.repository.DocumentSegmentRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,6 +15,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.lang.reflect.Field;
 import java.util.Arrays;
@@ -38,6 +41,30 @@ class DocumentServiceTest {
     @Mock
     private DocumentContentExtractor contentExtractor;
 
+    @Mock
+    private DocumentSegmentService segmentService;
+
+    @Mock
+    private DocumentSegmentRepository segmentRepository;
+
+    @Mock
+    private PassageIndexService passageIndex;
+
+    @Mock
+    private SemanticSearchService semanticSearch;
+
+    @Mock
+    private TotalCountCache countCache;
+
+    @Mock
+    private CollectionVersions collectionVersions;
+
+    @Mock
+    private QuizRollupService quizRollups;
+
+    @Mock
+    private DocumentContentRepository contentRepository;
+
     @InjectMocks
     private DocumentService documentService;
 
@@ -185,6 +212,26 @@ class DocumentServiceTest {
         documentService.deleteDocument(1L, testUser);
 
         verify(documentRepository, times(1)).findById(1L);
+        verify(fileStorageService, times(1)).deleteFile("uploads/user_1/test.pdf");
+        verify(segmentRepository, times(1)).deleteByDocumentId(docToDelete.getId());
+        verify(contentRepository, times(1)).deleteByDocumentId(docToDelete.getId());
+        verify(documentRepository, times(1)).delete(docToDelete);
+    }
+
+    @Test
+    void testDeleteDocument_OtherBackendsIgnoreTheLocalSwitch() {
+        Document docToDelete = new Document();
+        docToDelete.setId(1L);
+        docToDelete.setFilePath("uploads/user_1/test.pdf");
+        docToDelete.setUser(testUser);
+        ReflectionTestUtils.setField(documentService, "localStorageEnabled", false);
+        ReflectionTestUtils.setField(documentService, "storageBackend", "s3");
+
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(docToDelete));
+        when(fileStorageService.deleteFile(anyString())).thenReturn(true);
+
+        documentService.deleteDocument(1L, testUser);
+
         verify(fileStorageService, times(1)).deleteFile("uploads/user_1/test.pdf");
         verify(documentRepository, times(1)).delete(docToDelete);
     }
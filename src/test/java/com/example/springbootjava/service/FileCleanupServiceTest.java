@@ -0,0 +1,99 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.repository.DocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FileCleanupServiceTest {
+
+    @TempDir
+    Path uploadsDir;
+
+    private DocumentRepository documentRepository;
+    private FileCleanupService cleanupService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        documentRepository = mock(DocumentRepository.class);
+        LocalFileStorageService storage = new LocalFileStorageService();
+        ReflectionTestUtils.setField(storage, "basePath", uploadsDir.toString());
+
+        cleanupService = new FileCleanupService();
+        ReflectionTestUtils.setField(cleanupService, "fileStorageService", storage);
+        ReflectionTestUtils.setField(cleanupService, "documentRepository", documentRepository);
+        ReflectionTestUtils.setField(cleanupService, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(cleanupService, "basePath", uploadsDir.toString());
+        ReflectionTestUtils.setField(cleanupService, "graceHours", 24L);
+        ReflectionTestUtils.setField(cleanupService, "threads", 2);
+        ReflectionTestUtils.setField(cleanupService, "storageBackend", "local");
+
+        write("user_1/kept.pdf", 40);
+        write("user_1/orphan.pdf", 40);
+        write("user_2/orphan.txt", 40);
+        write("user_2/fresh.txt", 0);
+        write("stray.tmp", 40);
+        when(documentRepository.streamAllFilePaths()).thenAnswer(invocation -> Stream.of("uploads/user_1/kept.pdf"));
+    }
+
+    @Test
+    void testNonLocalBackend_ScheduledRunsSkipAndManualRunsRefuse() throws Exception {
+        ReflectionTestUtils.setField(cleanupService, "cleanupEnabled", true);
+        ReflectionTestUtils.setField(cleanupService, "storageBackend", "s3");
+        Files.createDirectories(uploadsDir.resolve("user_3"));
+
+        cleanupService.cleanupOrphanedFiles();
+        cleanupService.cleanupEmptyDirectories();
+
+        assertTrue(Files.exists(uploadsDir.resolve("user_1/orphan.pdf")));
+        assertTrue(Files.isDirectory(uploadsDir.resolve("user_3")));
+        assertThrows(IllegalStateException.class, () -> cleanupService.collectGarbage(true));
+        verify(documentRepository, never()).streamAllFilePaths();
+    }
+
+    @Test
+    void testCollectGarbage_DryRunReportsOnlyOldUnreferencedFiles() throws Exception {
+        FileCleanupService.GcReport report = cleanupService.collectGarbage(true);
+
+        assertTrue(report.isDryRun());
+        assertEquals(1, report.getReferencedFiles());
+        assertEquals(5, report.getScannedFiles());
+        assertEquals(3, report.getOrphanedFiles());
+        assertEquals(1, report.getRecentUnreferencedFiles());
+        assertEquals(List.of("stray.tmp", "user_1/orphan.pdf", "user_2/orphan.txt"), report.getOrphans().stream().sorted().toList());
+        assertTrue(Files.exists(uploadsDir.resolve("user_1/orphan.pdf")));
+    }
+
+    @Test
+    void testCollectGarbage_DeletesUnreferencedFilesPastGracePeriod() throws Exception {
+        FileCleanupService.GcReport report = cleanupService.collectGarbage(false);
+
+        assertEquals(3, report.getOrphanedFiles());
+        assertTrue(Files.exists(uploadsDir.resolve("user_1/kept.pdf")));
+        assertTrue(Files.exists(uploadsDir.resolve("user_2/fresh.txt")));
+        assertFalse(Files.exists(uploadsDir.resolve("user_1/orphan.pdf")));
+        assertFalse(Files.exists(uploadsDir.resolve("user_2/orphan.txt")));
+        assertFalse(Files.exists(uploadsDir.resolve("stray.tmp")));
+    }
+
+    private void write(String path, int ageDays) throws Exception {
+        Path file = uploadsDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, path);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(ageDays, ChronoUnit.DAYS)));
+    }
+}
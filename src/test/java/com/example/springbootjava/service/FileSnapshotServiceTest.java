@@ -0,0 +1,84 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.repository.DocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FileSnapshotServiceTest {
+
+    @TempDir
+    Path uploadsDir;
+
+    @TempDir
+    Path backupDir;
+
+    private DocumentRepository documentRepository;
+    private FileSnapshotService snapshots;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        documentRepository = mock(DocumentRepository.class);
+        LocalFileStorageService storage = new LocalFileStorageService();
+        ReflectionTestUtils.setField(storage, "basePath", uploadsDir.toString());
+        DatabaseBackupService backupService = mock(DatabaseBackupService.class);
+        when(backupService.getBackupDirectory()).thenReturn(backupDir);
+
+        snapshots = new FileSnapshotService();
+        ReflectionTestUtils.setField(snapshots, "documentRepository", documentRepository);
+        ReflectionTestUtils.setField(snapshots, "fileStorageService", storage);
+        ReflectionTestUtils.setField(snapshots, "backupService", backupService);
+        ReflectionTestUtils.setField(snapshots, "restoreThreads", 2);
+        ReflectionTestUtils.setField(snapshots, "storageBackend", "local");
+
+        Files.createDirectories(uploadsDir.resolve("user_1"));
+        Files.writeString(uploadsDir.resolve("user_1/a.txt"), "first upload");
+        Files.writeString(uploadsDir.resolve("user_1/b.txt"), "second upload");
+    }
+
+    @Test
+    void testCreateSnapshot_LinksUnchangedFilesAndCopiesNewOnes() throws Exception {
+        when(documentRepository.findAllFilePaths()).thenReturn(List.of("uploads/user_1/a.txt", "uploads/user_1/b.txt"));
+        FileSnapshotService.SnapshotResult first = snapshots.createSnapshot();
+        assertEquals(2, first.getCopied());
+        assertEquals(0, first.getLinked());
+
+        Files.writeString(uploadsDir.resolve("user_1/c.txt"), "third upload");
+        when(documentRepository.findAllFilePaths()).thenReturn(List.of("uploads/user_1/a.txt", "uploads/user_1/b.txt",
+                "uploads/user_1/c.txt", "uploads/user_1/gone.txt"));
+        FileSnapshotService.SnapshotResult second = snapshots.createSnapshot();
+
+        assertEquals(1, second.getCopied());
+        assertEquals(2, second.getLinked());
+        assertEquals("third upload".length(), second.getBytesCopied());
+        assertEquals(List.of("uploads/user_1/gone.txt"), second.getMissing());
+        Path root = backupDir.resolve("files");
+        assertTrue(Files.isSameFile(root.resolve(first.getSnapshot()).resolve("data/user_1/a.txt"),
+                root.resolve(second.getSnapshot()).resolve("data/user_1/a.txt")));
+        assertEquals(List.of(second.getSnapshot(), first.getSnapshot()), snapshots.listSnapshots());
+    }
+
+    @Test
+    void testRestoreSnapshot_RewritesFilesAndRejectsCorruptCopies() throws Exception {
+        when(documentRepository.findAllFilePaths()).thenReturn(List.of("uploads/user_1/a.txt", "uploads/user_1/b.txt"));
+        FileSnapshotService.SnapshotResult snapshot = snapshots.createSnapshot();
+        Files.delete(uploadsDir.resolve("user_1/a.txt"));
+        Files.delete(uploadsDir.resolve("user_1/b.txt"));
+        Files.writeString(backupDir.resolve("files").resolve(snapshot.getSnapshot()).resolve("data/user_1/b.txt"), "tampered");
+
+        FileSnapshotService.RestoreResult result = snapshots.restoreSnapshot(null);
+
+        assertEquals(1, result.getRestored());
+        assertEquals("first upload", Files.readString(uploadsDir.resolve("user_1/a.txt")));
+        assertEquals("checksum mismatch", result.getFailed().get("uploads/user_1/b.txt"));
+        assertFalse(Files.exists(uploadsDir.resolve("user_1/b.txt")));
+    }
+}
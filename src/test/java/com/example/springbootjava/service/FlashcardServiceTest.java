@@ -1,21 +1,33 @@
 package com.example.springbootjava.service;
 
+import com.example.springbootjava.dto.CursorPage;
+import com.example.springbootjava.dto.FlashcardResponseDTO;
+import com.example.springbootjava.dto.PageCursor;
+import com.example.springbootjava.dto.StudyEventDTO;
 import com.example.springbootjava.entity.Flashcard;
+import com.example.springbootjava.entity.FlashcardStudySession;
 import com.example.springbootjava.entity.User;
 import com.example.springbootjava.repository.FlashcardRepository;
+import com.example.springbootjava.repository.FlashcardStudySessionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,12 +36,27 @@ class FlashcardServiceTest {
     @Mock
     private FlashcardRepository flashcardRepository;
 
+    @Mock
+    private FlashcardStudySessionRepository studySessionRepository;
+
+    @Mock
+    private StudyEventBuffer studyEventBuffer;
+
     @Mock
     private AIService aiService;
 
     @Mock
     private DocumentContentExtractor contentExtractor;
 
+    @Mock
+    private SemanticSearchService semanticSearch;
+
+    @Mock
+    private TotalCountCache countCache;
+
+    @Mock
+    private CollectionVersions collectionVersions;
+
     @InjectMocks
     private FlashcardService flashcardService;
 
@@ -113,6 +140,53 @@ class FlashcardServiceTest {
         verify(flashcardRepository, times(1)).deleteById(1L);
     }
 
+    @Test
+    void testDeleteFlashcard_InvalidatesOwnerCounts() {
+        when(flashcardRepository.findById(1L)).thenReturn(Optional.of(testFlashcard));
+
+        flashcardService.deleteFlashcard(1L);
+
+        verify(countCache).invalidate(testUser.getId());
+        verify(flashcardRepository).deleteById(1L);
+    }
+
+    @Test
+    void testGetUserFlashcards_KeysetPage() {
+        Flashcard older = new Flashcard();
+        older.setId(2L);
+        older.setCreatedAt(LocalDateTime.of(2024, 1, 1, 9, 0));
+        testFlashcard.setCreatedAt(LocalDateTime.of(2024, 1, 2, 9, 0));
+        Flashcard oldest = new Flashcard();
+        oldest.setId(3L);
+        oldest.setCreatedAt(LocalDateTime.of(2023, 12, 31, 9, 0));
+        when(flashcardRepository.findPageByUser(eq(testUser), eq(PageCursor.START.getCreatedAt()), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(testFlashcard, older, oldest));
+
+        CursorPage<FlashcardResponseDTO> page = flashcardService.getUserFlashcards(testUser, PageCursor.START, 2, false);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals(testFlashcard.getId(), page.getItems().get(0).getId());
+        assertTrue(page.isHasMore());
+        assertNull(page.getTotalCount());
+        PageCursor next = PageCursor.decode(page.getNextCursor());
+        assertEquals(older.getCreatedAt(), next.getCreatedAt());
+        assertEquals(older.getId(), next.getId());
+        verify(flashcardRepository).findPageByUser(eq(testUser), any(), any(), eq(PageRequest.of(0, 3)));
+        verify(flashcardRepository, never()).countByUser(any());
+    }
+
+    @Test
+    void testGetUserFlashcards_LastPageWithTotal() {
+        when(flashcardRepository.findPageByUser(eq(testUser), any(), any(), any(Pageable.class))).thenReturn(List.of(testFlashcard));
+        when(countCache.get(eq(testUser.getId()), eq("flashcards"), any())).thenReturn(1L);
+
+        CursorPage<FlashcardResponseDTO> page = flashcardService.getUserFlashcards(testUser, PageCursor.START, 2, true);
+
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+        assertEquals(1L, page.getTotalCount());
+    }
+
     @Test
     void testGetFlashcardCount() {
         when(flashcardRepository.countByUser(testUser)).thenReturn(5L);
@@ -146,5 +220,65 @@ class FlashcardServiceTest {
         assertEquals(testFlashcard.getId(), result.get(0).getId());
         verify(flashcardRepository, times(1)).findByUserOrderByCreatedAtDesc(testUser);
     }
-}
 
+    @Test
+    void testReviewFlashcard_ReschedulesAndRecordsSession() {
+        when(flashcardRepository.findWithDocumentById(1L)).thenReturn(Optional.of(testFlashcard));
+
+        Optional<FlashcardResponseDTO> result = flashcardService.reviewFlashcard(1L, testUser, 4, 12);
+
+        assertTrue(result.isPresent());
+        assertEquals(1, result.get().getIntervalDays());
+        assertTrue(result.get().getNextReviewAt().isAfter(LocalDateTime.now()));
+        verify(studySessionRepository).save(argThat((FlashcardStudySession session) ->
+                session.getScore() == 4.0 && session.getTimeSpentSeconds() == 12 && session.getFlashcard() == testFlashcard));
+        verify(collectionVersions).bump(1L, CollectionVersions.Type.FLASHCARDS);
+    }
+
+    @Test
+    void testReviewFlashcard_OtherUsersCard() {
+        User otherUser = new User();
+        otherUser.setId(2L);
+        when(flashcardRepository.findWithDocumentById(1L)).thenReturn(Optional.of(testFlashcard));
+
+        assertFalse(flashcardService.reviewFlashcard(1L, otherUser, 4, null).isPresent());
+        verify(studySessionRepository, never()).save(any());
+    }
+
+    @Test
+    void testRecordStudyEvents_DropsEventsForOtherUsersCards() throws Exception {
+        ReflectionTestUtils.setField(flashcardService, "maxStudyEventsPerRequest", 100);
+        when(flashcardRepository.findIdsByUserAndIdIn(eq(testUser), any())).thenReturn(List.of(1L));
+        when(studyEventBuffer.offer(any())).thenReturn(true);
+
+        int accepted = flashcardService.recordStudyEvents(testUser, List.of(
+                new StudyEventDTO(1L, 1.0, 4, null),
+                new StudyEventDTO(1L, 0.0, 7, null),
+                new StudyEventDTO(99L, 1.0, 3, null)));
+
+        assertEquals(2, accepted);
+        verify(studyEventBuffer).offer(argThat((List<StudyEventBuffer.StudyEvent> events) ->
+                events.size() == 2 && events.stream().allMatch(event -> event.getFlashcardId() == 1L)));
+    }
+
+    @Test
+    void testRecordStudyEvents_RejectsScoresOutsideTheReviewGrades() throws Exception {
+        ReflectionTestUtils.setField(flashcardService, "maxStudyEventsPerRequest", 100);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                flashcardService.recordStudyEvents(testUser, List.of(new StudyEventDTO(1L, 6.0, 4, null))));
+        assertThrows(IllegalArgumentException.class, () ->
+                flashcardService.recordStudyEvents(testUser, List.of(new StudyEventDTO(1L, Double.NaN, 4, null))));
+        verify(studyEventBuffer, never()).offer(any());
+    }
+
+    @Test
+    void testRecordStudyEvents_FullBufferIsRejected() throws Exception {
+        ReflectionTestUtils.setField(flashcardService, "maxStudyEventsPerRequest", 100);
+        when(flashcardRepository.findIdsByUserAndIdIn(eq(testUser), any())).thenReturn(List.of(1L));
+        when(studyEventBuffer.offer(any())).thenReturn(false);
+
+        assertThrows(RejectedExecutionException.class, () ->
+                flashcardService.recordStudyEvents(testUser, List.of(new StudyEventDTO(1L, 1.0, 4, null))));
+    }
+}
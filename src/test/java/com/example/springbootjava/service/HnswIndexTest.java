@@ -0,0 +1,142 @@
+package com.example.springbootjava.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSearch_RecallAgainstBruteForce() throws Exception {
+        Random random = new Random(7);
+        float[][] vectors = new float[3000][];
+        try (HnswIndex index = HnswIndex.create(tempDir.resolve("recall.hnsw"), DIMENSIONS, 16, 100, 1L)) {
+            for (int i = 0; i < vectors.length; i++) {
+                vectors[i] = randomVector(random);
+                index.upsert(i, vectors[i], i, 0);
+            }
+
+            int found = 0;
+            int queries = 50;
+            for (int q = 0; q < queries; q++) {
+                float[] query = randomVector(random);
+                Set<Long> expected = bruteForce(vectors, query, 10);
+                for (HnswIndex.Hit hit : index.search(query, 10, 64)) {
+                    if (expected.contains(hit.getKey())) {
+                        found++;
+                    }
+                }
+            }
+            double recall = found / (queries * 10.0);
+            assertTrue(recall > 0.9, "Recall@10 was " + recall);
+        }
+    }
+
+    @Test
+    void testUpsertAndDelete_HideReplacedEntries() throws Exception {
+        Random random = new Random(11);
+        try (HnswIndex index = HnswIndex.create(tempDir.resolve("delete.hnsw"), DIMENSIONS, 8, 50, 1L)) {
+            for (int i = 0; i < 200; i++) {
+                index.upsert(i, randomVector(random), 0, 0);
+            }
+            float[] target = randomVector(random);
+            index.upsert(5, target, 42, 0);
+
+            List<HnswIndex.Hit> hits = index.search(target, 1, 32);
+            assertEquals(5, hits.get(0).getKey());
+            assertEquals(42, hits.get(0).getPayloadA());
+            assertEquals(200, index.size());
+
+            assertTrue(index.delete(5));
+            assertFalse(index.contains(5));
+            assertNotEquals(5, index.search(target, 1, 32).get(0).getKey());
+        }
+    }
+
+    @Test
+    void testOpen_ReloadsFlushedIndex() throws Exception {
+        Random random = new Random(3);
+        Path file = tempDir.resolve("reopen.hnsw");
+        float[] target = randomVector(random);
+        try (HnswIndex index = HnswIndex.create(file, DIMENSIONS, 8, 50, 99L)) {
+            for (int i = 0; i < 500; i++) {
+                index.upsert(i, i == 123 ? target : randomVector(random), i, -i);
+            }
+            index.delete(7);
+            index.flush();
+        }
+
+        assertNull(HnswIndex.open(file, DIMENSIONS, 50, 100L), "A different embedder must not reuse the index");
+        try (HnswIndex reopened = HnswIndex.open(file, DIMENSIONS, 50, 99L)) {
+            assertNotNull(reopened);
+            assertEquals(499, reopened.size());
+            HnswIndex.Hit hit = reopened.search(target, 1, 32).get(0);
+            assertEquals(123, hit.getKey());
+            assertEquals(-123, hit.getPayloadB());
+            assertEquals(1.0f, hit.getSimilarity(), 1e-4);
+        }
+    }
+
+    @Test
+    void testOpen_RejectsUnflushedIndex() throws Exception {
+        Path file = tempDir.resolve("unflushed.hnsw");
+        try (HnswIndex index = HnswIndex.create(file, DIMENSIONS, 8, 50, 1L)) {
+            index.upsert(1, randomVector(new Random(1)), 0, 0);
+        }
+
+        assertNull(HnswIndex.open(file, DIMENSIONS, 50, 1L));
+    }
+
+    @Test
+    void testHashedEmbedder_RelatedTextIsCloser() {
+        HashedFeatureEmbeddingProvider embedder = new HashedFeatureEmbeddingProvider(256);
+        float[] query = embedder.embed("photosynthesis");
+        float[] related = embedder.embed("How does photosynthetic carbon fixation work?");
+        float[] unrelated = embedder.embed("The French Revolution began in 1789");
+
+        assertTrue(dot(query, related) > dot(query, unrelated));
+        assertEquals(1.0f, dot(related, related), 1e-4);
+    }
+
+    private static Set<Long> bruteForce(float[][] vectors, float[] query, int k) {
+        Integer[] order = new Integer[vectors.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(dot(query, vectors[b]), dot(query, vectors[a])));
+        Set<Long> best = new HashSet<>();
+        for (int i = 0; i < k; i++) {
+            best.add((long) order[i]);
+        }
+        return best;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+}
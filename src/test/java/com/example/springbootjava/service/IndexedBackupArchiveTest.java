@@ -0,0 +1,164 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.service.DatabaseBackupService.DatabaseBackupData;
+import com.example.springbootjava.service.DatabaseBackupService.UserBackupData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedBackupArchiveTest {
+
+    private static final String BACKUP = """
+            {"backupTimestamp":"2026-01-02T03:04:05","version":"1.0","type":"FULL",
+             "users":[{"id":1,"email":"a@example.com"},{"id":2,"email":"b@example.com"}],
+             "documents":[],
+             "flashcards":[{"id":10,"userId":1,"question":"Q10"},{"id":11,"userId":2,"question":"Q11"},
+                           {"id":12,"userId":1,"question":"Q12"},{"id":13,"userId":1,"question":"Q13"}],
+             "quizzes":[{"id":20,"userId":2,"title":"Quiz"}],
+             "quizQuestions":[{"id":30,"quizId":20,"questionText":"Why?"}],
+             "quizAnswers":[{"id":40,"questionId":30,"answerText":"Because"}],
+             "quizAttempts":[],
+             "quizAttemptAnswers":[],
+             "flashcardStudySessions":[{"id":50,"flashcardId":12,"wasCorrect":true}]}
+            """;
+
+    @TempDir
+    Path dir;
+
+    private IndexedBackupArchive archive;
+    private Path archivePath;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        archive = new IndexedBackupArchive();
+        // Small blocks so one user's flashcards span several of them
+        ReflectionTestUtils.setField(archive, "blockSize", 40);
+        ReflectionTestUtils.setField(archive, "pendingBytesLimit", 1L << 20);
+
+        Path json = dir.resolve("backup_2026-01-02_03-04-05.json");
+        Files.writeString(json, BACKUP);
+        archivePath = dir.resolve("backup_2026-01-02_03-04-05" + IndexedBackupArchive.EXTENSION);
+        archive.write(json, archivePath);
+    }
+
+    @Test
+    void testReadAll_RestoresEverySectionInIdOrder() throws Exception {
+        assertTrue(IndexedBackupArchive.isArchive(archivePath));
+
+        DatabaseBackupData data = archive.readAll(archivePath);
+
+        assertEquals(LocalDateTime.of(2026, 1, 2, 3, 4, 5), data.getBackupTimestamp());
+        assertEquals(DatabaseBackupData.FULL, data.getType());
+        assertEquals(List.of(1L, 2L), ids(data.getUsers()));
+        assertEquals(List.of(10L, 11L, 12L, 13L), ids(data.getFlashcards()));
+        assertEquals("Q12", data.getFlashcards().get(2).get("question"));
+        assertEquals(List.of(40L), ids(data.getQuizAnswers()));
+        assertTrue(data.getDocuments().isEmpty());
+    }
+
+    @Test
+    void testReadUser_ReturnsOnlyRowsOwnedThroughParents() throws Exception {
+        UserBackupData first = archive.readUser(archivePath, 1L);
+        UserBackupData second = archive.readUser(archivePath, 2L);
+
+        assertEquals("a@example.com", first.getUser().get("email"));
+        assertEquals(List.of(10L, 12L, 13L), ids(first.getFlashcards()));
+        assertEquals(List.of(50L), ids(first.getFlashcardStudySessions()));
+        assertTrue(first.getQuizzes().isEmpty());
+
+        assertEquals(List.of(11L), ids(second.getFlashcards()));
+        assertEquals(List.of(20L), ids(second.getQuizzes()));
+        assertEquals(List.of(30L), ids(second.getQuizQuestions()));
+        assertEquals(List.of(40L), ids(second.getQuizAnswers()));
+        assertNull(archive.readUser(archivePath, 3L).getUser());
+    }
+
+    @Test
+    void testReadUser_FindsUsersThroughTheSortedIndex() throws Exception {
+        StringBuilder users = new StringBuilder();
+        StringBuilder flashcards = new StringBuilder();
+        // Interleaved owners, so the blocks are written out of user order
+        for (int i = 1; i <= 300; i++) {
+            users.append(i > 1 ? "," : "").append("{\"id\":").append(i).append('}');
+            flashcards.append(i > 1 ? "," : "").append("{\"id\":").append(1000 + i).append(",\"userId\":").append(301 - i).append('}');
+        }
+        Path json = dir.resolve("many.json");
+        Files.writeString(json, "{\"type\":\"FULL\",\"users\":[" + users + "],\"flashcards\":[" + flashcards + "]}");
+        Path many = dir.resolve("many" + IndexedBackupArchive.EXTENSION);
+        archive.write(json, many);
+
+        for (long userId : List.of(1L, 150L, 300L)) {
+            UserBackupData data = archive.readUser(many, userId);
+            assertEquals(userId, ((Number) data.getUser().get("id")).longValue());
+            assertEquals(List.of(1301 - userId), ids(data.getFlashcards()));
+        }
+        assertNull(archive.readUser(many, 301L).getUser());
+        assertEquals(300, archive.readAll(many).getFlashcards().size());
+    }
+
+    @Test
+    void testReadUser_ReadsFirstVersionArchives() throws Exception {
+        byte[] raw = "{\"id\":10,\"userId\":1,\"question\":\"Q10\"}\n".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        byte[] block = deflate(raw);
+        byte[] footer = deflate(("{\"header\":{\"backupTimestamp\":\"2026-01-02T03:04:05\",\"version\":\"1.0\"},"
+                + "\"blocks\":[{\"section\":\"flashcards\",\"userId\":1,\"offset\":8,\"length\":" + block.length
+                + ",\"rows\":1,\"crc\":" + crc.getValue() + "}]}").getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write("SBKPIDX1".getBytes(StandardCharsets.US_ASCII));
+        out.write(block);
+        out.write(footer);
+        out.writeLong(8 + block.length);
+        out.writeInt(footer.length);
+        out.write("SBKPIDX1".getBytes(StandardCharsets.US_ASCII));
+        Path old = dir.resolve("old" + IndexedBackupArchive.EXTENSION);
+        Files.write(old, bytes.toByteArray());
+
+        assertTrue(IndexedBackupArchive.isArchive(old));
+        assertEquals(List.of(10L), ids(archive.readUser(old, 1L).getFlashcards()));
+        assertTrue(archive.readUser(old, 2L).getFlashcards().isEmpty());
+        assertEquals(DatabaseBackupData.FULL, archive.readAll(old).getType());
+    }
+
+    @Test
+    void testReadAll_RejectsCorruptBlock() throws Exception {
+        try (RandomAccessFile file = new RandomAccessFile(archivePath.toFile(), "rw")) {
+            file.seek(8);
+            int first = file.read();
+            file.seek(8);
+            file.write(first ^ 0xFF);
+        }
+
+        assertThrows(IOException.class, () -> archive.readAll(archivePath));
+    }
+
+    private static byte[] deflate(byte[] raw) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+            out.write(raw);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static List<Long> ids(List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> ((Number) row.get("id")).longValue()).sorted().toList();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.springbootjava.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageTextExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PageTextExtractor pageTextExtractor;
+
+    @BeforeEach
+    void setUp() {
+        // Force the fork/join path even for the two-page samples
+        pageTextExtractor = new PageTextExtractor();
+        ReflectionTestUtils.setField(pageTextExtractor, "minPagesForParallel", 1);
+        ReflectionTestUtils.setField(pageTextExtractor, "pagesPerTask", 1);
+        ReflectionTestUtils.setField(pageTextExtractor, "parallelThreads", 2);
+        pageTextExtractor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pageTextExtractor.shutdown();
+    }
+
+    @Test
+    void testExtract_PdfPagesInOrder() throws Exception {
+        Path file = copySample("sample.pdf");
+
+        PageTextExtractor.PageText pageText = pageTextExtractor.extract(file, "pdf", 10_000, () -> false);
+
+        assertTrue(pageText.isParallel());
+        assertEquals(2, pageText.getPages().size());
+        assertTrue(pageText.getPages().get(0).contains("Photosynthesis"));
+        assertTrue(pageText.getPages().get(1).contains("Calvin cycle"));
+        assertFalse(pageText.isTruncated());
+    }
+
+    @Test
+    void testExtract_PptxSlidesInOrder() throws Exception {
+        Path file = copySample("sample.pptx");
+
+        PageTextExtractor.PageText pageText = pageTextExtractor.extract(file, "pptx", 10_000, () -> false);
+
+        assertEquals(2, pageTextExtractor.countPages(file, "pptx"));
+        assertEquals(2, pageText.getPages().size());
+        assertTrue(pageText.getPages().get(0).startsWith("Photosynthesis"));
+        assertTrue(pageText.getPages().get(1).startsWith("The light-dependent"));
+    }
+
+    @Test
+    void testExtract_StopsAtCharacterLimit() throws Exception {
+        Path file = copySample("sample.pptx");
+
+        PageTextExtractor.PageText pageText = pageTextExtractor.extract(file, "pptx", 50, () -> false);
+
+        assertTrue(pageText.isTruncated());
+        assertEquals(50, pageText.joined().length());
+    }
+
+    @Test
+    void testPageCollector_LaterPagesFinishingFirstDoNotStarveEarlierOnes() {
+        PageTextExtractor.PageCollector collector = new PageTextExtractor.PageCollector(4, 10, () -> false);
+
+        // The last two pages finish first and alone exceed the budget
+        collector.put(2, "cccccccc");
+        collector.put(3, "dddddddd");
+        assertTrue(collector.shouldContinue(0));
+        collector.put(0, "aaaaaa");
+        assertTrue(collector.shouldContinue(1));
+        collector.put(1, "bbbbbb");
+        assertFalse(collector.shouldContinue(2));
+
+        PageTextExtractor.PageText pageText = collector.toPageText(true);
+        assertEquals(10, pageText.joined().replace("\n", "").length());
+        assertEquals(List.of("aaaaaa", "bbbb"), pageText.getPages());
+        assertTrue(pageText.isTruncated());
+    }
+
+    @Test
+    void testTryExtract_ExtractsSmallPdfsFromTheirCountingLoadAndLeavesSmallDecksToTheCaller() throws Exception {
+        Path file = copySample("sample.pdf");
+
+        PageTextExtractor.PageText pageText = pageTextExtractor.tryExtract(file, "pdf", 10_000, () -> false);
+        assertEquals(2, pageText.getTotalPages());
+        assertTrue(pageText.isParallel());
+
+        ReflectionTestUtils.setField(pageTextExtractor, "minPagesForParallel", 3);
+        PageTextExtractor.PageText small = pageTextExtractor.tryExtract(file, "pdf", 10_000, () -> false);
+        assertFalse(small.isParallel());
+        assertTrue(small.getPages().get(1).contains("Calvin cycle"));
+        assertNull(pageTextExtractor.tryExtract(copySample("sample.pptx"), "pptx", 10_000, () -> false));
+        assertNull(pageTextExtractor.tryExtract(copySample("sample.docx"), "docx", 10_000, () -> false));
+    }
+
+    private Path copySample(String sample) throws Exception {
+        Path file = tempDir.resolve(sample);
+        try (InputStream in = new ClassPathResource("tika-warmup/" + sample).getInputStream()) {
+            Files.copy(in, file);
+        }
+        return file;
+    }
+}
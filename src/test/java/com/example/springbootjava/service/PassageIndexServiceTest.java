@@ -0,0 +1,130 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Document;
+import com.example.springbootjava.entity.DocumentSegment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PassageIndexServiceTest {
+
+    private PassageIndexService passageIndex;
+    private DocumentSegmentService segmentService;
+    private Document document;
+    private String content;
+    private List<DocumentSegment> segments;
+
+    @BeforeEach
+    void setUp() {
+        segmentService = mock(DocumentSegmentService.class);
+        passageIndex = new PassageIndexService();
+        ReflectionTestUtils.setField(passageIndex, "segmentService", segmentService);
+        ReflectionTestUtils.setField(passageIndex, "passageTokens", 20);
+        ReflectionTestUtils.setField(passageIndex, "topK", 3);
+        ReflectionTestUtils.setField(passageIndex, "contextTokenBudget", 800);
+        ReflectionTestUtils.setField(passageIndex, "maxIndexedDocuments", 10);
+
+        String[] pages = {
+                "Cells are the basic unit of life. " + "Every organism is made of cells. ".repeat(10),
+                "Mitochondria produce energy for the cell through cellular respiration. " + "Filler text about membranes. ".repeat(10),
+                "Photosynthesis in chloroplasts converts light into chemical energy, and the Calvin cycle fixes carbon. "
+        };
+        document = new Document();
+        document.setId(3L);
+        StringBuilder text = new StringBuilder();
+        segments = new ArrayList<>();
+        for (int i = 0; i < pages.length; i++) {
+            if (i > 0) {
+                text.append("\n\n");
+            }
+            int start = text.length();
+            text.append(pages[i]);
+            segments.add(new DocumentSegment(document, i + 1, start, text.length()));
+        }
+        content = text.toString();
+        // Passage text is sliced from the stored content
+        lenient().when(segmentService.getContent(document)).thenReturn(content);
+    }
+
+    @Test
+    void testSearch_FindsPassageOnLaterPage() throws Exception {
+        passageIndex.index(document, content, segments);
+
+        List<PassageIndexService.Passage> passages = passageIndex.search(document, "What does the Calvin cycle do?");
+
+        assertFalse(passages.isEmpty());
+        assertEquals(3, passages.get(0).getPageNumber());
+        assertTrue(passages.get(0).getText().contains("Calvin cycle"));
+        verify(segmentService, never()).getSegments(any());
+    }
+
+    @Test
+    void testSearch_ReadsContentOnceForAllPassages() throws Exception {
+        passageIndex.index(document, content, segments);
+
+        List<PassageIndexService.Passage> passages = passageIndex.search(document, "cells energy carbon");
+
+        assertTrue(passages.size() > 1);
+        verify(segmentService, times(1)).getContent(document);
+        verify(segmentService, never()).getContentSlice(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testSearch_TermsOfOtherDocumentsDoNotMatch() throws Exception {
+        Document other = new Document();
+        other.setId(4L);
+        String otherContent = "Plate tectonics moves continents.";
+        passageIndex.index(other, otherContent, List.of(new DocumentSegment(other, 1, 0, otherContent.length())));
+        passageIndex.index(document, content, segments);
+
+        assertTrue(passageIndex.search(document, "tectonics continents").isEmpty());
+    }
+
+    @Test
+    void testSearch_RanksByRelevance() throws Exception {
+        passageIndex.index(document, content, segments);
+
+        List<PassageIndexService.Passage> passages = passageIndex.search(document, "mitochondria energy");
+
+        assertEquals(2, passages.get(0).getPageNumber());
+        for (int i = 1; i < passages.size(); i++) {
+            assertTrue(passages.get(i - 1).getScore() >= passages.get(i).getScore());
+        }
+    }
+
+    @Test
+    void testSearch_RespectsContextTokenBudget() throws Exception {
+        ReflectionTestUtils.setField(passageIndex, "contextTokenBudget", 10);
+        passageIndex.index(document, content, segments);
+
+        List<PassageIndexService.Passage> passages = passageIndex.search(document, "cells organism membranes energy");
+
+        int characters = passages.stream().mapToInt(passage -> passage.getText().length()).sum();
+        assertTrue(characters <= 40, "Passages should fit roughly 10 tokens, got " + characters + " chars");
+    }
+
+    @Test
+    void testSearch_UnknownTermsReturnNothing() throws Exception {
+        passageIndex.index(document, content, segments);
+
+        assertTrue(passageIndex.search(document, "quantum chromodynamics").isEmpty());
+    }
+
+    @Test
+    void testSearch_RebuildsMissingIndex() throws Exception {
+        when(segmentService.getSegments(document)).thenReturn(segments);
+
+        List<PassageIndexService.Passage> passages = passageIndex.search(document, "chloroplasts");
+
+        assertEquals(3, passages.get(0).getPageNumber());
+        verify(segmentService).getSegments(document);
+        verify(segmentService, times(1)).getContent(document);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.dto.QuizResponseDTO;
+import com.example.springbootjava.entity.Quiz;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublishedQuizCacheTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    private PublishedQuizCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PublishedQuizCache();
+        ReflectionTestUtils.setField(cache, "maxBytes", 1_000_000L);
+    }
+
+    @Test
+    void testGet_KeyedByUpdatedAt() {
+        cache.put(1L, UPDATED_AT, response(1L, "Cells"));
+
+        assertNotNull(cache.get(1L, UPDATED_AT));
+        assertNull(cache.get(1L, UPDATED_AT.plusSeconds(1)));
+        assertNull(cache.get(2L, UPDATED_AT));
+    }
+
+    @Test
+    void testWithScore_SplicesScoreIntoCachedDefinition() throws Exception {
+        byte[] definition = cache.put(1L, UPDATED_AT, response(1L, "Cells"));
+
+        JsonNode json = new ObjectMapper().readTree(PublishedQuizCache.withScore(definition, 85));
+        JsonNode withoutScore = new ObjectMapper().readTree(PublishedQuizCache.withScore(definition, null));
+
+        assertEquals(85, json.get("score").asInt());
+        assertEquals("Cells", json.get("title").asText());
+        assertTrue(withoutScore.get("score").isNull());
+        assertFalse(new ObjectMapper().readTree(definition).has("score"));
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsedOverWeightLimit() {
+        int entryWeight = cache.put(1L, UPDATED_AT, response(1L, "Quiz")).length + 96;
+        cache.clear();
+        ReflectionTestUtils.setField(cache, "maxBytes", 2L * entryWeight);
+
+        cache.put(1L, UPDATED_AT, response(1L, "Quiz"));
+        cache.put(2L, UPDATED_AT, response(2L, "Quiz"));
+        cache.get(1L, UPDATED_AT);
+        cache.put(3L, UPDATED_AT, response(3L, "Quiz"));
+
+        assertNotNull(cache.get(1L, UPDATED_AT));
+        assertNull(cache.get(2L, UPDATED_AT));
+        assertNotNull(cache.get(3L, UPDATED_AT));
+        assertTrue(cache.getWeight() <= 2L * entryWeight);
+    }
+
+    @Test
+    void testInvalidate_ReleasesWeight() {
+        cache.put(1L, UPDATED_AT, response(1L, "Cells"));
+
+        cache.invalidate(1L);
+
+        assertNull(cache.get(1L, UPDATED_AT));
+        assertEquals(0, cache.getWeight());
+    }
+
+    private static QuizResponseDTO response(Long id, String title) {
+        Quiz quiz = new Quiz();
+        quiz.setId(id);
+        quiz.setTitle(title);
+        quiz.setIsPublished(true);
+        quiz.setCreatedAt(UPDATED_AT);
+        quiz.setUpdatedAt(UPDATED_AT);
+        return new QuizResponseDTO(quiz, List.of(), 40);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.dto.QuizQuestionResponseDTO;
+import com.example.springbootjava.entity.Quiz;
+import com.example.springbootjava.entity.QuizAnswer;
+import com.example.springbootjava.entity.QuizQuestion;
+import com.example.springbootjava.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(QuizGraphLoader.class)
+class QuizGraphLoaderTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private QuizGraphLoader quizGraphLoader;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        testUser = new User();
+        testUser.setEmail("quizzes@example.com");
+        testUser.setFirstName("Test");
+        testUser.setLastName("User");
+        testUser.setPassword("password123");
+        testUser.setEnabled(true);
+        testUser = entityManager.persistAndFlush(testUser);
+    }
+
+    @Test
+    void testLoadQuestions_OrdersQuestionsAndAnswersByOrderIndex() {
+        Quiz quiz = entityManager.persist(new Quiz("Biology", "Cells", 10, testUser));
+        // Persisted out of order so only the SQL ordering can put them right
+        QuizQuestion second = question(quiz, "Second", 2);
+        QuizQuestion first = question(quiz, "First", 1);
+        entityManager.persist(new QuizAnswer("B", false, 1, first));
+        entityManager.persist(new QuizAnswer("A", true, 0, first));
+        entityManager.persist(new QuizAnswer("D", true, 1, second));
+        entityManager.persist(new QuizAnswer("C", false, 0, second));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<QuizQuestionResponseDTO> questions = quizGraphLoader.loadQuestions(List.of(quiz.getId())).get(quiz.getId());
+
+        assertEquals(List.of("First", "Second"), questions.stream().map(QuizQuestionResponseDTO::getQuestion).toList());
+        assertEquals(List.of("A", "B"), questions.get(0).getOptions());
+        assertEquals(0, questions.get(0).getCorrectAnswer());
+        assertEquals(List.of("C", "D"), questions.get(1).getOptions());
+        assertEquals(1, questions.get(1).getCorrectAnswer());
+    }
+
+    @Test
+    void testLoadQuestions_UsesTwoStatementsForAPageOfQuizzes() {
+        List<Long> quizIds = new ArrayList<>();
+        for (int q = 0; q < 5; q++) {
+            Quiz quiz = entityManager.persist(new Quiz("Quiz " + q, null, 10, testUser));
+            quizIds.add(quiz.getId());
+            for (int i = 0; i < 4 + q; i++) {
+                QuizQuestion question = question(quiz, "Question " + i, i);
+                for (int a = 0; a < 4; a++) {
+                    entityManager.persist(new QuizAnswer("Answer " + a, a == 0, a, question));
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Map<Long, List<QuizQuestionResponseDTO>> questions = quizGraphLoader.loadQuestions(quizIds);
+
+        assertEquals(8, questions.get(quizIds.get(4)).size());
+        assertTrue(questions.values().stream().flatMap(List::stream).allMatch(question -> question.getOptions().size() == 4));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testLoadQuestions_NoQuizzesRunsNoQueries() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertTrue(quizGraphLoader.loadQuestions(List.of()).isEmpty());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    private QuizQuestion question(Quiz quiz, String text, int order) {
+        QuizQuestion question = new QuizQuestion(text, QuizQuestion.QuestionType.MULTIPLE_CHOICE, quiz);
+        question.setOrder(order);
+        return entityManager.persist(question);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Quiz;
+import com.example.springbootjava.entity.QuizAttempt;
+import com.example.springbootjava.entity.QuizScoreRollup;
+import com.example.springbootjava.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(QuizRollupService.class)
+class QuizRollupServiceTest {
+
+    // A Wednesday, so the week bucket starts on Monday 2024-06-03
+    private static final LocalDateTime WEDNESDAY = LocalDateTime.of(2024, 6, 5, 10, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private QuizRollupService quizRollups;
+
+    private User alice;
+    private User bob;
+    private Quiz quiz;
+    private Quiz otherQuiz;
+
+    @BeforeEach
+    void setUp() {
+        alice = user("alice@example.com");
+        bob = user("bob@example.com");
+        quiz = entityManager.persist(new Quiz("Biology", "Cells", 10, alice));
+        otherQuiz = entityManager.persist(new Quiz("Chemistry", "Atoms", 10, alice));
+        entityManager.flush();
+    }
+
+    @Test
+    void testRecordAttempt_UpdatesUserQuizAndUserOnQuizRows() {
+        attempt(alice, quiz, 60.0, 5, WEDNESDAY);
+        attempt(alice, quiz, 80.0, 7, WEDNESDAY.plusDays(1));
+        attempt(bob, quiz, 90.0, 4, WEDNESDAY);
+        attempt(alice, otherQuiz, 40.0, 3, WEDNESDAY);
+        entityManager.flush();
+
+        QuizScoreRollup aliceSummary = quizRollups.getUserSummary(alice.getId());
+        assertEquals(3, aliceSummary.getAttemptCount());
+        assertEquals(180.0, aliceSummary.getScoreSum(), 1e-9);
+        assertEquals(40.0, aliceSummary.getMinScore(), 1e-9);
+        assertEquals(80.0, aliceSummary.getMaxScore(), 1e-9);
+        assertEquals(15, aliceSummary.getTimeSpentMinutes());
+
+        QuizScoreRollup quizSummary = quizRollups.getQuizSummary(quiz.getId());
+        assertEquals(3, quizSummary.getAttemptCount());
+        assertEquals(90.0, quizSummary.getMaxScore(), 1e-9);
+
+        QuizScoreRollup aliceOnQuiz = quizRollups.getUserQuizSummary(alice.getId(), quiz.getId());
+        assertEquals(2, aliceOnQuiz.getAttemptCount());
+        assertEquals(80.0, aliceOnQuiz.getMaxScore(), 1e-9);
+
+        List<QuizScoreRollup> days = quizRollups.getTimeline(QuizScoreRollup.ANY, quiz.getId(), QuizScoreRollup.Bucket.DAY,
+                LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30));
+        assertEquals(List.of(LocalDate.of(2024, 6, 5), LocalDate.of(2024, 6, 6)), days.stream().map(QuizScoreRollup::getBucketStart).toList());
+        assertEquals(2, days.get(0).getAttemptCount());
+
+        List<QuizScoreRollup> weeks = quizRollups.getTimeline(alice.getId(), QuizScoreRollup.ANY, QuizScoreRollup.Bucket.WEEK,
+                LocalDate.of(2024, 6, 5), LocalDate.of(2024, 6, 30));
+        assertEquals(1, weeks.size());
+        assertEquals(LocalDate.of(2024, 6, 3), weeks.get(0).getBucketStart());
+        assertEquals(3, weeks.get(0).getAttemptCount());
+    }
+
+    @Test
+    void testRebuildAll_MatchesIncrementalRollups() {
+        attempt(alice, quiz, 60.0, 5, WEDNESDAY);
+        attempt(bob, quiz, 90.0, 4, WEDNESDAY.plusDays(6));
+        attempt(alice, otherQuiz, 40.0, null, WEDNESDAY);
+        entityManager.flush();
+        List<String> incremental = snapshot();
+
+        quizRollups.rebuildAll();
+        entityManager.clear();
+
+        assertEquals(incremental, snapshot());
+    }
+
+    @Test
+    void testRebuild_DropsDeletedAttempts() {
+        QuizAttempt low = attempt(alice, quiz, 20.0, 5, WEDNESDAY);
+        attempt(alice, quiz, 70.0, 5, WEDNESDAY);
+        attempt(bob, quiz, 90.0, 5, WEDNESDAY);
+        entityManager.flush();
+
+        entityManager.remove(low);
+        quizRollups.rebuild(List.of(alice.getId()), List.of(quiz.getId()));
+        entityManager.clear();
+
+        assertEquals(1, quizRollups.getUserSummary(alice.getId()).getAttemptCount());
+        assertEquals(70.0, quizRollups.getUserSummary(alice.getId()).getMinScore(), 1e-9);
+        assertEquals(2, quizRollups.getQuizSummary(quiz.getId()).getAttemptCount());
+        assertEquals(70.0, quizRollups.getQuizSummary(quiz.getId()).getMinScore(), 1e-9);
+        // Bob was not rebuilt and is untouched
+        assertEquals(1, quizRollups.getUserSummary(bob.getId()).getAttemptCount());
+    }
+
+    private QuizAttempt attempt(User user, Quiz target, double score, Integer minutes, LocalDateTime completedAt) {
+        QuizAttempt attempt = new QuizAttempt(score, 100.0, minutes, target, user);
+        attempt.setCompletedAt(completedAt);
+        attempt = entityManager.persist(attempt);
+        quizRollups.recordAttempt(attempt);
+        return attempt;
+    }
+
+    private List<String> snapshot() {
+        return entityManager.getEntityManager()
+                .createQuery("SELECT r FROM QuizScoreRollup r ORDER BY r.userId, r.quizId, r.bucket, r.bucketStart", QuizScoreRollup.class)
+                .getResultList().stream()
+                .map(r -> r.getUserId() + "/" + r.getQuizId() + "/" + r.getBucket() + "/" + r.getBucketStart() + ": "
+                        + r.getAttemptCount() + " " + r.getScoreSum() + " " + r.getMinScore() + " " + r.getMaxScore() + " " + r.getTimeSpentMinutes())
+                .toList();
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setPassword("password123");
+        user.setEnabled(true);
+        return entityManager.persist(user);
+    }
+}
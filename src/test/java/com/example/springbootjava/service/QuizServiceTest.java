@@ -8,6 +8,7 @@ import com.example.springbootjava.entity.User;
 import com.example.springbootjava.repository.QuizRepository;
 import com.example.springbootjava.repository.QuizQuestionRepository;
 import com.example.springbootjava.repository.QuizAnswerRepository;
+import com.example.springbootjava.repository.QuizAttemptRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,6 +20,8 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -48,6 +51,24 @@ class QuizServiceTest {
     @Mock
     private DocumentContentExtractor contentExtractor;
 
+    @Mock
+    private TotalCountCache countCache;
+
+    @Mock
+    private CollectionVersions collectionVersions;
+
+    @Mock
+    private QuizRollupService quizRollups;
+
+    @Mock
+    private QuizGraphLoader quizGraphLoader;
+
+    @Mock
+    private PublishedQuizCache publishedQuizCache;
+
+    @Mock
+    private QuizAttemptRepository quizAttemptRepository;
+
     @InjectMocks
     private QuizService quizService;
 
@@ -129,6 +150,7 @@ class QuizServiceTest {
         assertNotNull(result);
         assertEquals(updatedQuiz.getTitle(), result.getTitle());
         verify(quizRepository, times(1)).save(updatedQuiz);
+        verify(publishedQuizCache).invalidate(1L);
     }
 
     @Test
@@ -138,6 +160,20 @@ class QuizServiceTest {
         quizService.deleteQuiz(1L);
 
         verify(quizRepository, times(1)).deleteById(1L);
+        verify(publishedQuizCache).invalidate(1L);
+    }
+
+    @Test
+    void testGetPublishedQuizJson_CacheHitSkipsGraphLoad() {
+        testQuiz.setUpdatedAt(LocalDateTime.of(2024, 3, 1, 10, 0));
+        byte[] definition = "{\"id\":1,\"title\":\"Cached\"}".getBytes(StandardCharsets.UTF_8);
+        when(publishedQuizCache.get(1L, testQuiz.getUpdatedAt())).thenReturn(definition);
+
+        byte[] json = quizService.getPublishedQuizJson(testQuiz, testUser);
+
+        assertEquals("{\"score\":null,\"id\":1,\"title\":\"Cached\"}", new String(json, StandardCharsets.UTF_8));
+        verify(quizRepository, never()).findWithDocumentById(any());
+        verifyNoInteractions(quizGraphLoader);
     }
 
     @Test
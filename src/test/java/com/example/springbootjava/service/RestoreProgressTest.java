@@ -0,0 +1,39 @@
+package com.example.springbootjava.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RestoreProgressTest {
+
+    @Test
+    void testCancel_StopsTheRestoreBeforeTheSwap() {
+        RestoreProgress progress = new RestoreProgress("backup.bkp");
+        progress.track("users", 10).addRowsLoaded(4);
+        progress.track("flashcards", 0);
+
+        assertTrue(progress.cancel());
+
+        assertThrows(CancellationException.class, progress::checkCancelled);
+        assertThrows(CancellationException.class, progress::startSwap);
+        assertEquals(List.of("users", "flashcards"), progress.getTables().stream().map(RestoreProgress.TableProgress::getTable).toList());
+        assertEquals(4, progress.table("users").getRowsLoaded());
+    }
+
+    @Test
+    void testCancel_RefusedOnceSwapping() {
+        RestoreProgress progress = new RestoreProgress("backup.bkp");
+        progress.startSwap();
+
+        assertFalse(progress.cancel());
+        assertDoesNotThrow(progress::checkCancelled);
+        assertTrue(progress.isRunning());
+
+        progress.finish(RestoreProgress.Phase.COMPLETED, null);
+        assertFalse(progress.isRunning());
+        assertNotNull(progress.getFinishedAt());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Flashcard;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewSchedulerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 9, 0);
+
+    @Test
+    void testReview_PassingGradesGrowInterval() {
+        Flashcard flashcard = new Flashcard();
+
+        ReviewScheduler.review(flashcard, 5, NOW);
+        assertEquals(1, flashcard.getIntervalDays());
+        ReviewScheduler.review(flashcard, 5, NOW);
+        assertEquals(6, flashcard.getIntervalDays());
+        ReviewScheduler.review(flashcard, 5, NOW);
+
+        // The third interval uses the ease after two perfect reviews: round(6 * 2.7)
+        assertEquals(16, flashcard.getIntervalDays());
+        assertEquals(2.8, flashcard.getEaseFactor(), 1e-9);
+        assertEquals(3, flashcard.getRepetitions());
+        assertEquals(NOW.plusDays(16), flashcard.getNextReviewAt());
+        assertEquals(NOW, flashcard.getLastReviewedAt());
+    }
+
+    @Test
+    void testReview_FailingGradeRestartsCard() {
+        Flashcard flashcard = new Flashcard();
+        flashcard.setRepetitions(4);
+        flashcard.setIntervalDays(30);
+
+        ReviewScheduler.review(flashcard, 2, NOW);
+
+        assertEquals(0, flashcard.getRepetitions());
+        assertEquals(1, flashcard.getIntervalDays());
+        assertEquals(NOW.plusDays(1), flashcard.getNextReviewAt());
+        assertEquals(2.18, flashcard.getEaseFactor(), 1e-9);
+    }
+
+    @Test
+    void testReview_EaseNeverDropsBelowMinimum() {
+        Flashcard flashcard = new Flashcard();
+
+        for (int i = 0; i < 10; i++) {
+            ReviewScheduler.review(flashcard, 0, NOW);
+        }
+
+        assertEquals(ReviewScheduler.MIN_EASE, flashcard.getEaseFactor(), 1e-9);
+    }
+
+    @Test
+    void testReview_RejectsOutOfRangeQuality() {
+        Flashcard flashcard = new Flashcard();
+
+        assertThrows(IllegalArgumentException.class, () -> ReviewScheduler.review(flashcard, 6, NOW));
+        assertThrows(IllegalArgumentException.class, () -> ReviewScheduler.review(flashcard, -1, NOW));
+    }
+}
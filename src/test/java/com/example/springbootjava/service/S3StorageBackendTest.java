@@ -0,0 +1,294 @@
+package com.example.springbootjava.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the backend against a small in-process stand-in for an S3-compatible store such as MinIO,
+ * with path-style addressing
+ */
+class S3StorageBackendTest {
+
+    private static final String BUCKET = "documents";
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private FakeS3 store;
+    private S3StorageBackend backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new FakeS3();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", store::handle);
+        // Parts are uploaded concurrently, so the stand-in serves them concurrently like a real store
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.start();
+
+        backend = new S3StorageBackend();
+        ReflectionTestUtils.setField(backend, "endpoint", "http://localhost:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(backend, "publicEndpoint", "");
+        ReflectionTestUtils.setField(backend, "region", "us-east-1");
+        ReflectionTestUtils.setField(backend, "bucket", BUCKET);
+        ReflectionTestUtils.setField(backend, "accessKey", "minio");
+        ReflectionTestUtils.setField(backend, "secretKey", "minio-secret");
+        ReflectionTestUtils.setField(backend, "pathStyle", true);
+        ReflectionTestUtils.setField(backend, "multipartThreshold", "6MB");
+        ReflectionTestUtils.setField(backend, "partSize", "5MB");
+        ReflectionTestUtils.setField(backend, "uploadConcurrency", 2);
+        ReflectionTestUtils.setField(backend, "timeoutSeconds", 10L);
+        backend.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void testPutGetHeadDelete_SmallFile() throws Exception {
+        byte[] content = "hello storage".getBytes(StandardCharsets.UTF_8);
+        backend.put("user_1/a b.txt", new ByteArrayInputStream(content), content.length, "text/plain");
+
+        assertArrayEquals(content, store.objects.get("user_1/a b.txt"));
+        assertEquals(0, store.multipartUploads.get());
+        assertTrue(backend.exists("user_1/a b.txt"));
+        assertEquals(content.length, backend.size("user_1/a b.txt"));
+        try (InputStream in = backend.get("user_1/a b.txt")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+
+        backend.delete("user_1/a b.txt");
+        assertFalse(backend.exists("user_1/a b.txt"));
+        assertThrows(NoSuchFileException.class, () -> backend.get("user_1/a b.txt"));
+        assertThrows(NoSuchFileException.class, () -> backend.size("user_1/a b.txt"));
+        assertEquals(0, store.unsignedRequests.get());
+    }
+
+    @Test
+    void testPut_LargeOrUnknownLengthGoesMultipart() throws Exception {
+        byte[] content = new byte[12 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(content);
+
+        backend.put("user_2/big.pdf", new ByteArrayInputStream(content), content.length, "application/pdf");
+
+        assertArrayEquals(content, store.objects.get("user_2/big.pdf"));
+        assertEquals(1, store.multipartUploads.get());
+        assertEquals(List.of(1, 2, 3), store.completedParts);
+
+        // Unknown length that fits in one part is sent as a single PUT
+        backend.put("user_2/small.txt", new ByteArrayInputStream(new byte[10]), -1, "text/plain");
+        assertEquals(10, store.objects.get("user_2/small.txt").length);
+        assertEquals(1, store.multipartUploads.get());
+    }
+
+    @Test
+    void testPut_AbortsMultipartUploadWhenAPartFails() {
+        store.failPart = 2;
+        byte[] content = new byte[11 * 1024 * 1024];
+
+        assertThrows(IOException.class,
+                () -> backend.put("user_2/big.pdf", new ByteArrayInputStream(content), content.length, "application/pdf"));
+        assertEquals(1, store.aborted.get());
+        assertFalse(store.objects.containsKey("user_2/big.pdf"));
+    }
+
+    @Test
+    void testList_FollowsContinuationTokens() throws Exception {
+        store.objects.put("user_3/a.pdf", new byte[5]);
+        store.objects.put("user_3/b.pdf", new byte[7]);
+        store.objects.put("user_3/c.pdf", new byte[1]);
+        store.objects.put("user_30/d.pdf", new byte[100]);
+
+        Map<String, Long> files = backend.list("user_3");
+
+        assertEquals(Map.of("user_3/a.pdf", 5L, "user_3/b.pdf", 7L, "user_3/c.pdf", 1L), files);
+    }
+
+    @Test
+    void testPresignedDownloadUrl_ServesTheObjectWithoutCredentials() throws Exception {
+        store.objects.put("user_4/notes.pdf", "pdf bytes".getBytes(StandardCharsets.UTF_8));
+
+        URI url = backend.presignedDownloadUrl("user_4/notes.pdf", Duration.ofMinutes(5), "application/pdf",
+                "attachment; filename=\"notes.pdf\"").orElseThrow();
+
+        assertTrue(url.getRawQuery().contains("X-Amz-Expires=300"), url.toString());
+        assertTrue(url.getRawQuery().contains("response-content-disposition=attachment%3B%20filename%3D%22notes.pdf%22"), url.toString());
+        HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(url).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals("pdf bytes", response.body());
+
+        ReflectionTestUtils.setField(backend, "publicEndpoint", "https://files.example.com");
+        URI publicUrl = backend.presignedDownloadUrl("user_4/notes.pdf", Duration.ofDays(30), null, null).orElseThrow();
+        assertEquals("files.example.com", publicUrl.getHost());
+        assertTrue(publicUrl.getRawQuery().contains("X-Amz-Expires=604800"), publicUrl.toString());
+    }
+
+    /**
+     * Just enough of the S3 API for the backend: objects, multipart uploads and ListObjectsV2
+     * with one key per page. Authentication is only checked for presence.
+     */
+    private static class FakeS3 {
+        final Map<String, byte[]> objects = new ConcurrentSkipListMap<>();
+        final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+        final List<Integer> completedParts = new CopyOnWriteArrayList<>();
+        final AtomicInteger multipartUploads = new AtomicInteger();
+        final AtomicInteger aborted = new AtomicInteger();
+        final AtomicInteger unsignedRequests = new AtomicInteger();
+        volatile int failPart;
+
+        void handle(HttpExchange exchange) throws IOException {
+            try (exchange) {
+                Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+                String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                if (!query.containsKey("X-Amz-Signature") && (authorization == null
+                        || !authorization.startsWith("AWS4-HMAC-SHA256 Credential=minio/"))) {
+                    unsignedRequests.incrementAndGet();
+                    respond(exchange, 403, "<Error><Code>AccessDenied</Code></Error>");
+                    return;
+                }
+                String path = exchange.getRequestURI().getPath();
+                if (path.equals("/" + BUCKET) || path.equals("/" + BUCKET + "/")) {
+                    list(exchange, query);
+                    return;
+                }
+                String key = path.substring(BUCKET.length() + 2);
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                switch (exchange.getRequestMethod()) {
+                    case "PUT" -> {
+                        if (query.containsKey("partNumber")) {
+                            int partNumber = Integer.parseInt(query.get("partNumber"));
+                            if (partNumber == failPart) {
+                                respond(exchange, 500, "<Error><Code>InternalError</Code></Error>");
+                                return;
+                            }
+                            parts.put(partNumber, body);
+                            exchange.getResponseHeaders().set("ETag", "\"etag-" + partNumber + "\"");
+                        } else {
+                            objects.put(key, body);
+                        }
+                        respond(exchange, 200, "");
+                    }
+                    case "POST" -> {
+                        if (query.containsKey("uploads")) {
+                            multipartUploads.incrementAndGet();
+                            respond(exchange, 200, "<InitiateMultipartUploadResult><Bucket>" + BUCKET + "</Bucket><Key>" + key
+                                    + "</Key><UploadId>upload-1</UploadId></InitiateMultipartUploadResult>");
+                        } else {
+                            String xml = new String(body, StandardCharsets.UTF_8);
+                            ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+                            for (String part : xml.split("<PartNumber>")) {
+                                if (part.startsWith("<")) {
+                                    continue;
+                                }
+                                int partNumber = Integer.parseInt(part.substring(0, part.indexOf('<')));
+                                assertTrue(part.contains("\"etag-" + partNumber + "\""));
+                                completedParts.add(partNumber);
+                                assembled.write(parts.get(partNumber));
+                            }
+                            objects.put(key, assembled.toByteArray());
+                            respond(exchange, 200, "<CompleteMultipartUploadResult><Key>" + key + "</Key></CompleteMultipartUploadResult>");
+                        }
+                    }
+                    case "DELETE" -> {
+                        if (query.containsKey("uploadId")) {
+                            aborted.incrementAndGet();
+                            parts.clear();
+                        } else {
+                            objects.remove(key);
+                        }
+                        exchange.sendResponseHeaders(204, -1);
+                    }
+                    case "HEAD" -> {
+                        byte[] object = objects.get(key);
+                        if (object == null) {
+                            exchange.sendResponseHeaders(404, -1);
+                        } else {
+                            exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+                            exchange.sendResponseHeaders(200, -1);
+                        }
+                    }
+                    default -> {
+                        byte[] object = objects.get(key);
+                        if (object == null) {
+                            respond(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>");
+                        } else {
+                            exchange.sendResponseHeaders(200, object.length);
+                            exchange.getResponseBody().write(object);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void list(HttpExchange exchange, Map<String, String> query) throws IOException {
+            String prefix = query.getOrDefault("prefix", "");
+            String after = query.getOrDefault("continuation-token", "");
+            List<String> keys = objects.keySet().stream().filter(k -> k.startsWith(prefix) && k.compareTo(after) > 0).toList();
+            StringBuilder xml = new StringBuilder("<ListBucketResult><IsTruncated>").append(keys.size() > 1).append("</IsTruncated>");
+            if (!keys.isEmpty()) {
+                String key = keys.get(0);
+                xml.append("<Contents><Key>").append(key).append("</Key><Size>").append(objects.get(key).length).append("</Size></Contents>");
+                if (keys.size() > 1) {
+                    xml.append("<NextContinuationToken>").append(key).append("</NextContinuationToken>");
+                }
+            }
+            respond(exchange, 200, xml.append("</ListBucketResult>").toString());
+        }
+
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        private static Map<String, String> query(String rawQuery) {
+            Map<String, String> params = new HashMap<>();
+            if (rawQuery != null) {
+                Arrays.stream(rawQuery.split("&")).forEach(param -> {
+                    int eq = param.indexOf('=');
+                    params.put(URLDecoder.decode(eq < 0 ? param : param.substring(0, eq), StandardCharsets.UTF_8),
+                            eq < 0 ? "" : URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8));
+                });
+            }
+            return params;
+        }
+    }
+}
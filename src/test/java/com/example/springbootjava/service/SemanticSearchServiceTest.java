@@ -0,0 +1,144 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Flashcard;
+import com.example.springbootjava.repository.DocumentContentRepository;
+import com.example.springbootjava.repository.DocumentRepository;
+import com.example.springbootjava.repository.DocumentSegmentRepository;
+import com.example.springbootjava.repository.FlashcardRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SemanticSearchServiceTest {
+
+    @Mock
+    private FlashcardRepository flashcardRepository;
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private DocumentSegmentRepository segmentRepository;
+
+    @Mock
+    private DocumentContentRepository contentRepository;
+
+    @InjectMocks
+    private SemanticSearchService semanticSearch;
+
+    @TempDir
+    Path indexDir;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(semanticSearch, "embeddingProvider", new HashedFeatureEmbeddingProvider(64));
+        ReflectionTestUtils.setField(semanticSearch, "indexDir", indexDir.toString());
+        ReflectionTestUtils.setField(semanticSearch, "m", 8);
+        ReflectionTestUtils.setField(semanticSearch, "efConstruction", 50);
+        ReflectionTestUtils.setField(semanticSearch, "efSearch", 32);
+        ReflectionTestUtils.setField(semanticSearch, "chunkWords", 150);
+        ReflectionTestUtils.setField(semanticSearch, "flushIntervalSeconds", 10L);
+        ReflectionTestUtils.setField(semanticSearch, "compactDeletedRatio", 0.3);
+        semanticSearch.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        semanticSearch.shutdown();
+    }
+
+    @Test
+    void testAcquire_ConcurrentFirstUsesShareOneBuild() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(flashcardRepository.findByUserId(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(flashcard(10L, "photosynthesis", "light into sugar"));
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> sizes = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                sizes.add(callers.submit(() -> {
+                    try (SemanticSearchService.IndexRef ref = semanticSearch.acquire(1L)) {
+                        return ref.index().size();
+                    }
+                }));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            release.countDown();
+            for (Future<Integer> size : sizes) {
+                assertEquals(1, size.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        verify(flashcardRepository, times(1)).findByUserId(1L);
+    }
+
+    @Test
+    void testRebuild_LeavesIndexHeldBySearchOpenUntilReleased() throws Exception {
+        when(flashcardRepository.findByUserId(1L))
+                .thenReturn(List.of(flashcard(10L, "photosynthesis", "light into sugar")))
+                .thenReturn(List.of(flashcard(10L, "photosynthesis", "light into sugar"), flashcard(11L, "mitosis", "cell division")));
+
+        SemanticSearchService.IndexRef held = semanticSearch.acquire(1L);
+        semanticSearch.rebuild(1L);
+
+        // The search that started before the rebuild still reads its own index
+        assertEquals(1, held.index().size());
+        assertEquals(1, held.index().search(new HashedFeatureEmbeddingProvider(64).embed("mitosis"), 5, 32).size());
+        held.close();
+
+        List<SemanticSearchService.SemanticHit> hits = semanticSearch.search(1L, "mitosis cell division", 5,
+                EnumSet.allOf(SemanticSearchService.EntryType.class));
+        assertEquals(2, hits.size());
+        assertEquals(11L, hits.get(0).getId());
+    }
+
+    @Test
+    void testReset_DropsIndexFilesSoNextUseRebuildsFromDatabase() throws Exception {
+        when(flashcardRepository.findByUserId(1L)).thenReturn(List.of(flashcard(10L, "photosynthesis", "light into sugar")));
+        semanticSearch.acquire(1L).close();
+        assertTrue(Files.exists(indexDir.resolve("user-1.hnsw")));
+
+        semanticSearch.reset();
+
+        assertFalse(Files.exists(indexDir.resolve("user-1.hnsw")));
+        try (SemanticSearchService.IndexRef ref = semanticSearch.acquire(1L)) {
+            assertEquals(1, ref.index().size());
+        }
+        verify(flashcardRepository, times(2)).findByUserId(1L);
+    }
+
+    private static Flashcard flashcard(Long id, String question, String answer) {
+        Flashcard flashcard = new Flashcard();
+        flashcard.setId(id);
+        flashcard.setQuestion(question);
+        flashcard.setAnswer(answer);
+        return flashcard;
+    }
+}
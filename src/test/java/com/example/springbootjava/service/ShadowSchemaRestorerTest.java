@@ -0,0 +1,35 @@
+package com.example.springbootjava.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShadowSchemaRestorerTest {
+
+    @Test
+    void testNormalize_BackupAndDatabaseValuesAgree() {
+        LocalDateTime time = LocalDateTime.of(2026, 3, 4, 5, 6, 7, 123456000);
+        assertEquals(ShadowSchemaRestorer.normalize("2026-03-04T05:06:07.123456", Types.TIMESTAMP),
+                ShadowSchemaRestorer.normalize(Timestamp.valueOf(time), Types.TIMESTAMP));
+        assertEquals(ShadowSchemaRestorer.normalize(42, Types.BIGINT), ShadowSchemaRestorer.normalize(42L, Types.BIGINT));
+        // A REAL read back as float must match the double JSON parsed it into
+        assertEquals(ShadowSchemaRestorer.normalize(2.3, Types.REAL), ShadowSchemaRestorer.normalize(2.3f, Types.REAL));
+        assertEquals(ShadowSchemaRestorer.normalize("1.50", Types.NUMERIC), ShadowSchemaRestorer.normalize(new BigDecimal("1.5"), Types.NUMERIC));
+        assertEquals(Boolean.TRUE, ShadowSchemaRestorer.normalize(true, Types.BIT));
+        assertNull(ShadowSchemaRestorer.normalize(null, Types.VARCHAR));
+    }
+
+    @Test
+    void testRetarget_PointsIndexAtShadowTable() throws Exception {
+        assertEquals("CREATE INDEX idx_flashcards_user ON restore_shadow.\"flashcards\" USING btree (user_id)",
+                ShadowSchemaRestorer.retarget("CREATE INDEX idx_flashcards_user ON public.flashcards USING btree (user_id)", "flashcards"));
+        assertThrows(SQLException.class,
+                () -> ShadowSchemaRestorer.retarget("CREATE INDEX idx_other ON public.quizzes USING btree (user_id)", "flashcards"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.entity.UserStorageUsage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({StorageUsageService.class, LocalStorageBackend.class})
+class StorageUsageServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StorageUsageService storageUsage;
+
+    @Autowired
+    private LocalStorageBackend storageBackend;
+
+    @TempDir
+    Path uploads;
+
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(storageBackend, "basePath", uploads.toString());
+        ReflectionTestUtils.setField(storageUsage, "maxSize", "1KB");
+        ReflectionTestUtils.setField(storageUsage, "maxFiles", 3L);
+        alice = user("alice@example.com");
+        entityManager.flush();
+    }
+
+    @Test
+    void testReserveAndRelease_EnforceQuotaFromCounters() throws Exception {
+        storageUsage.record(alice.getId(), 600, 1);
+        storageUsage.record(alice.getId(), 200, 1);
+        storageUsage.record(alice.getId(), -100, -1);
+
+        StorageUsageService.Usage usage = storageUsage.getUsage(alice.getId());
+        assertEquals(700, usage.getBytesUsed());
+        assertEquals(1, usage.getFileCount());
+        assertEquals(1024, usage.getMaxBytes());
+
+        // A reservation counts at once, so a second one cannot pass the same check
+        storageUsage.reserve(alice.getId(), 324);
+        assertEquals(1024, storageUsage.getUsage(alice.getId()).getBytesUsed());
+        assertThrows(StorageUsageService.QuotaExceededException.class, () -> storageUsage.reserve(alice.getId(), 1));
+
+        storageUsage.release(alice.getId(), 324);
+        assertEquals(700, storageUsage.getUsage(alice.getId()).getBytesUsed());
+        assertEquals(1, storageUsage.getUsage(alice.getId()).getFileCount());
+
+        storageUsage.record(alice.getId(), 10, 2);
+        assertThrows(StorageUsageService.QuotaExceededException.class, () -> storageUsage.reserve(alice.getId(), 1));
+    }
+
+    @Test
+    void testReconcileAll_RecountsDirectoriesAndDropsCountersOfMissingUsers() throws Exception {
+        storageUsage.record(alice.getId(), 5000, 9);
+        entityManager.persist(usage(999_999L, 42));
+        Path dir = Files.createDirectories(uploads.resolve("user_" + alice.getId()));
+        Files.write(dir.resolve("a.pdf"), new byte[100]);
+        Files.write(dir.resolve("b.txt"), new byte[23]);
+        entityManager.flush();
+
+        StorageUsageService.ReconcileReport report = storageUsage.reconcileAll();
+
+        assertEquals(2, report.getUsersChecked());
+        assertEquals(2, report.getUsersCorrected());
+        StorageUsageService.Usage usage = storageUsage.getUsage(alice.getId());
+        assertEquals(123, usage.getBytesUsed());
+        assertEquals(2, usage.getFileCount());
+        assertNotNull(usage.getReconciledAt());
+        assertNull(entityManager.find(UserStorageUsage.class, 999_999L));
+
+        assertEquals(0, storageUsage.reconcileAll().getUsersCorrected());
+    }
+
+    @Test
+    void testUserIdOf_OnlyParsesUserDirectories() {
+        assertEquals(7L, StorageUsageService.userIdOf(Path.of("uploads", "user_7")));
+        assertNull(StorageUsageService.userIdOf(Path.of("uploads", "snapshots")));
+        assertNull(StorageUsageService.userIdOf(Path.of("uploads", "user_x")));
+    }
+
+    private static UserStorageUsage usage(Long userId, long bytes) {
+        UserStorageUsage usage = new UserStorageUsage(userId);
+        usage.setBytesUsed(bytes);
+        usage.setFileCount(1);
+        return usage;
+    }
+
+    private User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setPassword("password123");
+        user.setEnabled(true);
+        return entityManager.persist(user);
+    }
+}
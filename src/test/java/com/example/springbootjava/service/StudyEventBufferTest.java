@@ -0,0 +1,202 @@
+package com.example.springbootjava.service;
+
+import com.example.springbootjava.entity.Flashcard;
+import com.example.springbootjava.entity.User;
+import com.example.springbootjava.repository.FlashcardRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StudyEventBufferTest {
+
+    private static final LocalDateTime OCCURRED_AT = LocalDateTime.of(2024, 6, 1, 9, 0);
+
+    @TempDir
+    Path journalDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private FlashcardRepository flashcardRepository;
+    private CollectionVersions collectionVersions;
+    private List<StudyEventBuffer> buffers;
+    private List<Long> inserted;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        flashcardRepository = mock(FlashcardRepository.class);
+        collectionVersions = mock(CollectionVersions.class);
+        buffers = new ArrayList<>();
+        inserted = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), ArgumentMatchers.<ParameterizedPreparedStatementSetter<StudyEventBuffer.StudyEvent>>any()))
+                .thenAnswer(invocation -> {
+                    Collection<StudyEventBuffer.StudyEvent> events = invocation.getArgument(1);
+                    events.forEach(event -> inserted.add(event.getFlashcardId()));
+                    return new int[0][];
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffers.forEach(StudyEventBuffer::shutdown);
+    }
+
+    @Test
+    void testOffer_RejectsBatchThatDoesNotFit() throws Exception {
+        StudyEventBuffer buffer = newBuffer(false, 5);
+
+        assertTrue(buffer.offer(events(1, 4)));
+        assertFalse(buffer.offer(events(5, 6)));
+
+        assertEquals(4, buffer.size());
+    }
+
+    @Test
+    void testFlush_WritesBufferedEventsInOneBatch() throws Exception {
+        StudyEventBuffer buffer = newBuffer(false, 100);
+        buffer.offer(events(1, 3));
+        buffer.offer(events(4, 5));
+
+        buffer.flush();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), inserted);
+        assertEquals(0, buffer.size());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyCollection(), anyInt(), ArgumentMatchers.<ParameterizedPreparedStatementSetter<StudyEventBuffer.StudyEvent>>any());
+    }
+
+    @Test
+    void testFlush_StampsUpdatedAtWithInsertTimeForLateSyncedEvents() throws Exception {
+        List<ParameterizedPreparedStatementSetter<StudyEventBuffer.StudyEvent>> setters = new ArrayList<>();
+        doAnswer(invocation -> {
+            setters.add(invocation.getArgument(3));
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), ArgumentMatchers.<ParameterizedPreparedStatementSetter<StudyEventBuffer.StudyEvent>>any());
+        StudyEventBuffer buffer = newBuffer(false, 100);
+        buffer.offer(events(1, 1));
+        LocalDateTime before = LocalDateTime.now();
+
+        buffer.flush();
+
+        PreparedStatement statement = mock(PreparedStatement.class);
+        setters.get(0).setValues(statement, new StudyEventBuffer.StudyEvent(1L, 1.0, 5, OCCURRED_AT));
+        verify(statement).setTimestamp(4, Timestamp.valueOf(OCCURRED_AT));
+        ArgumentCaptor<Timestamp> updatedAt = ArgumentCaptor.forClass(Timestamp.class);
+        verify(statement).setTimestamp(eq(5), updatedAt.capture());
+        // Recent enough for the next delta backup to pick the row up
+        assertFalse(updatedAt.getValue().toLocalDateTime().isBefore(before.withNano(0)));
+    }
+
+    @Test
+    void testFlush_FailedBatchStaysBuffered() throws Exception {
+        StudyEventBuffer buffer = newBuffer(false, 100);
+        buffer.offer(events(1, 3));
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), ArgumentMatchers.<ParameterizedPreparedStatementSetter<StudyEventBuffer.StudyEvent>>any());
+
+        assertThrows(DataAccessResourceFailureException.class, buffer::flush);
+
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    void testFlush_AppliesScoredEventsAsReviewsOnce() throws Exception {
+        User owner = new User();
+        owner.setId(7L);
+        Flashcard card = new Flashcard();
+        card.setId(1L);
+        card.setUser(owner);
+        when(flashcardRepository.findAllById(any())).thenReturn(List.of(card));
+        StudyEventBuffer buffer = newBuffer(false, 100);
+        // Out of order, and one without a score that only records time
+        buffer.offer(List.of(
+                new StudyEventBuffer.StudyEvent(1L, 5.0, 5, OCCURRED_AT.plusDays(1)),
+                new StudyEventBuffer.StudyEvent(1L, 4.0, 5, OCCURRED_AT),
+                new StudyEventBuffer.StudyEvent(1L, null, 5, OCCURRED_AT.plusDays(2))));
+
+        buffer.flush();
+
+        assertEquals(2, card.getRepetitions());
+        assertEquals(6, card.getIntervalDays());
+        assertEquals(OCCURRED_AT.plusDays(1), card.getLastReviewedAt());
+        verify(collectionVersions).bump(7L, CollectionVersions.Type.FLASHCARDS);
+
+        // The same events again, as after a journal replay, leave the schedule alone
+        buffer.offer(List.of(new StudyEventBuffer.StudyEvent(1L, 4.0, 5, OCCURRED_AT)));
+        buffer.flush();
+        assertEquals(2, card.getRepetitions());
+    }
+
+    @Test
+    void testJournal_ReplaysUnflushedEventsAfterRestart() throws Exception {
+        StudyEventBuffer crashed = newBuffer(true, 100);
+        crashed.offer(events(1, 3));
+        // No flush and no shutdown: the process died with the events only in the journal
+
+        StudyEventBuffer restarted = newBuffer(true, 100);
+        assertEquals(3, restarted.size());
+        restarted.flush();
+
+        assertEquals(List.of(1L, 2L, 3L), inserted);
+        try (var segments = Files.list(journalDir)) {
+            // Only the fresh, empty segment of the restarted buffer is left
+            assertEquals(1, segments.count());
+        }
+    }
+
+    @Test
+    void testJournal_FlushDeletesSegment() throws Exception {
+        StudyEventBuffer buffer = newBuffer(true, 100);
+        buffer.offer(events(1, 2));
+
+        buffer.flush();
+
+        StudyEventBuffer restarted = newBuffer(true, 100);
+        assertEquals(0, restarted.size());
+    }
+
+    private StudyEventBuffer newBuffer(boolean journal, int capacity) throws Exception {
+        StudyEventBuffer buffer = new StudyEventBuffer();
+        ReflectionTestUtils.setField(buffer, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(buffer, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(buffer, "flashcardRepository", flashcardRepository);
+        ReflectionTestUtils.setField(buffer, "collectionVersions", collectionVersions);
+        ReflectionTestUtils.setField(buffer, "capacity", capacity);
+        ReflectionTestUtils.setField(buffer, "batchSize", 1000);
+        // Keep the background flush out of the way; tests flush explicitly
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(buffer, "journalEnabled", journal);
+        ReflectionTestUtils.setField(buffer, "journalDir", journalDir.toString());
+        ReflectionTestUtils.setField(buffer, "syncIntervalMs", 0L);
+        buffer.init();
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private static List<StudyEventBuffer.StudyEvent> events(int fromId, int toId) {
+        return IntStream.rangeClosed(fromId, toId)
+                .mapToObj(id -> new StudyEventBuffer.StudyEvent(id, 1.0, 5, OCCURRED_AT))
+                .toList();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.springbootjava.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TikaExtractionServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TikaExtractionService extractionService;
+    private PageTextExtractor pageTextExtractor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TikaParserPool parserPool = new TikaParserPool();
+        ReflectionTestUtils.setField(parserPool, "configuredPoolSize", 1);
+        ReflectionTestUtils.setField(parserPool, "borrowTimeoutSeconds", 5L);
+        parserPool.init();
+
+        pageTextExtractor = new PageTextExtractor();
+        ReflectionTestUtils.setField(pageTextExtractor, "minPagesForParallel", 40);
+        ReflectionTestUtils.setField(pageTextExtractor, "pagesPerTask", 8);
+        ReflectionTestUtils.setField(pageTextExtractor, "parallelThreads", 2);
+        pageTextExtractor.init();
+
+        extractionService = new TikaExtractionService();
+        ReflectionTestUtils.setField(extractionService, "parserPool", parserPool);
+        ReflectionTestUtils.setField(extractionService, "pageTextExtractor", pageTextExtractor);
+        ReflectionTestUtils.setField(extractionService, "maxChars", 1000);
+        ReflectionTestUtils.setField(extractionService, "timeoutSeconds", 30L);
+        ReflectionTestUtils.setField(extractionService, "extractionThreads", 1);
+        ReflectionTestUtils.setField(extractionService, "maxStuckThreads", 4);
+        extractionService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        extractionService.shutdown();
+        pageTextExtractor.shutdown();
+    }
+
+    @Test
+    void testExtract_SmallFile() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("notes.txt"), "Spring Boot makes it easy to create applications.");
+
+        TikaExtractionService.ExtractionResult result = extractionService.extract(file);
+
+        assertFalse(result.isTruncated());
+        assertEquals("txt", result.getFormat());
+        assertTrue(result.getText().contains("Spring Boot makes it easy"));
+    }
+
+    @Test
+    void testExtract_StopsAtCharacterLimit() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("large.txt"), "word ".repeat(5000));
+
+        TikaExtractionService.ExtractionResult result = extractionService.extract(file);
+
+        assertTrue(result.isTruncated());
+        assertEquals(1000, result.getText().length());
+        assertEquals(1, extractionService.getStatsByFormat().get("txt").getTruncations());
+    }
+
+    @Test
+    void testExtract_RecordsStatsPerFormat() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "First document text.");
+        extractionService.extract(file);
+        extractionService.extract(file);
+
+        TikaExtractionService.FormatStats stats = extractionService.getStatsByFormat().get("txt");
+
+        assertEquals(2, stats.getExtractions());
+        assertEquals(2 * Files.size(file), stats.getBytesIn());
+        assertTrue(stats.getCharsOut() > 0);
+    }
+
+    @Test
+    void testExtract_RestrictedConfigParsesAcceptedFormats() throws Exception {
+        for (String sample : new String[] {"sample.pdf", "sample.docx", "sample.pptx", "sample.ppt", "sample.txt"}) {
+            Path file = tempDir.resolve(sample);
+            try (InputStream in = new ClassPathResource("tika-warmup/" + sample).getInputStream()) {
+                Files.copy(in, file);
+            }
+
+            String text = extractionService.extract(file).getText();
+
+            assertTrue(text.contains("Photosynthesis"), sample + " should yield its text");
+        }
+    }
+
+    @Test
+    void testExtract_SplitsPagedFormatsIntoPages() throws Exception {
+        for (String sample : new String[] {"sample.pdf", "sample.pptx", "sample.ppt"}) {
+            Path file = tempDir.resolve(sample);
+            try (InputStream in = new ClassPathResource("tika-warmup/" + sample).getInputStream()) {
+                Files.copy(in, file);
+            }
+
+            List<String> pages = extractionService.extract(file).getPages();
+
+            assertNotNull(pages, sample + " should report pages");
+            assertEquals(2, pages.size(), sample);
+            assertTrue(pages.get(0).contains("Photosynthesis"), sample);
+            assertTrue(pages.get(1).contains("Calvin cycle"), sample);
+        }
+    }
+
+    @Test
+    void testExtract_UnpagedFormatHasNoPages() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("notes.txt"), "Plain text has no pages.");
+
+        assertNull(extractionService.extract(file).getPages());
+    }
+
+    @Test
+    void testExtract_TimeoutAbandonsStuckThreadAndFreesItsSlot() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        PageTextExtractor spinning = mock(PageTextExtractor.class);
+        when(spinning.tryExtract(any(), anyString(), anyInt(), any())).thenAnswer(invocation -> {
+            // Like a parser looping in native code: deaf to interrupts
+            while (unblock.getCount() > 0) {
+                Thread.onSpinWait();
+            }
+            return null;
+        });
+        ReflectionTestUtils.setField(extractionService, "pageTextExtractor", spinning);
+        ReflectionTestUtils.setField(extractionService, "timeoutSeconds", 1L);
+        ReflectionTestUtils.setField(extractionService, "maxStuckThreads", 1);
+        Path file = Files.writeString(tempDir.resolve("notes.txt"), "Spring Boot makes it easy to create applications.");
+
+        IOException timeout = assertThrows(IOException.class, () -> extractionService.extract(file));
+        assertTrue(timeout.getMessage().contains("timed out"));
+        // The single slot is free again, but the stuck thread counts against the limit
+        IOException refused = assertThrows(IOException.class, () -> extractionService.extract(file));
+        assertTrue(refused.getMessage().contains("stuck"));
+
+        unblock.countDown();
+        TikaExtractionService.ExtractionResult result = null;
+        for (int attempt = 0; result == null && attempt < 100; attempt++) {
+            try {
+                result = extractionService.extract(file);
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        assertNotNull(result);
+        assertTrue(result.getText().contains("Spring Boot makes it easy"));
+    }
+}
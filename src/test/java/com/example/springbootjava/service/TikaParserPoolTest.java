@@ -0,0 +1,60 @@
+package com.example.springbootjava.service;
+
+import org.apache.tika.parser.Parser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TikaParserPoolTest {
+
+    private TikaParserPool parserPool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        parserPool = new TikaParserPool();
+        ReflectionTestUtils.setField(parserPool, "configuredPoolSize", 2);
+        ReflectionTestUtils.setField(parserPool, "borrowTimeoutSeconds", 1L);
+        parserPool.init();
+    }
+
+    @Test
+    void testAbandon_ReplacesParserSoPoolKeepsItsSize() throws Exception {
+        Parser stuck = parserPool.borrow();
+        Parser other = parserPool.borrow();
+
+        parserPool.abandon(stuck);
+
+        Parser replacement = parserPool.borrow();
+        assertNotSame(stuck, replacement);
+        assertThrows(IOException.class, parserPool::borrow);
+        parserPool.release(other);
+        parserPool.release(replacement);
+        assertNotNull(parserPool.borrow());
+        assertNotNull(parserPool.borrow());
+    }
+
+    @Test
+    void testWarmUp_LeavesOtherParsersAvailable() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        Thread warmUp = new Thread(() -> {
+            parserPool.warmUp(3);
+            done.countDown();
+        });
+        warmUp.start();
+
+        // At most one parser is out for warm-up at any time
+        Parser parser = parserPool.borrow();
+        assertNotNull(parser);
+        parserPool.release(parser);
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertNotNull(parserPool.borrow());
+        assertNotNull(parserPool.borrow());
+    }
+}